@@ -0,0 +1,117 @@
+package components.simplesearchengine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.map.Map.Pair;
+
+/**
+ * JMH benchmarks of filling a {@code SimpleSearchEngine1L} and changing it to
+ * search mode. Each operation handles a whole word list, so the scores are
+ * times per list.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark {
+
+    /**
+     * The word list.
+     */
+    @Param({ "SomeWords.txt", "AllWords.txt" })
+    private String dataset;
+
+    /**
+     * Whether {@code changeToSearchMode} builds in parallel.
+     */
+    @Param({ "false", "true" })
+    private boolean parallelBuild;
+
+    /**
+     * The loaded word list.
+     */
+    private Dataset words;
+
+    /**
+     * Engine in insertion mode holding the whole list, for
+     * {@code changeToSearchMode}.
+     */
+    private SimpleSearchEngine1L<String> filled;
+
+    /**
+     * Loads the word list.
+     */
+    @Setup(Level.Trial)
+    public void loadDataset() {
+        this.words = new Dataset(this.dataset);
+    }
+
+    /**
+     * Fills an engine for the next {@code changeToSearchMode}.
+     */
+    @Setup(Level.Invocation)
+    public void fillEngine() {
+        this.filled = new SimpleSearchEngine1L<>();
+        this.filled.setParallelBuildEnabled(this.parallelBuild);
+        for (Pair<String, String> entry : this.words.entries()) {
+            this.filled.add(entry.key(), entry.value());
+        }
+    }
+
+    /**
+     * Adds every word of the list, one {@code add} at a time.
+     *
+     * @return the filled engine
+     */
+    @Benchmark
+    public SimpleSearchEngine1L<String> add() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
+        for (Pair<String, String> entry : this.words.entries()) {
+            sse.add(entry.key(), entry.value());
+        }
+        return sse;
+    }
+
+    /**
+     * Changes an engine holding the whole list to search mode.
+     *
+     * @return the engine in search mode
+     */
+    @Benchmark
+    public SimpleSearchEngine1L<String> changeToSearchMode() {
+        this.filled.changeToSearchMode();
+        return this.filled;
+    }
+
+    /**
+     * Loads the whole list straight into search mode.
+     *
+     * @return the engine in search mode
+     */
+    @Benchmark
+    public SimpleSearchEngine1L<String> changeToSearchModeWithEntries() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
+        sse.setParallelBuildEnabled(this.parallelBuild);
+        sse.changeToSearchMode(this.words.entries());
+        return sse;
+    }
+
+}
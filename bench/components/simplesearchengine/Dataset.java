@@ -0,0 +1,196 @@
+package components.simplesearchengine;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import components.map.Map.Pair;
+
+/**
+ * One of the word lists in {@code test/components/simplesearchengine/testData}
+ * loaded for the benchmarks, with the query words drawn from it. The
+ * directory can be changed with the {@code sse.testData} system property.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class Dataset {
+
+    /**
+     * Number of query words drawn from the list.
+     */
+    static final int QUERY_COUNT = 1024;
+
+    /**
+     * Seed for drawing the query words, so every run asks the same queries.
+     */
+    private static final long SEED = 2231;
+
+    /**
+     * The entries of the list: each line with its line number as value.
+     */
+    private final List<Pair<String, String>> entries;
+
+    /**
+     * Words of the list, drawn at random.
+     */
+    private final String[] queryWords;
+
+    /**
+     * Constructor.
+     *
+     * @param fileName
+     *            the name of the word list in the test data directory
+     */
+    Dataset(String fileName) {
+        Path directory = Paths.get(System.getProperty("sse.testData",
+                Paths.get("test", "components", "simplesearchengine",
+                        "testData").toString()));
+        this.entries = new ArrayList<>();
+        for (Pair<String, String> entry : new LineEntries<String>(
+                directory.resolve(fileName),
+                (line, lineNumber) -> Integer.toString(lineNumber))) {
+            this.entries.add(entry);
+        }
+
+        Random random = new Random(SEED);
+        this.queryWords = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            this.queryWords[i] = this.entries
+                    .get(random.nextInt(this.entries.size())).key();
+        }
+    }
+
+    /**
+     * Reports the entries of the list.
+     *
+     * @return the entries
+     */
+    List<Pair<String, String>> entries() {
+        return this.entries;
+    }
+
+    /**
+     * Reports the query words.
+     *
+     * @return {@code QUERY_COUNT} words of the list, drawn at random
+     */
+    String[] queryWords() {
+        return this.queryWords;
+    }
+
+    /**
+     * Reports the first {@code length} characters of each query word, or the
+     * whole word if it is shorter.
+     *
+     * @param length
+     *            the length of the prefixes
+     * @return the prefixes of the query words
+     */
+    String[] queryPrefixes(int length) {
+        String[] prefixes = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String word = this.queryWords[i];
+            prefixes[i] = word.substring(0, Math.min(length, word.length()));
+        }
+        return prefixes;
+    }
+
+    /**
+     * Reports {@code length} characters from the middle of each query word,
+     * or the whole word if it is shorter.
+     *
+     * @param length
+     *            the length of the substrings
+     * @return the substrings of the query words
+     */
+    String[] querySubstrings(int length) {
+        String[] substrings = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String word = this.queryWords[i];
+            int substringLength = Math.min(length, word.length());
+            int start = (word.length() - substringLength) / 2;
+            substrings[i] = word.substring(start, start + substringLength);
+        }
+        return substrings;
+    }
+
+    /**
+     * Reports {@code word} with its middle character replaced by {@code 'q'},
+     * which is rarely in the list.
+     *
+     * @param word
+     *            the word
+     * @return the misspelled word
+     */
+    private static String typo(String word) {
+        StringBuilder typo = new StringBuilder(word);
+        if (typo.length() > 0) {
+            typo.setCharAt(typo.length() / 2, 'q');
+        }
+        return typo.toString();
+    }
+
+    /**
+     * Reports each query word with its middle character replaced by
+     * {@code 'q'}, which is rarely in the list.
+     *
+     * @return the misspelled query words
+     */
+    String[] queryTypos() {
+        String[] typos = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            typos[i] = typo(this.queryWords[i]);
+        }
+        return typos;
+    }
+
+    /**
+     * Reports the first {@code length} characters of each query word, or the
+     * whole word if it is shorter, with its middle character replaced by
+     * {@code 'q'}.
+     *
+     * @param length
+     *            the length of the prefixes
+     * @return the misspelled prefixes of the query words
+     */
+    String[] queryTypos(int length) {
+        String[] typos = this.queryPrefixes(length);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            typos[i] = typo(typos[i]);
+        }
+        return typos;
+    }
+
+    /**
+     * Sets the search structure {@code sse} builds in
+     * {@code changeToSearchMode}.
+     *
+     * @param sse
+     *            the search engine, in insertion mode
+     * @param structure
+     *            {@code trie}, {@code radixTrie} or {@code dawg}
+     */
+    static void useStructure(SimpleSearchEngine1L<?> sse, String structure) {
+        sse.setRadixTrieEnabled(structure.equals("radixTrie"));
+        sse.setDawgEnabled(structure.equals("dawg"));
+    }
+
+    /**
+     * Creates a search engine in search mode over the list.
+     *
+     * @param structure
+     *            the search structure: {@code trie}, {@code radixTrie} or
+     *            {@code dawg}
+     * @return the search engine
+     */
+    SimpleSearchEngine1L<String> searchEngine(String structure) {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
+        useStructure(sse, structure);
+        sse.changeToSearchMode(this.entries);
+        return sse;
+    }
+
+}
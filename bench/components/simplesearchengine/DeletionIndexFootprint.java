@@ -0,0 +1,112 @@
+package components.simplesearchengine;
+
+/**
+ * Reports, for each distance the deletion index can be built for, what the
+ * index costs and what it saves: the build time and memory of the index, and
+ * the mean time of {@code relativeSearch} within that distance and unbounded,
+ * with the index and walking the trie alone, for misspelled words of the
+ * list. Use it to pick the distance for a deployment.
+ *
+ * <p>
+ * Run with the name of a word list in the test data directory as the first
+ * argument (defaults to {@code AllWords.txt}) and, optionally, the largest
+ * distance to try (defaults to 3).
+ */
+public final class DeletionIndexFootprint {
+
+    /**
+     * Number of untimed passes over the queries before measuring.
+     */
+    private static final int WARMUP_ROUNDS = 20;
+
+    /**
+     * Number of timed passes over the queries; the best time is reported.
+     */
+    private static final int MEASURED_ROUNDS = 10;
+
+    /**
+     * Nanoseconds per microsecond.
+     */
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final double BYTES_PER_MEGA = 1024.0 * 1024.0;
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private DeletionIndexFootprint() {
+    }
+
+    /**
+     * Reports the best mean time of {@code relativeSearch} within
+     * {@code maxDistance} edits over {@code typos}.
+     *
+     * @param sse
+     *            the engine, in search mode
+     * @param typos
+     *            the misspelled words to search for
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the best mean time of one search in microseconds
+     */
+    private static double bestSearchMicros(SimpleSearchEngine1L<String> sse,
+            String[] typos, int maxDistance) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String typo : typos) {
+                sse.relativeSearch(typo, maxDistance);
+            }
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            for (String typo : typos) {
+                sse.relativeSearch(typo, maxDistance);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / NANOS_PER_MICRO / typos.length;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the word list and the largest distance to try
+     */
+    public static void main(String[] args) {
+        String fileName = "AllWords.txt";
+        int maxDistance = 3;
+        if (args.length > 0) {
+            fileName = args[0];
+        }
+        if (args.length > 1) {
+            maxDistance = Integer.parseInt(args[1]);
+        }
+
+        Dataset list = new Dataset(fileName);
+        String[] typos = list.queryTypos();
+        SimpleSearchEngine1L<String> trie = new SimpleSearchEngine1L<>();
+        trie.changeToSearchMode(list.entries());
+        System.out.printf("%d tags, trie alone: unbounded %.1f us%n",
+                trie.size(), bestSearchMicros(trie, typos, Integer.MAX_VALUE));
+        System.out.printf("%8s %9s %9s %9s %11s %11s %11s%n", "distance",
+                "build ms", "index MB", "bytes/tag", "within us",
+                "trie us", "unbounded");
+        for (int d = 1; d <= maxDistance; d++) {
+            SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
+            sse.setDeletionIndexDistance(d);
+            sse.changeToSearchMode(list.entries());
+            System.out.printf("%8d %9.0f %9.1f %9.1f %11.1f %11.1f %11.1f%n",
+                    d, sse.deletionIndexBuildMillis(),
+                    sse.deletionIndexBytes() / BYTES_PER_MEGA,
+                    (double) sse.deletionIndexBytes() / sse.size(),
+                    bestSearchMicros(sse, typos, d),
+                    bestSearchMicros(trie, typos, d),
+                    bestSearchMicros(sse, typos, Integer.MAX_VALUE));
+        }
+    }
+
+}
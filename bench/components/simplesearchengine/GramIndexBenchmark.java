@@ -0,0 +1,146 @@
+package components.simplesearchengine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
+
+/**
+ * JMH benchmarks of the searches the trigram index answers, with and without
+ * it, over the full word list: {@code containsSearch} with substrings of 3,
+ * 4 and 8 characters, and {@code relativeSearch} and {@code suggestions}
+ * with misspelled words. Without the index each search walks the trie.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GramIndexBenchmark {
+
+    /**
+     * Whether the trigram index is built.
+     */
+    @Param({ "false", "true" })
+    private boolean gramIndex;
+
+    /**
+     * Length of the substrings searched for.
+     */
+    @Param({ "3", "4", "8" })
+    private int substringLength;
+
+    /**
+     * Number of suggestions asked for.
+     */
+    private static final int SUGGESTIONS = 5;
+
+    /**
+     * Largest edit distance of the bounded relative search.
+     */
+    private static final int MAX_DISTANCE = 2;
+
+    /**
+     * The engine, in search mode.
+     */
+    private SimpleSearchEngine1L<String> sse;
+
+    /**
+     * Substrings of words of the list.
+     */
+    private String[] substrings;
+
+    /**
+     * Words of the list with one character changed.
+     */
+    private String[] typos;
+
+    /**
+     * Number of the next query word.
+     */
+    private int next;
+
+    /**
+     * Builds the engine and the queries.
+     */
+    @Setup(Level.Trial)
+    public void buildEngine() {
+        Dataset list = new Dataset("AllWords.txt");
+        this.sse = new SimpleSearchEngine1L<>();
+        this.sse.setGramIndexEnabled(this.gramIndex);
+        this.sse.changeToSearchMode(list.entries());
+        this.substrings = list.querySubstrings(this.substringLength);
+        this.typos = list.queryTypos();
+    }
+
+    /**
+     * Moves to the next query word.
+     *
+     * @return the number of the query word to use
+     */
+    private int nextQuery() {
+        int query = this.next;
+        this.next = (this.next + 1) % Dataset.QUERY_COUNT;
+        return query;
+    }
+
+    /**
+     * Lists the words containing a substring.
+     *
+     * @return the words
+     */
+    @Benchmark
+    public List<String> containsSearch() {
+        return this.sse.containsSearch(this.substrings[this.nextQuery()]);
+    }
+
+    /**
+     * Finds the closest word to a misspelled word.
+     *
+     * @return the closest word
+     */
+    @Benchmark
+    public String relativeSearch() {
+        return this.sse.relativeSearch(this.typos[this.nextQuery()]);
+    }
+
+    /**
+     * Finds the closest word within two edits of a misspelled word.
+     *
+     * @return the closest word, or null
+     */
+    @Benchmark
+    public String relativeSearchWithin() {
+        return this.sse.relativeSearch(this.typos[this.nextQuery()],
+                MAX_DISTANCE);
+    }
+
+    /**
+     * Finds the closest words to a misspelled word.
+     *
+     * @return the suggestions
+     */
+    @Benchmark
+    public List<Suggestion<String>> suggestions() {
+        return this.sse.suggestions(this.typos[this.nextQuery()],
+                SUGGESTIONS);
+    }
+
+}
@@ -0,0 +1,135 @@
+package components.simplesearchengine;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import components.map.Map.Pair;
+
+/**
+ * Reports, with the trie on the heap and off it, the heap in use after a full
+ * collection, the memory of the direct buffers, and the mean time of a full
+ * collection with the engine in search mode, over copies of a word list. Use
+ * it to see whether off-heap storage keeps the heap and the collection pauses
+ * flat as the number of tags grows.
+ *
+ * <p>
+ * Run with the name of a word list in the test data directory as the first
+ * argument (defaults to {@code AllWords.txt}) and, optionally, the largest
+ * number of copies of each word, each with a different suffix (defaults to
+ * 8); the copies double from one up to it. Give the JVM a heap large enough
+ * for the largest engine and a fixed collector, for example
+ * {@code -Xmx8g -XX:+UseG1GC}.
+ */
+public final class OffHeapFootprint {
+
+    /**
+     * Number of full collections timed for each engine.
+     */
+    private static final int COLLECTIONS = 5;
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final double BYTES_PER_MEGA = 1024.0 * 1024.0;
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private OffHeapFootprint() {
+    }
+
+    /**
+     * Reports the total time spent in garbage collection so far.
+     *
+     * @return the time in milliseconds
+     */
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory
+                .getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Reports the memory of the direct buffers in use.
+     *
+     * @return the memory in bytes
+     */
+    private static long directBytes() {
+        long bytes = 0;
+        for (BufferPoolMXBean pool : ManagementFactory
+                .getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                bytes += pool.getMemoryUsed();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds an engine over {@code copies} copies of each entry and prints
+     * its footprint.
+     *
+     * @param entries
+     *            the entries of the word list
+     * @param copies
+     *            the number of copies of each entry
+     * @param offHeap
+     *            whether to keep the trie off the heap
+     */
+    private static void report(List<Pair<String, String>> entries,
+            int copies, boolean offHeap) {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
+        sse.setOffHeapStorageEnabled(offHeap);
+        for (Pair<String, String> entry : entries) {
+            for (int c = 0; c < copies; c++) {
+                sse.add(entry.key() + c, entry.value());
+            }
+        }
+        sse.changeToSearchMode();
+
+        System.gc();
+        long heapBytes = ManagementFactory.getMemoryMXBean()
+                .getHeapMemoryUsage().getUsed();
+        long start = collectionMillis();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+        }
+        double gcMillis = (double) (collectionMillis() - start) / COLLECTIONS;
+
+        System.out.printf("%9d %8s %10.1f %10.1f %10.1f%n", sse.size(),
+                offHeap, heapBytes / BYTES_PER_MEGA,
+                directBytes() / BYTES_PER_MEGA, gcMillis);
+        sse.clear();
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the word list and the largest number of copies of each word
+     */
+    public static void main(String[] args) {
+        String fileName = "AllWords.txt";
+        int maxCopies = 8;
+        if (args.length > 0) {
+            fileName = args[0];
+        }
+        if (args.length > 1) {
+            maxCopies = Integer.parseInt(args[1]);
+        }
+
+        List<Pair<String, String>> entries = new Dataset(fileName).entries();
+        System.out.printf("%9s %8s %10s %10s %10s%n", "tags", "off-heap",
+                "heap MB", "direct MB", "full gc ms");
+        for (int copies = 1; copies <= maxCopies; copies *= 2) {
+            report(entries, copies, false);
+            report(entries, copies, true);
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package components.simplesearchengine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the single word queries of a {@code SimpleSearchEngine1L}
+ * in search mode. Every operation asks about the next of a fixed set of words
+ * drawn from the word list, so the scores are per query.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    /**
+     * The word list.
+     */
+    @Param({ "SomeWords.txt", "AllWords.txt" })
+    private String dataset;
+
+    /**
+     * The search structure: {@code trie}, {@code radixTrie} or {@code dawg}.
+     */
+    @Param({ "trie", "radixTrie", "dawg" })
+    private String structure;
+
+    /**
+     * The engine, in search mode.
+     */
+    private SimpleSearchEngine1L<String> sse;
+
+    /**
+     * Words of the list.
+     */
+    private String[] words;
+
+    /**
+     * {@code words} with one character changed.
+     */
+    private String[] typos;
+
+    /**
+     * Number of the next query word.
+     */
+    private int next;
+
+    /**
+     * Builds the engine and the queries.
+     */
+    @Setup(Level.Trial)
+    public void buildEngine() {
+        Dataset list = new Dataset(this.dataset);
+        this.sse = list.searchEngine(this.structure);
+        this.words = list.queryWords();
+        this.typos = list.queryTypos();
+    }
+
+    /**
+     * Moves to the next query word.
+     *
+     * @return the number of the query word to use
+     */
+    private int nextQuery() {
+        int query = this.next;
+        this.next = (this.next + 1) % Dataset.QUERY_COUNT;
+        return query;
+    }
+
+    /**
+     * Looks up a word of the list.
+     *
+     * @return whether the engine contains the word
+     */
+    @Benchmark
+    public boolean contains() {
+        return this.sse.contains(this.words[this.nextQuery()]);
+    }
+
+    /**
+     * Looks up a misspelled word, which is usually not in the list.
+     *
+     * @return whether the engine contains the word
+     */
+    @Benchmark
+    public boolean containsMissing() {
+        return this.sse.contains(this.typos[this.nextQuery()]);
+    }
+
+    /**
+     * Finds the value of a word of the list.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public String valueOf() {
+        return this.sse.valueOf(this.words[this.nextQuery()]);
+    }
+
+    /**
+     * Finds the closest word to a misspelled word.
+     *
+     * @return the closest word
+     */
+    @Benchmark
+    public String relativeSearch() {
+        return this.sse.relativeSearch(this.typos[this.nextQuery()]);
+    }
+
+}
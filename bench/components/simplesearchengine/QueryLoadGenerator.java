@@ -0,0 +1,255 @@
+package components.simplesearchengine;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for {@code SimpleSearchEngineServer}: a fixed number of
+ * clients, each on its own virtual thread, send queries drawn from a word list
+ * back to back to a server on this machine for a fixed time, then the
+ * throughput and latency percentiles of each kind of query are reported. The
+ * server should serve the same word list, so the queries find what they look
+ * for.
+ *
+ * <p>
+ * Arguments, all optional, in order: the base URL of the server
+ * ({@code http://localhost:8231}), the number of clients (64), the seconds to
+ * measure (10), the seconds to warm up first without measuring (3), and the
+ * word list in the test data directory ({@code AllWords.txt}).
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public final class QueryLoadGenerator {
+
+    /**
+     * Kind of query sent.
+     */
+    private enum Query {
+        /**
+         * {@code /contains} with a word of the list.
+         */
+        CONTAINS,
+
+        /**
+         * {@code /valueOf} with a word of the list.
+         */
+        VALUE_OF,
+
+        /**
+         * {@code /prefix} with the first two characters of a word.
+         */
+        PREFIX,
+
+        /**
+         * {@code /substring} with four characters of a word.
+         */
+        SUBSTRING,
+
+        /**
+         * {@code /relative} with a misspelled word.
+         */
+        RELATIVE
+    }
+
+    /**
+     * Length of the prefixes sent.
+     */
+    private static final int PREFIX_LENGTH = 2;
+
+    /**
+     * Length of the substrings sent.
+     */
+    private static final int SUBSTRING_LENGTH = 4;
+
+    /**
+     * Nanoseconds per microsecond.
+     */
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private QueryLoadGenerator() {
+    }
+
+    /**
+     * Builds the request path of every query of each kind.
+     *
+     * @param words
+     *            the loaded word list
+     * @return the request paths, indexed by kind of query then query number
+     */
+    private static String[][] requestPaths(Dataset words) {
+        String[] wordList = words.queryWords();
+        String[] prefixes = words.queryPrefixes(PREFIX_LENGTH);
+        String[] substrings = words.querySubstrings(SUBSTRING_LENGTH);
+        String[] typos = words.queryTypos();
+
+        String[][] paths = new String[Query.values().length][];
+        for (int kind = 0; kind < paths.length; kind++) {
+            paths[kind] = new String[Dataset.QUERY_COUNT];
+        }
+        for (int i = 0; i < Dataset.QUERY_COUNT; i++) {
+            paths[Query.CONTAINS.ordinal()][i] = "/contains?tag="
+                    + encode(wordList[i]);
+            paths[Query.VALUE_OF.ordinal()][i] = "/valueOf?tag="
+                    + encode(wordList[i]);
+            paths[Query.PREFIX.ordinal()][i] = "/prefix?q="
+                    + encode(prefixes[i]);
+            paths[Query.SUBSTRING.ordinal()][i] = "/substring?q="
+                    + encode(substrings[i]);
+            paths[Query.RELATIVE.ordinal()][i] = "/relative?q="
+                    + encode(typos[i]);
+        }
+        return paths;
+    }
+
+    /**
+     * URL encodes {@code text}.
+     *
+     * @param text
+     *            the text
+     * @return {@code text}, URL encoded
+     */
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the base URL, number of clients, seconds to measure, seconds
+     *            to warm up and word list, all optional
+     * @throws InterruptedException
+     *             if interrupted while waiting for the clients
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int defaultClients = 64;
+        final int defaultSeconds = 10;
+        final int defaultWarmupSeconds = 3;
+
+        String baseUrl = "http://localhost:8231";
+        int clients = defaultClients;
+        int seconds = defaultSeconds;
+        int warmupSeconds = defaultWarmupSeconds;
+        String dataset = "AllWords.txt";
+        if (args.length > 0) {
+            baseUrl = args[0];
+        }
+        if (args.length > 1) {
+            clients = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            seconds = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            warmupSeconds = Integer.parseInt(args[3]);
+        }
+        if (args.length > 4) {
+            dataset = args[4];
+        }
+
+        String[][] paths = requestPaths(new Dataset(dataset));
+        Query[] queries = Query.values();
+        Histogram[] latency = new Histogram[queries.length];
+        LongAdder[] errors = new LongAdder[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            latency[i] = new Histogram();
+            errors[i] = new LongAdder();
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+        long measureStart = System.nanoTime()
+                + (long) (warmupSeconds * NANOS_PER_SECOND);
+        long measureEnd = measureStart + (long) (seconds * NANOS_PER_SECOND);
+
+        /*
+         * Each client cycles through the kinds of query, starting at its own
+         * offset so the clients do not all send the same query at once
+         */
+        String base = baseUrl;
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            int offset = c * 7;
+            threads.add(Thread.ofVirtual().start(() -> {
+                long n = offset;
+                long now = System.nanoTime();
+                while (now < measureEnd) {
+                    int kind = (int) (n % queries.length);
+                    int query = (int) ((n / queries.length)
+                            % Dataset.QUERY_COUNT);
+                    HttpRequest request = HttpRequest
+                            .newBuilder(URI.create(base + paths[kind][query]))
+                            .GET().build();
+                    boolean failed;
+                    try {
+                        HttpResponse<String> response = client.send(request,
+                                HttpResponse.BodyHandlers.ofString());
+                        failed = response.statusCode() != 200
+                                && response.statusCode() != 404;
+                    } catch (IOException e) {
+                        failed = true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long end = System.nanoTime();
+                    if (now >= measureStart) {
+                        if (failed) {
+                            errors[kind].increment();
+                        } else {
+                            latency[kind].record(end - now);
+                        }
+                    }
+                    n++;
+                    now = end;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final double p50 = 0.5;
+        final double p99 = 0.99;
+        final double p999 = 0.999;
+        System.out.println(clients + " clients for " + seconds + " s against "
+                + baseUrl + " (latency in us)");
+        System.out.printf("%-10s %10s %10s %9s %9s %9s %9s %7s%n", "query",
+                "requests", "req/s", "p50", "p99", "p999", "max", "errors");
+        long total = 0;
+        for (Query query : queries) {
+            Histogram calls = latency[query.ordinal()];
+            total += calls.count();
+            System.out.printf("%-10s %10d %10.0f %9.0f %9.0f %9.0f %9.0f %7d%n",
+                    query, calls.count(), calls.count() / (double) seconds,
+                    calls.valueAt(p50) / NANOS_PER_MICRO,
+                    calls.valueAt(p99) / NANOS_PER_MICRO,
+                    calls.valueAt(p999) / NANOS_PER_MICRO,
+                    calls.max() / NANOS_PER_MICRO,
+                    errors[query.ordinal()].sum());
+        }
+        System.out.printf("%-10s %10d %10.0f%n", "all", total,
+                total / (double) seconds);
+    }
+
+}
@@ -0,0 +1,101 @@
+package components.simplesearchengine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH comparison of the strategies {@code relativeSearch} can find the
+ * closest tag with, walking the trie or searching a Burkhard-Keller tree,
+ * over the full word list: misspelled words of 4, 8 and 12 characters, within
+ * 1, 2 and 3 edits and unbounded.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelativeSearchBenchmark {
+
+    /**
+     * How the closest tag is found.
+     */
+    @Param({ "SEARCH_STRUCTURE", "BK_TREE" })
+    private RelativeSearchStrategy strategy;
+
+    /**
+     * Length of the misspelled words searched for.
+     */
+    @Param({ "4", "8", "12" })
+    private int queryLength;
+
+    /**
+     * Largest edit distance accepted, or {@code unbounded}.
+     */
+    @Param({ "1", "2", "3", "unbounded" })
+    private String maxDistance;
+
+    /**
+     * The engine, in search mode.
+     */
+    private SimpleSearchEngine1L<String> sse;
+
+    /**
+     * Largest edit distance accepted.
+     */
+    private int distance;
+
+    /**
+     * Prefixes of words of the list with one character changed.
+     */
+    private String[] typos;
+
+    /**
+     * Number of the next query word.
+     */
+    private int next;
+
+    /**
+     * Builds the engine and the queries.
+     */
+    @Setup(Level.Trial)
+    public void buildEngine() {
+        Dataset list = new Dataset("AllWords.txt");
+        this.sse = new SimpleSearchEngine1L<>();
+        this.sse.setRelativeSearchStrategy(this.strategy);
+        this.sse.changeToSearchMode(list.entries());
+        this.distance = Integer.MAX_VALUE;
+        if (!this.maxDistance.equals("unbounded")) {
+            this.distance = Integer.parseInt(this.maxDistance);
+        }
+        this.typos = list.queryTypos(this.queryLength);
+    }
+
+    /**
+     * Finds the closest word to a misspelled word.
+     *
+     * @return the closest word, or null
+     */
+    @Benchmark
+    public String relativeSearch() {
+        String typo = this.typos[this.next];
+        this.next = (this.next + 1) % Dataset.QUERY_COUNT;
+        return this.sse.relativeSearch(typo, this.distance);
+    }
+
+}
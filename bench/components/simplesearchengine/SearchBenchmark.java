@@ -0,0 +1,216 @@
+package components.simplesearchengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the prefix and substring searches of a
+ * {@code SimpleSearchEngine1L} in search mode, at several query lengths.
+ * Every operation searches for part of the next of a fixed set of words drawn
+ * from the word list, so the scores are per search. For the weighted
+ * completions, each word weighs a pseudo-random popularity derived from its
+ * line number.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    /**
+     * The word list.
+     */
+    @Param({ "SomeWords.txt", "AllWords.txt" })
+    private String dataset;
+
+    /**
+     * Length of the prefixes and substrings searched for.
+     */
+    @Param({ "1", "2", "4", "8" })
+    private int queryLength;
+
+    /**
+     * Whether the substring index is built for {@code containsSearch}.
+     */
+    @Param({ "false", "true" })
+    private boolean substringIndex;
+
+    /**
+     * The search structure: {@code trie}, {@code radixTrie} or {@code dawg}.
+     */
+    @Param({ "trie", "radixTrie", "dawg" })
+    private String structure;
+
+    /**
+     * Number of completions asked for by the weighted completion benchmarks.
+     */
+    private static final int COMPLETIONS = 10;
+
+    /**
+     * Weighs a word by scrambling its line number into a popularity below a
+     * million.
+     */
+    private static final ToLongFunction<String> POPULARITY = value -> Long
+            .parseLong(value) * 2_654_435_761L % 1_000_000;
+
+    /**
+     * The engine, in search mode.
+     */
+    private SimpleSearchEngine1L<String> sse;
+
+    /**
+     * Prefixes of words of the list.
+     */
+    private String[] prefixes;
+
+    /**
+     * {@code prefixes} as a list, for {@code prefixSearchBatch}.
+     */
+    private List<String> prefixList;
+
+    /**
+     * Substrings of words of the list.
+     */
+    private String[] substrings;
+
+    /**
+     * Number of the next query word.
+     */
+    private int next;
+
+    /**
+     * Builds the engine and the queries.
+     */
+    @Setup(Level.Trial)
+    public void buildEngine() {
+        Dataset list = new Dataset(this.dataset);
+        this.sse = new SimpleSearchEngine1L<>();
+        this.sse.setSubstringIndexEnabled(this.substringIndex);
+        this.sse.setCompletionWeigher(POPULARITY);
+        Dataset.useStructure(this.sse, this.structure);
+        this.sse.changeToSearchMode(list.entries());
+        this.prefixes = list.queryPrefixes(this.queryLength);
+        this.substrings = list.querySubstrings(this.queryLength);
+        this.prefixList = Arrays.asList(this.prefixes);
+    }
+
+    /**
+     * Moves to the next query word.
+     *
+     * @return the number of the query word to use
+     */
+    private int nextQuery() {
+        int query = this.next;
+        this.next = (this.next + 1) % Dataset.QUERY_COUNT;
+        return query;
+    }
+
+    /**
+     * Lists the words with a prefix.
+     *
+     * @return the words
+     */
+    @Benchmark
+    public List<String> prefixSearch() {
+        return this.sse.prefixSearch(this.prefixes[this.nextQuery()]);
+    }
+
+    /**
+     * Lists the first ten words with a prefix.
+     *
+     * @return the words
+     */
+    @Benchmark
+    public List<String> prefixSearchPage() {
+        return this.sse.prefixSearch(this.prefixes[this.nextQuery()], null,
+                10);
+    }
+
+    /**
+     * Lists the words with each of the prefixes, one {@code prefixSearch} at
+     * a time; scored per prefix, to compare with {@code prefixSearchBatch}.
+     *
+     * @return the number of words found
+     */
+    @Benchmark
+    @OperationsPerInvocation(Dataset.QUERY_COUNT)
+    public int prefixSearchEach() {
+        int found = 0;
+        for (String prefix : this.prefixes) {
+            found += this.sse.prefixSearch(prefix).size();
+        }
+        return found;
+    }
+
+    /**
+     * Lists the words with each of the prefixes in one
+     * {@code prefixSearchBatch}; scored per prefix.
+     *
+     * @return the words with each prefix
+     */
+    @Benchmark
+    @OperationsPerInvocation(Dataset.QUERY_COUNT)
+    public List<List<String>> prefixSearchBatch() {
+        return this.sse.prefixSearchBatch(this.prefixList);
+    }
+
+    /**
+     * Lists the ten most popular words with a prefix through the completion
+     * index.
+     *
+     * @return the words
+     */
+    @Benchmark
+    public List<String> topCompletions() {
+        return this.sse.topCompletions(this.prefixes[this.nextQuery()],
+                COMPLETIONS);
+    }
+
+    /**
+     * Lists the ten most popular words with a prefix by sorting every word
+     * with the prefix, to compare with {@code topCompletions}.
+     *
+     * @return the words
+     */
+    @Benchmark
+    public List<String> topCompletionsBySorting() {
+        List<String> words = this.sse
+                .prefixSearch(this.prefixes[this.nextQuery()]);
+        words.sort(Comparator.comparingLong(
+                word -> -POPULARITY.applyAsLong(this.sse.valueOf(word))));
+        return words.subList(0, Math.min(COMPLETIONS, words.size()));
+    }
+
+    /**
+     * Lists the words containing a substring.
+     *
+     * @return the words
+     */
+    @Benchmark
+    public List<String> containsSearch() {
+        return this.sse.containsSearch(this.substrings[this.nextQuery()]);
+    }
+
+}
@@ -0,0 +1,52 @@
+package components.simplesearchengine;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of {@code SimpleSearchEngine1L} with the GC
+ * profiler, so every score comes with its allocation rate.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public final class SearchEngineBenchmarks {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private SearchEngineBenchmarks() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            regular expressions picking the benchmarks to run, for
+     *            example {@code QueryBenchmark.contains}; all of them if none
+     *            is given
+     * @throws RunnerException
+     *             if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include(BuildBenchmark.class.getSimpleName());
+            builder.include(QueryBenchmark.class.getSimpleName());
+            builder.include(SearchBenchmark.class.getSimpleName());
+            builder.include(ShardedBenchmark.class.getSimpleName());
+            builder.include(GramIndexBenchmark.class.getSimpleName());
+            builder.include(RelativeSearchBenchmark.class.getSimpleName());
+        }
+        for (String pattern : args) {
+            builder.include(pattern);
+        }
+        Options options = builder.addProfiler(GCProfiler.class)
+                .jvmArgsAppend("-ea:none").build();
+        new Runner(options).run();
+    }
+
+}
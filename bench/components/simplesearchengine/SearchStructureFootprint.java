@@ -0,0 +1,81 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * Reports the number of nodes and the node memory of the {@code SearchTrie},
+ * the {@code RadixTrie} and the {@code Dawg} built over a word list.
+ *
+ * <p>
+ * Run with the words file as the first argument (defaults to
+ * {@code AllWords.txt}) and, optionally, how many times to copy each word
+ * with a different suffix, to see how the structures grow with the number of
+ * tags.
+ */
+public final class SearchStructureFootprint {
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private SearchStructureFootprint() {
+    }
+
+    /**
+     * Prints the footprint of {@code structure}.
+     *
+     * @param name
+     *            the name of the structure
+     * @param structure
+     *            the structure
+     */
+    private static void report(String name, SearchStructure structure) {
+        System.out.printf("%-10s %9d nodes %11d bytes %6.2f bytes/tag%n",
+                name, structure.nodeCount(), structure.nodeHeapBytes(),
+                (double) structure.nodeHeapBytes() / structure.size());
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the words file and the number of copies of each word
+     */
+    public static void main(String[] args) {
+        String fileName = "test\\components\\simplesearchengine\\testData\\AllWords.txt";
+        int copies = 1;
+        if (args.length > 0) {
+            fileName = args[0];
+        }
+        if (args.length > 1) {
+            copies = Integer.parseInt(args[1]);
+        }
+
+        List<String> words = new ArrayList<>();
+        SimpleReader input = new SimpleReader1L(fileName);
+        while (!input.atEOS()) {
+            String word = input.nextLine();
+            for (int i = 0; i < copies; i++) {
+                if (i == 0) {
+                    words.add(word);
+                } else {
+                    words.add(word + i);
+                }
+            }
+        }
+        input.close();
+        String[] tags = words.stream().distinct().toArray(String[]::new);
+        Arrays.sort(tags);
+
+        SearchTrie trie = SearchTrie.build(tags);
+        System.out.printf("%d tags%n", tags.length);
+        report("trie", trie);
+        report("radix trie", RadixTrie.build(trie));
+        report("dawg", Dawg.build(tags));
+    }
+
+}
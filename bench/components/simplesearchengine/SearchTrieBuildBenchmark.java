@@ -0,0 +1,114 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * Times the serial build of a {@code SearchTrie} against the parallel build
+ * on fork/join pools of one core up to every available core.
+ *
+ * <p>
+ * Run with the words file as the first argument (defaults to
+ * {@code AllWords.txt}) and, optionally, how many times to copy each word
+ * with a different suffix so the tag set is large enough to measure.
+ */
+public final class SearchTrieBuildBenchmark {
+
+    /**
+     * Number of untimed builds before measuring.
+     */
+    private static final int WARMUP_ROUNDS = 10;
+
+    /**
+     * Number of timed builds; the best time is reported.
+     */
+    private static final int MEASURED_ROUNDS = 20;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * No argument constructor--private to prevent instantiation.
+     */
+    private SearchTrieBuildBenchmark() {
+    }
+
+    /**
+     * Reports the best time of building the trie for {@code tags} on
+     * {@code pool}.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     * @param pool
+     *            the pool to build on, or null to build serially
+     * @return the best build time in milliseconds
+     */
+    private static double bestBuildMillis(String[] tags, ForkJoinPool pool) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            SearchTrie.build(tags, pool);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            SearchTrie.build(tags, pool);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the words file and the number of copies of each word
+     */
+    public static void main(String[] args) {
+        String fileName = "test\\components\\simplesearchengine\\testData\\AllWords.txt";
+        int copies = 1;
+        if (args.length > 0) {
+            fileName = args[0];
+        }
+        if (args.length > 1) {
+            copies = Integer.parseInt(args[1]);
+        }
+
+        List<String> words = new ArrayList<>();
+        SimpleReader input = new SimpleReader1L(fileName);
+        while (!input.atEOS()) {
+            String word = input.nextLine();
+            for (int i = 0; i < copies; i++) {
+                if (i == 0) {
+                    words.add(word);
+                } else {
+                    words.add(word + i);
+                }
+            }
+        }
+        input.close();
+        String[] tags = words.stream().distinct().toArray(String[]::new);
+        Arrays.sort(tags);
+
+        double serial = bestBuildMillis(tags, null);
+        System.out.printf("%d tags%n", tags.length);
+        System.out.printf("serial      %8.2f ms%n", serial);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                double parallel = bestBuildMillis(tags, pool);
+                System.out.printf("%2d cores    %8.2f ms  x%.2f%n", parallelism,
+                        parallel, serial / parallel);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package components.simplesearchengine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of a hash sharded {@code SimpleSearchEngine2} at 1, 2, 4 and
+ * 8 shards, to see how the build and the fanned out queries scale with
+ * cores. Build scores are per list; query scores are per query.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedBenchmark {
+
+    /**
+     * The word list.
+     */
+    @Param({ "AllWords.txt" })
+    private String dataset;
+
+    /**
+     * The number of shards.
+     */
+    @Param({ "1", "2", "4", "8" })
+    private int shards;
+
+    /**
+     * The loaded word list.
+     */
+    private Dataset words;
+
+    /**
+     * The engine, in search mode.
+     */
+    private SimpleSearchEngine2<String> sse;
+
+    /**
+     * Misspelled words of the list.
+     */
+    private String[] typos;
+
+    /**
+     * Number of the next query word.
+     */
+    private int next;
+
+    /**
+     * Loads the word list and builds the engine.
+     */
+    @Setup(Level.Trial)
+    public void buildEngine() {
+        this.words = new Dataset(this.dataset);
+        this.sse = this.changeToSearchMode();
+        this.typos = this.words.queryTypos();
+    }
+
+    /**
+     * Moves to the next query word.
+     *
+     * @return the number of the query word to use
+     */
+    private int nextQuery() {
+        int query = this.next;
+        this.next = (this.next + 1) % Dataset.QUERY_COUNT;
+        return query;
+    }
+
+    /**
+     * Loads the whole list straight into search mode.
+     *
+     * @return the engine in search mode
+     */
+    @Benchmark
+    public SimpleSearchEngine2<String> changeToSearchMode() {
+        SimpleSearchEngine2<String> built = new SimpleSearchEngine2<>(
+                this.shards);
+        built.changeToSearchMode(this.words.entries());
+        return built;
+    }
+
+    /**
+     * Finds the closest word to a misspelled word.
+     *
+     * @return the closest word
+     */
+    @Benchmark
+    public String relativeSearch() {
+        return this.sse.relativeSearch(this.typos[this.nextQuery()]);
+    }
+
+    /**
+     * Finds the words containing two letters of a misspelled word.
+     *
+     * @return the number of words found
+     */
+    @Benchmark
+    public int containsSearch() {
+        String typo = this.typos[this.nextQuery()];
+        return this.sse.containsSearch(typo.substring(0, Math.min(2,
+                typo.length()))).size();
+    }
+
+}
@@ -1,7 +1,13 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
-import components.simplereader.SimpleReader1L;
+import components.simplesearchengine.LineEntries;
 import components.simplesearchengine.SimpleSearchEngine1L;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
 
 /**
  * A quick demo on class SimpleSearchEngine
@@ -11,6 +17,11 @@ import components.simplesearchengine.SimpleSearchEngine1L;
  */
 public class SimpleSearchEngineDemo1 {
 
+    /**
+     * Number of suggestions shown for a word that is not on the list.
+     */
+    private static final int SUGGESTION_COUNT = 5;
+
     /**
      *
      * Creates and returns a {@code SortingMachine<String>} of the
@@ -62,27 +73,53 @@ public class SimpleSearchEngineDemo1 {
         assert inputFile != null : "Violation of: input file is not null";
 
         SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
-        SimpleReader1L input = new SimpleReader1L(inputFile);
+        LineEntries<String> lines = new LineEntries<>(Paths.get(inputFile),
+                (line, lineNumber) -> Integer.toString(lineNumber));
 
-        int entryNum = 0;
-        while (!input.atEOS()) {
-            String entry = input.nextLine();
-            sse.add(entry.toString(), Integer.toString(entryNum));
-            entryNum++;
+        /*
+         * In search mode the lines go straight into the search structure
+         */
+        if (insertionMode) {
+            sse.addAll(lines);
+        } else {
+            sse.changeToSearchMode(lines);
         }
+        return sse;
+    }
 
-        if (!insertionMode) {
-            sse.changeToSearchMode();
+    /**
+     * Opens the index file {@code indexFile} if it exists; otherwise creates
+     * the search engine from {@code inputFile} as {@code createFromDocTest}
+     * does and saves it to {@code indexFile} for the next run.
+     *
+     * @param inputFile
+     *            the document with one entry per line
+     * @param indexFile
+     *            the index file to open or write
+     * @return the search engine, in search mode
+     * @throws IOException
+     *             if the index file cannot be read or written
+     */
+    public static SimpleSearchEngine1L<String> createFromIndex(
+            String inputFile, String indexFile) throws IOException {
+        Path index = Paths.get(indexFile);
+        SimpleSearchEngine1L<String> sse;
+        if (Files.exists(index)) {
+            sse = new SimpleSearchEngine1L<>();
+            sse.openIndex(index, value -> value);
+        } else {
+            sse = createFromDocTest(false, inputFile);
+            sse.saveIndex(index, value -> value);
         }
         return sse;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
         Scanner scan = new Scanner(System.in);
-        SimpleSearchEngine1L sse = createFromDocTest(false,
-                "test\\components\\simplesearchengine\\testData\\SomeWords.txt");
-        sse.changeToSearchMode();
+        SimpleSearchEngine1L<String> sse = createFromIndex(
+                "test\\components\\simplesearchengine\\testData\\SomeWords.txt",
+                "SomeWords.idx");
 
         String quit = "no";
         while (!quit.equals("y")) {
@@ -94,10 +131,14 @@ public class SimpleSearchEngineDemo1 {
                 System.out.println(
                         "\"" + word + "\" is on line: " + sse.valueOf(word));
             } else {
-                String relWord = sse.relativeSearch(word);
                 System.out.println("I'm sorry that word is not on the list");
-                System.out.println("Did you mean \"" + relWord + "\" on line: "
-                        + sse.valueOf(relWord));
+                System.out.println("Did you mean:");
+                List<Suggestion<String>> suggestions = sse.suggestions(word,
+                        SUGGESTION_COUNT);
+                for (Suggestion<String> suggestion : suggestions) {
+                    System.out.println("  \"" + suggestion.tag()
+                            + "\" on line: " + suggestion.value());
+                }
             }
 
             System.out.println("\nquit? y = yes, n = no");
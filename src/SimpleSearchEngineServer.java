@@ -0,0 +1,419 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import components.simplesearchengine.LineEntries;
+import components.simplesearchengine.SearchEngineMetrics;
+import components.simplesearchengine.SearchEngineMetrics.Operation;
+import components.simplesearchengine.SearchEngineMetrics.OperationStats;
+import components.simplesearchengine.SimpleSearchEngine;
+import components.simplesearchengine.SimpleSearchEngine1L;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
+
+/**
+ * A small HTTP server answering queries on a SimpleSearchEngine in search
+ * mode, loaded with one tag per line of a dictionary file and the line number
+ * of each tag as its value. Every request runs on its own virtual thread, and
+ * the engine, which needs no locking in search mode, is shared by all of
+ * them. The server only listens on the loopback address.
+ *
+ * <p>
+ * Queries are GET requests whose parameters are URL encoded; answers are
+ * plain text, one result per line:
+ * </p>
+ * <ul>
+ * <li>{@code /contains?tag=T}: {@code true} or {@code false}</li>
+ * <li>{@code /valueOf?tag=T}: the value of T, or 404 if T is not a tag</li>
+ * <li>{@code /prefix?q=P[&after=A][&limit=N]}: the first N tags with prefix P
+ * after A</li>
+ * <li>{@code /substring?q=S[&after=A][&limit=N]}: the first N tags containing S
+ * after A</li>
+ * <li>{@code /relative?q=T[&max=D]}: the closest tag to T within D edits, or
+ * 404 if there is none</li>
+ * <li>{@code /suggestions?q=T[&count=N]}: the N closest tags to T, each as
+ * tag, value and edit distance separated by tabs</li>
+ * <li>{@code /metrics}: the per-query metrics of the engine</li>
+ * </ul>
+ *
+ * @author Saurav Poudyel
+ */
+public final class SimpleSearchEngineServer {
+
+    /**
+     * Port served when none is given.
+     */
+    public static final int DEFAULT_PORT = 8231;
+
+    /**
+     * Number of tags listed by {@code /prefix} and {@code /substring} when no
+     * limit is given.
+     */
+    private static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * Number of suggestions listed by {@code /suggestions} when no count is
+     * given.
+     */
+    private static final int DEFAULT_COUNT = 5;
+
+    /**
+     * Number of connections waiting to be accepted before new ones are
+     * refused.
+     */
+    private static final int BACKLOG = 1024;
+
+    /**
+     * HTTP status: OK.
+     */
+    private static final int OK = 200;
+
+    /**
+     * HTTP status: bad request.
+     */
+    private static final int BAD_REQUEST = 400;
+
+    /**
+     * HTTP status: not found.
+     */
+    private static final int NOT_FOUND = 404;
+
+    /**
+     * HTTP status: method not allowed.
+     */
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    /**
+     * HTTP status: internal server error.
+     */
+    private static final int INTERNAL_ERROR = 500;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private SimpleSearchEngineServer() {
+    }
+
+    /**
+     * Answer to one request: an HTTP status and a plain text body.
+     */
+    private static final class Answer {
+
+        /**
+         * The HTTP status.
+         */
+        private final int status;
+
+        /**
+         * The body.
+         */
+        private final String body;
+
+        /**
+         * Constructor.
+         *
+         * @param status
+         *            the HTTP status
+         * @param body
+         *            the body
+         */
+        private Answer(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+    }
+
+    /**
+     * Parses the URL encoded parameters of the query string {@code query}.
+     *
+     * @param query
+     *            the raw query string, or null if there is none
+     * @return the value of each parameter; the last one wins if a parameter
+     *         is repeated
+     */
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null && !query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = parameter;
+                String value = "";
+                if (equals >= 0) {
+                    name = parameter.substring(0, equals);
+                    value = parameter.substring(equals + 1);
+                }
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Reports the value of a required parameter.
+     *
+     * @param parameters
+     *            the parameters of the request
+     * @param name
+     *            the name of the parameter
+     * @return the value of the parameter
+     * @throws IllegalArgumentException
+     *             if the parameter is missing
+     */
+    private static String required(Map<String, String> parameters,
+            String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing parameter: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Reports the value of an optional non-negative number parameter.
+     *
+     * @param parameters
+     *            the parameters of the request
+     * @param name
+     *            the name of the parameter
+     * @param orElse
+     *            the value if the parameter is missing
+     * @param least
+     *            the smallest value accepted
+     * @return the value of the parameter, or {@code orElse}
+     * @throws IllegalArgumentException
+     *             if the parameter is not a number of at least {@code least}
+     */
+    private static int number(Map<String, String> parameters, String name,
+            int orElse, int least) {
+        String value = parameters.get(name);
+        int number = orElse;
+        if (value != null) {
+            number = Integer.parseInt(value);
+            if (number < least) {
+                throw new IllegalArgumentException(
+                        name + " must be at least " + least);
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Joins {@code lines} into a body with one line each.
+     *
+     * @param lines
+     *            the lines
+     * @return the body
+     */
+    private static String lines(List<String> lines) {
+        StringBuilder body = new StringBuilder();
+        for (String line : lines) {
+            body.append(line).append('\n');
+        }
+        return body.toString();
+    }
+
+    /**
+     * Registers {@code path} on {@code server}, answering GET requests with
+     * {@code query} applied to their parameters.
+     *
+     * @param server
+     *            the server
+     * @param path
+     *            the path of the query
+     * @param query
+     *            computes the answer from the parameters; throws
+     *            {@code IllegalArgumentException} for bad parameters, and
+     *            any other failure is answered with an internal error
+     */
+    private static void route(HttpServer server, String path,
+            Function<Map<String, String>, Answer> query) {
+        server.createContext(path, exchange -> {
+            Answer answer;
+            if (!exchange.getRequestMethod().equals("GET")) {
+                answer = new Answer(METHOD_NOT_ALLOWED, "GET only\n");
+            } else {
+                try {
+                    answer = query.apply(
+                            parameters(exchange.getRequestURI().getRawQuery()));
+                } catch (IllegalArgumentException e) {
+                    answer = new Answer(BAD_REQUEST, e.getMessage() + "\n");
+                } catch (RuntimeException e) {
+                    /*
+                     * Without an answer the client would wait on the
+                     * exchange until it times out
+                     */
+                    answer = new Answer(INTERNAL_ERROR, "internal error\n");
+                }
+            }
+            respond(exchange, answer);
+        });
+    }
+
+    /**
+     * Sends {@code answer} as the response to {@code exchange}.
+     *
+     * @param exchange
+     *            the request
+     * @param answer
+     *            the answer
+     * @throws IOException
+     *             if the response cannot be sent
+     */
+    private static void respond(HttpExchange exchange, Answer answer)
+            throws IOException {
+        byte[] body = answer.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(answer.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Starts serving queries on {@code sse} on the loopback address, with one
+     * virtual thread per request.
+     *
+     * <p>
+     * The JDK server sends the headers and body of a response in separate
+     * writes, so unless the system property
+     * {@code sun.net.httpserver.nodelay} is {@code "true"} when the first
+     * server of the JVM is created, the body waits on the client's delayed
+     * ACK and every request on a kept-alive connection takes tens of
+     * milliseconds. This method leaves that JVM-wide setting to the caller;
+     * {@code main} sets it.
+     * </p>
+     *
+     * @param sse
+     *            the search engine, in search mode
+     * @param metrics
+     *            the metrics of {@code sse}, served by {@code /metrics}, or
+     *            null
+     * @param port
+     *            the port to listen on, or 0 for any free port
+     * @return the running server; {@code getAddress()} tells its port
+     * @throws IOException
+     *             if the port cannot be bound
+     * @requires sse is in search mode and is not changed while the server
+     *           runs
+     */
+    public static HttpServer start(SimpleSearchEngine<String> sse,
+            SearchEngineMetrics metrics, int port) throws IOException {
+        assert sse != null : "Violation of: sse is not null";
+        assert !sse.isInInsertionMode() : "Violation of: sse is not in insertion mode";
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), BACKLOG);
+
+        route(server, "/contains", parameters -> new Answer(OK,
+                sse.contains(required(parameters, "tag")) + "\n"));
+        route(server, "/valueOf", parameters -> {
+            String tag = required(parameters, "tag");
+            /*
+             * valueOf requires the tag, so look it up first
+             */
+            Answer answer = new Answer(NOT_FOUND, "not found\n");
+            if (sse.contains(tag)) {
+                answer = new Answer(OK, sse.valueOf(tag) + "\n");
+            }
+            return answer;
+        });
+        route(server, "/prefix", parameters -> new Answer(OK,
+                lines(sse.prefixSearch(required(parameters, "q"),
+                        parameters.get("after"),
+                        number(parameters, "limit", DEFAULT_LIMIT, 0)))));
+        route(server, "/substring", parameters -> new Answer(OK,
+                lines(sse.containsSearch(required(parameters, "q"),
+                        parameters.get("after"),
+                        number(parameters, "limit", DEFAULT_LIMIT, 0)))));
+        route(server, "/relative", parameters -> {
+            String closest = sse.relativeSearch(required(parameters, "q"),
+                    number(parameters, "max", Integer.MAX_VALUE, 0));
+            Answer answer = new Answer(NOT_FOUND, "not found\n");
+            if (closest != null) {
+                answer = new Answer(OK, closest + "\n");
+            }
+            return answer;
+        });
+        route(server, "/suggestions", parameters -> {
+            StringBuilder body = new StringBuilder();
+            for (Suggestion<String> suggestion : sse.suggestions(
+                    required(parameters, "q"),
+                    number(parameters, "count", DEFAULT_COUNT, 1))) {
+                body.append(suggestion.tag()).append('\t')
+                        .append(suggestion.value()).append('\t')
+                        .append(suggestion.distance()).append('\n');
+            }
+            return new Answer(OK, body.toString());
+        });
+        route(server, "/metrics", parameters -> {
+            Answer answer = new Answer(NOT_FOUND, "metrics are disabled\n");
+            if (metrics != null) {
+                StringBuilder body = new StringBuilder();
+                for (Map.Entry<Operation, OperationStats> stats : metrics
+                        .snapshot().entrySet()) {
+                    body.append(stats.getKey()).append(' ')
+                            .append(stats.getValue()).append('\n');
+                }
+                answer = new Answer(OK, body.toString());
+            }
+            return answer;
+        });
+
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    /**
+     * Main method: loads the dictionary and serves it until the process is
+     * stopped.
+     *
+     * @param args
+     *            the dictionary file, one tag per line (AllWords.txt by
+     *            default), then the port ({@code DEFAULT_PORT} by default)
+     * @throws IOException
+     *             if the dictionary cannot be read or the port cannot be
+     *             bound
+     */
+    public static void main(String[] args) throws IOException {
+        String dictionary = Paths.get("test", "components",
+                "simplesearchengine", "testData", "AllWords.txt").toString();
+        if (args.length > 0) {
+            dictionary = args[0];
+        }
+        int port = DEFAULT_PORT;
+        if (args.length > 1) {
+            port = Integer.parseInt(args[1]);
+        }
+
+        /*
+         * Send responses without waiting on delayed ACKs; see start
+         */
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<>();
+        sse.setMetricsEnabled(true);
+        sse.changeToSearchMode(new LineEntries<String>(Paths.get(dictionary),
+                (line, lineNumber) -> Integer.toString(lineNumber)));
+
+        HttpServer server = start(sse, sse.metrics(), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(0)));
+        System.out.println("Serving " + sse.size() + " tags from " + dictionary
+                + " on http://localhost:" + server.getAddress().getPort()
+                + "/");
+    }
+
+}
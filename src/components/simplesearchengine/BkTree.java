@@ -0,0 +1,420 @@
+package components.simplesearchengine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Burkhard-Keller tree over the tags of a {@code SimpleSearchEngine}, keyed
+ * on the edit distance of {@code SearchTrie.calculateEditDistance}. Each tag
+ * is a node, and each child of a node is at a different edit distance from
+ * it, which labels the edge; the subtree under the edge labeled k holds only
+ * tags exactly k edits from the node.
+ *
+ * <p>
+ * The edit distance is a metric, so by the triangle inequality a tag within r
+ * edits of a target is in the subtree of an edge labeled k only if
+ * |k - d| &lt;= r, where d is the distance between the node and the target;
+ * {@code closestMatches} computes d for each node it reaches and only walks
+ * the edges in that range, with r shrinking to the distance of the worst
+ * match held once enough are found. The children of a node are stored
+ * together, in increasing order of their labels, so the edges in range are
+ * found by binary search.
+ * </p>
+ *
+ * <p>
+ * A {@code BkTree} is immutable once built, so any number of threads may
+ * query one instance without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class BkTree {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of the tag at the root.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * The tags, in lexicographical order; tag {@code i} is node {@code i}.
+     */
+    private final String[] tags;
+
+    /**
+     * {@code childStart[n]} is the position in {@code children} of the first
+     * child of node {@code n}; {@code childStart[tags.length]} is the length
+     * of {@code children}.
+     */
+    private final int[] childStart;
+
+    /**
+     * The children of every node, node by node, each node's children in
+     * increasing order of their labels.
+     */
+    private final int[] children;
+
+    /**
+     * {@code labels[c]} is the edit distance between {@code children[c]} and
+     * its parent.
+     */
+    private final int[] labels;
+
+    /**
+     * Length of the longest tag.
+     */
+    private final int maxLength;
+
+    /**
+     * Constructor from already filled arrays.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     * @param childStart
+     *            the position of the first child of each node
+     * @param children
+     *            the children of every node
+     * @param labels
+     *            the label of the edge to each child
+     * @param maxLength
+     *            the length of the longest tag
+     */
+    private BkTree(String[] tags, int[] childStart, int[] children,
+            int[] labels, int maxLength) {
+        this.tags = tags;
+        this.childStart = childStart;
+        this.children = children;
+        this.labels = labels;
+        this.maxLength = maxLength;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Builds the tree over {@code sortedTags}, inserting the tags in
+     * lexicographical order below the first one.
+     *
+     * @param sortedTags
+     *            the tags to index
+     * @return the tree over {@code sortedTags}
+     * @requires sortedTags != null and the tags are distinct and in
+     *           lexicographical order
+     * @ensures the returned tree finds every tag in {@code sortedTags}
+     *          within a given edit distance of a given target
+     */
+    static BkTree build(String[] sortedTags) {
+        assert sortedTags != null : "Violation of: sortedTags is not null";
+
+        /*
+         * Insert each tag below the root, following the edge labeled with its
+         * distance from each node down to a node without one; the children
+         * of a node are linked from the first one added
+         */
+        int n = sortedTags.length;
+        int[] firstChild = new int[n];
+        int[] nextSibling = new int[n];
+        int[] label = new int[n];
+        int[] childCount = new int[n];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        int maxLength = 0;
+        for (int i = 0; i < n; i++) {
+            String tag = sortedTags[i];
+            maxLength = Math.max(maxLength, tag.length());
+            int node = ROOT;
+            boolean placed = i == ROOT;
+            while (!placed) {
+                int distance = SearchTrie.calculateEditDistance(tag,
+                        sortedTags[node]);
+                int child = firstChild[node];
+                while (child >= 0 && label[child] != distance) {
+                    child = nextSibling[child];
+                }
+                if (child >= 0) {
+                    node = child;
+                } else {
+                    label[i] = distance;
+                    nextSibling[i] = firstChild[node];
+                    firstChild[node] = i;
+                    childCount[node]++;
+                    placed = true;
+                }
+            }
+        }
+
+        /*
+         * Lay the children of each node out together, sorted by label
+         */
+        int[] childStart = new int[n + 1];
+        for (int node = 0; node < n; node++) {
+            childStart[node + 1] = childStart[node] + childCount[node];
+        }
+        int[] children = new int[Math.max(0, n - 1)];
+        int[] labels = new int[children.length];
+        Integer[] order = new Integer[0];
+        for (int node = 0; node < n; node++) {
+            if (order.length < childCount[node]) {
+                order = new Integer[childCount[node]];
+            }
+            int count = 0;
+            int child = firstChild[node];
+            while (child >= 0) {
+                order[count] = child;
+                count++;
+                child = nextSibling[child];
+            }
+            Arrays.sort(order, 0, count,
+                    (first, second) -> Integer.compare(label[first],
+                            label[second]));
+            for (int k = 0; k < count; k++) {
+                children[childStart[node] + k] = order[k];
+                labels[childStart[node] + k] = label[order[k]];
+            }
+        }
+        return new BkTree(sortedTags, childStart, children, labels,
+                maxLength);
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Reports the position in {@code children} of the first child of
+     * {@code node} whose label is at least {@code label}.
+     *
+     * @param node
+     *            the node
+     * @param label
+     *            the smallest label of interest
+     * @return the position of that child, or of the end of the children of
+     *         {@code node} if there is none
+     */
+    private int firstChildFrom(int node, int label) {
+        int lo = this.childStart[node];
+        int hi = this.childStart[node + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.labels[mid] < label) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Reports the largest label of an edge to a child of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the largest label, or 0 if {@code node} has no children
+     */
+    private int maxLabel(int node) {
+        int label = 0;
+        if (this.childStart[node + 1] > this.childStart[node]) {
+            label = this.labels[this.childStart[node + 1] - 1];
+        }
+        return label;
+    }
+
+    /**
+     * Queue of nodes still to visit, smallest lower bound on the distance of
+     * their subtrees first; each entry packs the bound into the high 32 bits
+     * of a {@code long} and the node into the low 32 bits, in a binary heap.
+     */
+    private static final class NodeQueue {
+
+        /**
+         * The entries, as a binary heap with the smallest at the root.
+         */
+        private final long[] heap;
+
+        /**
+         * Number of entries in the queue.
+         */
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity
+         *            the largest number of entries ever queued at once
+         */
+        private NodeQueue(int capacity) {
+            this.heap = new long[capacity];
+            this.size = 0;
+        }
+
+        /**
+         * Reports whether the queue is empty.
+         *
+         * @return true iff there are no entries
+         */
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Queues {@code node}.
+         *
+         * @param bound
+         *            the lower bound on the distance of the subtree
+         * @param node
+         *            the node
+         */
+        private void add(int bound, int node) {
+            long entry = ((long) bound << Integer.SIZE) | node;
+            int i = this.size;
+            this.size++;
+            while (i > 0 && this.heap[(i - 1) / 2] > entry) {
+                this.heap[i] = this.heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            this.heap[i] = entry;
+        }
+
+        /**
+         * Reports the smallest lower bound in the queue.
+         *
+         * @return the bound of the first entry
+         * @requires the queue is not empty
+         */
+        private int firstBound() {
+            return (int) (this.heap[0] >>> Integer.SIZE);
+        }
+
+        /**
+         * Removes the entry with the smallest lower bound.
+         *
+         * @return its node
+         * @requires the queue is not empty
+         */
+        private int remove() {
+            int node = (int) this.heap[0];
+            this.size--;
+            long last = this.heap[this.size];
+            int i = 0;
+            boolean placed = false;
+            while (!placed) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size
+                        && this.heap[child + 1] < this.heap[child]) {
+                    child++;
+                }
+                if (child < this.size && this.heap[child] < last) {
+                    this.heap[i] = this.heap[child];
+                    i = child;
+                } else {
+                    placed = true;
+                }
+            }
+            this.heap[i] = last;
+            return node;
+        }
+
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Finds the {@code count} tags closest to {@code target} by edit
+     * distance, among the tags within {@code maxDistance} edits. Ties are
+     * broken as the search structure breaks them, lexicographically.
+     *
+     * @param target
+     *            the target word to match
+     * @param count
+     *            the number of tags wanted
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the closest tags in order of edit distance, lexicographically
+     *         among ties
+     * @requires count > 0 and maxDistance >= 0
+     */
+    List<SearchStructure.Match> closestMatches(String target, int count,
+            int maxDistance) {
+        assert count > 0 : "Violation of: count > 0";
+        assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+
+        /*
+         * The worst match is the furthest, then the one with the largest tag
+         * number, which is the lexicographically last among equally far
+         * matches
+         */
+        PriorityQueue<SearchStructure.Match> matches = new PriorityQueue<>(
+                count + 1, (first, second) -> {
+                    int order = Integer.compare(second.distance(),
+                            first.distance());
+                    if (order == 0) {
+                        order = Integer.compare(second.entry(),
+                                first.entry());
+                    }
+                    return order;
+                });
+
+        /*
+         * No tag is further from the target than the longer of the two, so
+         * the radius never needs to be larger; it shrinks to the distance of
+         * the worst match once count are held, which a tie can still
+         * displace
+         */
+        int radius = Math.min(maxDistance,
+                Math.max(this.maxLength, target.length()));
+        NodeQueue queue = new NodeQueue(this.tags.length);
+        if (this.tags.length > 0) {
+            queue.add(0, ROOT);
+        }
+
+        /*
+         * Visit the subtrees that may hold the closest tags first, so the
+         * radius shrinks early; once no subtree left can be within it, the
+         * search is over
+         */
+        while (!queue.isEmpty() && queue.firstBound() <= radius) {
+            int node = queue.remove();
+            int distance = GramIndex.editDistance(target, this.tags[node],
+                    radius + this.maxLabel(node));
+            if (distance <= radius) {
+                SearchStructure.Match match = new SearchStructure.Match(
+                        this.tags[node], node, distance);
+                if (matches.size() < count
+                        || matches.comparator().compare(match,
+                                matches.peek()) > 0) {
+                    matches.add(match);
+                    if (matches.size() > count) {
+                        matches.remove();
+                    }
+                    if (matches.size() == count) {
+                        radius = matches.peek().distance();
+                    }
+                }
+            }
+            int end = this.childStart[node + 1];
+            int c = this.firstChildFrom(node, distance - radius);
+            while (c < end && this.labels[c] <= distance + radius) {
+                queue.add(Math.abs(this.labels[c] - distance),
+                        this.children[c]);
+                c++;
+            }
+        }
+
+        SearchStructure.Match[] closest = new SearchStructure.Match[matches
+                .size()];
+        for (int i = closest.length - 1; i >= 0; i--) {
+            closest[i] = matches.remove();
+        }
+        return Arrays.asList(closest);
+    }
+
+}
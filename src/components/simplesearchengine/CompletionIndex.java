@@ -0,0 +1,308 @@
+package components.simplesearchengine;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Index over a {@code SearchTrie} answering top-k completion queries: the
+ * {@code k} tags with a given prefix that have the highest weights. At build
+ * time every node records the best tag below it, that is the tag with the
+ * highest weight, lexicographically first among equal weights. A query then
+ * walks best first from the node of the prefix, always expanding the subtree
+ * whose best tag beats every other subtree waiting, so it only walks down
+ * about {@code k} paths below the prefix, however many tags have the prefix.
+ *
+ * <p>
+ * A {@code CompletionIndex} is immutable once built, so any number of threads
+ * may query one instance without locking as long as its trie is not updated.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class CompletionIndex {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The trie the index was built over.
+     */
+    private final SearchTrie trie;
+
+    /**
+     * Weight of each tag, indexed by entry number.
+     */
+    private final long[] weight;
+
+    /**
+     * Position of each tag in lexicographical order, indexed by entry number.
+     */
+    private final int[] rank;
+
+    /**
+     * Entry number of the best tag in the subtree of each node, indexed by
+     * node, or {@code NO_ENTRY} for a node with no tag below it.
+     */
+    private final int[] best;
+
+    /**
+     * A subtree, or the single tag ending at its root, waiting to be taken by
+     * a best first search.
+     */
+    private static final class Candidate {
+
+        /**
+         * The candidate for the parent of {@code node}, or null if
+         * {@code node} is the node of the prefix searched for.
+         */
+        private final Candidate parent;
+
+        /**
+         * The root node of the subtree.
+         */
+        private final int node;
+
+        /**
+         * The entry number of the best tag of the candidate, which orders the
+         * candidates.
+         */
+        private final int entry;
+
+        /**
+         * Whether the candidate is only the tag ending at {@code node} rather
+         * than the whole subtree.
+         */
+        private final boolean tagOnly;
+
+        /**
+         * Constructor.
+         *
+         * @param parent
+         *            the candidate for the parent node, or null
+         * @param node
+         *            the root node of the subtree
+         * @param entry
+         *            the entry number of the best tag of the candidate
+         * @param tagOnly
+         *            whether the candidate is only the tag ending at
+         *            {@code node}
+         */
+        private Candidate(Candidate parent, int node, int entry,
+                boolean tagOnly) {
+            this.parent = parent;
+            this.node = node;
+            this.entry = entry;
+            this.tagOnly = tagOnly;
+        }
+
+    }
+
+    /**
+     * Constructor from already filled arrays.
+     *
+     * @param trie
+     *            the trie indexed
+     * @param weight
+     *            the weight of each tag
+     * @param rank
+     *            the lexicographical position of each tag
+     * @param best
+     *            the best tag below each node
+     */
+    private CompletionIndex(SearchTrie trie, long[] weight, int[] rank,
+            int[] best) {
+        this.trie = trie;
+        this.weight = weight;
+        this.rank = rank;
+        this.best = best;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Builds the index over {@code trie}, whose tag with entry number
+     * {@code e} weighs {@code weights[e]}.
+     *
+     * @param trie
+     *            the trie to index
+     * @param weights
+     *            the weight of each tag, indexed by entry number
+     * @return the index over {@code trie}
+     * @requires trie != null and weights.length >= trie.entryLimit()
+     * @ensures the returned index finds the highest weighted tags of
+     *          {@code trie} with a given prefix
+     */
+    static CompletionIndex build(SearchTrie trie, long[] weights) {
+        assert trie != null : "Violation of: trie is not null";
+        assert weights.length >= trie.entryLimit() : "Violation of: every entry number has a weight";
+
+        int[] best = new int[trie.nodeLimit()];
+        int[] rank = new int[trie.entryLimit()];
+        CompletionIndex index = new CompletionIndex(trie, weights, rank, best);
+        index.fillBest(SearchStructure.ROOT, 0);
+        return index;
+    }
+
+    /**
+     * Fills in the best tag of every node in the subtree of {@code node},
+     * and the rank of every tag in it, given the number of tags before the
+     * subtree in lexicographical order.
+     *
+     * @param node
+     *            the root of the subtree
+     * @param tagsBefore
+     *            the number of tags lexicographically before the subtree
+     * @return the number of tags in the subtree
+     */
+    private int fillBest(int node, int tagsBefore) {
+        int tags = 0;
+        int nodeBest = this.trie.entryAt(node);
+        if (nodeBest != SearchStructure.NO_ENTRY) {
+            this.rank[nodeBest] = tagsBefore;
+            tags++;
+        }
+        for (int child = this.trie.firstChildOf(node);
+                child != SearchStructure.NO_NODE;
+                child = this.trie.nextSiblingOf(child)) {
+            tags += this.fillBest(child, tagsBefore + tags);
+            if (this.isBetter(this.best[child], nodeBest)) {
+                nodeBest = this.best[child];
+            }
+        }
+        this.best[node] = nodeBest;
+        return tags;
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Reports whether the tag with entry number {@code first} comes before
+     * the one with entry number {@code second} among completions: it weighs
+     * more, or weighs the same and is lexicographically first.
+     *
+     * @param first
+     *            an entry number, or {@code NO_ENTRY}, which no tag loses to
+     * @param second
+     *            an entry number, or {@code NO_ENTRY}, which every tag beats
+     * @return true iff {@code first} is the better tag
+     */
+    private boolean isBetter(int first, int second) {
+        return first != SearchStructure.NO_ENTRY
+                && (second == SearchStructure.NO_ENTRY
+                        || this.compare(first, second) < 0);
+    }
+
+    /**
+     * Orders two tags by decreasing weight, then lexicographically.
+     *
+     * @param first
+     *            an entry number
+     * @param second
+     *            an entry number
+     * @return a negative number, zero or a positive number as {@code first}
+     *         comes before, with or after {@code second}
+     */
+    private int compare(int first, int second) {
+        int order = Long.compare(this.weight[second], this.weight[first]);
+        if (order == 0) {
+            order = Integer.compare(this.rank[first], this.rank[second]);
+        }
+        return order;
+    }
+
+    /**
+     * Spells out the path to the node of {@code candidate}.
+     *
+     * @param candidate
+     *            the candidate
+     * @param prefix
+     *            the path to the node the search started from
+     * @return the characters from the root to the node of {@code candidate}
+     */
+    private String pathOf(Candidate candidate, String prefix) {
+        /*
+         * The candidates link towards the prefix node, so the characters come
+         * out backwards
+         */
+        StringBuilder suffix = new StringBuilder();
+        Candidate step = candidate;
+        if (step.tagOnly) {
+            step = step.parent;
+        }
+        while (step.parent != null) {
+            suffix.append(this.trie.charOf(step.node));
+            step = step.parent;
+        }
+        return prefix + suffix.reverse();
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Adds the {@code count} tags with {@code prefix} that weigh the most to
+     * {@code results}, heaviest first and lexicographically among equal
+     * weights.
+     *
+     * @param prefix
+     *            the prefix to complete
+     * @param count
+     *            the number of tags wanted
+     * @param results
+     *            the list to store results in
+     * @return the number of nodes the search visited
+     * @requires count > 0
+     * @ensures {@code results} is extended by the min(count, n) best of the n
+     *          tags with {@code prefix}
+     */
+    int topCompletions(String prefix, int count, List<String> results) {
+        assert count > 0 : "Violation of: count > 0";
+
+        int node = this.trie.findNodeForPrefix(prefix);
+        int nodesVisited = prefix.length();
+        PriorityQueue<Candidate> waiting = new PriorityQueue<>(
+                (first, second) -> this.compare(first.entry, second.entry));
+        if (node != SearchStructure.NO_NODE
+                && this.best[node] != SearchStructure.NO_ENTRY) {
+            waiting.add(new Candidate(null, node, this.best[node], false));
+        }
+
+        /*
+         * A subtree waits under its best tag, which is at least as good as
+         * any tag in it, so when a single tag is taken off the queue no tag
+         * still waiting can beat it
+         */
+        int found = 0;
+        while (found < count && !waiting.isEmpty()) {
+            Candidate next = waiting.remove();
+            if (next.tagOnly) {
+                results.add(this.pathOf(next, prefix));
+                found++;
+            } else {
+                int tagEntry = this.trie.entryAt(next.node);
+                if (tagEntry != SearchStructure.NO_ENTRY) {
+                    waiting.add(
+                            new Candidate(next, next.node, tagEntry, true));
+                }
+                for (int child = this.trie.firstChildOf(next.node);
+                        child != SearchStructure.NO_NODE;
+                        child = this.trie.nextSiblingOf(child)) {
+                    if (this.best[child] != SearchStructure.NO_ENTRY) {
+                        waiting.add(new Candidate(next, child,
+                                this.best[child], false));
+                    }
+                    nodesVisited++;
+                }
+            }
+        }
+        return nodesVisited;
+    }
+
+}
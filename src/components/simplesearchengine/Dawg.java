@@ -0,0 +1,897 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Minimal acyclic automaton (directed acyclic word graph) over the tags of a
+ * {@code SimpleSearchEngine}. Where a trie stores every suffix once per tag
+ * ending in it, the automaton merges every pair of states accepting the same
+ * set of suffixes, so "-ing", "-tion" and the like are stored once.
+ *
+ * <p>
+ * The automaton is built incrementally from the tags in lexicographical order
+ * (Daciuk, Mihov, Watson and Watson, 2000): only the states on the path of
+ * the last tag are still open, and a state is closed, merging it with an
+ * equivalent closed state if there is one, as soon as no later tag can pass
+ * through it. Closed states are written straight into the final arrays and
+ * found again through a hash table of their outgoing arcs, so building needs
+ * no memory besides the automaton itself.
+ * </p>
+ *
+ * <p>
+ * A merged state has no single tag ending at it, so entry numbers are not
+ * stored. Instead each state counts the tags accepted below it, and the entry
+ * number of a tag is its position in lexicographical order: the number of
+ * tags passed on the way to it. These are the entry numbers a
+ * {@code SearchTrie} built from the same tags hands out. A {@code Dawg} is
+ * immutable once built, so any number of threads may query one instance
+ * without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class Dawg extends SearchStructure {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the state and arc arrays while building.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Start of the outgoing arcs of each state in the arc arrays; the arcs of
+     * state {@code s} run from {@code arcStart[s]} to {@code arcStart[s + 1]}
+     * in lexicographical order of their labels.
+     */
+    private int[] arcStart;
+
+    /**
+     * Whether each state accepts, that is, ends a tag.
+     */
+    private boolean[] accepting;
+
+    /**
+     * Number of tags accepted from each state, counting the state itself.
+     */
+    private int[] wordCount;
+
+    /**
+     * Character labelling each arc.
+     */
+    private char[] arcLabel;
+
+    /**
+     * State each arc leads to.
+     */
+    private int[] arcTarget;
+
+    /**
+     * The start state; it is closed last, so it is the last state.
+     */
+    private int root;
+
+    /**
+     * At least the length of the longest tag stored.
+     */
+    private final int maxDepth;
+
+    /**
+     * Number of states closed so far while building.
+     */
+    private int stateCount;
+
+    /**
+     * Number of arcs of the closed states so far while building.
+     */
+    private int arcCount;
+
+    /**
+     * Hash table of the closed states while building: each slot holds a
+     * state plus one, or 0 if the slot is empty.
+     */
+    private int[] register;
+
+    /**
+     * Whether the open state at each depth of the path of the last tag
+     * accepts.
+     */
+    private boolean[] openAccepting;
+
+    /**
+     * Labels of the arcs of the open state at each depth.
+     */
+    private char[][] openLabel;
+
+    /**
+     * Targets of the arcs of the open state at each depth; the target of the
+     * last arc is the open state one deeper, filled in when it is closed.
+     */
+    private int[][] openTarget;
+
+    /**
+     * Number of arcs of the open state at each depth.
+     */
+    private int[] openArcCount;
+
+    /**
+     * Constructor for an empty automaton, filled in by {@code build}.
+     *
+     * @param maxDepth
+     *            at least the length of the longest tag stored
+     */
+    private Dawg(int maxDepth) {
+        this.maxDepth = maxDepth;
+        this.arcStart = new int[INITIAL_CAPACITY + 1];
+        this.accepting = new boolean[INITIAL_CAPACITY];
+        this.wordCount = new int[INITIAL_CAPACITY];
+        this.arcLabel = new char[INITIAL_CAPACITY];
+        this.arcTarget = new int[INITIAL_CAPACITY];
+        this.register = new int[INITIAL_CAPACITY];
+        this.stateCount = 0;
+        this.arcCount = 0;
+        this.openAccepting = new boolean[maxDepth + 1];
+        this.openLabel = new char[maxDepth + 1][];
+        this.openTarget = new int[maxDepth + 1][];
+        this.openArcCount = new int[maxDepth + 1];
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            this.openLabel[depth] = new char[2];
+            this.openTarget[depth] = new int[2];
+        }
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Builds the minimal automaton accepting {@code tags}.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     * @return the automaton, where the entry number of {@code tags[i]} is
+     *         {@code i}
+     * @requires the tags are distinct and in lexicographical order
+     */
+    static Dawg build(String[] tags) {
+        int maxDepth = 0;
+        for (String tag : tags) {
+            maxDepth = Math.max(maxDepth, tag.length());
+        }
+
+        Dawg dawg = new Dawg(maxDepth);
+        String previous = null;
+        for (String tag : tags) {
+            int common = 0;
+            if (previous != null) {
+                assert previous.compareTo(tag) < 0 : ""
+                        + "Violation of: the tags are distinct and in lexicographical order";
+                while (common < previous.length() && common < tag.length()
+                        && previous.charAt(common) == tag.charAt(common)) {
+                    common++;
+                }
+                dawg.closeDownTo(previous.length(), common);
+            }
+            for (int depth = common; depth < tag.length(); depth++) {
+                dawg.addOpenArc(depth, tag.charAt(depth));
+            }
+            dawg.openAccepting[tag.length()] = true;
+            previous = tag;
+        }
+        if (previous != null) {
+            dawg.closeDownTo(previous.length(), 0);
+        }
+        dawg.root = dawg.close(0);
+
+        /*
+         * Drop the building state and the spare capacity
+         */
+        dawg.arcStart = Arrays.copyOf(dawg.arcStart, dawg.stateCount + 1);
+        dawg.accepting = Arrays.copyOf(dawg.accepting, dawg.stateCount);
+        dawg.wordCount = Arrays.copyOf(dawg.wordCount, dawg.stateCount);
+        dawg.arcLabel = Arrays.copyOf(dawg.arcLabel, dawg.arcCount);
+        dawg.arcTarget = Arrays.copyOf(dawg.arcTarget, dawg.arcCount);
+        dawg.register = null;
+        dawg.openAccepting = null;
+        dawg.openLabel = null;
+        dawg.openTarget = null;
+        dawg.openArcCount = null;
+        assert dawg.wordCount[dawg.root] == tags.length : "Violation of: every tag is accepted";
+        return dawg;
+    }
+
+    /**
+     * Adds an arc labelled {@code label} to the open state at {@code depth},
+     * leading to a fresh open state at {@code depth + 1}.
+     *
+     * @param depth
+     *            the depth of the open state
+     * @param label
+     *            the label of the arc, after every label of the state's arcs
+     * @updates this
+     */
+    private void addOpenArc(int depth, char label) {
+        int arc = this.openArcCount[depth];
+        if (arc == this.openLabel[depth].length) {
+            this.openLabel[depth] = Arrays.copyOf(this.openLabel[depth],
+                    2 * arc);
+            this.openTarget[depth] = Arrays.copyOf(this.openTarget[depth],
+                    2 * arc);
+        }
+        this.openLabel[depth][arc] = label;
+        this.openTarget[depth][arc] = NO_NODE;
+        this.openArcCount[depth] = arc + 1;
+        this.openAccepting[depth + 1] = false;
+        this.openArcCount[depth + 1] = 0;
+    }
+
+    /**
+     * Closes the open states deeper than {@code depth}, deepest first,
+     * pointing the last arc of each parent at the closed state.
+     *
+     * @param pathLength
+     *            the depth of the deepest open state
+     * @param depth
+     *            the depth of the deepest state to leave open
+     * @updates this
+     */
+    private void closeDownTo(int pathLength, int depth) {
+        for (int d = pathLength; d > depth; d--) {
+            int state = this.close(d);
+            this.openTarget[d - 1][this.openArcCount[d - 1] - 1] = state;
+        }
+    }
+
+    /**
+     * Reports the hash of an accepting flag and a list of arcs.
+     *
+     * @param isAccepting
+     *            whether the state accepts
+     * @param labels
+     *            the labels of the arcs
+     * @param targets
+     *            the targets of the arcs
+     * @param start
+     *            the first arc
+     * @param end
+     *            the end of the arcs
+     * @return the hash
+     */
+    private static int stateHash(boolean isAccepting, char[] labels,
+            int[] targets, int start, int end) {
+        int hash = 1;
+        if (isAccepting) {
+            hash = 2;
+        }
+        for (int arc = start; arc < end; arc++) {
+            hash = 31 * (31 * hash + labels[arc]) + targets[arc];
+        }
+        /*
+         * Spread the high bits down, since the table index is the low bits
+         */
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Closes the open state at {@code depth}: returns the closed state
+     * accepting the same suffixes if there is one, otherwise closes it as a
+     * new state.
+     *
+     * @param depth
+     *            the depth of the open state
+     * @return the closed state
+     * @updates this
+     */
+    private int close(int depth) {
+        boolean isAccepting = this.openAccepting[depth];
+        char[] labels = this.openLabel[depth];
+        int[] targets = this.openTarget[depth];
+        int count = this.openArcCount[depth];
+        int mask = this.register.length - 1;
+
+        int slot = stateHash(isAccepting, labels, targets, 0, count) & mask;
+        int state = NO_NODE;
+        while (state == NO_NODE && this.register[slot] != 0) {
+            int candidate = this.register[slot] - 1;
+            int start = this.arcStart[candidate];
+            if (this.accepting[candidate] == isAccepting
+                    && this.arcStart[candidate + 1] - start == count
+                    && Arrays.equals(this.arcLabel, start, start + count,
+                            labels, 0, count)
+                    && Arrays.equals(this.arcTarget, start, start + count,
+                            targets, 0, count)) {
+                state = candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (state == NO_NODE) {
+            state = this.addState(isAccepting, labels, targets, count);
+        }
+        this.openAccepting[depth] = false;
+        this.openArcCount[depth] = 0;
+        return state;
+    }
+
+    /**
+     * Adds a closed state with the given arcs and registers it.
+     *
+     * @param isAccepting
+     *            whether the state accepts
+     * @param labels
+     *            the labels of the arcs
+     * @param targets
+     *            the targets of the arcs, all closed
+     * @param count
+     *            the number of arcs
+     * @return the new state
+     * @updates this
+     */
+    private int addState(boolean isAccepting, char[] labels, int[] targets,
+            int count) {
+        int state = this.stateCount;
+        if (state + 1 == this.arcStart.length) {
+            this.arcStart = Arrays.copyOf(this.arcStart, 2 * state + 1);
+            this.accepting = Arrays.copyOf(this.accepting, 2 * state);
+            this.wordCount = Arrays.copyOf(this.wordCount, 2 * state);
+        }
+        if (this.arcCount + count > this.arcLabel.length) {
+            int capacity = Math.max(2 * this.arcLabel.length,
+                    this.arcCount + count);
+            this.arcLabel = Arrays.copyOf(this.arcLabel, capacity);
+            this.arcTarget = Arrays.copyOf(this.arcTarget, capacity);
+        }
+
+        int words = 0;
+        if (isAccepting) {
+            words = 1;
+        }
+        System.arraycopy(labels, 0, this.arcLabel, this.arcCount, count);
+        System.arraycopy(targets, 0, this.arcTarget, this.arcCount, count);
+        for (int arc = 0; arc < count; arc++) {
+            words += this.wordCount[targets[arc]];
+        }
+        this.accepting[state] = isAccepting;
+        this.wordCount[state] = words;
+        this.arcStart[state] = this.arcCount;
+        this.arcCount += count;
+        this.arcStart[state + 1] = this.arcCount;
+        this.stateCount++;
+
+        /*
+         * Keep the table at most half full
+         */
+        if (2 * this.stateCount > this.register.length) {
+            this.growRegister();
+        }
+        this.registerState(state);
+        return state;
+    }
+
+    /**
+     * Puts {@code state} in the hash table of closed states.
+     *
+     * @param state
+     *            the closed state
+     * @updates this.register
+     */
+    private void registerState(int state) {
+        int mask = this.register.length - 1;
+        int slot = stateHash(this.accepting[state], this.arcLabel,
+                this.arcTarget, this.arcStart[state],
+                this.arcStart[state + 1]) & mask;
+        while (this.register[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.register[slot] = state + 1;
+    }
+
+    /**
+     * Doubles the hash table of closed states.
+     *
+     * @updates this.register
+     */
+    private void growRegister() {
+        this.register = new int[2 * this.register.length];
+        for (int state = 0; state < this.stateCount - 1; state++) {
+            this.registerState(state);
+        }
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Finds the arc labelled {@code label} leaving {@code state}.
+     *
+     * @param state
+     *            the state
+     * @param label
+     *            the label of the arc to find
+     * @return the arc, or {@code NO_NODE} if there is none
+     */
+    private int arcOf(int state, char label) {
+        /*
+         * Arcs are sorted by label, so stop as soon as the labels pass label
+         */
+        int arc = this.arcStart[state];
+        int end = this.arcStart[state + 1];
+        while (arc < end && this.arcLabel[arc] < label) {
+            arc++;
+        }
+        if (arc == end || this.arcLabel[arc] != label) {
+            arc = NO_NODE;
+        }
+        return arc;
+    }
+
+    /**
+     * Finds the state reached by reading {@code prefix} from the start state.
+     *
+     * @param prefix
+     *            the prefix to read
+     * @return the state, or {@code NO_NODE} if no tag starts with
+     *         {@code prefix}
+     */
+    private int stateForPrefix(String prefix) {
+        int state = this.root;
+        int i = 0;
+        while (state != NO_NODE && i < prefix.length()) {
+            int arc = this.arcOf(state, prefix.charAt(i));
+            state = NO_NODE;
+            if (arc != NO_NODE) {
+                state = this.arcTarget[arc];
+            }
+            i++;
+        }
+        return state;
+    }
+
+    /**
+     * Collects all words accepted from {@code state} into {@code results},
+     * keeping only those that contain {@code substring} unless
+     * {@code substring} is null or already in {@code path}.
+     *
+     * @param state
+     *            the starting state
+     * @param substring
+     *            the substring every word must contain, or null
+     * @param path
+     *            the characters read to reach {@code state}; restored on
+     *            return
+     * @param results
+     *            the list to store results in
+     * @return the number of arcs followed from {@code state}, each counted as
+     *         one node
+     * @ensures {@code results} is extended by the words accepted from
+     *          {@code state}, in lexicographical order
+     */
+    private int collectWords(int state, String substring, StringBuilder path,
+            List<String> results) {
+        /*
+         * Once the path contains the substring every word below it does too
+         */
+        String remaining = substring;
+        if (remaining != null && path.length() >= remaining.length()
+                && path.indexOf(remaining,
+                        path.length() - remaining.length()) >= 0) {
+            remaining = null;
+        }
+        if (this.accepting[state] && remaining == null) {
+            results.add(path.toString());
+        }
+
+        int nodesVisited = 0;
+        int length = path.length();
+        for (int arc = this.arcStart[state]; arc < this.arcStart[state
+                + 1]; arc++) {
+            path.append(this.arcLabel[arc]);
+            nodesVisited += 1 + this.collectWords(this.arcTarget[arc],
+                    remaining, path, results);
+            path.setLength(length);
+        }
+        return nodesVisited;
+    }
+
+    /**
+     * Visits all words accepted from {@code state} with their entry numbers
+     * until {@code visitor} asks to stop.
+     *
+     * @param state
+     *            the starting state
+     * @param ordinal
+     *            the entry number of the first tag accepted from
+     *            {@code state}
+     * @param path
+     *            the characters read to reach {@code state}; restored on
+     *            return
+     * @param visitor
+     *            the visitor
+     * @return true iff every word accepted from {@code state} was visited
+     */
+    private boolean visitWords(int state, int ordinal, StringBuilder path,
+            TagVisitor visitor) {
+        boolean more = true;
+        int below = ordinal;
+        if (this.accepting[state]) {
+            more = visitor.visit(path.toString(), ordinal);
+            below++;
+        }
+
+        int length = path.length();
+        int arc = this.arcStart[state];
+        while (more && arc < this.arcStart[state + 1]) {
+            int target = this.arcTarget[arc];
+            path.append(this.arcLabel[arc]);
+            more = this.visitWords(target, below, path, visitor);
+            path.setLength(length);
+            below += this.wordCount[target];
+            arc++;
+        }
+        return more;
+    }
+
+    /**
+     * Finds the closest matching words accepted from {@code state} by
+     * extending the edit distance row of {@code state} one arc at a time.
+     *
+     * @param state
+     *            the current state
+     * @param depth
+     *            the length of the path to {@code state}
+     * @param ordinal
+     *            the entry number of the first tag accepted from
+     *            {@code state}
+     * @param search
+     *            the state of the search, whose path leads to {@code state}
+     * @ensures search holds the closest words among the words it held and the
+     *          words accepted from {@code state}, lexicographically first
+     *          among ties
+     */
+    private void findClosestMatch(int state, int depth, int ordinal,
+            ClosestMatch search) {
+        int below = ordinal;
+        if (this.accepting[state]) {
+            below++;
+        }
+        for (int arc = this.arcStart[state]; arc < this.arcStart[state
+                + 1]; arc++) {
+            int target = this.arcTarget[arc];
+            /*
+             * rowMin is a lower bound on the distance of every word through
+             * arc
+             */
+            int rowMin = search.extend(depth, this.arcLabel[arc]);
+            if (this.accepting[target]) {
+                search.offer(below);
+            }
+            if (rowMin < search.bound()) {
+                this.findClosestMatch(target, depth + 1, below, search);
+            }
+            search.truncate(depth);
+            below += this.wordCount[target];
+        }
+    }
+
+    /**
+     * Iterator producing tags of {@code this} lazily, in lexicographical
+     * order, by walking the automaton depth first one arc at a time.
+     */
+    private final class TagIterator implements Iterator<String> {
+
+        /**
+         * Substring every produced tag must contain, or null for any tag.
+         */
+        private final String substring;
+
+        /**
+         * The last tag already seen, or null once every state left is after
+         * it.
+         */
+        private String after;
+
+        /**
+         * The state reached by reading the prefix.
+         */
+        private final int start;
+
+        /**
+         * {@code arc[d]} is the arc taken from the state at level {@code d}
+         * of the walk; level 0 is the state for the prefix.
+         */
+        private final int[] arc;
+
+        /**
+         * The characters read to reach the current state.
+         */
+        private final StringBuilder path;
+
+        /**
+         * Length of the prefix.
+         */
+        private final int prefixLength;
+
+        /**
+         * Level of the current state, or -1 when the walk is over.
+         */
+        private int level;
+
+        /**
+         * The next tag to produce, or null if there is none.
+         */
+        private String next;
+
+        /**
+         * Constructor.
+         *
+         * @param prefix
+         *            the prefix every produced tag starts with
+         * @param substring
+         *            the substring every produced tag contains, or null
+         * @param after
+         *            the last tag already seen, or null
+         */
+        private TagIterator(String prefix, String substring, String after) {
+            this.substring = substring;
+            this.after = after;
+            this.start = Dawg.this.stateForPrefix(prefix);
+            this.arc = new int[Dawg.this.maxDepth + 1];
+            this.path = new StringBuilder(prefix);
+            this.prefixLength = prefix.length();
+            this.level = 0;
+            if (this.start == NO_NODE) {
+                this.level = -1;
+            }
+            this.next = this.findNext();
+        }
+
+        /**
+         * Reports the state at {@code depth} levels below the prefix.
+         *
+         * @param depth
+         *            the level, at most the current level
+         * @return the state
+         */
+        private int stateAt(int depth) {
+            int state = this.start;
+            if (depth > 0) {
+                state = Dawg.this.arcTarget[this.arc[depth - 1]];
+            }
+            return state;
+        }
+
+        /**
+         * Compares the current path with {@code after}.
+         *
+         * @return a negative number if every tag below the current state comes
+         *         before {@code after}, zero if the path is a prefix of
+         *         {@code after}, or a positive number if every tag below the
+         *         current state comes after {@code after}
+         */
+        private int compareWithAfter() {
+            int length = Math.min(this.path.length(), this.after.length());
+            int order = 0;
+            int i = 0;
+            while (order == 0 && i < length) {
+                order = Character.compare(this.path.charAt(i),
+                        this.after.charAt(i));
+                i++;
+            }
+            if (order == 0 && this.path.length() > this.after.length()) {
+                order = 1;
+            }
+            return order;
+        }
+
+        /**
+         * Moves along the first arc of the current state if {@code descend}
+         * and it has arcs, otherwise to the next state in depth first order
+         * after the words accepted from the current state.
+         *
+         * @param descend
+         *            whether to walk the words accepted from the current
+         *            state
+         */
+        private void advance(boolean descend) {
+            int[] arcStart = Dawg.this.arcStart;
+            int state = this.stateAt(this.level);
+            if (descend && arcStart[state] < arcStart[state + 1]) {
+                this.arc[this.level] = arcStart[state];
+                this.level++;
+            } else {
+                /*
+                 * Back up to the deepest level whose arc has a next sibling
+                 */
+                while (this.level > 0
+                        && this.arc[this.level - 1] + 1 == arcStart[this
+                                .stateAt(this.level - 1) + 1]) {
+                    this.level--;
+                }
+                if (this.level == 0) {
+                    this.level = -1;
+                } else {
+                    this.arc[this.level - 1]++;
+                }
+            }
+            if (this.level > 0) {
+                this.path.setLength(this.prefixLength + this.level - 1);
+                this.path.append(Dawg.this.arcLabel[this.arc[this.level - 1]]);
+            }
+        }
+
+        /**
+         * Walks to the next accepting state whose tag is produced.
+         *
+         * @return the tag, or null if there is none
+         */
+        private String findNext() {
+            String found = null;
+            while (found == null && this.level >= 0) {
+                int state = this.stateAt(this.level);
+                boolean produce = true;
+                boolean descend = true;
+                if (this.after != null) {
+                    int order = this.compareWithAfter();
+                    if (order < 0) {
+                        produce = false;
+                        descend = false;
+                    } else if (order == 0) {
+                        produce = false;
+                    } else {
+                        /*
+                         * Every state from here on comes after after
+                         */
+                        this.after = null;
+                    }
+                }
+                if (produce && Dawg.this.accepting[state]
+                        && (this.substring == null
+                                || this.path.indexOf(this.substring) >= 0)) {
+                    found = this.path.toString();
+                }
+                this.advance(descend);
+            }
+            return found;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public String next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            String result = this.next;
+            this.next = this.findNext();
+            return result;
+        }
+
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    @Override
+    int size() {
+        return this.wordCount[this.root];
+    }
+
+    @Override
+    int maxDepth() {
+        return this.maxDepth;
+    }
+
+    @Override
+    int nodeCount() {
+        return this.accepting.length;
+    }
+
+    @Override
+    long nodeHeapBytes() {
+        return (long) Integer.BYTES
+                * (this.arcStart.length + this.wordCount.length)
+                + this.accepting.length
+                + (long) (Character.BYTES + Integer.BYTES)
+                        * this.arcLabel.length;
+    }
+
+    @Override
+    int entryOf(String tag) {
+        /*
+         * The entry number is the number of tags before tag: those ending on
+         * the way to it, and those below the arcs skipped on the way
+         */
+        int state = this.root;
+        int ordinal = 0;
+        int i = 0;
+        while (state != NO_NODE && i < tag.length()) {
+            if (this.accepting[state]) {
+                ordinal++;
+            }
+            int arc = this.arcOf(state, tag.charAt(i));
+            if (arc == NO_NODE) {
+                state = NO_NODE;
+            } else {
+                for (int skipped = this.arcStart[state]; skipped < arc;
+                        skipped++) {
+                    ordinal += this.wordCount[this.arcTarget[skipped]];
+                }
+                state = this.arcTarget[arc];
+            }
+            i++;
+        }
+        int tagEntry = NO_ENTRY;
+        if (state != NO_NODE && this.accepting[state]) {
+            tagEntry = ordinal;
+        }
+        return tagEntry;
+    }
+
+    @Override
+    int prefixSearch(String prefix, List<String> results) {
+        int state = this.stateForPrefix(prefix);
+        int nodesVisited = prefix.length();
+        if (state != NO_NODE) {
+            nodesVisited += this.collectWords(state, null,
+                    new StringBuilder(prefix), results);
+        }
+        return nodesVisited;
+    }
+
+    @Override
+    int containsSearch(String substring, List<String> results) {
+        return this.collectWords(this.root, substring, new StringBuilder(),
+                results);
+    }
+
+    @Override
+    Iterator<String> prefixSearchIterator(String prefix, String after) {
+        return new TagIterator(prefix, null, after);
+    }
+
+    @Override
+    Iterator<String> containsSearchIterator(String substring, String after) {
+        return new TagIterator("", substring, after);
+    }
+
+    @Override
+    boolean visitTags(TagVisitor visitor) {
+        return this.visitWords(this.root, 0, new StringBuilder(this.maxDepth),
+                visitor);
+    }
+
+    @Override
+    void findClosestMatches(ClosestMatch search) {
+        /*
+         * The start state accepts the empty tag, if there is one
+         */
+        if (this.accepting[this.root]) {
+            search.offer(0);
+        }
+        this.findClosestMatch(this.root, 0, 0, search);
+    }
+
+    @Override
+    SearchTrie toSearchTrie() {
+        /*
+         * Entry numbers are positions in lexicographical order, which a
+         * fresh build hands out again
+         */
+        List<String> tags = new ArrayList<>(this.size());
+        this.prefixSearch("", tags);
+        return SearchTrie.build(tags.toArray(new String[tags.size()]));
+    }
+
+}
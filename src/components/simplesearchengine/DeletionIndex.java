@@ -0,0 +1,561 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deletion neighborhood index over the tags of a {@code SimpleSearchEngine},
+ * after the symmetric delete method of SymSpell. Every string obtained by
+ * deleting up to {@code maxDistance()} characters from a tag, the tag itself
+ * included, is hashed to 32 bits, and each hash is stored with the number of
+ * the tag in one sorted array of {@code long}s; a directory on the high bits
+ * of the hash narrows each lookup to a few entries.
+ *
+ * <p>
+ * Two strings within k edits of each other have a common string obtained by
+ * deleting at most k characters from each, so the tags within k edits of a
+ * target are all among the tags sharing the hash of one of the deletions of
+ * the target, and {@code closestMatches} only computes the edit distance of
+ * those. Hashes that collide only add candidates, which the edit distance
+ * rules out.
+ * </p>
+ *
+ * <p>
+ * A tag of n characters has up to C(n, 0) + ... + C(n, k) deletions, so the
+ * index grows quickly with k; {@code memoryBytes} reports its size. A tag with
+ * more than {@code MAX_VARIANTS} deletions is left out of the index, and a
+ * search that might find it, or whose target has that many deletions itself,
+ * is left unanswered. A {@code DeletionIndex} is immutable once built, so any
+ * number of threads may query one instance without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class DeletionIndex {
+
+    /**
+     * Largest number of deletions of a tag or target the index hashes.
+     */
+    static final int MAX_VARIANTS = 1 << 16;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Largest number of entries an array of {@code long}s can hold.
+     */
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+    /**
+     * Average number of entries per slot of the directory.
+     */
+    private static final int ENTRIES_PER_SLOT = 4;
+
+    /**
+     * Multiplier of the polynomial hash of a deletion.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * The tags, in lexicographical order.
+     */
+    private final String[] tags;
+
+    /**
+     * Largest number of characters deleted from each tag.
+     */
+    private final int maxDistance;
+
+    /**
+     * Length of the shortest tag left out of the index for having more than
+     * {@code MAX_VARIANTS} deletions, or {@code Integer.MAX_VALUE} if none
+     * was.
+     */
+    private final int shortestLeftOut;
+
+    /**
+     * Each distinct hash of a deletion of a tag in the high 32 bits and the
+     * number of the tag in the low 32 bits, in increasing order.
+     */
+    private final long[] entries;
+
+    /**
+     * Number of high bits of a hash picking its slot of {@code directory}.
+     */
+    private final int slotBits;
+
+    /**
+     * {@code directory[s]} is the position in {@code entries} of the first
+     * entry whose hash is in slot {@code s} or later;
+     * {@code directory[1 << slotBits]} is the length of {@code entries}.
+     */
+    private final int[] directory;
+
+    /**
+     * Time the build took, in nanoseconds.
+     */
+    private long buildNanos;
+
+    /**
+     * Constructor from already filled arrays.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     * @param maxDistance
+     *            the largest number of characters deleted from each tag
+     * @param shortestLeftOut
+     *            the length of the shortest tag left out, or
+     *            {@code Integer.MAX_VALUE}
+     * @param entries
+     *            the sorted hashes and tag numbers
+     * @param slotBits
+     *            the number of bits of a hash picking its slot
+     * @param directory
+     *            the position of the first entry of each slot
+     */
+    private DeletionIndex(String[] tags, int maxDistance, int shortestLeftOut,
+            long[] entries, int slotBits, int[] directory) {
+        this.tags = tags;
+        this.maxDistance = maxDistance;
+        this.shortestLeftOut = shortestLeftOut;
+        this.entries = entries;
+        this.slotBits = slotBits;
+        this.directory = directory;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of strings obtained by deleting up to
+     * {@code deletions} of {@code length} characters, counting a string once
+     * for each set of positions deleted, up to one more than
+     * {@code MAX_VARIANTS}.
+     *
+     * @param length
+     *            the number of characters
+     * @param deletions
+     *            the largest number of characters deleted
+     * @return min(C(length, 0) + ... + C(length, min(deletions, length)),
+     *         MAX_VARIANTS + 1)
+     */
+    private static int variantCount(int length, int deletions) {
+        /*
+         * Stopping once the count passes the limit keeps the binomials, each
+         * at most the limit times the length, from overflowing
+         */
+        long count = 0;
+        long choices = 1;
+        for (int k = 0; k <= Math.min(deletions, length)
+                && count <= MAX_VARIANTS; k++) {
+            count += choices;
+            choices = choices * (length - k) / (k + 1);
+        }
+        return (int) Math.min(count, MAX_VARIANTS + 1L);
+    }
+
+    /**
+     * Mixes the bits of the polynomial hash of a string, so the high bits
+     * picking the slot depend on every character (the finalizer of
+     * MurmurHash3).
+     *
+     * @param polynomial
+     *            the polynomial hash of the string
+     * @param length
+     *            the length of the string
+     * @return the hash of the string
+     */
+    private static int mix(int polynomial, int length) {
+        final int shift1 = 16;
+        final int shift2 = 13;
+        final int mix1 = 0x85ebca6b;
+        final int mix2 = 0xc2b2ae35;
+        int hash = polynomial ^ length;
+        hash ^= hash >>> shift1;
+        hash *= mix1;
+        hash ^= hash >>> shift2;
+        hash *= mix2;
+        hash ^= hash >>> shift1;
+        return hash;
+    }
+
+    /**
+     * Adds to {@code hashes} the hashes of the strings made of the kept
+     * characters before {@code from}, whose polynomial hash is
+     * {@code keptHash}, followed by the characters from {@code from} on with
+     * up to {@code deletions} of them deleted. The polynomial hash of
+     * characters a to b - 1 of the text is
+     * {@code prefix[b] - prefix[a] * power[b - a]}, so each string is hashed
+     * from the pieces between its deleted characters.
+     *
+     * @param prefix
+     *            the polynomial hash of each prefix of the text
+     * @param power
+     *            the powers of {@code HASH_MULTIPLIER}
+     * @param from
+     *            the position of the first character that may be deleted
+     * @param keptHash
+     *            the polynomial hash of the kept characters before
+     *            {@code from}
+     * @param deleted
+     *            the number of characters deleted before {@code from}
+     * @param deletions
+     *            the largest number of characters to delete from {@code from}
+     *            on
+     * @param hashes
+     *            the array to store the hashes in
+     * @param count
+     *            the number of hashes already in {@code hashes}
+     * @return the number of hashes in {@code hashes}
+     */
+    private static int addVariants(int[] prefix, int[] power, int from,
+            int keptHash, int deleted, int deletions, int[] hashes,
+            int count) {
+        int length = prefix.length - 1;
+        hashes[count] = mix(keptHash * power[length - from] + prefix[length]
+                - prefix[from] * power[length - from], length - deleted);
+        int added = count + 1;
+        if (deletions > 0) {
+            for (int i = from; i < length; i++) {
+                int kept = keptHash * power[i - from] + prefix[i]
+                        - prefix[from] * power[i - from];
+                added = addVariants(prefix, power, i + 1, kept, deleted + 1,
+                        deletions - 1, hashes, added);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Reports the distinct hashes of the strings obtained by deleting up to
+     * {@code deletions} characters from {@code text}.
+     *
+     * @param text
+     *            the text
+     * @param deletions
+     *            the largest number of characters deleted
+     * @return the distinct hashes, in increasing order
+     * @requires variantCount(|text|, deletions) <= MAX_VARIANTS
+     */
+    private static int[] variantHashes(String text, int deletions) {
+        int count = variantCount(text.length(), deletions);
+
+        int[] prefix = new int[text.length() + 1];
+        int[] power = new int[text.length() + 1];
+        power[0] = 1;
+        for (int i = 0; i < text.length(); i++) {
+            prefix[i + 1] = HASH_MULTIPLIER * prefix[i] + text.charAt(i);
+            power[i + 1] = HASH_MULTIPLIER * power[i];
+        }
+        int[] hashes = new int[count];
+        addVariants(prefix, power, 0, 0, 0, deletions, hashes, 0);
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[distinct] = hashes[i];
+                distinct++;
+            }
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    /**
+     * Builds the index over {@code sortedTags}.
+     *
+     * @param sortedTags
+     *            the tags to index
+     * @param maxDistance
+     *            the largest number of characters deleted from each tag
+     * @return the index over {@code sortedTags}, or null if the deletions of
+     *         the tags are too many for one array
+     * @requires sortedTags != null and the tags are distinct and in
+     *           lexicographical order, and maxDistance > 0
+     * @ensures the returned index finds every tag in {@code sortedTags}
+     *          with at most {@code MAX_VARIANTS} deletions within
+     *          {@code maxDistance} edits of a given target
+     */
+    static DeletionIndex build(String[] sortedTags, int maxDistance) {
+        assert sortedTags != null : "Violation of: sortedTags is not null";
+        assert maxDistance > 0 : "Violation of: maxDistance > 0";
+
+        long start = System.nanoTime();
+        long bound = 0;
+        int shortestLeftOut = Integer.MAX_VALUE;
+        for (String tag : sortedTags) {
+            int count = variantCount(tag.length(), maxDistance);
+            if (count <= MAX_VARIANTS) {
+                bound += count;
+            } else {
+                shortestLeftOut = Math.min(shortestLeftOut, tag.length());
+            }
+        }
+
+        DeletionIndex index = null;
+        if (bound <= MAX_ENTRIES) {
+            index = buildIndex(sortedTags, maxDistance, shortestLeftOut,
+                    (int) bound);
+            index.buildNanos = System.nanoTime() - start;
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index over {@code sortedTags}, leaving out the tags with more
+     * than {@code MAX_VARIANTS} deletions.
+     *
+     * @param sortedTags
+     *            the tags to index
+     * @param maxDistance
+     *            the largest number of characters deleted from each tag
+     * @param shortestLeftOut
+     *            the length of the shortest tag left out, or
+     *            {@code Integer.MAX_VALUE}
+     * @param bound
+     *            the number of deletions of the tags indexed
+     * @return the index over {@code sortedTags}
+     */
+    private static DeletionIndex buildIndex(String[] sortedTags,
+            int maxDistance, int shortestLeftOut, int bound) {
+        long[] entries = new long[bound];
+        int length = 0;
+        for (int i = 0; i < sortedTags.length; i++) {
+            if (variantCount(sortedTags[i].length(),
+                    maxDistance) <= MAX_VARIANTS) {
+                for (int hash : variantHashes(sortedTags[i], maxDistance)) {
+                    entries[length] = ((long) hash << Integer.SIZE) | i;
+                    length++;
+                }
+            }
+        }
+        if (length < entries.length) {
+            entries = Arrays.copyOf(entries, length);
+        }
+        Arrays.sort(entries);
+
+        /*
+         * Hashes are ordered as signed numbers, so the slots are too once the
+         * sign bit of the slot number is flipped
+         */
+        int slotBits = 1;
+        while ((long) ENTRIES_PER_SLOT << slotBits < length
+                && slotBits < Integer.SIZE - 2) {
+            slotBits++;
+        }
+        int[] directory = new int[(1 << slotBits) + 1];
+        DeletionIndex index = new DeletionIndex(sortedTags, maxDistance,
+                shortestLeftOut, entries, slotBits, directory);
+        int position = 0;
+        for (int s = 0; s < directory.length - 1; s++) {
+            while (position < length && index
+                    .slot((int) (entries[position] >> Integer.SIZE)) < s) {
+                position++;
+            }
+            directory[s] = position;
+        }
+        directory[directory.length - 1] = length;
+        return index;
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Reports the slot of {@code directory} holding {@code hash}.
+     *
+     * @param hash
+     *            the hash
+     * @return its slot
+     */
+    private int slot(int hash) {
+        return (hash >> (Integer.SIZE - this.slotBits))
+                + (1 << (this.slotBits - 1));
+    }
+
+    /**
+     * Reports the position in {@code entries} of the first entry with hash
+     * {@code hash}.
+     *
+     * @param hash
+     *            the hash of a deletion
+     * @return the position of its first entry, or of the first entry with a
+     *         larger hash if there is none
+     */
+    private int firstEntry(int hash) {
+        int s = this.slot(hash);
+        long key = (long) hash << Integer.SIZE;
+        int lo = this.directory[s];
+        int hi = this.directory[s + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.entries[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Reports whether the entry at {@code position} has hash {@code hash}.
+     *
+     * @param position
+     *            the position of an entry, or the length of {@code entries}
+     * @param hash
+     *            the hash of a deletion
+     * @return true iff there is an entry at {@code position} with that hash
+     */
+    private boolean hasHash(int position, int hash) {
+        return position < this.entries.length
+                && (int) (this.entries[position] >> Integer.SIZE) == hash;
+    }
+
+    /**
+     * Finds the {@code count} tags closest to {@code target} among the tags
+     * sharing a deletion with it, if the deletions can tell.
+     *
+     * @param target
+     *            the target word to match
+     * @param count
+     *            the number of tags wanted
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @param limit
+     *            min({@code maxDistance}, {@code maxDistance()})
+     * @return the closest tags in order of edit distance, lexicographically
+     *         among ties, or null if a tag further away than the index
+     *         reaches might be among them
+     * @requires variantCount(|target|, limit) <= MAX_VARIANTS
+     */
+    private List<SearchStructure.Match> indexedMatches(String target,
+            int count, int maxDistance, int limit) {
+        int[] hashes = variantHashes(target, limit);
+        int[] firstEntries = new int[hashes.length];
+        int candidateCount = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            firstEntries[i] = this.firstEntry(hashes[i]);
+            for (int e = firstEntries[i]; this.hasHash(e, hashes[i]); e++) {
+                candidateCount++;
+            }
+        }
+        int[] candidates = new int[candidateCount];
+        int listed = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            for (int e = firstEntries[i]; this.hasHash(e, hashes[i]); e++) {
+                candidates[listed] = (int) this.entries[e];
+                listed++;
+            }
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+
+        List<SearchStructure.Match> matches = new ArrayList<>();
+        for (int k = 0; k < candidateCount; k++) {
+            if (k == 0 || candidates[k] != candidates[k - 1]) {
+                String candidate = this.tags[candidates[k]];
+                if (Math.abs(candidate.length() - target.length()) <= limit) {
+                    int distance = GramIndex.editDistance(target, candidate,
+                            limit);
+                    if (distance <= limit) {
+                        matches.add(new SearchStructure.Match(candidate,
+                                candidates[k], distance));
+                    }
+                }
+            }
+        }
+
+        if (matches.size() >= count || limit == maxDistance) {
+            /*
+             * Tag numbers follow lexicographical order, and the candidates
+             * were taken in that order
+             */
+            matches.sort((first, second) -> Integer.compare(first.distance(),
+                    second.distance()));
+            if (matches.size() > count) {
+                matches = new ArrayList<>(matches.subList(0, count));
+            }
+        } else {
+            matches = null;
+        }
+        return matches;
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Reports the largest number of edits within which the index finds every
+     * tag.
+     *
+     * @return the number of characters deleted from each tag
+     */
+    int maxDistance() {
+        return this.maxDistance;
+    }
+
+    /**
+     * Reports about how many bytes the index takes, not counting the tags,
+     * which it shares with the search structure.
+     *
+     * @return the size of the index in bytes
+     */
+    long memoryBytes() {
+        final int arrayHeader = 16;
+        return 2 * arrayHeader + (long) Long.BYTES * this.entries.length
+                + (long) Integer.BYTES * this.directory.length;
+    }
+
+    /**
+     * Reports how long the build of the index took.
+     *
+     * @return the build time in nanoseconds
+     */
+    long buildNanos() {
+        return this.buildNanos;
+    }
+
+    /**
+     * Finds the {@code count} tags closest to {@code target} by edit
+     * distance, among the tags within {@code maxDistance} edits, if the
+     * deletions of {@code target} can tell. The index finds every tag within
+     * min({@code maxDistance}, {@code maxDistance()}) edits, so the search is
+     * answered when that bound is {@code maxDistance} or at least
+     * {@code count} tags are within it.
+     *
+     * @param target
+     *            the target word to match
+     * @param count
+     *            the number of tags wanted
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the closest tags in order of edit distance, lexicographically
+     *         among ties, or null if a tag further away than the index
+     *         reaches, or left out of it, might be among them, or if
+     *         {@code target} has more than {@code MAX_VARIANTS} deletions
+     * @requires count > 0 and maxDistance >= 0
+     */
+    List<SearchStructure.Match> closestMatches(String target, int count,
+            int maxDistance) {
+        assert count > 0 : "Violation of: count > 0";
+        assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+
+        /*
+         * A tag left out is within the limit of the target only if their
+         * lengths are
+         */
+        int limit = Math.min(maxDistance, this.maxDistance);
+        List<SearchStructure.Match> matches = null;
+        if (variantCount(target.length(), limit) <= MAX_VARIANTS
+                && (long) target.length() + limit < this.shortestLeftOut) {
+            matches = this.indexedMatches(target, count, maxDistance, limit);
+        }
+        return matches;
+    }
+
+}
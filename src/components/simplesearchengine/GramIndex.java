@@ -0,0 +1,792 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Inverted index from the trigrams of the tags of a {@code SimpleSearchEngine}
+ * to the tags holding them. Each tag is padded with two {@code PAD}
+ * characters at either end, so a tag of n characters has n + 2 grams, and
+ * the posting list of a gram, the numbers of the tags holding it in
+ * increasing order, once per occurrence, is stored as the differences
+ * between successive numbers written as variable length integers.
+ *
+ * <p>
+ * A substring of at least {@code GRAM_LENGTH} characters can only be in tags
+ * holding every one of its grams, so {@code containsSearch} intersects their
+ * posting lists, shortest first, and checks only the tags left. A tag within
+ * k edits of a target shares at least max(|tag|, |target|) + 2 - 3k grams
+ * with it, since one edit changes at most three grams, so
+ * {@code closestMatches} counts the grams each tag shares with the target and
+ * only computes the edit distance of the tags sharing enough of them.
+ * </p>
+ *
+ * <p>
+ * A {@code GramIndex} is immutable once built, so any number of threads may
+ * query one instance without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class GramIndex {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of characters in a gram.
+     */
+    static final int GRAM_LENGTH = 3;
+
+    /**
+     * Character padding either end of a tag.
+     */
+    private static final char PAD = '\0';
+
+    /**
+     * Fraction of the tags, as one in this many, that the posting lists
+     * walked for one distance may hold before a closest match search gives
+     * up; past that, walking the search structure costs about as much.
+     */
+    private static final int CANDIDATE_SHARE = 16;
+
+    /**
+     * Number of posting list entries a closest match search may always walk
+     * for one distance, however few tags there are.
+     */
+    private static final int MIN_CANDIDATES = 1024;
+
+    /**
+     * Bits of a byte of a posting list holding part of a number.
+     */
+    private static final int PAYLOAD_BITS = 7;
+
+    /**
+     * Bit of a byte of a posting list marking that more bytes follow.
+     */
+    private static final int MORE = 0x80;
+
+    /**
+     * The tags, in lexicographical order.
+     */
+    private final String[] tags;
+
+    /**
+     * The distinct grams of the tags, each packed into a {@code long} by
+     * {@code pack}, in increasing order.
+     */
+    private final long[] grams;
+
+    /**
+     * {@code postingStart[g]} is the position in {@code postings} of the
+     * posting list of gram {@code g}; {@code postingStart[grams.length]} is
+     * the length of {@code postings}.
+     */
+    private final int[] postingStart;
+
+    /**
+     * Number of entries in the posting list of each gram.
+     */
+    private final int[] postingSize;
+
+    /**
+     * The posting lists of all grams, one after another.
+     */
+    private final byte[] postings;
+
+    /**
+     * Constructor from already filled arrays.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     * @param grams
+     *            the distinct packed grams
+     * @param postingStart
+     *            the position of each posting list
+     * @param postingSize
+     *            the length of each posting list
+     * @param postings
+     *            the encoded posting lists
+     */
+    private GramIndex(String[] tags, long[] grams, int[] postingStart,
+            int[] postingSize, byte[] postings) {
+        this.tags = tags;
+        this.grams = grams;
+        this.postingStart = postingStart;
+        this.postingSize = postingSize;
+        this.postings = postings;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Packs the {@code GRAM_LENGTH} characters of {@code text} starting at
+     * {@code start} into one {@code long}, so that packed grams compare as
+     * the grams do.
+     *
+     * @param text
+     *            the text
+     * @param start
+     *            the position of the gram
+     * @return the packed gram
+     */
+    private static long pack(String text, int start) {
+        long gram = 0;
+        for (int i = start; i < start + GRAM_LENGTH; i++) {
+            gram = (gram << Character.SIZE) | text.charAt(i);
+        }
+        return gram;
+    }
+
+    /**
+     * Reports the packed grams of {@code text} padded at either end, in
+     * increasing order.
+     *
+     * @param text
+     *            the text
+     * @return the |text| + 2 grams of the padded text, sorted
+     */
+    private static long[] paddedGrams(String text) {
+        String pad = String.valueOf(PAD).repeat(GRAM_LENGTH - 1);
+        String padded = pad + text + pad;
+        long[] grams = new long[text.length() + GRAM_LENGTH - 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = pack(padded, i);
+        }
+        Arrays.sort(grams);
+        return grams;
+    }
+
+    /**
+     * Builds the index over {@code sortedTags}.
+     *
+     * @param sortedTags
+     *            the tags to index
+     * @return the index over {@code sortedTags}
+     * @requires sortedTags != null and the tags are distinct and in
+     *           lexicographical order
+     * @ensures the returned index finds every tag in {@code sortedTags}
+     *          containing a given substring or close to a given target
+     */
+    static GramIndex build(String[] sortedTags) {
+        assert sortedTags != null : "Violation of: sortedTags is not null";
+
+        /*
+         * List every gram of every tag, tag by tag, then number the distinct
+         * grams
+         */
+        long[][] tagGrams = new long[sortedTags.length][];
+        int occurrences = 0;
+        for (int i = 0; i < sortedTags.length; i++) {
+            tagGrams[i] = paddedGrams(sortedTags[i]);
+            occurrences += tagGrams[i].length;
+        }
+        long[] grams = new long[occurrences];
+        int k = 0;
+        for (long[] some : tagGrams) {
+            System.arraycopy(some, 0, grams, k, some.length);
+            k += some.length;
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int j = 0; j < grams.length; j++) {
+            if (j == 0 || grams[j] != grams[j - 1]) {
+                grams[distinct] = grams[j];
+                distinct++;
+            }
+        }
+        grams = Arrays.copyOf(grams, distinct);
+
+        /*
+         * Count the occurrences of each gram, then lay the tag numbers out
+         * list by list; tags are taken in order, so each list comes out
+         * sorted
+         */
+        int[] postingSize = new int[distinct];
+        for (long[] some : tagGrams) {
+            for (long gram : some) {
+                postingSize[Arrays.binarySearch(grams, gram)]++;
+            }
+        }
+        int[] next = new int[distinct];
+        for (int g = 1; g < distinct; g++) {
+            next[g] = next[g - 1] + postingSize[g - 1];
+        }
+        int[] tagNumbers = new int[occurrences];
+        for (int i = 0; i < tagGrams.length; i++) {
+            for (long gram : tagGrams[i]) {
+                int g = Arrays.binarySearch(grams, gram);
+                tagNumbers[next[g]] = i;
+                next[g]++;
+            }
+            tagGrams[i] = null;
+        }
+
+        int maxBytes = (Integer.SIZE + PAYLOAD_BITS - 1) / PAYLOAD_BITS;
+        byte[] postings = new byte[maxBytes * occurrences];
+        int[] postingStart = new int[distinct + 1];
+        int length = 0;
+        int first = 0;
+        for (int g = 0; g < distinct; g++) {
+            postingStart[g] = length;
+            int previous = 0;
+            for (int j = first; j < first + postingSize[g]; j++) {
+                int delta = tagNumbers[j] - previous;
+                while (delta >= MORE) {
+                    postings[length] = (byte) (delta | MORE);
+                    length++;
+                    delta >>>= PAYLOAD_BITS;
+                }
+                postings[length] = (byte) delta;
+                length++;
+                previous = tagNumbers[j];
+            }
+            first += postingSize[g];
+        }
+        postingStart[distinct] = length;
+
+        return new GramIndex(sortedTags, grams, postingStart, postingSize,
+                Arrays.copyOf(postings, length));
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Cursor decoding one posting list.
+     */
+    private final class PostingCursor {
+
+        /**
+         * Position of the next byte to read in {@code postings}.
+         */
+        private int position;
+
+        /**
+         * Position in {@code postings} where the list ends.
+         */
+        private final int end;
+
+        /**
+         * The last tag number read.
+         */
+        private int tag;
+
+        /**
+         * Constructor.
+         *
+         * @param gram
+         *            the number of the gram whose list to read
+         */
+        private PostingCursor(int gram) {
+            this.position = GramIndex.this.postingStart[gram];
+            this.end = GramIndex.this.postingStart[gram + 1];
+            this.tag = 0;
+        }
+
+        /**
+         * Reports whether the list has more tag numbers.
+         *
+         * @return true iff there is another tag number to read
+         */
+        private boolean hasNext() {
+            return this.position < this.end;
+        }
+
+        /**
+         * Reads the next tag number of the list.
+         *
+         * @return the tag number
+         * @requires hasNext()
+         */
+        private int next() {
+            byte[] postings = GramIndex.this.postings;
+            int delta = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = postings[this.position];
+                this.position++;
+                delta |= (b & (MORE - 1)) << shift;
+                shift += PAYLOAD_BITS;
+            } while ((b & MORE) != 0);
+            this.tag += delta;
+            return this.tag;
+        }
+
+    }
+
+    /**
+     * Reports the number of gram {@code gram} in {@code grams}.
+     *
+     * @param gram
+     *            the packed gram
+     * @return its number, or a negative number if no tag holds it
+     */
+    private int gramNumber(long gram) {
+        return Arrays.binarySearch(this.grams, gram);
+    }
+
+    /**
+     * Reports the length of the posting list of gram number {@code gram}.
+     *
+     * @param gram
+     *            the number of the gram, or a negative number for a gram no
+     *            tag holds
+     * @return the number of entries in its posting list
+     */
+    private int listSize(int gram) {
+        int size = 0;
+        if (gram >= 0) {
+            size = this.postingSize[gram];
+        }
+        return size;
+    }
+
+    /**
+     * Finds the numbers of the tags containing {@code substring}.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param examined
+     *            holds at index 0 the number of candidate tags examined,
+     *            those in the shortest posting list of a gram of
+     *            {@code substring}
+     * @return the numbers, in increasing order, of the tags containing
+     *         {@code substring}
+     * @updates examined
+     * @requires |substring| >= GRAM_LENGTH and |examined| > 0
+     */
+    private int[] matchingTags(String substring, int[] examined) {
+        int gramCount = substring.length() - GRAM_LENGTH + 1;
+        int[] gramNumbers = new int[gramCount];
+        boolean possible = true;
+        for (int i = 0; possible && i < gramCount; i++) {
+            gramNumbers[i] = this.gramNumber(pack(substring, i));
+            possible = gramNumbers[i] >= 0;
+        }
+
+        int[] candidates = new int[0];
+        int count = 0;
+        examined[0] = 0;
+        if (possible) {
+            /*
+             * Start from the shortest list, so every intersection walks a
+             * longer list against at most that many candidates
+             */
+            int shortest = 0;
+            for (int i = 1; i < gramCount; i++) {
+                if (this.postingSize[gramNumbers[i]] < this
+                        .postingSize[gramNumbers[shortest]]) {
+                    shortest = i;
+                }
+            }
+            candidates = new int[this.postingSize[gramNumbers[shortest]]];
+            examined[0] = candidates.length;
+            PostingCursor list = new PostingCursor(gramNumbers[shortest]);
+            while (list.hasNext()) {
+                int tag = list.next();
+                if (count == 0 || candidates[count - 1] != tag) {
+                    candidates[count] = tag;
+                    count++;
+                }
+            }
+            for (int i = 0; count > 0 && i < gramCount; i++) {
+                if (i != shortest) {
+                    count = this.intersect(candidates, count, gramNumbers[i]);
+                }
+            }
+        }
+
+        /*
+         * Holding every gram does not put them in the right order, so check
+         * each tag left
+         */
+        int matching = 0;
+        for (int k = 0; k < count; k++) {
+            if (this.tags[candidates[k]].contains(substring)) {
+                candidates[matching] = candidates[k];
+                matching++;
+            }
+        }
+        return Arrays.copyOf(candidates, matching);
+    }
+
+    /**
+     * Keeps the first {@code count} tag numbers of {@code candidates} that
+     * are also in the posting list of gram {@code gram}.
+     *
+     * @param candidates
+     *            distinct tag numbers, in increasing order
+     * @param count
+     *            the number of candidates
+     * @param gram
+     *            the number of the gram
+     * @return the number of candidates kept, now first in
+     *         {@code candidates}
+     */
+    private int intersect(int[] candidates, int count, int gram) {
+        PostingCursor list = new PostingCursor(gram);
+        int kept = 0;
+        int tag = -1;
+        for (int k = 0; k < count; k++) {
+            while (tag < candidates[k] && list.hasNext()) {
+                tag = list.next();
+            }
+            if (tag == candidates[k]) {
+                candidates[kept] = candidates[k];
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Computes the edit distance between {@code first} and {@code second} if
+     * it is at most {@code limit}.
+     *
+     * @param first
+     *            a string
+     * @param second
+     *            another string
+     * @param limit
+     *            the largest distance of interest
+     * @return the edit distance, or {@code limit + 1} if it is more than
+     *         {@code limit}
+     */
+    static int editDistance(String first, String second, int limit) {
+        int[] row = new int[second.length() + 1];
+        int[] nextRow = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            row[j] = j;
+        }
+        int rowMin = 0;
+        for (int i = 1; rowMin <= limit && i <= first.length(); i++) {
+            nextRow[0] = i;
+            rowMin = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int cost = (first.charAt(i - 1) == second.charAt(j - 1)) ? 0
+                        : 1;
+                nextRow[j] = Math.min(Math.min(row[j] + 1, nextRow[j - 1] + 1),
+                        row[j - 1] + cost);
+                rowMin = Math.min(rowMin, nextRow[j]);
+            }
+            int[] swap = row;
+            row = nextRow;
+            nextRow = swap;
+        }
+        int distance = limit + 1;
+        if (rowMin <= limit) {
+            distance = Math.min(row[second.length()], limit + 1);
+        }
+        return distance;
+    }
+
+    /**
+     * Finds the tags within {@code limit} edits of {@code target}. Any such
+     * tag shares at least {@code needed} = |target| + 2 - 3 limit grams with
+     * it, so it holds one of any grams of {@code target} whose occurrences
+     * add up to more than |target| + 2 - {@code needed}; the shortest such
+     * posting lists give the candidates.
+     *
+     * @param target
+     *            the target word to match
+     * @param gramNumbers
+     *            the number of each distinct gram of the padded target, or a
+     *            negative number for a gram no tag holds, ordered by the
+     *            length of their posting lists
+     * @param repeats
+     *            the number of times the padded target holds each gram
+     * @param limit
+     *            the largest edit distance accepted
+     * @return the tags within {@code limit} edits of {@code target}, in no
+     *         particular order, or null if the posting lists to walk hold
+     *         too many entries to be worth it
+     * @requires 0 <= limit <= (|target| + 1) / 3
+     */
+    private List<SearchStructure.Match> matchesWithin(String target,
+            int[] gramNumbers, int[] repeats, int limit) {
+        int gramCount = target.length() + GRAM_LENGTH - 1;
+        int needed = gramCount - GRAM_LENGTH * limit;
+        int lists = 0;
+        int covered = 0;
+        int candidateCount = 0;
+        while (covered <= gramCount - needed) {
+            candidateCount += this.listSize(gramNumbers[lists]);
+            covered += repeats[lists];
+            lists++;
+        }
+
+        List<SearchStructure.Match> matches = null;
+        if (candidateCount <= Math.max(MIN_CANDIDATES,
+                this.tags.length / CANDIDATE_SHARE)) {
+            matches = this.verifiedCandidates(target, gramNumbers, repeats,
+                    lists, candidateCount, gramCount - covered, limit);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the tags within {@code limit} edits of {@code target} among
+     * those in the first {@code lists} posting lists of its grams.
+     *
+     * @param target
+     *            the target word to match
+     * @param gramNumbers
+     *            the number of each distinct gram of the padded target, or a
+     *            negative number for a gram no tag holds
+     * @param repeats
+     *            the number of times the padded target holds each gram
+     * @param lists
+     *            the number of posting lists to walk
+     * @param candidateCount
+     *            the number of entries in those lists
+     * @param unwalked
+     *            the number of gram occurrences of the padded target outside
+     *            those lists, which a tag may share too
+     * @param limit
+     *            the largest edit distance accepted
+     * @return the tags within {@code limit} edits of {@code target}, in no
+     *         particular order
+     */
+    private List<SearchStructure.Match> verifiedCandidates(String target,
+            int[] gramNumbers, int[] repeats, int lists, int candidateCount,
+            int unwalked, int limit) {
+
+        /*
+         * List each candidate once per gram occurrence it shares, as often
+         * as both hold the gram; a tag holding a gram more than once has its
+         * number repeated in the list
+         */
+        int[] candidates = new int[candidateCount];
+        int listed = 0;
+        for (int g = 0; g < lists; g++) {
+            if (gramNumbers[g] >= 0) {
+                PostingCursor list = new PostingCursor(gramNumbers[g]);
+                int previous = -1;
+                int run = 0;
+                while (list.hasNext()) {
+                    int tag = list.next();
+                    if (tag != previous) {
+                        previous = tag;
+                        run = 0;
+                    }
+                    run++;
+                    if (run <= repeats[g]) {
+                        candidates[listed] = tag;
+                        listed++;
+                    }
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, listed);
+
+        List<SearchStructure.Match> matches = new ArrayList<>();
+        int k = 0;
+        while (k < listed) {
+            int tag = candidates[k];
+            int shared = 0;
+            while (k < listed && candidates[k] == tag) {
+                shared++;
+                k++;
+            }
+            String candidate = this.tags[tag];
+            int tagNeeded = Math.max(candidate.length(), target.length())
+                    + GRAM_LENGTH - 1 - GRAM_LENGTH * limit;
+            if (Math.abs(candidate.length() - target.length()) <= limit
+                    && shared + unwalked >= tagNeeded) {
+                int distance = editDistance(target, candidate, limit);
+                if (distance <= limit) {
+                    matches.add(new SearchStructure.Match(candidate, tag,
+                            distance));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Adds the tags containing {@code substring} to {@code results}.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param results
+     *            the list to store results in
+     * @return the number of candidate tags examined
+     * @requires |substring| >= GRAM_LENGTH
+     * @ensures {@code results} is extended by the tags containing
+     *          {@code substring}, in lexicographical order
+     */
+    int containsSearch(String substring, List<String> results) {
+        int[] examined = new int[1];
+        for (int tag : this.matchingTags(substring, examined)) {
+            results.add(this.tags[tag]);
+        }
+        return examined[0];
+    }
+
+    /**
+     * Returns an iterator producing the tags containing {@code substring} that
+     * come after {@code after}, in lexicographical order. The matching tags
+     * are found when the iterator is created.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param after
+     *            the last tag already seen, or null to start from the first
+     *            tag
+     * @return the iterator
+     * @requires |substring| >= GRAM_LENGTH
+     */
+    Iterator<String> containsSearchIterator(String substring, String after) {
+        final int[] matching = this.matchingTags(substring, new int[1]);
+
+        /*
+         * Binary search for the first match after the cursor
+         */
+        int lo = 0;
+        if (after != null) {
+            int hi = matching.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.tags[matching[mid]].compareTo(after) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+        }
+        final int start = lo;
+
+        return new Iterator<String>() {
+
+            /**
+             * Position of the next match to produce.
+             */
+            private int position = start;
+
+            @Override
+            public boolean hasNext() {
+                return this.position < matching.length;
+            }
+
+            @Override
+            public String next() {
+                if (this.position >= matching.length) {
+                    throw new NoSuchElementException();
+                }
+                int tag = matching[this.position];
+                this.position++;
+                return GramIndex.this.tags[tag];
+            }
+
+        };
+    }
+
+    /**
+     * Finds the {@code count} tags closest to {@code target} by edit
+     * distance, among the tags within {@code maxDistance} edits, if the grams
+     * they share with {@code target} can tell. Tags are looked for within 0,
+     * 1, 2, ... edits until {@code count} are found; the gram counts only
+     * rule tags out up to (|target| + 1) / 3 edits away, so past that, or
+     * once the candidates would outnumber one in {@code CANDIDATE_SHARE} of
+     * the tags, the search is left unanswered.
+     *
+     * @param target
+     *            the target word to match
+     * @param count
+     *            the number of tags wanted
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the closest tags in order of edit distance, lexicographically
+     *         among ties, or null if a tag the grams cannot rule out might be
+     *         among them
+     * @requires count > 0 and maxDistance >= 0
+     */
+    List<SearchStructure.Match> closestMatches(String target, int count,
+            int maxDistance) {
+        assert count > 0 : "Violation of: count > 0";
+        assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+
+        /*
+         * Number the distinct grams of the target, shortest posting list
+         * first
+         */
+        long[] targetGrams = paddedGrams(target);
+        int[] gramNumbers = new int[targetGrams.length];
+        int[] gramRepeats = new int[targetGrams.length];
+        int distinct = 0;
+        for (int i = 0; i < targetGrams.length; i++) {
+            if (i > 0 && targetGrams[i] == targetGrams[i - 1]) {
+                gramRepeats[distinct - 1]++;
+            } else {
+                gramNumbers[distinct] = this.gramNumber(targetGrams[i]);
+                gramRepeats[distinct] = 1;
+                distinct++;
+            }
+        }
+        Integer[] bySize = new Integer[distinct];
+        for (int i = 0; i < distinct; i++) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, (first, second) -> Integer.compare(
+                this.listSize(gramNumbers[first]),
+                this.listSize(gramNumbers[second])));
+        int[] sortedNumbers = new int[distinct];
+        int[] repeats = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+            sortedNumbers[i] = gramNumbers[bySize[i]];
+            repeats[i] = gramRepeats[bySize[i]];
+        }
+
+        /*
+         * Every tag left out at one distance is further away than every tag
+         * found, so the matches stand once there are enough of them or
+         * nothing further away is wanted
+         */
+        int reach = Math.min(maxDistance,
+                (target.length() + GRAM_LENGTH - 2) / GRAM_LENGTH);
+        List<SearchStructure.Match> matches = new ArrayList<>();
+        int limit = 0;
+        boolean answered = false;
+        while (matches != null && !answered && limit <= reach) {
+            matches = this.matchesWithin(target, sortedNumbers, repeats,
+                    limit);
+            answered = matches != null
+                    && (matches.size() >= count || limit == maxDistance);
+            limit++;
+        }
+        if (answered) {
+            /*
+             * Tag numbers follow lexicographical order
+             */
+            matches.sort((first, second) -> {
+                int order = Integer.compare(first.distance(),
+                        second.distance());
+                if (order == 0) {
+                    order = Integer.compare(first.entry(), second.entry());
+                }
+                return order;
+            });
+            if (matches.size() > count) {
+                matches = new ArrayList<>(matches.subList(0, count));
+            }
+        } else {
+            matches = null;
+        }
+        return matches;
+    }
+
+}
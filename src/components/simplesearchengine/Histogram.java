@@ -0,0 +1,217 @@
+package components.simplesearchengine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative {@code long} values, such as latencies in
+ * nanoseconds or result sizes, that reports percentiles to within about 6%.
+ * Values below 16 get a bucket each; every power of two above that is split
+ * into 16 buckets, so the histogram takes a fixed 8 KB whatever the range of
+ * the values.
+ *
+ * <p>
+ * Recording takes no lock, so any number of threads may record into one
+ * instance at once. A percentile read while values are being recorded may
+ * miss the values recorded during the read.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class Histogram {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of bits of a value kept below its highest one bit.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets, enough for every non-negative {@code long}.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS)
+            * SUB_BUCKETS;
+
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Number of values recorded.
+     */
+    private final LongAdder count;
+
+    /**
+     * Sum of the values recorded.
+     */
+    private final LongAdder sum;
+
+    /**
+     * Largest value recorded.
+     */
+    private final AtomicLong max;
+
+    /**
+     * Constructor for an empty histogram.
+     */
+    Histogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Reports the bucket of {@code value}.
+     *
+     * @param value
+     *            the value
+     * @return the bucket
+     * @requires value >= 0
+     */
+    private static int bucketOf(long value) {
+        int bucket = (int) value;
+        if (value >= SUB_BUCKETS) {
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+                    & (SUB_BUCKETS - 1);
+            bucket = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+        return bucket;
+    }
+
+    /**
+     * Reports the largest value that falls in {@code bucket}.
+     *
+     * @param bucket
+     *            the bucket
+     * @return the largest value of the bucket
+     */
+    private static long highestIn(int bucket) {
+        long highest = bucket;
+        if (bucket >= SUB_BUCKETS) {
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int sub = bucket % SUB_BUCKETS;
+            int shift = exponent - SUB_BUCKET_BITS;
+            long lowest = (long) (SUB_BUCKETS + sub) << shift;
+            highest = lowest + (1L << shift) - 1;
+        }
+        return highest;
+    }
+
+    /*
+     * Updates ----------------------------------------------------------------
+     */
+
+    /**
+     * Records {@code value}.
+     *
+     * @param value
+     *            the value
+     * @requires value >= 0
+     */
+    void record(long value) {
+        assert value >= 0 : "Violation of: value >= 0";
+
+        this.counts.incrementAndGet(bucketOf(value));
+        this.count.increment();
+        this.sum.add(value);
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Forgets every value recorded.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.reset();
+        this.sum.reset();
+        this.max.set(0);
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of values recorded.
+     *
+     * @return the number of values
+     */
+    long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * Reports the mean of the values recorded.
+     *
+     * @return the mean, or 0 if no value was recorded
+     */
+    double mean() {
+        long values = this.count.sum();
+        double mean = 0;
+        if (values > 0) {
+            mean = (double) this.sum.sum() / values;
+        }
+        return mean;
+    }
+
+    /**
+     * Reports the largest value recorded.
+     *
+     * @return the largest value, or 0 if no value was recorded
+     */
+    long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Reports the value at {@code percentile}: at least that fraction of the
+     * values recorded are no larger than it.
+     *
+     * @param percentile
+     *            the percentile, as a fraction
+     * @return the value at the percentile, rounded up to the top of its
+     *         bucket but no more than the largest value, or 0 if no value was
+     *         recorded
+     * @requires 0 <= percentile <= 1
+     */
+    long valueAt(double percentile) {
+        assert percentile >= 0 && percentile <= 1 : ""
+                + "Violation of: 0 <= percentile <= 1";
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+
+        long value = 0;
+        if (total > 0) {
+            long rank = Math.max(1, (long) Math.ceil(percentile * total));
+            long seen = 0;
+            int bucket = 0;
+            while (seen + snapshot[bucket] < rank) {
+                seen += snapshot[bucket];
+                bucket++;
+            }
+            value = Math.min(highestIn(bucket), this.max.get());
+        }
+        return value;
+    }
+
+}
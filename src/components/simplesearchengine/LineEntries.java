@@ -0,0 +1,186 @@
+package components.simplesearchengine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+import components.map.Map.Pair;
+import components.simplesearchengine.SimpleSearchEngineSecondary.SimplePair;
+
+/**
+ * The lines of a text file as {@code SimpleSearchEngine} entries: each line is
+ * a tag, and its value is computed from the line and its line number, for
+ * {@code addAll} and {@code changeToSearchMode(Iterable)}. The file is read
+ * lazily through a large buffered NIO reader, one line per entry, each time
+ * the entries are iterated, so no copy of the file is kept in memory.
+ *
+ * <p>
+ * The file is closed when an iteration reaches its end; an iteration that
+ * stops early leaves it open until the iterator is garbage collected. An
+ * {@code IOException} while reading is thrown as an
+ * {@code UncheckedIOException}.
+ * </p>
+ *
+ * @param <T>
+ *            type of the values
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public final class LineEntries<T> implements Iterable<Pair<String, T>> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Size of the read buffer, in characters.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The file to read.
+     */
+    private final Path file;
+
+    /**
+     * The character set of the file.
+     */
+    private final Charset charset;
+
+    /**
+     * Computes the value of a line from the line and its number, counting
+     * from 0.
+     */
+    private final BiFunction<String, Integer, ? extends T> lineValue;
+
+    /**
+     * Constructor for a UTF-8 file.
+     *
+     * @param file
+     *            the file to read
+     * @param lineValue
+     *            computes the value of a line from the line and its number,
+     *            counting from 0
+     */
+    public LineEntries(Path file,
+            BiFunction<String, Integer, ? extends T> lineValue) {
+        this(file, StandardCharsets.UTF_8, lineValue);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param file
+     *            the file to read
+     * @param charset
+     *            the character set of the file
+     * @param lineValue
+     *            computes the value of a line from the line and its number,
+     *            counting from 0
+     */
+    public LineEntries(Path file, Charset charset,
+            BiFunction<String, Integer, ? extends T> lineValue) {
+        assert file != null : "Violation of: file is not null";
+        assert charset != null : "Violation of: charset is not null";
+        assert lineValue != null : "Violation of: lineValue is not null";
+
+        this.file = file;
+        this.charset = charset;
+        this.lineValue = lineValue;
+    }
+
+    @Override
+    public Iterator<Pair<String, T>> iterator() {
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    Files.newInputStream(this.file),
+                    this.charset.newDecoder()), BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LineIterator(reader);
+    }
+
+    /**
+     * Iterator over the lines of one reading of the file.
+     */
+    private final class LineIterator implements Iterator<Pair<String, T>> {
+
+        /**
+         * The reader, or null once the file is closed.
+         */
+        private BufferedReader reader;
+
+        /**
+         * The next line, or null at the end of the file.
+         */
+        private String next;
+
+        /**
+         * Number of the next line.
+         */
+        private int lineNumber;
+
+        /**
+         * Constructor.
+         *
+         * @param reader
+         *            the reader positioned at the start of the file
+         */
+        private LineIterator(BufferedReader reader) {
+            this.reader = reader;
+            this.lineNumber = 0;
+            this.next = this.readLine();
+        }
+
+        /**
+         * Reads the next line, closing the file at its end.
+         *
+         * @return the next line, or null at the end of the file
+         */
+        private String readLine() {
+            String line = null;
+            if (this.reader != null) {
+                try {
+                    line = this.reader.readLine();
+                    if (line == null) {
+                        this.reader.close();
+                        this.reader = null;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return line;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public Pair<String, T> next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            String line = this.next;
+            T value = LineEntries.this.lineValue.apply(line, this.lineNumber);
+            this.lineNumber++;
+            this.next = this.readLine();
+            return new SimplePair<T>(line, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,455 @@
+package components.simplesearchengine;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The original tags behind the normalized keys of a search structure built
+ * over normalized tags. Each key has an entry number in the search structure
+ * and one or more tags normalizing to it, kept in lexicographical order. Each
+ * tag has a tag number, which callers use to keep data for the tag in a
+ * parallel array: {@code build} numbers the tags in order of key, then of
+ * tag, and {@code insert} hands out numbers freed by {@code remove} before new
+ * ones.
+ *
+ * <p>
+ * No query writes to {@code this}, so any number of threads may query one
+ * instance without locking as long as no thread is inserting or removing a
+ * tag at the same time.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class NormalizedTags {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Tag numbers of the tags of each key, indexed by the entry number of the
+     * key, in lexicographical order of the tags; empty for an entry number
+     * not in use.
+     */
+    private int[][] keyTags;
+
+    /**
+     * Tag of each tag number, or null for a tag number not in use.
+     */
+    private String[] tags;
+
+    /**
+     * Number of tag numbers handed out, including freed ones.
+     */
+    private int tagLimit;
+
+    /**
+     * Tag numbers freed by {@code remove}, waiting to be reused.
+     */
+    private int[] freeTags;
+
+    /**
+     * Number of entries in {@code freeTags}.
+     */
+    private int freeTagCount;
+
+    /**
+     * Number of tags held.
+     */
+    private int size;
+
+    /**
+     * Constructor from already filled arrays.
+     *
+     * @param keyTags
+     *            the tag numbers of each key
+     * @param tags
+     *            the tag of each tag number
+     */
+    private NormalizedTags(int[][] keyTags, String[] tags) {
+        this.keyTags = keyTags;
+        this.tags = tags;
+        this.tagLimit = tags.length;
+        this.freeTags = new int[0];
+        this.freeTagCount = 0;
+        this.size = tags.length;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Reports the distinct keys of {@code tagKeys}.
+     *
+     * @param tagKeys
+     *            the key of each tag, in lexicographical order
+     * @return the keys, each once, in lexicographical order
+     */
+    static String[] distinctKeys(String[] tagKeys) {
+        String[] keys = new String[tagKeys.length];
+        int keyCount = 0;
+        for (int i = 0; i < tagKeys.length; i++) {
+            if (i == 0 || !tagKeys[i].equals(tagKeys[i - 1])) {
+                keys[keyCount] = tagKeys[i];
+                keyCount++;
+            }
+        }
+        return Arrays.copyOf(keys, keyCount);
+    }
+
+    /**
+     * Builds the tags behind the keys {@code distinctKeys(tagKeys)}, where
+     * tag {@code i} normalizes to {@code tagKeys[i]}; the key with entry
+     * number {@code k} is the {@code k}th distinct key.
+     *
+     * @param tagKeys
+     *            the key of each tag, in lexicographical order
+     * @param sortedTags
+     *            the tags, in lexicographical order of key, then of tag
+     * @return the tags behind the keys, tag {@code i} having tag number
+     *         {@code i}; it takes over {@code sortedTags}
+     * @requires tagKeys.length = sortedTags.length and the tags are distinct
+     */
+    static NormalizedTags build(String[] tagKeys, String[] sortedTags) {
+        assert tagKeys.length == sortedTags.length : "Violation of: every tag has a key";
+
+        int[][] keyTags = new int[tagKeys.length][];
+        int keyCount = 0;
+        int i = 0;
+        while (i < tagKeys.length) {
+            int end = i + 1;
+            while (end < tagKeys.length && tagKeys[end].equals(tagKeys[i])) {
+                end++;
+            }
+            int[] group = new int[end - i];
+            for (int j = 0; j < group.length; j++) {
+                group[j] = i + j;
+            }
+            keyTags[keyCount] = group;
+            keyCount++;
+            i = end;
+        }
+        return new NormalizedTags(Arrays.copyOf(keyTags, keyCount),
+                sortedTags);
+    }
+
+    /*
+     * Updates ----------------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code tag} behind the key with entry number {@code keyEntry}.
+     *
+     * @param keyEntry
+     *            the entry number of the key {@code tag} normalizes to
+     * @param tag
+     *            the tag to add
+     * @return the tag number of {@code tag}
+     * @requires tag is not behind keyEntry
+     */
+    int insert(int keyEntry, String tag) {
+        if (keyEntry >= this.keyTags.length) {
+            int oldLength = this.keyTags.length;
+            this.keyTags = Arrays.copyOf(this.keyTags,
+                    Math.max(2 * oldLength, keyEntry + 1));
+            Arrays.fill(this.keyTags, oldLength, this.keyTags.length,
+                    new int[0]);
+        }
+
+        int tagNumber;
+        if (this.freeTagCount > 0) {
+            this.freeTagCount--;
+            tagNumber = this.freeTags[this.freeTagCount];
+        } else {
+            tagNumber = this.tagLimit;
+            this.tagLimit++;
+            if (tagNumber >= this.tags.length) {
+                this.tags = Arrays.copyOf(this.tags,
+                        Math.max(2 * this.tags.length, 1));
+            }
+        }
+        this.tags[tagNumber] = tag;
+
+        /*
+         * Keys rarely have more than a few tags, so shift them one by one
+         */
+        int[] group = this.keyTags[keyEntry];
+        int[] grown = Arrays.copyOf(group, group.length + 1);
+        int position = group.length;
+        while (position > 0 && this.tags[grown[position - 1]]
+                .compareTo(tag) > 0) {
+            grown[position] = grown[position - 1];
+            position--;
+        }
+        grown[position] = tagNumber;
+        this.keyTags[keyEntry] = grown;
+        this.size++;
+        return tagNumber;
+    }
+
+    /**
+     * Removes {@code tag} from behind the key with entry number
+     * {@code keyEntry}.
+     *
+     * @param keyEntry
+     *            the entry number of the key {@code tag} normalizes to
+     * @param tag
+     *            the tag to remove
+     * @return the tag number {@code tag} had
+     * @requires tag is behind keyEntry
+     * @ensures the tag number of {@code tag} is free
+     */
+    int remove(int keyEntry, String tag) {
+        int tagNumber = this.tagNumber(keyEntry, tag);
+        assert tagNumber != SearchStructure.NO_ENTRY : "Violation of: tag is behind keyEntry";
+
+        int[] group = this.keyTags[keyEntry];
+        int[] shrunk = new int[group.length - 1];
+        int k = 0;
+        for (int number : group) {
+            if (number != tagNumber) {
+                shrunk[k] = number;
+                k++;
+            }
+        }
+        this.keyTags[keyEntry] = shrunk;
+        this.tags[tagNumber] = null;
+        if (this.freeTagCount == this.freeTags.length) {
+            this.freeTags = Arrays.copyOf(this.freeTags,
+                    Math.max(2 * this.freeTags.length, 1));
+        }
+        this.freeTags[this.freeTagCount] = tagNumber;
+        this.freeTagCount++;
+        this.size--;
+        return tagNumber;
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of tags held.
+     *
+     * @return the number of tags
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Reports one more than the largest tag number in use.
+     *
+     * @return the size an array indexed by tag number needs
+     */
+    int tagLimit() {
+        return this.tagLimit;
+    }
+
+    /**
+     * Reports the number of tags behind the key with entry number
+     * {@code keyEntry}.
+     *
+     * @param keyEntry
+     *            the entry number of the key
+     * @return the number of tags normalizing to the key
+     */
+    int tagCount(int keyEntry) {
+        int count = 0;
+        if (keyEntry >= 0 && keyEntry < this.keyTags.length) {
+            count = this.keyTags[keyEntry].length;
+        }
+        return count;
+    }
+
+    /**
+     * Reports the tag number of the {@code i}th tag, in lexicographical
+     * order, behind the key with entry number {@code keyEntry}.
+     *
+     * @param keyEntry
+     *            the entry number of the key
+     * @param i
+     *            the position of the tag among the tags of the key
+     * @return the tag number
+     * @requires 0 <= i < tagCount(keyEntry)
+     */
+    int tagNumberAt(int keyEntry, int i) {
+        return this.keyTags[keyEntry][i];
+    }
+
+    /**
+     * Reports the {@code i}th tag, in lexicographical order, behind the key
+     * with entry number {@code keyEntry}.
+     *
+     * @param keyEntry
+     *            the entry number of the key
+     * @param i
+     *            the position of the tag among the tags of the key
+     * @return the tag
+     * @requires 0 <= i < tagCount(keyEntry)
+     */
+    String tagAt(int keyEntry, int i) {
+        return this.tags[this.keyTags[keyEntry][i]];
+    }
+
+    /**
+     * Reports the tag with tag number {@code tagNumber}.
+     *
+     * @param tagNumber
+     *            the tag number
+     * @return the tag
+     * @requires tagNumber is in use
+     */
+    String tag(int tagNumber) {
+        return this.tags[tagNumber];
+    }
+
+    /**
+     * Reports the tag number of {@code tag} behind the key with entry number
+     * {@code keyEntry}.
+     *
+     * @param keyEntry
+     *            the entry number of the key {@code tag} normalizes to
+     * @param tag
+     *            the tag to look up
+     * @return the tag number, or {@code NO_ENTRY} if {@code tag} is not
+     *         behind the key
+     */
+    int tagNumber(int keyEntry, String tag) {
+        int tagNumber = SearchStructure.NO_ENTRY;
+        for (int i = 0; i < this.tagCount(keyEntry)
+                && tagNumber == SearchStructure.NO_ENTRY; i++) {
+            if (this.tagAt(keyEntry, i).equals(tag)) {
+                tagNumber = this.keyTags[keyEntry][i];
+            }
+        }
+        return tagNumber;
+    }
+
+    /**
+     * Adds the tags behind each of {@code keys} to {@code results}.
+     *
+     * @param structure
+     *            the search structure holding the keys
+     * @param keys
+     *            keys of {@code structure}
+     * @param results
+     *            the list to store results in
+     * @ensures {@code results} is extended by the tags of each key in turn,
+     *          each key's in lexicographical order
+     */
+    void addTags(SearchStructure structure, List<String> keys,
+            List<String> results) {
+        for (String key : keys) {
+            int keyEntry = structure.entryOf(key);
+            for (int i = 0; i < this.tagCount(keyEntry); i++) {
+                results.add(this.tagAt(keyEntry, i));
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator producing the tags behind the keys produced by
+     * {@code keys}, preceded by the tags behind {@code afterKey} that come
+     * after {@code after}.
+     *
+     * @param structure
+     *            the search structure holding the keys
+     * @param keys
+     *            iterator over keys of {@code structure} after
+     *            {@code afterKey}
+     * @param afterKey
+     *            the key {@code after} normalizes to, if it matches the
+     *            search, else null
+     * @param after
+     *            the last tag already seen, or null
+     * @return the iterator
+     */
+    Iterator<String> tagIterator(SearchStructure structure,
+            Iterator<String> keys, String afterKey, String after) {
+        return new TagIterator(structure, keys, afterKey, after);
+    }
+
+    /**
+     * Iterator over the tags behind the keys produced by another iterator.
+     */
+    private final class TagIterator implements Iterator<String> {
+
+        /**
+         * The search structure holding the keys.
+         */
+        private final SearchStructure structure;
+
+        /**
+         * The keys still to expand.
+         */
+        private final Iterator<String> keys;
+
+        /**
+         * Entry number of the key being expanded, or {@code NO_ENTRY}.
+         */
+        private int keyEntry;
+
+        /**
+         * Position of the next tag among the tags of the key being expanded.
+         */
+        private int position;
+
+        /**
+         * Constructor.
+         *
+         * @param structure
+         *            the search structure holding the keys
+         * @param keys
+         *            the keys to expand
+         * @param afterKey
+         *            the key to expand first, from after {@code after}, or
+         *            null
+         * @param after
+         *            the last tag already seen, or null
+         */
+        private TagIterator(SearchStructure structure, Iterator<String> keys,
+                String afterKey, String after) {
+            this.structure = structure;
+            this.keys = keys;
+            this.keyEntry = SearchStructure.NO_ENTRY;
+            this.position = 0;
+            if (afterKey != null) {
+                this.keyEntry = structure.entryOf(afterKey);
+                NormalizedTags tags = NormalizedTags.this;
+                while (this.position < tags.tagCount(this.keyEntry)
+                        && tags.tagAt(this.keyEntry, this.position)
+                                .compareTo(after) <= 0) {
+                    this.position++;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.position >= NormalizedTags.this.tagCount(this.keyEntry)
+                    && this.keys.hasNext()) {
+                this.keyEntry = this.structure.entryOf(this.keys.next());
+                this.position = 0;
+            }
+            return this.position < NormalizedTags.this.tagCount(this.keyEntry);
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String tag = NormalizedTags.this.tagAt(this.keyEntry,
+                    this.position);
+            this.position++;
+            return tag;
+        }
+
+    }
+
+}
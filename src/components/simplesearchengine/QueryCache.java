@@ -0,0 +1,253 @@
+package components.simplesearchengine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of query results of a {@code SimpleSearchEngine} in search
+ * mode, evicting the least recently used result once it holds
+ * {@code capacity} results. A result is looked up by the kind of query, its
+ * text argument and its number argument, and may be null.
+ *
+ * <p>
+ * Every method locks the cache, so any number of query threads may share one
+ * instance. The cache knows nothing of the engine: the engine has to
+ * {@code clear} it whenever its entries change.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class QueryCache {
+
+    /*
+     * Public members ---------------------------------------------------------
+     */
+
+    /**
+     * Kind of query: {@code prefixSearch}.
+     */
+    static final char PREFIX_SEARCH = 'p';
+
+    /**
+     * Kind of query: {@code containsSearch}.
+     */
+    static final char CONTAINS_SEARCH = 'c';
+
+    /**
+     * Kind of query: {@code relativeSearch}.
+     */
+    static final char RELATIVE_SEARCH = 'r';
+
+    /**
+     * Kind of query: {@code suggestions}.
+     */
+    static final char SUGGESTIONS = 's';
+
+    /**
+     * Kind of query: {@code topCompletions}.
+     */
+    static final char TOP_COMPLETIONS = 't';
+
+    /**
+     * Returned by {@code get} for a query that is not cached, since null is a
+     * result that can be cached.
+     */
+    static final Object MISS = new Object();
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Key of a cached result.
+     */
+    private static final class Key {
+
+        /**
+         * The kind of query.
+         */
+        private final char kind;
+
+        /**
+         * The text argument of the query.
+         */
+        private final String text;
+
+        /**
+         * The number argument of the query.
+         */
+        private final int number;
+
+        /**
+         * Constructor.
+         *
+         * @param kind
+         *            the kind of query
+         * @param text
+         *            the text argument of the query
+         * @param number
+         *            the number argument of the query
+         */
+        private Key(char kind, String text, int number) {
+            this.kind = kind;
+            this.text = text;
+            this.number = number;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            return this.kind == key.kind && this.number == key.number
+                    && this.text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            final int a = 31;
+            return a * (a * this.kind + this.number) + this.text.hashCode();
+        }
+
+    }
+
+    /**
+     * The cached results, least recently used first.
+     */
+    private final LinkedHashMap<Key, Object> results;
+
+    /**
+     * Largest number of results held.
+     */
+    private final int capacity;
+
+    /**
+     * Number of lookups that found a cached result.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that found no cached result.
+     */
+    private long misses;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity
+     *            the largest number of results to hold
+     * @requires capacity > 0
+     */
+    QueryCache(int capacity) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+
+        this.capacity = capacity;
+        /*
+         * An access-ordered map moves each result it hands out to the end, so
+         * the eldest entry is the least recently used one
+         */
+        this.results = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+
+            /**
+             * Serialization version, unused.
+             */
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return this.size() > QueryCache.this.capacity;
+            }
+
+        };
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Looks up the result of a query, marking it as the most recently used.
+     *
+     * @param kind
+     *            the kind of query
+     * @param text
+     *            the text argument of the query
+     * @param number
+     *            the number argument of the query, or 0 if it has none
+     * @return the cached result, or {@code MISS} if there is none
+     */
+    synchronized Object get(char kind, String text, int number) {
+        Key key = new Key(kind, text, number);
+        Object result = this.results.get(key);
+        if (result == null && !this.results.containsKey(key)) {
+            result = MISS;
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Reports the largest number of results held.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Reports the number of lookups that found a cached result.
+     *
+     * @return the number of hits
+     */
+    synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Reports the number of lookups that found no cached result.
+     *
+     * @return the number of misses
+     */
+    synchronized long misses() {
+        return this.misses;
+    }
+
+    /*
+     * Updates ----------------------------------------------------------------
+     */
+
+    /**
+     * Caches the result of a query, evicting the least recently used result
+     * if the cache is full.
+     *
+     * @param kind
+     *            the kind of query
+     * @param text
+     *            the text argument of the query
+     * @param number
+     *            the number argument of the query, or 0 if it has none
+     * @param result
+     *            the result, which must not be changed afterwards
+     */
+    synchronized void put(char kind, String text, int number, Object result) {
+        this.results.put(new Key(kind, text, number), result);
+    }
+
+    /**
+     * Drops every cached result, keeping the hit and miss counts.
+     */
+    synchronized void clear() {
+        this.results.clear();
+    }
+
+}
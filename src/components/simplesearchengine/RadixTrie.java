@@ -0,0 +1,699 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Path-compressed (radix) trie over the tags of a {@code SimpleSearchEngine}.
+ * Every run of nodes of a {@code SearchTrie} with a single child and no tag
+ * ending at them collapses into one node whose edge is labelled with the
+ * characters of the run. Node {@code 0} is the root, with an empty label;
+ * children are kept in lexicographical order of their labels, which never
+ * share a first character.
+ *
+ * <p>
+ * Nodes are laid out depth first, and each node's label is appended to one
+ * shared character array when the node is laid out, so the label of node
+ * {@code n} runs from {@code labelStart[n]} to {@code labelStart[n + 1]} and
+ * the array holds every character of the original trie exactly once. A
+ * {@code RadixTrie} is immutable once built, so any number of threads may
+ * query one instance without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class RadixTrie extends SearchStructure {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The labels of all nodes, one after another in node order.
+     */
+    private final char[] labels;
+
+    /**
+     * Start of the label of each node in {@code labels}; the entry after the
+     * last node is the length of {@code labels}.
+     */
+    private final int[] labelStart;
+
+    /**
+     * Entry number of the tag ending at each node, or {@code NO_ENTRY} if the
+     * node does not mark the end of a tag.
+     */
+    private final int[] entry;
+
+    /**
+     * Index of the first (lexicographically smallest) child of each node.
+     */
+    private final int[] firstChild;
+
+    /**
+     * Index of the next (lexicographically larger) sibling of each node.
+     */
+    private final int[] nextSibling;
+
+    /**
+     * Number of tags stored.
+     */
+    private final int tagCount;
+
+    /**
+     * At least the length of the longest tag stored.
+     */
+    private final int maxDepth;
+
+    /**
+     * Number of nodes laid out so far while building.
+     */
+    private int nodeCount;
+
+    /**
+     * Number of label characters laid out so far while building.
+     */
+    private int labelCount;
+
+    /**
+     * Constructor for an empty layout of the given size, filled in by
+     * {@code build}.
+     *
+     * @param nodeCount
+     *            number of nodes
+     * @param labelLength
+     *            total length of the labels
+     * @param tagCount
+     *            number of tags stored
+     * @param maxDepth
+     *            at least the length of the longest tag stored
+     */
+    private RadixTrie(int nodeCount, int labelLength, int tagCount,
+            int maxDepth) {
+        this.labels = new char[labelLength];
+        this.labelStart = new int[nodeCount + 1];
+        this.entry = new int[nodeCount];
+        this.firstChild = new int[nodeCount];
+        this.nextSibling = new int[nodeCount];
+        this.tagCount = tagCount;
+        this.maxDepth = maxDepth;
+        this.nodeCount = 0;
+        this.labelCount = 0;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Builds the radix trie for the tags of {@code trie}.
+     *
+     * @param trie
+     *            the trie to compress
+     * @return the radix trie holding the tags of {@code trie} with the same
+     *         entry numbers
+     * @requires trie.isCompact()
+     */
+    static RadixTrie build(SearchTrie trie) {
+        assert trie.isCompact() : "Violation of: trie is compact";
+
+        /*
+         * A node of trie starts a run, and so a radix node, unless its parent
+         * is a non-root node with just this one child and no tag ending there
+         */
+        int nodeCount = 1;
+        for (int node = 0; node < trie.nodeLimit(); node++) {
+            int child = trie.firstChildOf(node);
+            if (child != NO_NODE && (node == ROOT
+                    || trie.entryAt(node) != NO_ENTRY
+                    || trie.nextSiblingOf(child) != NO_NODE)) {
+                for (; child != NO_NODE; child = trie.nextSiblingOf(child)) {
+                    nodeCount++;
+                }
+            }
+        }
+
+        RadixTrie radix = new RadixTrie(nodeCount, trie.nodeLimit() - 1,
+                trie.size(), trie.maxDepth());
+        radix.nodeCount = 1;
+        radix.labelStart[ROOT] = 0;
+        radix.entry[ROOT] = trie.entryAt(ROOT);
+        radix.nextSibling[ROOT] = NO_NODE;
+        radix.firstChild[ROOT] = radix.addChildren(trie, ROOT);
+        radix.labelStart[nodeCount] = radix.labelCount;
+        assert radix.nodeCount == nodeCount : "Violation of: every counted node is laid out";
+        return radix;
+    }
+
+    /**
+     * Lays out a radix node for each child of {@code trieNode}, and the
+     * subtrees below them, depth first.
+     *
+     * @param trie
+     *            the trie being compressed
+     * @param trieNode
+     *            the node of {@code trie} whose children start runs
+     * @return the radix node of the first child, or {@code NO_NODE} if
+     *         {@code trieNode} has no children
+     * @updates this
+     */
+    private int addChildren(SearchTrie trie, int trieNode) {
+        int first = NO_NODE;
+        int previous = NO_NODE;
+        for (int child = trie.firstChildOf(trieNode); child != NO_NODE;
+                child = trie.nextSiblingOf(child)) {
+            int node = this.nodeCount;
+            this.nodeCount++;
+            this.labelStart[node] = this.labelCount;
+
+            /*
+             * Follow the run while it has one child and no tag ends on it
+             */
+            int end = child;
+            this.labels[this.labelCount] = trie.charOf(end);
+            this.labelCount++;
+            int next = trie.firstChildOf(end);
+            while (trie.entryAt(end) == NO_ENTRY && next != NO_NODE
+                    && trie.nextSiblingOf(next) == NO_NODE) {
+                end = next;
+                next = trie.firstChildOf(end);
+                this.labels[this.labelCount] = trie.charOf(end);
+                this.labelCount++;
+            }
+            this.entry[node] = trie.entryAt(end);
+            this.nextSibling[node] = NO_NODE;
+            this.firstChild[node] = this.addChildren(trie, end);
+
+            if (previous == NO_NODE) {
+                first = node;
+            } else {
+                this.nextSibling[previous] = node;
+            }
+            previous = node;
+        }
+        return first;
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Finds the child of {@code node} whose label starts with
+     * {@code childChar}.
+     *
+     * @param node
+     *            the parent node
+     * @param childChar
+     *            the first character of the label of the child to find
+     * @return the index of the child, or {@code NO_NODE} if there is none
+     */
+    private int childNode(int node, char childChar) {
+        /*
+         * Siblings are sorted by the first character of their labels, so stop
+         * as soon as the characters pass childChar
+         */
+        int child = this.firstChild[node];
+        while (child != NO_NODE
+                && this.labels[this.labelStart[child]] < childChar) {
+            child = this.nextSibling[child];
+        }
+        if (child != NO_NODE
+                && this.labels[this.labelStart[child]] != childChar) {
+            child = NO_NODE;
+        }
+        return child;
+    }
+
+    /**
+     * Appends the label of {@code node} to {@code path}.
+     *
+     * @param node
+     *            the node
+     * @param path
+     *            the path to extend
+     * @updates path
+     */
+    private void appendLabel(int node, StringBuilder path) {
+        path.append(this.labels, this.labelStart[node],
+                this.labelStart[node + 1] - this.labelStart[node]);
+    }
+
+    /**
+     * Finds the highest node whose path starts with {@code prefix}, filling
+     * {@code path} with the path of that node.
+     *
+     * @param prefix
+     *            the prefix to search for
+     * @param path
+     *            the path of the node found
+     * @return the index of the node, or {@code NO_NODE} if no path in
+     *         {@code this} starts with {@code prefix}
+     * @updates path
+     * @ensures if the node is found, path is its path, which starts with
+     *          prefix
+     */
+    private int findNodeForPrefix(String prefix, StringBuilder path) {
+        path.setLength(0);
+        int node = ROOT;
+        int i = 0;
+        while (node != NO_NODE && i < prefix.length()) {
+            node = this.childNode(node, prefix.charAt(i));
+            if (node != NO_NODE) {
+                /*
+                 * The prefix may end part way along the label
+                 */
+                int start = this.labelStart[node];
+                int end = this.labelStart[node + 1];
+                int k = start;
+                while (k < end && i < prefix.length()
+                        && this.labels[k] == prefix.charAt(i)) {
+                    k++;
+                    i++;
+                }
+                if (k < end && i < prefix.length()) {
+                    node = NO_NODE;
+                } else {
+                    this.appendLabel(node, path);
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Collects all words from {@code node} downwards into {@code results},
+     * keeping only those that contain {@code substring} unless
+     * {@code substring} is null or already in {@code path}.
+     *
+     * @param node
+     *            the starting node
+     * @param substring
+     *            the substring every word must contain, or null
+     * @param path
+     *            the characters from the root to {@code node}; restored on
+     *            return
+     * @param results
+     *            the list to store results in
+     * @return the number of characters on the labels below {@code node},
+     *         each of which was walked as one node
+     * @ensures {@code results} is extended by the words from {@code node}
+     *          downward, in lexicographical order
+     */
+    private int collectWords(int node, String substring, StringBuilder path,
+            List<String> results) {
+        /*
+         * Once the path contains the substring every word below it does too
+         */
+        String remaining = substring;
+        if (remaining != null && path.indexOf(remaining) >= 0) {
+            remaining = null;
+        }
+        if (this.entry[node] != NO_ENTRY && remaining == null) {
+            results.add(path.toString());
+        }
+
+        int nodesVisited = 0;
+        int length = path.length();
+        for (int child = this.firstChild[node]; child != NO_NODE;
+                child = this.nextSibling[child]) {
+            this.appendLabel(child, path);
+            nodesVisited += path.length() - length
+                    + this.collectWords(child, remaining, path, results);
+            path.setLength(length);
+        }
+        return nodesVisited;
+    }
+
+    /**
+     * Visits all words from {@code node} downwards with their entry numbers
+     * until {@code visitor} asks to stop.
+     *
+     * @param node
+     *            the starting node
+     * @param path
+     *            the characters from the root to {@code node}; restored on
+     *            return
+     * @param visitor
+     *            the visitor
+     * @return true iff every word from {@code node} downwards was visited
+     */
+    private boolean visitWords(int node, StringBuilder path,
+            TagVisitor visitor) {
+        boolean more = true;
+        if (this.entry[node] != NO_ENTRY) {
+            more = visitor.visit(path.toString(), this.entry[node]);
+        }
+
+        int length = path.length();
+        int child = this.firstChild[node];
+        while (more && child != NO_NODE) {
+            this.appendLabel(child, path);
+            more = this.visitWords(child, path, visitor);
+            path.setLength(length);
+            child = this.nextSibling[child];
+        }
+        return more;
+    }
+
+    /**
+     * Finds the closest matching words below {@code node} by extending the
+     * edit distance row of {@code node} one label character at a time.
+     *
+     * @param node
+     *            the current node
+     * @param depth
+     *            the length of the path of {@code node}
+     * @param search
+     *            the state of the search, whose path leads to {@code node}
+     * @ensures search holds the closest words among the words it held and the
+     *          words below {@code node}, lexicographically first among ties
+     */
+    private void findClosestMatch(int node, int depth, ClosestMatch search) {
+        for (int child = this.firstChild[node]; child != NO_NODE;
+                child = this.nextSibling[child]) {
+            int start = this.labelStart[child];
+            int end = this.labelStart[child + 1];
+
+            /*
+             * Walk the label while some word below it can still beat the
+             * bound; rowMin only grows along the label
+             */
+            int rowMin = 0;
+            int k = start;
+            while (k < end && rowMin < search.bound()) {
+                rowMin = search.extend(depth + k - start, this.labels[k]);
+                k++;
+            }
+            if (k == end) {
+                if (this.entry[child] != NO_ENTRY) {
+                    search.offer(this.entry[child]);
+                }
+                if (rowMin < search.bound()) {
+                    this.findClosestMatch(child, depth + end - start, search);
+                }
+            }
+            search.truncate(depth);
+        }
+    }
+
+    /**
+     * Iterator producing tags of {@code this} lazily, in lexicographical
+     * order, by walking the radix trie depth first one node at a time.
+     */
+    private final class TagIterator implements Iterator<String> {
+
+        /**
+         * Substring every produced tag must contain, or null for any tag.
+         */
+        private final String substring;
+
+        /**
+         * The last tag already seen, or null once every node left is after
+         * it.
+         */
+        private String after;
+
+        /**
+         * {@code stack[d]} is the node at level {@code d} of the walk; level
+         * 0 is the node for the prefix.
+         */
+        private final int[] stack;
+
+        /**
+         * {@code pathLength[d]} is the length of the path of
+         * {@code stack[d]}.
+         */
+        private final int[] pathLength;
+
+        /**
+         * The characters from the root to the current node.
+         */
+        private final StringBuilder path;
+
+        /**
+         * Level of the current node, or -1 when the walk is over.
+         */
+        private int level;
+
+        /**
+         * The next tag to produce, or null if there is none.
+         */
+        private String next;
+
+        /**
+         * Constructor.
+         *
+         * @param prefix
+         *            the prefix every produced tag starts with
+         * @param substring
+         *            the substring every produced tag contains, or null
+         * @param after
+         *            the last tag already seen, or null
+         */
+        private TagIterator(String prefix, String substring, String after) {
+            this.substring = substring;
+            this.after = after;
+            this.stack = new int[RadixTrie.this.maxDepth + 1];
+            this.pathLength = new int[RadixTrie.this.maxDepth + 1];
+            this.path = new StringBuilder(RadixTrie.this.maxDepth);
+            this.level = 0;
+            this.stack[0] = RadixTrie.this.findNodeForPrefix(prefix,
+                    this.path);
+            this.pathLength[0] = this.path.length();
+            if (this.stack[0] == NO_NODE) {
+                this.level = -1;
+            }
+            this.next = this.findNext();
+        }
+
+        /**
+         * Compares the current path with {@code after}.
+         *
+         * @return a negative number if every tag below the current node comes
+         *         before {@code after}, zero if the path is a prefix of
+         *         {@code after}, or a positive number if every tag below the
+         *         current node comes after {@code after}
+         */
+        private int compareWithAfter() {
+            int length = Math.min(this.path.length(), this.after.length());
+            int order = 0;
+            int i = 0;
+            while (order == 0 && i < length) {
+                order = Character.compare(this.path.charAt(i),
+                        this.after.charAt(i));
+                i++;
+            }
+            if (order == 0 && this.path.length() > this.after.length()) {
+                order = 1;
+            }
+            return order;
+        }
+
+        /**
+         * Moves to the first child of the current node if {@code descend}
+         * and it has children, otherwise to the next node in depth first
+         * order after the subtree of the current node.
+         *
+         * @param descend
+         *            whether to walk the subtree of the current node
+         */
+        private void advance(boolean descend) {
+            int[] nextSibling = RadixTrie.this.nextSibling;
+            int child = NO_NODE;
+            if (descend) {
+                child = RadixTrie.this.firstChild[this.stack[this.level]];
+            }
+            if (child != NO_NODE) {
+                this.level++;
+            } else {
+                while (this.level > 0
+                        && nextSibling[this.stack[this.level]] == NO_NODE) {
+                    this.level--;
+                }
+                if (this.level == 0) {
+                    this.level = -1;
+                } else {
+                    child = nextSibling[this.stack[this.level]];
+                }
+            }
+            if (this.level > 0) {
+                this.stack[this.level] = child;
+                this.path.setLength(this.pathLength[this.level - 1]);
+                RadixTrie.this.appendLabel(child, this.path);
+                this.pathLength[this.level] = this.path.length();
+            }
+        }
+
+        /**
+         * Walks to the next node ending a tag that is produced.
+         *
+         * @return the tag, or null if there is none
+         */
+        private String findNext() {
+            String found = null;
+            while (found == null && this.level >= 0) {
+                int node = this.stack[this.level];
+                boolean produce = true;
+                boolean descend = true;
+                if (this.after != null) {
+                    int order = this.compareWithAfter();
+                    if (order < 0) {
+                        produce = false;
+                        descend = false;
+                    } else if (order == 0) {
+                        produce = false;
+                    } else {
+                        /*
+                         * Every node from here on comes after after
+                         */
+                        this.after = null;
+                    }
+                }
+                if (produce && RadixTrie.this.entry[node] != NO_ENTRY
+                        && (this.substring == null
+                                || this.path.indexOf(this.substring) >= 0)) {
+                    found = this.path.toString();
+                }
+                this.advance(descend);
+            }
+            return found;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public String next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            String result = this.next;
+            this.next = this.findNext();
+            return result;
+        }
+
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    @Override
+    int size() {
+        return this.tagCount;
+    }
+
+    @Override
+    int maxDepth() {
+        return this.maxDepth;
+    }
+
+    @Override
+    int nodeCount() {
+        return this.entry.length;
+    }
+
+    @Override
+    long nodeHeapBytes() {
+        return (long) Character.BYTES * this.labels.length
+                + (long) Integer.BYTES * (this.labelStart.length
+                        + this.entry.length + this.firstChild.length
+                        + this.nextSibling.length);
+    }
+
+    @Override
+    int entryOf(String tag) {
+        int node = ROOT;
+        int i = 0;
+        while (node != NO_NODE && i < tag.length()) {
+            node = this.childNode(node, tag.charAt(i));
+            if (node != NO_NODE) {
+                /*
+                 * The whole label has to match the rest of the tag
+                 */
+                int start = this.labelStart[node];
+                int end = this.labelStart[node + 1];
+                if (end - start > tag.length() - i) {
+                    node = NO_NODE;
+                } else {
+                    int k = start;
+                    while (k < end && this.labels[k] == tag.charAt(i)) {
+                        k++;
+                        i++;
+                    }
+                    if (k < end) {
+                        node = NO_NODE;
+                    }
+                }
+            }
+        }
+        int tagEntry = NO_ENTRY;
+        if (node != NO_NODE) {
+            tagEntry = this.entry[node];
+        }
+        return tagEntry;
+    }
+
+    @Override
+    int prefixSearch(String prefix, List<String> results) {
+        StringBuilder path = new StringBuilder();
+        int node = this.findNodeForPrefix(prefix, path);
+        int nodesVisited = prefix.length();
+        if (node != NO_NODE) {
+            nodesVisited = path.length()
+                    + this.collectWords(node, null, path, results);
+        }
+        return nodesVisited;
+    }
+
+    @Override
+    int containsSearch(String substring, List<String> results) {
+        return this.collectWords(ROOT, substring, new StringBuilder(),
+                results);
+    }
+
+    @Override
+    Iterator<String> prefixSearchIterator(String prefix, String after) {
+        return new TagIterator(prefix, null, after);
+    }
+
+    @Override
+    Iterator<String> containsSearchIterator(String substring, String after) {
+        return new TagIterator("", substring, after);
+    }
+
+    @Override
+    boolean visitTags(TagVisitor visitor) {
+        return this.visitWords(ROOT, new StringBuilder(this.maxDepth),
+                visitor);
+    }
+
+    @Override
+    void findClosestMatches(ClosestMatch search) {
+        /*
+         * The root is the end of the empty tag, if there is one
+         */
+        if (this.entry[ROOT] != NO_ENTRY) {
+            search.offer(this.entry[ROOT]);
+        }
+        this.findClosestMatch(ROOT, 0, search);
+    }
+
+    @Override
+    SearchTrie toSearchTrie() {
+        /*
+         * Entry numbers are positions in lexicographical order, which a
+         * fresh build hands out again
+         */
+        List<String> tags = new ArrayList<>(this.tagCount);
+        this.prefixSearch("", tags);
+        return SearchTrie.build(tags.toArray(new String[tags.size()]));
+    }
+
+}
@@ -0,0 +1,26 @@
+package components.simplesearchengine;
+
+/**
+ * How a {@code SimpleSearchEngine1L} in search mode finds the tags closest to
+ * a target for {@code relativeSearch} and {@code suggestions}.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public enum RelativeSearchStrategy {
+
+    /**
+     * The search structure is walked depth first, skipping the subtrees no
+     * tag of which can be close enough, after the deletion and trigram
+     * indexes, if built, have had a chance to answer.
+     */
+    SEARCH_STRUCTURE,
+
+    /**
+     * A Burkhard-Keller tree over the tags, built by
+     * {@code changeToSearchMode}, is searched instead, computing the edit
+     * distance of the tags the triangle inequality cannot rule out.
+     */
+    BK_TREE;
+
+}
@@ -0,0 +1,499 @@
+package components.simplesearchengine;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.management.ConstructorParameters;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of one {@code SimpleSearchEngine1L}, recorded while
+ * {@code setMetricsEnabled(true)} is in effect: per query method, the number
+ * of calls, a latency histogram, the sizes of the results and, for the fuzzy
+ * searches and weighted completions, the number of nodes visited; the time
+ * of each build by {@code changeToSearchMode}; and the size of the search
+ * structure.
+ *
+ * <p>
+ * Recording takes no lock, so query threads can record into one instance at
+ * once. Percentiles come from {@code Histogram}s and are accurate to about
+ * 6%. The metrics can be read through {@code operationStats} and
+ * {@code snapshot}, or over JMX after {@code registerMBean}.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public final class SearchEngineMetrics implements SearchEngineMetricsMXBean {
+
+    /*
+     * Public members ---------------------------------------------------------
+     */
+
+    /**
+     * Query method whose calls are recorded.
+     */
+    public enum Operation {
+        /**
+         * {@code prefixSearch(prefix)}, once for each prefix of
+         * {@code prefixSearchBatch(prefixes)}.
+         */
+        PREFIX_SEARCH,
+
+        /**
+         * {@code containsSearch(subString)}.
+         */
+        CONTAINS_SEARCH,
+
+        /**
+         * {@code relativeSearch(relTag)} and
+         * {@code relativeSearch(relTag, maxDistance)}.
+         */
+        RELATIVE_SEARCH,
+
+        /**
+         * {@code suggestions(relTag, count)}.
+         */
+        SUGGESTIONS,
+
+        /**
+         * {@code topCompletions(prefix, count)}.
+         */
+        TOP_COMPLETIONS
+    }
+
+    /**
+     * Statistics of the calls to one query method, read at one moment.
+     */
+    public static final class OperationStats {
+
+        /**
+         * Number of calls.
+         */
+        private final long calls;
+
+        /**
+         * Median latency in nanoseconds.
+         */
+        private final long latencyP50Nanos;
+
+        /**
+         * 99th percentile latency in nanoseconds.
+         */
+        private final long latencyP99Nanos;
+
+        /**
+         * 99.9th percentile latency in nanoseconds.
+         */
+        private final long latencyP999Nanos;
+
+        /**
+         * Largest latency in nanoseconds.
+         */
+        private final long latencyMaxNanos;
+
+        /**
+         * Mean number of results.
+         */
+        private final double resultSizeMean;
+
+        /**
+         * Largest number of results.
+         */
+        private final long resultSizeMax;
+
+        /**
+         * Mean number of nodes visited.
+         */
+        private final double nodesVisitedMean;
+
+        /**
+         * Largest number of nodes visited.
+         */
+        private final long nodesVisitedMax;
+
+        /**
+         * Constructor.
+         *
+         * @param calls
+         *            number of calls
+         * @param latencyP50Nanos
+         *            median latency in nanoseconds
+         * @param latencyP99Nanos
+         *            99th percentile latency in nanoseconds
+         * @param latencyP999Nanos
+         *            99.9th percentile latency in nanoseconds
+         * @param latencyMaxNanos
+         *            largest latency in nanoseconds
+         * @param resultSizeMean
+         *            mean number of results
+         * @param resultSizeMax
+         *            largest number of results
+         * @param nodesVisitedMean
+         *            mean number of nodes visited
+         * @param nodesVisitedMax
+         *            largest number of nodes visited
+         */
+        @ConstructorParameters({ "calls", "latencyP50Nanos", "latencyP99Nanos",
+                "latencyP999Nanos", "latencyMaxNanos", "resultSizeMean",
+                "resultSizeMax", "nodesVisitedMean", "nodesVisitedMax" })
+        public OperationStats(long calls, long latencyP50Nanos,
+                long latencyP99Nanos, long latencyP999Nanos,
+                long latencyMaxNanos, double resultSizeMean,
+                long resultSizeMax, double nodesVisitedMean,
+                long nodesVisitedMax) {
+            this.calls = calls;
+            this.latencyP50Nanos = latencyP50Nanos;
+            this.latencyP99Nanos = latencyP99Nanos;
+            this.latencyP999Nanos = latencyP999Nanos;
+            this.latencyMaxNanos = latencyMaxNanos;
+            this.resultSizeMean = resultSizeMean;
+            this.resultSizeMax = resultSizeMax;
+            this.nodesVisitedMean = nodesVisitedMean;
+            this.nodesVisitedMax = nodesVisitedMax;
+        }
+
+        /**
+         * Reports the number of calls.
+         *
+         * @return the number of calls
+         */
+        public long getCalls() {
+            return this.calls;
+        }
+
+        /**
+         * Reports the median latency.
+         *
+         * @return the median latency in nanoseconds
+         */
+        public long getLatencyP50Nanos() {
+            return this.latencyP50Nanos;
+        }
+
+        /**
+         * Reports the 99th percentile latency.
+         *
+         * @return the 99th percentile latency in nanoseconds
+         */
+        public long getLatencyP99Nanos() {
+            return this.latencyP99Nanos;
+        }
+
+        /**
+         * Reports the 99.9th percentile latency.
+         *
+         * @return the 99.9th percentile latency in nanoseconds
+         */
+        public long getLatencyP999Nanos() {
+            return this.latencyP999Nanos;
+        }
+
+        /**
+         * Reports the largest latency.
+         *
+         * @return the largest latency in nanoseconds
+         */
+        public long getLatencyMaxNanos() {
+            return this.latencyMaxNanos;
+        }
+
+        /**
+         * Reports the mean number of results.
+         *
+         * @return the mean number of results
+         */
+        public double getResultSizeMean() {
+            return this.resultSizeMean;
+        }
+
+        /**
+         * Reports the largest number of results.
+         *
+         * @return the largest number of results
+         */
+        public long getResultSizeMax() {
+            return this.resultSizeMax;
+        }
+
+        /**
+         * Reports the mean number of nodes visited, counted for
+         * {@code relativeSearch}, {@code suggestions} and
+         * {@code topCompletions} only.
+         *
+         * @return the mean number of nodes visited
+         */
+        public double getNodesVisitedMean() {
+            return this.nodesVisitedMean;
+        }
+
+        /**
+         * Reports the largest number of nodes visited, counted for
+         * {@code relativeSearch}, {@code suggestions} and
+         * {@code topCompletions} only.
+         *
+         * @return the largest number of nodes visited
+         */
+        public long getNodesVisitedMax() {
+            return this.nodesVisitedMax;
+        }
+
+        @Override
+        public String toString() {
+            return "(calls " + this.calls + ", latency ns p50 "
+                    + this.latencyP50Nanos + " p99 " + this.latencyP99Nanos
+                    + " p999 " + this.latencyP999Nanos + " max "
+                    + this.latencyMaxNanos + ", results mean "
+                    + this.resultSizeMean + " max " + this.resultSizeMax
+                    + ", nodes visited mean " + this.nodesVisitedMean
+                    + " max " + this.nodesVisitedMax + ")";
+        }
+
+    }
+
+    /**
+     * Value passed to {@code recordQuery} when the nodes visited were not
+     * counted.
+     */
+    static final int NOT_COUNTED = -1;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Latency of the calls to each operation, in nanoseconds.
+     */
+    private final Histogram[] latency;
+
+    /**
+     * Number of results of the calls to each operation.
+     */
+    private final Histogram[] resultSize;
+
+    /**
+     * Number of nodes visited by the calls to each operation.
+     */
+    private final Histogram[] nodesVisited;
+
+    /**
+     * Time of each build, in nanoseconds.
+     */
+    private final Histogram buildTime;
+
+    /**
+     * Time of the last build, in nanoseconds.
+     */
+    private volatile long lastBuildNanos;
+
+    /**
+     * Number of nodes of the search structure.
+     */
+    private volatile int nodeCount;
+
+    /**
+     * Size of the nodes of the search structure, in bytes.
+     */
+    private volatile long nodeHeapBytes;
+
+    /**
+     * Constructor for empty metrics.
+     */
+    SearchEngineMetrics() {
+        int operations = Operation.values().length;
+        this.latency = new Histogram[operations];
+        this.resultSize = new Histogram[operations];
+        this.nodesVisited = new Histogram[operations];
+        for (int i = 0; i < operations; i++) {
+            this.latency[i] = new Histogram();
+            this.resultSize[i] = new Histogram();
+            this.nodesVisited[i] = new Histogram();
+        }
+        this.buildTime = new Histogram();
+        this.lastBuildNanos = 0;
+        this.nodeCount = 0;
+        this.nodeHeapBytes = 0;
+    }
+
+    /*
+     * Recording --------------------------------------------------------------
+     */
+
+    /**
+     * Records one call to {@code operation}.
+     *
+     * @param operation
+     *            the operation called
+     * @param nanos
+     *            the time the call took, in nanoseconds
+     * @param results
+     *            the number of results
+     * @param nodes
+     *            the number of nodes visited, or {@code NOT_COUNTED}
+     */
+    void recordQuery(Operation operation, long nanos, int results,
+            int nodes) {
+        int i = operation.ordinal();
+        this.latency[i].record(Math.max(0, nanos));
+        this.resultSize[i].record(results);
+        if (nodes != NOT_COUNTED) {
+            this.nodesVisited[i].record(nodes);
+        }
+    }
+
+    /**
+     * Records one build of the search structure.
+     *
+     * @param nanos
+     *            the time the build took, in nanoseconds
+     */
+    void recordBuild(long nanos) {
+        this.buildTime.record(Math.max(0, nanos));
+        this.lastBuildNanos = nanos;
+    }
+
+    /**
+     * Records the size of the search structure after it was built, opened,
+     * updated or dropped.
+     *
+     * @param structure
+     *            the search structure, or null in insertion mode
+     */
+    void structureChanged(SearchStructure structure) {
+        if (structure == null) {
+            this.nodeCount = 0;
+            this.nodeHeapBytes = 0;
+        } else {
+            this.nodeCount = structure.nodeCount();
+            this.nodeHeapBytes = structure.nodeHeapBytes();
+        }
+    }
+
+    /*
+     * Reading ----------------------------------------------------------------
+     */
+
+    /**
+     * Reports the statistics of the calls to {@code operation}.
+     *
+     * @param operation
+     *            the operation
+     * @return the statistics, read now
+     */
+    public OperationStats operationStats(Operation operation) {
+        final double p50 = 0.5;
+        final double p99 = 0.99;
+        final double p999 = 0.999;
+
+        int i = operation.ordinal();
+        Histogram calls = this.latency[i];
+        return new OperationStats(calls.count(), calls.valueAt(p50),
+                calls.valueAt(p99), calls.valueAt(p999), calls.max(),
+                this.resultSize[i].mean(), this.resultSize[i].max(),
+                this.nodesVisited[i].mean(), this.nodesVisited[i].max());
+    }
+
+    /**
+     * Reports the statistics of the calls to every operation.
+     *
+     * @return the statistics of each operation, read now
+     */
+    public Map<Operation, OperationStats> snapshot() {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, this.operationStats(operation));
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public OperationStats getPrefixSearch() {
+        return this.operationStats(Operation.PREFIX_SEARCH);
+    }
+
+    @Override
+    public OperationStats getContainsSearch() {
+        return this.operationStats(Operation.CONTAINS_SEARCH);
+    }
+
+    @Override
+    public OperationStats getRelativeSearch() {
+        return this.operationStats(Operation.RELATIVE_SEARCH);
+    }
+
+    @Override
+    public OperationStats getSuggestions() {
+        return this.operationStats(Operation.SUGGESTIONS);
+    }
+
+    @Override
+    public OperationStats getTopCompletions() {
+        return this.operationStats(Operation.TOP_COMPLETIONS);
+    }
+
+    @Override
+    public long getBuildCount() {
+        return this.buildTime.count();
+    }
+
+    @Override
+    public double getLastBuildMillis() {
+        return this.lastBuildNanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    @Override
+    public long getNodeHeapBytes() {
+        return this.nodeHeapBytes;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < this.latency.length; i++) {
+            this.latency[i].reset();
+            this.resultSize[i].reset();
+            this.nodesVisited[i].reset();
+        }
+        this.buildTime.reset();
+        this.lastBuildNanos = 0;
+    }
+
+    /*
+     * JMX --------------------------------------------------------------------
+     */
+
+    /**
+     * Registers {@code this} with the platform MBean server under
+     * {@code components.simplesearchengine:type=SimpleSearchEngine,name=}
+     * {@code name}.
+     *
+     * @param name
+     *            the name of the engine, unique among registered engines
+     * @return the name {@code this} is registered under
+     * @throws JMException
+     *             if {@code name} is not a valid name or is already
+     *             registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(
+                "components.simplesearchengine:type=SimpleSearchEngine,name="
+                        + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+}
@@ -0,0 +1,85 @@
+package components.simplesearchengine;
+
+import components.simplesearchengine.SearchEngineMetrics.OperationStats;
+
+/**
+ * JMX view of the {@code SearchEngineMetrics} of one
+ * {@code SimpleSearchEngine1L}, registered by
+ * {@code SearchEngineMetrics.registerMBean}. Every attribute is read when it
+ * is asked for, so a JMX client always sees current values.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public interface SearchEngineMetricsMXBean {
+
+    /**
+     * Reports the statistics of {@code prefixSearch}.
+     *
+     * @return the statistics
+     */
+    OperationStats getPrefixSearch();
+
+    /**
+     * Reports the statistics of {@code containsSearch}.
+     *
+     * @return the statistics
+     */
+    OperationStats getContainsSearch();
+
+    /**
+     * Reports the statistics of {@code relativeSearch}.
+     *
+     * @return the statistics
+     */
+    OperationStats getRelativeSearch();
+
+    /**
+     * Reports the statistics of {@code suggestions}.
+     *
+     * @return the statistics
+     */
+    OperationStats getSuggestions();
+
+    /**
+     * Reports the statistics of {@code topCompletions}.
+     *
+     * @return the statistics
+     */
+    OperationStats getTopCompletions();
+
+    /**
+     * Reports the number of search structures built by
+     * {@code changeToSearchMode}.
+     *
+     * @return the number of builds
+     */
+    long getBuildCount();
+
+    /**
+     * Reports how long the last build by {@code changeToSearchMode} took.
+     *
+     * @return the build time in milliseconds, or 0 if there was none
+     */
+    double getLastBuildMillis();
+
+    /**
+     * Reports the number of nodes of the search structure.
+     *
+     * @return the number of nodes, or 0 in insertion mode
+     */
+    int getNodeCount();
+
+    /**
+     * Reports about how many bytes the nodes of the search structure take.
+     *
+     * @return the size of the nodes in bytes, or 0 in insertion mode
+     */
+    long getNodeHeapBytes();
+
+    /**
+     * Forgets every call and build recorded.
+     */
+    void reset();
+
+}
@@ -0,0 +1,340 @@
+package components.simplesearchengine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+
+/**
+ * Index file holding the tags and values of a {@code SimpleSearchEngine} in
+ * search mode. The file is opened by memory-mapping it read-only, so opening
+ * it copies nothing: the links between the trie nodes and the value offsets
+ * are checked once, the trie is then queried straight from the mapped pages,
+ * values are decoded one at a time when they are asked for, and processes
+ * opening the same file share its pages in the operating system's page
+ * cache.
+ *
+ * <p>
+ * The file holds, in little-endian byte order: a header of six {@code int}s
+ * (magic number, version, node count, tag count, maximum tag length, value
+ * byte count), the trie nodes as written by {@code SearchTrie.writeNodes},
+ * the start of each value as {@code tagCount + 1 int}s, and the UTF-8 bytes
+ * of the encoded values. Values are in entry number order, and a whole file
+ * has to fit in one mapping, that is, be under 2 GB.
+ * </p>
+ *
+ * <p>
+ * A file is never rewritten in place: {@code write} writes a temporary file
+ * next to it and moves that over it, so engines and processes that have the
+ * old file mapped keep reading the old contents.
+ * </p>
+ *
+ * <p>
+ * An open {@code SearchIndexFile} is never written, so any number of threads
+ * may read values from it without locking.
+ * </p>
+ *
+ * @param <T>
+ *            type of the values
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class SearchIndexFile<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * First four bytes of every index file, "SSE1" in ASCII.
+     */
+    private static final int MAGIC = 0x53534531;
+
+    /**
+     * Version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Number of {@code int}s in the header.
+     */
+    private static final int HEADER_INTS = 6;
+
+    /**
+     * Byte order of every number in the file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * The trie read from the mapped file.
+     */
+    private final SearchTrie trie;
+
+    /**
+     * Start of each value in {@code valueBytes}, indexed by entry number;
+     * the entry after the last is the end of the last value.
+     */
+    private final ByteBuffer valueStart;
+
+    /**
+     * The UTF-8 bytes of the encoded values.
+     */
+    private final ByteBuffer valueBytes;
+
+    /**
+     * Turns the text of a value back into a value.
+     */
+    private final Function<String, ? extends T> decoder;
+
+    /**
+     * Constructor.
+     *
+     * @param trie
+     *            the trie read from the mapped file
+     * @param valueStart
+     *            the start of each value
+     * @param valueBytes
+     *            the bytes of the values
+     * @param decoder
+     *            turns the text of a value back into a value
+     */
+    private SearchIndexFile(SearchTrie trie, ByteBuffer valueStart,
+            ByteBuffer valueBytes, Function<String, ? extends T> decoder) {
+        this.trie = trie;
+        this.valueStart = valueStart;
+        this.valueBytes = valueBytes;
+        this.decoder = decoder;
+    }
+
+    /*
+     * Writing and opening ----------------------------------------------------
+     */
+
+    /**
+     * Writes {@code trie} and {@code values} to {@code file}, replacing it if
+     * it exists. The index is written to a temporary file in the same
+     * directory, forced to the device and then atomically moved over
+     * {@code file}, so a mapping of the old file (even the one {@code trie}
+     * is read from) stays valid and a crash never leaves a partial index
+     * under the name of {@code file}.
+     *
+     * @param <T>
+     *            type of the values
+     * @param file
+     *            the file to write
+     * @param trie
+     *            the trie to write
+     * @param values
+     *            the values, indexed by entry number in {@code trie}
+     * @param encoder
+     *            turns a value into text that {@code open}'s decoder turns
+     *            back into an equal value
+     * @throws IOException
+     *             if the file cannot be written
+     * @requires trie.isCompact() and values.length >= trie.size()
+     * @ensures file holds trie and values
+     */
+    static <T> void write(Path file, SearchTrie trie, T[] values,
+            Function<? super T, String> encoder) throws IOException {
+        assert trie.isCompact() : "Violation of: trie is compact";
+
+        int tagCount = trie.size();
+        byte[][] encoded = new byte[tagCount][];
+        long valueByteCount = 0;
+        for (int i = 0; i < tagCount; i++) {
+            encoded[i] = encoder.apply(values[i])
+                    .getBytes(StandardCharsets.UTF_8);
+            valueByteCount += encoded[i].length;
+        }
+        int nodeCount = trie.nodeLimit();
+        long fileSize = (long) Integer.BYTES * HEADER_INTS
+                + SearchTrie.nodeBytes(nodeCount)
+                + (long) Integer.BYTES * (tagCount + 1) + valueByteCount;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Index of " + fileSize
+                    + " bytes is too large for one mapping");
+        }
+
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(),
+                target.getFileName().toString(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel
+                        .map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                out.order(ORDER);
+                out.putInt(MAGIC);
+                out.putInt(VERSION);
+                out.putInt(nodeCount);
+                out.putInt(tagCount);
+                out.putInt(trie.maxDepth());
+                out.putInt((int) valueByteCount);
+                trie.writeNodes(out);
+                int start = 0;
+                for (int i = 0; i < tagCount; i++) {
+                    out.putInt(start);
+                    start += encoded[i].length;
+                }
+                out.putInt(start);
+                for (int i = 0; i < tagCount; i++) {
+                    out.put(encoded[i]);
+                }
+                out.force();
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Reports whether the value offsets in {@code valueStart} start at 0,
+     * never decrease and end at {@code valueByteCount}.
+     *
+     * @param valueStart
+     *            the start of each value, and the end of the last
+     * @param tagCount
+     *            the number of values
+     * @param valueByteCount
+     *            the number of bytes of the values
+     * @return true iff every value lies within the value bytes
+     */
+    private static boolean hasValidValueStarts(ByteBuffer valueStart,
+            int tagCount, int valueByteCount) {
+        int end = valueStart.getInt(Integer.BYTES * tagCount);
+        boolean valid = valueStart.getInt(0) == 0 && end == valueByteCount;
+        for (int i = 0; valid && i < tagCount; i++) {
+            valid = valueStart.getInt(Integer.BYTES * i) <= valueStart
+                    .getInt(Integer.BYTES * (i + 1));
+        }
+        return valid;
+    }
+
+    /**
+     * Opens {@code file}, written by {@code write}, by mapping it read-only.
+     *
+     * @param <T>
+     *            type of the values
+     * @param file
+     *            the file to open
+     * @param decoder
+     *            turns the text of a value back into a value
+     * @return the open index file
+     * @throws IOException
+     *             if the file cannot be read, is not an index file, or is
+     *             truncated or corrupt
+     * @ensures open.trie() and open.value(e) hold what was written to file
+     */
+    static <T> SearchIndexFile<T> open(Path file,
+            Function<String, ? extends T> decoder) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < (long) Integer.BYTES * HEADER_INTS
+                    || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a search index file");
+            }
+            /*
+             * The mapping stays valid after the channel is closed
+             */
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        in.order(ORDER);
+
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException(file + " is not a search index file");
+        }
+        int nodeCount = in.getInt();
+        int tagCount = in.getInt();
+        int maxDepth = in.getInt();
+        int valueByteCount = in.getInt();
+        long expectedSize = (long) Integer.BYTES * HEADER_INTS
+                + SearchTrie.nodeBytes(nodeCount)
+                + (long) Integer.BYTES * (tagCount + 1) + valueByteCount;
+        if (nodeCount < 1 || tagCount < 0 || maxDepth < 0
+                || valueByteCount < 0 || expectedSize != in.capacity()) {
+            throw new IOException(file + " is truncated or corrupt");
+        }
+
+        SearchTrie trie = SearchTrie.map(in, nodeCount, tagCount, maxDepth);
+        int valueStartPosition = in.position()
+                + (int) SearchTrie.nodeBytes(nodeCount);
+        int valueStartBytes = Integer.BYTES * (tagCount + 1);
+        ByteBuffer valueStart = in.slice(valueStartPosition, valueStartBytes)
+                .order(ORDER);
+        ByteBuffer valueBytes = in.slice(valueStartPosition + valueStartBytes,
+                valueByteCount);
+
+        /*
+         * A link out of range or to an already linked node, or a node deeper
+         * than the header says, would send queries out of bounds or round a
+         * cycle forever, so check them all before handing out the trie
+         */
+        if (!trie.hasValidLinks() || !hasValidValueStarts(valueStart,
+                tagCount, valueByteCount)) {
+            throw new IOException(file + " is truncated or corrupt");
+        }
+        return new SearchIndexFile<T>(trie, valueStart, valueBytes, decoder);
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Reports the trie read from the mapped file.
+     *
+     * @return the trie
+     */
+    SearchTrie trie() {
+        return this.trie;
+    }
+
+    /**
+     * Decodes the value with entry number {@code tagEntry}.
+     *
+     * @param tagEntry
+     *            the entry number
+     * @return the value
+     * @requires 0 <= tagEntry < trie().size()
+     */
+    T value(int tagEntry) {
+        int start = this.valueStart.getInt(Integer.BYTES * tagEntry);
+        int end = this.valueStart.getInt(Integer.BYTES * (tagEntry + 1));
+        byte[] bytes = new byte[end - start];
+        this.valueBytes.get(start, bytes);
+        return this.decoder.apply(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes every value into an array indexed by entry number.
+     *
+     * @return the values
+     */
+    @SuppressWarnings("unchecked")
+    T[] values() {
+        int tagCount = (this.valueStart.capacity() / Integer.BYTES) - 1;
+        T[] values = (T[]) new Object[tagCount];
+        for (int i = 0; i < tagCount; i++) {
+            values[i] = this.value(i);
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,644 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Search structure over the tags of a {@code SimpleSearchEngine} in search
+ * mode. Each tag has an entry number, which callers use to keep data for the
+ * tag in a parallel array. Implementations keep their children in
+ * lexicographical order, so every search produces tags in lexicographical
+ * order.
+ *
+ * <p>
+ * No query writes to the structure, so any number of threads may query one
+ * instance without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+abstract class SearchStructure {
+
+    /*
+     * Public members ---------------------------------------------------------
+     */
+
+    /**
+     * Index used for a missing child or sibling.
+     */
+    static final int NO_NODE = -1;
+
+    /**
+     * Index of the root node.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Entry number used for a node that does not end a tag.
+     */
+    static final int NO_ENTRY = -1;
+
+    /**
+     * A tag found by a closest match search.
+     */
+    static final class Match {
+
+        /**
+         * The tag.
+         */
+        private final String tag;
+
+        /**
+         * The entry number of the tag.
+         */
+        private final int entry;
+
+        /**
+         * The edit distance between the tag and the target.
+         */
+        private final int distance;
+
+        /**
+         * Constructor.
+         *
+         * @param tag
+         *            the tag
+         * @param entry
+         *            the entry number of the tag
+         * @param distance
+         *            the edit distance between the tag and the target
+         */
+        Match(String tag, int entry, int distance) {
+            this.tag = tag;
+            this.entry = entry;
+            this.distance = distance;
+        }
+
+        /**
+         * Reports the tag.
+         *
+         * @return the tag
+         */
+        String tag() {
+            return this.tag;
+        }
+
+        /**
+         * Reports the entry number of the tag.
+         *
+         * @return the entry number
+         */
+        int entry() {
+            return this.entry;
+        }
+
+        /**
+         * Reports the edit distance between the tag and the target.
+         *
+         * @return the edit distance
+         */
+        int distance() {
+            return this.distance;
+        }
+
+    }
+
+    /**
+     * State of one closest match search: the edit distance rows for the path
+     * being walked and the best matches found so far. The path is extended one
+     * character at a time, so any structure that walks its tags depth first
+     * in lexicographical order can drive the search.
+     */
+    static final class ClosestMatch {
+
+        /**
+         * The target word to match.
+         */
+        private final String target;
+
+        /**
+         * {@code rows[d][j]} is the edit distance between the first {@code d}
+         * characters of the current path and the first {@code j} characters
+         * of {@code target}; row {@code d} is only valid while the path is at
+         * least {@code d} long.
+         */
+        private final int[][] rows;
+
+        /**
+         * The characters from the root to the current node.
+         */
+        private final StringBuilder path;
+
+        /**
+         * The best matches found so far, worst match at the head.
+         */
+        private final PriorityQueue<Match> matches;
+
+        /**
+         * The number of matches wanted.
+         */
+        private final int count;
+
+        /**
+         * Only matches at an edit distance below this are accepted: the limit
+         * while fewer than {@code count} matches are held, then the distance
+         * of the worst match held.
+         */
+        private int distance;
+
+        /**
+         * Number of times the path was extended, that is, of nodes visited.
+         */
+        private int nodesVisited;
+
+        /**
+         * Constructor.
+         *
+         * @param target
+         *            the target word to match
+         * @param maxDepth
+         *            the length of the longest path that will be walked
+         * @param count
+         *            the number of matches wanted
+         * @param maxDistance
+         *            the largest edit distance accepted
+         * @requires count > 0 and maxDistance >= 0
+         */
+        ClosestMatch(String target, int maxDepth, int count, int maxDistance) {
+            assert count > 0 : "Violation of: count > 0";
+            assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+
+            this.target = target;
+            this.rows = new int[maxDepth + 1][target.length() + 1];
+            this.path = new StringBuilder(maxDepth);
+            this.count = count;
+            this.nodesVisited = 0;
+            this.distance = maxDistance;
+            if (this.distance < Integer.MAX_VALUE) {
+                this.distance++;
+            }
+
+            /*
+             * The worst match is the furthest, then the lexicographically
+             * last among equally far matches
+             */
+            this.matches = new PriorityQueue<>(count + 1,
+                    (first, second) -> {
+                        int order = Integer.compare(second.distance(),
+                                first.distance());
+                        if (order == 0) {
+                            order = second.tag().compareTo(first.tag());
+                        }
+                        return order;
+                    });
+
+            /*
+             * Transforming the empty path into the first j characters of
+             * target requires j insertions
+             */
+            for (int j = 0; j <= target.length(); j++) {
+                this.rows[0][j] = j;
+            }
+        }
+
+        /**
+         * Extends the path, which is {@code depth} characters long, by
+         * {@code pathChar}, computing the row for the new path from the row
+         * for the old one.
+         *
+         * @param depth
+         *            the length of the path
+         * @param pathChar
+         *            the character to append
+         * @return the smallest entry of the new row, which no word below the
+         *         new path can be closer than
+         * @requires the path is depth characters long
+         * @ensures the path is depth + 1 characters long
+         */
+        int extend(int depth, char pathChar) {
+            String target = this.target;
+            int[] parentRow = this.rows[depth];
+            int[] row = this.rows[depth + 1];
+
+            row[0] = parentRow[0] + 1;
+            int rowMin = row[0];
+            for (int j = 1; j <= target.length(); j++) {
+                int cost = (target.charAt(j - 1) == pathChar) ? 0 : 1;
+                row[j] = Math.min(Math.min(parentRow[j] + 1, row[j - 1] + 1),
+                        parentRow[j - 1] + cost);
+                rowMin = Math.min(rowMin, row[j]);
+            }
+            this.path.append(pathChar);
+            this.nodesVisited++;
+            return rowMin;
+        }
+
+        /**
+         * Shortens the path to its first {@code depth} characters.
+         *
+         * @param depth
+         *            the new length of the path
+         */
+        void truncate(int depth) {
+            this.path.setLength(depth);
+        }
+
+        /**
+         * Reports the edit distance between the path and the target.
+         *
+         * @return the edit distance of the path
+         */
+        int pathDistance() {
+            return this.rows[this.path.length()][this.target.length()];
+        }
+
+        /**
+         * Reports the bound a word must be strictly under to be accepted, and
+         * a subtree's row minimum to be worth walking.
+         *
+         * @return the current bound
+         */
+        int bound() {
+            return this.distance;
+        }
+
+        /**
+         * Offers the word at the end of the current path as a match. Words
+         * are visited in lexicographical order, so a later word only displaces
+         * a match if it is strictly closer.
+         *
+         * @param tagEntry
+         *            the entry number of the word
+         * @ensures the word is held if it is closer than bound(), the worst
+         *          match is dropped if more than {@code count} are held, and
+         *          bound() is updated
+         */
+        void offer(int tagEntry) {
+            int tagDistance = this.pathDistance();
+            if (tagDistance < this.distance) {
+                this.matches.add(
+                        new Match(this.path.toString(), tagEntry, tagDistance));
+                if (this.matches.size() > this.count) {
+                    this.matches.remove();
+                }
+                if (this.matches.size() == this.count) {
+                    this.distance = this.matches.peek().distance();
+                }
+            }
+        }
+
+        /**
+         * Reports the number of nodes the search visited, counting each
+         * character of a label walked as one node.
+         *
+         * @return the number of times the path was extended
+         */
+        int nodesVisited() {
+            return this.nodesVisited;
+        }
+
+        /**
+         * Reports the matches found, closest first.
+         *
+         * @return the matches in order of edit distance, lexicographically
+         *         among ties
+         */
+        List<Match> closest() {
+            /*
+             * The heap gives up the worst match first
+             */
+            Match[] closest = new Match[this.matches.size()];
+            for (int i = closest.length - 1; i >= 0; i--) {
+                closest[i] = this.matches.remove();
+            }
+            return Arrays.asList(closest);
+        }
+
+    }
+
+    /**
+     * Visitor of the tags of a search structure, with their entry numbers.
+     */
+    interface TagVisitor {
+
+        /**
+         * Visits one tag.
+         *
+         * @param tag
+         *            the tag
+         * @param tagEntry
+         *            the entry number of the tag
+         * @return whether to go on to the next tag
+         */
+        boolean visit(String tag, int tagEntry);
+
+    }
+
+    /**
+     * Prefix search for a run of prefixes in increasing lexicographical
+     * order. A structure that can start each search from the path the last
+     * prefix shares with the next one overrides {@code prefixSearch}; this
+     * one searches each prefix from the root.
+     */
+    class PrefixCursor {
+
+        /**
+         * Adds every tag in the structure starting with {@code prefix} to
+         * {@code results}.
+         *
+         * @param prefix
+         *            the prefix to search for
+         * @param results
+         *            the list to store results in
+         * @return the number of nodes the search visited
+         * @requires prefix is not lexicographically before the prefix of the
+         *           previous call
+         * @ensures {@code results} is extended by all tags with
+         *          {@code prefix}, in lexicographical order
+         */
+        int prefixSearch(String prefix, List<String> results) {
+            return SearchStructure.this.prefixSearch(prefix, results);
+        }
+
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of tags in {@code this}.
+     *
+     * @return the number of tags
+     */
+    abstract int size();
+
+    /**
+     * Reports the number of nodes in {@code this}, including the root.
+     *
+     * @return the number of nodes
+     */
+    abstract int nodeCount();
+
+    /**
+     * Reports at least the length of the longest tag in {@code this}.
+     *
+     * @return at least the length of the longest tag
+     */
+    abstract int maxDepth();
+
+    /**
+     * Reports about how many bytes the nodes of {@code this} take.
+     *
+     * @return the approximate size of the nodes in bytes
+     */
+    abstract long nodeHeapBytes();
+
+    /**
+     * Reports the entry number of {@code tag}.
+     *
+     * @param tag
+     *            the tag to look up
+     * @return the entry number of {@code tag}, or {@code NO_ENTRY} if
+     *         {@code tag} is not in {@code this}
+     */
+    abstract int entryOf(String tag);
+
+    /**
+     * Adds every tag in {@code this} starting with {@code prefix} to
+     * {@code results}.
+     *
+     * @param prefix
+     *            the prefix to search for
+     * @param results
+     *            the list to store results in
+     * @return the number of nodes the search visited, counting one for each
+     *         character of {@code prefix} and one for each character on the
+     *         paths below it
+     * @ensures {@code results} is extended by all tags with {@code prefix}, in
+     *          lexicographical order
+     */
+    abstract int prefixSearch(String prefix, List<String> results);
+
+    /**
+     * Adds every tag in {@code this} containing {@code substring} to
+     * {@code results}.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param results
+     *            the list to store results in
+     * @return the number of nodes the search visited, counting one for each
+     *         character on the paths from the root
+     * @ensures {@code results} is extended by all tags containing
+     *          {@code substring}, in lexicographical order
+     */
+    abstract int containsSearch(String substring, List<String> results);
+
+    /**
+     * Returns an iterator producing the tags in {@code this} that start with
+     * {@code prefix} and come after {@code after}, lazily and in
+     * lexicographical order.
+     *
+     * @param prefix
+     *            the prefix to search for
+     * @param after
+     *            the last tag already seen, or null to start from the first
+     *            tag
+     * @return the iterator
+     */
+    abstract Iterator<String> prefixSearchIterator(String prefix,
+            String after);
+
+    /**
+     * Returns an iterator producing the tags in {@code this} that contain
+     * {@code substring} and come after {@code after}, lazily and in
+     * lexicographical order.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param after
+     *            the last tag already seen, or null to start from the first
+     *            tag
+     * @return the iterator
+     */
+    abstract Iterator<String> containsSearchIterator(String substring,
+            String after);
+
+    /**
+     * Visits every tag in {@code this} with its entry number, in
+     * lexicographical order, until {@code visitor} asks to stop.
+     *
+     * @param visitor
+     *            the visitor
+     * @return true iff every tag was visited
+     */
+    abstract boolean visitTags(TagVisitor visitor);
+
+    /**
+     * Walks {@code this} depth first in lexicographical order, offering every
+     * tag to {@code search} and skipping the subtrees it rules out.
+     *
+     * @param search
+     *            the state of the search, with an empty path
+     * @ensures search holds the closest tags of {@code this},
+     *          lexicographically first among ties
+     */
+    abstract void findClosestMatches(ClosestMatch search);
+
+    /**
+     * Runs a search for the {@code count} tags in {@code this} closest to
+     * {@code target} by edit distance, among the tags within
+     * {@code maxDistance} edits.
+     *
+     * @param target
+     *            the target word to match
+     * @param count
+     *            the number of tags wanted
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the finished search, whose {@code closest()} are the matches
+     * @requires count > 0 and maxDistance >= 0
+     */
+    final ClosestMatch closestMatches(String target, int count,
+            int maxDistance) {
+        ClosestMatch search = new ClosestMatch(target, this.maxDepth(), count,
+                maxDistance);
+        this.findClosestMatches(search);
+        return search;
+    }
+
+    /**
+     * Finds the {@code count} tags in {@code this} closest to {@code target}
+     * by edit distance, among the tags within {@code maxDistance} edits.
+     *
+     * @param target
+     *            the target word to match
+     * @param count
+     *            the number of tags wanted
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the closest tags in order of edit distance, lexicographically
+     *         among ties; fewer than {@code count} if fewer tags are within
+     *         {@code maxDistance} of {@code target}
+     * @requires count > 0 and maxDistance >= 0
+     */
+    final List<Match> relativeSearch(String target, int count,
+            int maxDistance) {
+        return this.closestMatches(target, count, maxDistance).closest();
+    }
+
+    /**
+     * Finds the tag in {@code this} closest to {@code target} by edit
+     * distance, among the tags within {@code maxDistance} edits.
+     *
+     * @param target
+     *            the target word to match
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @return the closest tag, lexicographically first among ties, or null if
+     *         no tag is within {@code maxDistance} of {@code target}
+     * @requires maxDistance >= 0
+     */
+    final String relativeSearch(String target, int maxDistance) {
+        List<Match> closest = this.relativeSearch(target, 1, maxDistance);
+
+        String match = null;
+        if (!closest.isEmpty()) {
+            match = closest.get(0).tag();
+        }
+        return match;
+    }
+
+    /**
+     * Returns a cursor for prefix searches in increasing lexicographical order
+     * of prefix.
+     *
+     * @return a new cursor
+     */
+    PrefixCursor prefixCursor() {
+        return new PrefixCursor();
+    }
+
+    /**
+     * Finds the tags in {@code this} starting with each of {@code prefixes},
+     * in one pass over the prefixes in lexicographical order. A prefix that
+     * starts with an earlier prefix of the pass takes its tags out of that
+     * prefix's sorted tags by binary search instead of searching the
+     * structure; the others are searched through one {@code PrefixCursor}.
+     *
+     * @param prefixes
+     *            the prefixes to search for
+     * @param nodesVisited
+     *            holds at index i the number of nodes visited searching for
+     *            {@code prefixes.get(i)}, 0 if its tags were taken from an
+     *            earlier prefix's
+     * @return the tags with {@code prefixes.get(i)}, in lexicographical
+     *         order, at index i
+     * @updates nodesVisited
+     * @requires |nodesVisited| >= |prefixes|
+     */
+    final List<List<String>> prefixSearchBatch(List<String> prefixes,
+            int[] nodesVisited) {
+        Integer[] order = new Integer[prefixes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> prefixes.get(first)
+                .compareTo(prefixes.get(second)));
+
+        List<List<String>> results = new ArrayList<>(
+                Collections.nCopies(order.length, (List<String>) null));
+        PrefixCursor cursor = this.prefixCursor();
+        String outer = null;
+        List<String> outerTags = null;
+        for (int query : order) {
+            String prefix = prefixes.get(query);
+            List<String> tags;
+            if (outer != null && prefix.startsWith(outer)) {
+                /*
+                 * Every tag with this prefix also starts with the outer
+                 * prefix, and those tags are sorted, so the tags wanted are
+                 * one run of them
+                 */
+                int start = Collections.binarySearch(outerTags, prefix);
+                if (start < 0) {
+                    start = -start - 1;
+                }
+                int end = start;
+                while (end < outerTags.size()
+                        && outerTags.get(end).startsWith(prefix)) {
+                    end++;
+                }
+                tags = new ArrayList<>(outerTags.subList(start, end));
+                nodesVisited[query] = 0;
+            } else {
+                /*
+                 * Sorted order puts every prefix starting with this one right
+                 * after it, so this one is outer until a prefix does not
+                 */
+                tags = new ArrayList<>();
+                nodesVisited[query] = cursor.prefixSearch(prefix, tags);
+                outer = prefix;
+                outerTags = tags;
+            }
+            results.set(query, tags);
+        }
+        return results;
+    }
+
+    /**
+     * Returns a {@code SearchTrie} holding the same tags with the same entry
+     * numbers, which {@code insert} and {@code remove} can update.
+     *
+     * @return {@code this} if it is a {@code SearchTrie}, otherwise a new
+     *         {@code SearchTrie} holding the tags of {@code this}
+     */
+    abstract SearchTrie toSearchTrie();
+
+}
@@ -0,0 +1,1529 @@
+package components.simplesearchengine;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Trie over the tags of a {@code SimpleSearchEngine} whose nodes are kept in
+ * a {@code TrieNodes}: in primitive arrays on the heap, in direct buffers
+ * outside the heap after {@code moveOffHeap}, or mapped from an index file
+ * written by {@code writeNodes}. Node {@code 0} is the root; every other
+ * node holds one character of a tag and links to its first child and next
+ * sibling by index. Siblings are kept in lexicographical order, so a
+ * depth-first walk visits tags in lexicographical order. Each tag has an
+ * entry number, which callers use to keep data for the tag in a parallel
+ * array: {@code build} numbers the tags by their position in lexicographical
+ * order, and {@code insert} hands out numbers freed by {@code remove} before
+ * new ones.
+ *
+ * <p>
+ * No query writes to the nodes, so any number of threads may query one
+ * instance without locking as long as no thread is inserting or removing a
+ * tag at the same time.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class SearchTrie extends SearchStructure {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The nodes: the character held by each node (the root holds
+     * {@code ' '}), the entry number of the tag ending at it or
+     * {@code NO_ENTRY}, the index of its first (lexicographically smallest)
+     * child, and the index of its next (lexicographically larger) sibling
+     * or, for a node on the free list, of the next free node.
+     */
+    private TrieNodes nodes;
+
+    /**
+     * Number of node indexes handed out, including freed ones.
+     */
+    private int nodeCount;
+
+    /**
+     * First node on the list of nodes freed by {@code remove}, or
+     * {@code NO_NODE} if there is none.
+     */
+    private int freeNode;
+
+    /**
+     * Number of nodes on the free list.
+     */
+    private int freeNodeCount;
+
+    /**
+     * Number of tags stored.
+     */
+    private int tagCount;
+
+    /**
+     * Number of entry numbers handed out, including freed ones.
+     */
+    private int entryLimit;
+
+    /**
+     * Entry numbers freed by {@code remove}, waiting to be reused.
+     */
+    private int[] freeEntries;
+
+    /**
+     * Number of entries in {@code freeEntries}.
+     */
+    private int freeEntryCount;
+
+    /**
+     * At least the length of the longest tag stored.
+     */
+    private int maxDepth;
+
+    /**
+     * Constructor from already filled nodes; read-only nodes are copied to
+     * the heap by the first update.
+     *
+     * @param nodes
+     *            the nodes
+     * @param nodeCount
+     *            number of nodes in use
+     * @param tagCount
+     *            number of tags stored
+     * @param maxDepth
+     *            at least the length of the longest tag stored
+     */
+    private SearchTrie(TrieNodes nodes, int nodeCount, int tagCount,
+            int maxDepth) {
+        this.nodes = nodes;
+        this.nodeCount = nodeCount;
+        this.freeNode = NO_NODE;
+        this.freeNodeCount = 0;
+        this.tagCount = tagCount;
+        this.entryLimit = tagCount;
+        this.freeEntries = new int[0];
+        this.freeEntryCount = 0;
+        this.maxDepth = maxDepth;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Builds a trie holding every tag in {@code sortedTags}.
+     *
+     * @param sortedTags
+     *            the tags to store
+     * @return the trie containing every tag in {@code sortedTags}
+     * @requires sortedTags != null and the tags are distinct and in
+     *           lexicographical order
+     * @ensures every tag in {@code sortedTags} is a path from the root of the
+     *          returned trie to a node whose entry number is the position of
+     *          the tag in {@code sortedTags}
+     */
+    static SearchTrie build(String[] sortedTags) {
+        return build(sortedTags, null);
+    }
+
+    /**
+     * Builds a trie holding every tag in {@code sortedTags}, building the
+     * subtries for different first characters in parallel on {@code pool}.
+     * The result is laid out exactly as the serial build lays it out.
+     *
+     * @param sortedTags
+     *            the tags to store
+     * @param pool
+     *            the pool to build on, or null to build on the calling thread
+     * @return the trie containing every tag in {@code sortedTags}
+     * @requires sortedTags != null and the tags are distinct and in
+     *           lexicographical order
+     * @ensures every tag in {@code sortedTags} is a path from the root of the
+     *          returned trie to a node whose entry number is the position of
+     *          the tag in {@code sortedTags}
+     */
+    static SearchTrie build(String[] sortedTags, ForkJoinPool pool) {
+        assert sortedTags != null : "Violation of: sortedTags is not null";
+
+        int maxLength = 0;
+        for (String tag : sortedTags) {
+            maxLength = Math.max(maxLength, tag.length());
+        }
+
+        /*
+         * Split the tags into groups sharing a first character; the empty
+         * tag, which sorts first, ends at the root and is in no group
+         */
+        int firstGrouped = 0;
+        if (sortedTags.length > 0 && sortedTags[0].isEmpty()) {
+            firstGrouped = 1;
+        }
+        int[] groupStart = new int[sortedTags.length + 1];
+        int groupCount = 0;
+        for (int i = firstGrouped; i < sortedTags.length; i++) {
+            if (i == firstGrouped || sortedTags[i].charAt(0) != sortedTags[i
+                    - 1].charAt(0)) {
+                groupStart[groupCount] = i;
+                groupCount++;
+            }
+        }
+        groupStart[groupCount] = sortedTags.length;
+
+        /*
+         * Each group's subtrie is laid out in depth first order right after
+         * the group before it, so counting the nodes of every group first
+         * tells each group where its nodes go
+         */
+        int[] groupRoot = new int[groupCount + 1];
+        GroupTask counting = new GroupTask(sortedTags, groupStart, groupRoot,
+                null, 0, groupCount);
+        runGroups(counting, pool);
+        int nodeCount = 1;
+        for (int g = 0; g < groupCount; g++) {
+            int groupNodes = groupRoot[g];
+            groupRoot[g] = nodeCount;
+            nodeCount += groupNodes;
+        }
+        groupRoot[groupCount] = nodeCount;
+
+        SearchTrie trie = new SearchTrie(TrieNodes.onHeap(nodeCount),
+                nodeCount, sortedTags.length, maxLength);
+        trie.nodes.setChar(ROOT, ' ');
+        trie.nodes.setEntry(ROOT, NO_ENTRY);
+        if (firstGrouped == 1) {
+            trie.nodes.setEntry(ROOT, 0);
+        }
+        trie.nodes.setFirstChild(ROOT, NO_NODE);
+        if (groupCount > 0) {
+            trie.nodes.setFirstChild(ROOT, groupRoot[0]);
+        }
+        trie.nodes.setNextSibling(ROOT, NO_NODE);
+
+        GroupTask filling = new GroupTask(sortedTags, groupStart, groupRoot,
+                trie, 0, groupCount);
+        runGroups(filling, pool);
+
+        return trie;
+    }
+
+    /**
+     * Runs {@code task} on {@code pool}, or on the calling thread if
+     * {@code pool} is null.
+     *
+     * @param task
+     *            the task to run
+     * @param pool
+     *            the pool to run on, or null
+     */
+    private static void runGroups(GroupTask task, ForkJoinPool pool) {
+        if (pool == null) {
+            task.runSerially();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Task counting or filling in the nodes of a range of groups of tags that
+     * share a first character. Ranges of more than one group are split in
+     * half and run in parallel.
+     */
+    private static final class GroupTask extends RecursiveAction {
+
+        /**
+         * Serialization version, as {@code RecursiveAction} is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The tags, in lexicographical order.
+         */
+        private final String[] sortedTags;
+
+        /**
+         * {@code groupStart[g]} is the number of the first tag in group
+         * {@code g}.
+         */
+        private final int[] groupStart;
+
+        /**
+         * While counting, filled in with the number of nodes of each group;
+         * while filling, the node index of each group's first character.
+         */
+        private final int[] groupRoot;
+
+        /**
+         * The trie to fill in, or null to count; transient, as a task is
+         * never serialized and {@code SearchTrie} is not serializable.
+         */
+        private final transient SearchTrie trie;
+
+        /**
+         * First group of the range.
+         */
+        private final int lo;
+
+        /**
+         * One past the last group of the range.
+         */
+        private final int hi;
+
+        /**
+         * Constructor.
+         *
+         * @param sortedTags
+         *            the tags, in lexicographical order
+         * @param groupStart
+         *            the first tag of each group
+         * @param groupRoot
+         *            the node counts to fill in, or the group root nodes
+         * @param trie
+         *            the trie to fill in, or null to count
+         * @param lo
+         *            first group of the range
+         * @param hi
+         *            one past the last group of the range
+         */
+        private GroupTask(String[] sortedTags, int[] groupStart,
+                int[] groupRoot, SearchTrie trie, int lo, int hi) {
+            this.sortedTags = sortedTags;
+            this.groupStart = groupStart;
+            this.groupRoot = groupRoot;
+            this.trie = trie;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hi - this.lo <= 1) {
+                this.runSerially();
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(
+                        new GroupTask(this.sortedTags, this.groupStart,
+                                this.groupRoot, this.trie, this.lo, mid),
+                        new GroupTask(this.sortedTags, this.groupStart,
+                                this.groupRoot, this.trie, mid, this.hi));
+            }
+        }
+
+        /**
+         * Counts or fills in every group of the range on the calling thread.
+         */
+        private void runSerially() {
+            for (int g = this.lo; g < this.hi; g++) {
+                int from = this.groupStart[g];
+                int to = this.groupStart[g + 1];
+                if (this.trie == null) {
+                    this.groupRoot[g] = countGroupNodes(this.sortedTags, from,
+                            to);
+                } else {
+                    this.trie.fillGroup(this.sortedTags, from, to,
+                            this.groupRoot[g], this.groupRoot[g + 1]);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Counts the nodes of the subtrie for one group of tags sharing a first
+     * character, including the node for that character.
+     *
+     * @param sortedTags
+     *            the tags, in lexicographical order
+     * @param from
+     *            the first tag of the group
+     * @param to
+     *            one past the last tag of the group
+     * @return the number of nodes
+     */
+    private static int countGroupNodes(String[] sortedTags, int from,
+            int to) {
+        /*
+         * Each tag adds one node per character past its common prefix with
+         * the tag before it
+         */
+        int count = sortedTags[from].length();
+        for (int i = from + 1; i < to; i++) {
+            assert sortedTags[i - 1].compareTo(sortedTags[i]) < 0 : ""
+                    + "Violation of: the tags are distinct and in lexicographical order";
+            count += sortedTags[i].length()
+                    - commonPrefixLength(sortedTags[i - 1], sortedTags[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Fills in the nodes of the subtrie for one group of tags sharing a first
+     * character, in depth first order starting at {@code groupRoot}.
+     *
+     * @param sortedTags
+     *            the tags, in lexicographical order
+     * @param from
+     *            the first tag of the group
+     * @param to
+     *            one past the last tag of the group
+     * @param groupRoot
+     *            the node for the group's first character
+     * @param nextGroupRoot
+     *            the node for the next group's first character, or the node
+     *            count if this is the last group
+     * @updates this
+     */
+    private void fillGroup(String[] sortedTags, int from, int to,
+            int groupRoot, int nextGroupRoot) {
+        int groupMaxLength = 0;
+        for (int i = from; i < to; i++) {
+            groupMaxLength = Math.max(groupMaxLength, sortedTags[i].length());
+        }
+
+        this.nodes.setChar(groupRoot, sortedTags[from].charAt(0));
+        this.nodes.setEntry(groupRoot, NO_ENTRY);
+        this.nodes.setFirstChild(groupRoot, NO_NODE);
+        this.nodes.setNextSibling(groupRoot, NO_NODE);
+        if (nextGroupRoot < this.nodeCount) {
+            this.nodes.setNextSibling(groupRoot, nextGroupRoot);
+        }
+        int nodeCount = groupRoot + 1;
+
+        /*
+         * Tags arrive sorted, so the tag before shares a path with this one
+         * up to their common prefix, and every new node is the last child of
+         * its parent. path[d] is the node at depth d on the previous tag.
+         */
+        int[] path = new int[groupMaxLength + 1];
+        path[1] = groupRoot;
+        for (int tagNumber = from; tagNumber < to; tagNumber++) {
+            String tag = sortedTags[tagNumber];
+            int common = 1;
+            boolean hasPrevious = tagNumber > from;
+            if (hasPrevious) {
+                common = commonPrefixLength(sortedTags[tagNumber - 1], tag);
+            }
+            for (int depth = common; depth < tag.length(); depth++) {
+                int node = nodeCount;
+                nodeCount++;
+                this.nodes.setChar(node, tag.charAt(depth));
+                this.nodes.setEntry(node, NO_ENTRY);
+                this.nodes.setFirstChild(node, NO_NODE);
+                this.nodes.setNextSibling(node, NO_NODE);
+
+                if (depth == common && hasPrevious
+                        && sortedTags[tagNumber - 1].length() > common) {
+                    this.nodes.setNextSibling(path[depth + 1], node);
+                } else {
+                    this.nodes.setFirstChild(path[depth], node);
+                }
+                path[depth + 1] = node;
+            }
+            this.nodes.setEntry(path[tag.length()], tagNumber);
+        }
+        assert nodeCount == nextGroupRoot : "Violation of: the group has as many nodes as were counted";
+    }
+
+    /**
+     * Reports the length of the longest common prefix of two strings.
+     *
+     * @param first
+     *            the first string
+     * @param second
+     *            the second string
+     * @return the length of the longest common prefix
+     */
+    private static int commonPrefixLength(String first, String second) {
+        int limit = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < limit && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /*
+     * Update helper methods --------------------------------------------------
+     */
+
+    /**
+     * Creates a node holding {@code childChar} with no children, reusing a
+     * freed node if there is one.
+     *
+     * @param childChar
+     *            the character of the node
+     * @return the index of the node
+     * @updates this
+     */
+    private int newNode(char childChar) {
+        int node = this.freeNode;
+        if (node != NO_NODE) {
+            this.freeNode = this.nodes.nextSiblingOf(node);
+            this.freeNodeCount--;
+        } else {
+            if (this.nodeCount == this.nodes.capacity()) {
+                this.nodes = this.nodes.copy(this.nodeCount,
+                        Math.max(2 * this.nodeCount, 1),
+                        this.nodes.isOffHeap());
+            }
+            node = this.nodeCount;
+            this.nodeCount++;
+        }
+        this.nodes.setChar(node, childChar);
+        this.nodes.setEntry(node, NO_ENTRY);
+        this.nodes.setFirstChild(node, NO_NODE);
+        this.nodes.setNextSibling(node, NO_NODE);
+        return node;
+    }
+
+    /**
+     * Moves the nodes into direct buffers outside the heap, where they stay
+     * as the trie grows, so the garbage collector never scans or copies
+     * them. The memory is released once the trie is no longer reachable.
+     *
+     * @updates this
+     * @ensures isOffHeap()
+     */
+    void moveOffHeap() {
+        if (!this.nodes.isOffHeap()) {
+            this.nodes = this.nodes.copy(this.nodeCount, this.nodeCount,
+                    true);
+        }
+    }
+
+    /**
+     * Reports whether the nodes are kept in direct buffers outside the heap
+     * by {@code moveOffHeap}.
+     *
+     * @return true iff the nodes are off the heap
+     */
+    boolean isOffHeap() {
+        return this.nodes.isOffHeap();
+    }
+
+    /**
+     * Makes sure the nodes can be updated, copying them to the heap if they
+     * are read-only (for example, mapped from an index file).
+     *
+     * @updates this
+     */
+    private void makeWritable() {
+        if (this.nodes.isReadOnly()) {
+            this.nodes = this.nodes.copy(this.nodeCount, this.nodeCount,
+                    false);
+        }
+    }
+
+    /**
+     * Unlinks {@code child} from the children of {@code parent} and puts it on
+     * the free list.
+     *
+     * @param parent
+     *            the parent node
+     * @param child
+     *            the child node, which has no children and ends no tag
+     * @updates this
+     */
+    private void freeChild(int parent, int child) {
+        TrieNodes nodes = this.nodes;
+        if (nodes.firstChildOf(parent) == child) {
+            nodes.setFirstChild(parent, nodes.nextSiblingOf(child));
+        } else {
+            int previous = nodes.firstChildOf(parent);
+            while (nodes.nextSiblingOf(previous) != child) {
+                previous = nodes.nextSiblingOf(previous);
+            }
+            nodes.setNextSibling(previous, nodes.nextSiblingOf(child));
+        }
+        nodes.setNextSibling(child, this.freeNode);
+        this.freeNode = child;
+        this.freeNodeCount++;
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Finds the child of {@code node} holding {@code childChar}.
+     *
+     * @param node
+     *            the parent node
+     * @param childChar
+     *            the character of the child to find
+     * @return the index of the child, or {@code NO_NODE} if there is none
+     */
+    private int childNode(int node, char childChar) {
+        /*
+         * Siblings are sorted, so stop as soon as the characters pass
+         * childChar
+         */
+        TrieNodes nodes = this.nodes;
+        int child = nodes.firstChildOf(node);
+        while (child != NO_NODE && nodes.charOf(child) < childChar) {
+            child = nodes.nextSiblingOf(child);
+        }
+        if (child != NO_NODE && nodes.charOf(child) != childChar) {
+            child = NO_NODE;
+        }
+        return child;
+    }
+
+    /**
+     * Collects all words from {@code node} downwards into {@code results}.
+     *
+     * @param node
+     *            the starting node
+     * @param path
+     *            the characters from the root to {@code node}; restored on
+     *            return
+     * @param results
+     *            the list to store results in
+     * @return the number of nodes below {@code node}, all of which were
+     *         visited
+     * @ensures {@code results} is extended by all words from {@code node}
+     *          downward, in lexicographical order
+     */
+    private int collectWordsFromNode(int node, StringBuilder path,
+            List<String> results) {
+        TrieNodes nodes = this.nodes;
+        if (nodes.entryOf(node) != NO_ENTRY) {
+            results.add(path.toString());
+        }
+
+        int nodesVisited = 0;
+        for (int child = nodes.firstChildOf(node); child != NO_NODE;
+                child = nodes.nextSiblingOf(child)) {
+            path.append(nodes.charOf(child));
+            nodesVisited += 1 + this.collectWordsFromNode(child, path, results);
+            path.setLength(path.length() - 1);
+        }
+        return nodesVisited;
+    }
+
+    /**
+     * Collects all words from {@code node} downwards that contain
+     * {@code substring} into {@code results}.
+     *
+     * @param node
+     *            the starting node
+     * @param substring
+     *            the substring to search for
+     * @param path
+     *            the characters from the root to {@code node}; restored on
+     *            return
+     * @param results
+     *            the list to store results in
+     * @return the number of nodes below {@code node}, all of which were
+     *         visited
+     * @ensures {@code results} is extended by all words from {@code node}
+     *          downward that contain {@code substring}, in lexicographical
+     *          order
+     */
+    private int collectWordsContainingSubstring(int node, String substring,
+            StringBuilder path, List<String> results) {
+        TrieNodes nodes = this.nodes;
+        if (nodes.entryOf(node) != NO_ENTRY && path.indexOf(substring) >= 0) {
+            results.add(path.toString());
+        }
+
+        int nodesVisited = 0;
+        for (int child = nodes.firstChildOf(node); child != NO_NODE;
+                child = nodes.nextSiblingOf(child)) {
+            path.append(nodes.charOf(child));
+            nodesVisited += 1 + this.collectWordsContainingSubstring(child,
+                    substring, path, results);
+            path.setLength(path.length() - 1);
+        }
+        return nodesVisited;
+    }
+
+    /**
+     * Visits all words from {@code node} downwards with their entry numbers
+     * until {@code visitor} asks to stop.
+     *
+     * @param node
+     *            the starting node
+     * @param path
+     *            the characters from the root to {@code node}; restored on
+     *            return
+     * @param visitor
+     *            the visitor
+     * @return true iff every word from {@code node} downwards was visited
+     */
+    private boolean visitWordsFromNode(int node, StringBuilder path,
+            TagVisitor visitor) {
+        TrieNodes nodes = this.nodes;
+        boolean more = true;
+        if (nodes.entryOf(node) != NO_ENTRY) {
+            more = visitor.visit(path.toString(), nodes.entryOf(node));
+        }
+
+        int child = nodes.firstChildOf(node);
+        while (more && child != NO_NODE) {
+            path.append(nodes.charOf(child));
+            more = this.visitWordsFromNode(child, path, visitor);
+            path.setLength(path.length() - 1);
+            child = nodes.nextSiblingOf(child);
+        }
+        return more;
+    }
+
+    /**
+     * Finds the closest matching words below {@code node} by extending the
+     * edit distance row of {@code node} one character at a time.
+     *
+     * @param node
+     *            the current node
+     * @param depth
+     *            the depth of {@code node}
+     * @param search
+     *            the state of the search, whose path leads to {@code node}
+     * @ensures search.matches holds the closest words among #search.matches
+     *          and the words below {@code node}, lexicographically first among
+     *          ties
+     */
+    private void findClosestMatch(int node, int depth, ClosestMatch search) {
+        TrieNodes nodes = this.nodes;
+        for (int child = nodes.firstChildOf(node); child != NO_NODE;
+                child = nodes.nextSiblingOf(child)) {
+            /*
+             * rowMin is a lower bound on the distance of every word below
+             * child
+             */
+            int rowMin = search.extend(depth, nodes.charOf(child));
+            if (nodes.entryOf(child) != NO_ENTRY) {
+                search.offer(nodes.entryOf(child));
+            }
+            if (rowMin < search.bound()) {
+                this.findClosestMatch(child, depth + 1, search);
+            }
+            search.truncate(depth);
+        }
+    }
+
+    /**
+     * Calculates the edit distance (Levenshtein distance) between two
+     * character sequences, representing the minimum number of character
+     * insertions, deletions, or substitutions required to transform the
+     * source into the target.
+     *
+     * @param source
+     *            the source sequence to compare
+     * @param target
+     *            the target sequence to compare against
+     * @requires source != null and target != null
+     * @return The minimum edit distance between {@code source} and
+     *         {@code target}
+     * @ensures Returns the minimum number of edit operations needed to
+     *          transform {@code source} into {@code target}
+     */
+    static int calculateEditDistance(CharSequence source,
+            CharSequence target) {
+        /*
+         * Initialize a 2D array to store the minimum edit distance between
+         * substrings of 'source' and 'target'. editDistance[i][j] will
+         * represent the edit distance between the first i characters of
+         * 'source' and the first j characters of 'target'.
+         */
+        int[][] editDistance = new int[source.length() + 1][target.length()
+                + 1];
+
+        /*
+         * Fill the first column: transforming the substring of 'source' up to i
+         * into an empty string requires i deletions.
+         */
+        for (int i = 0; i <= source.length(); i++) {
+            editDistance[i][0] = i;
+        }
+
+        /*
+         * Fill the first row: transforming an empty string into the substring
+         * of 'target' up to j requires j insertions.
+         */
+        for (int j = 0; j <= target.length(); j++) {
+            editDistance[0][j] = j;
+        }
+
+        /*
+         * Compute edit distances for each substring combination of 'source' and
+         * 'target'.
+         */
+        for (int i = 1; i <= source.length(); i++) {
+            for (int j = 1; j <= target.length(); j++) {
+
+                /*
+                 * Determine the cost of replacing the current character. If
+                 * characters match, cost is 0; otherwise, the cost is 1
+                 * (substitution).
+                 */
+                int cost = (source.charAt(i - 1) == target.charAt(j - 1)) ? 0
+                        : 1;
+
+                /*
+                 * Update editDistance[i][j] as the minimum of three possible
+                 * operations: 1. Deletion from 'source': editDistance[i-1][j] +
+                 * 1 2. Insertion to 'source': editDistance[i][j-1] + 1 3.
+                 * Replacement in 'source' (or no change if characters are the
+                 * same): editDistance[i-1][j-1] + cost
+                 */
+                editDistance[i][j] = Math.min(
+                        Math.min(editDistance[i - 1][j] + 1, // deletion
+                                editDistance[i][j - 1] + 1), // insertion
+                        editDistance[i - 1][j - 1] + cost // replacement or match
+                );
+            }
+        }
+
+        /*
+         * The edit distance between the full strings 'source' and 'target' is
+         * the value in the last cell, representing the minimum operations
+         * required to transform 'source' into 'target'.
+         */
+        return editDistance[source.length()][target.length()];
+    }
+
+    /**
+     * Iterator producing tags of {@code this} lazily, in lexicographical
+     * order, by walking the trie depth first one node at a time.
+     */
+    private final class TagIterator implements Iterator<String> {
+
+        /**
+         * Depth of the node for the prefix being searched.
+         */
+        private final int baseDepth;
+
+        /**
+         * Substring every produced tag must contain, or null for any tag.
+         */
+        private final String substring;
+
+        /**
+         * {@code stack[d]} is the node at depth {@code d} on the current path.
+         */
+        private final int[] stack;
+
+        /**
+         * The characters from the root to the current node.
+         */
+        private final StringBuilder path;
+
+        /**
+         * Depth of the current node, or -1 once the walk is over.
+         */
+        private int depth;
+
+        /**
+         * Whether the current node has already been checked.
+         */
+        private boolean visited;
+
+        /**
+         * The next tag to produce, or null if there is none.
+         */
+        private String next;
+
+        /**
+         * Constructor.
+         *
+         * @param prefix
+         *            the prefix every produced tag starts with
+         * @param substring
+         *            the substring every produced tag contains, or null
+         * @param after
+         *            only tags lexicographically after {@code after} are
+         *            produced, or null to start from the first tag
+         */
+        private TagIterator(String prefix, String substring, String after) {
+            this.baseDepth = prefix.length();
+            this.substring = substring;
+            this.stack = new int[SearchTrie.this.maxDepth + 1];
+            this.path = new StringBuilder(prefix);
+            this.depth = -1;
+            this.visited = false;
+
+            int base = SearchTrie.this.findNodeForPrefix(prefix);
+            if (base != NO_NODE) {
+                this.stack[this.baseDepth] = base;
+                this.depth = this.baseDepth;
+
+                /*
+                 * A cursor with the prefix is sought; a cursor before every
+                 * tag with the prefix is ignored, and one after all of them
+                 * ends the walk
+                 */
+                if (after != null) {
+                    if (after.startsWith(prefix)) {
+                        this.seek(after);
+                    } else if (after.compareTo(prefix) > 0) {
+                        this.depth = -1;
+                    }
+                }
+            }
+            this.next = this.findNext();
+        }
+
+        /**
+         * Moves to the first node whose path is lexicographically after
+         * {@code after}.
+         *
+         * @param after
+         *            the cursor
+         * @requires after starts with the prefix and the current node is the
+         *           node for the prefix
+         */
+        private void seek(String after) {
+            TrieNodes nodes = SearchTrie.this.nodes;
+            boolean found = true;
+            while (found && this.depth < after.length()) {
+                char afterChar = after.charAt(this.depth);
+                int child = nodes.firstChildOf(this.stack[this.depth]);
+                while (child != NO_NODE && nodes.charOf(child) < afterChar) {
+                    child = nodes.nextSiblingOf(child);
+                }
+
+                if (child == NO_NODE) {
+                    /*
+                     * Everything below the current node comes before after
+                     */
+                    this.visited = true;
+                    this.skipSubtree();
+                    found = false;
+                } else {
+                    this.depth++;
+                    this.stack[this.depth] = child;
+                    this.path.append(nodes.charOf(child));
+                    if (nodes.charOf(child) != afterChar) {
+                        /*
+                         * The child and everything below it come after after
+                         */
+                        this.visited = false;
+                        found = false;
+                    }
+                }
+            }
+            if (found) {
+                /*
+                 * The current node is after itself; only its subtree is left
+                 */
+                this.visited = true;
+            }
+        }
+
+        /**
+         * Moves to the next node in depth first order, skipping the subtree
+         * of the current node.
+         */
+        private void skipSubtree() {
+            TrieNodes nodes = SearchTrie.this.nodes;
+            while (this.depth > this.baseDepth && nodes
+                    .nextSiblingOf(this.stack[this.depth]) == NO_NODE) {
+                this.depth--;
+            }
+            this.path.setLength(Math.max(this.depth, 0));
+            if (this.depth == this.baseDepth) {
+                this.depth = -1;
+            } else {
+                int sibling = nodes.nextSiblingOf(this.stack[this.depth]);
+                this.stack[this.depth] = sibling;
+                this.path.setCharAt(this.depth - 1, nodes.charOf(sibling));
+                this.visited = false;
+            }
+        }
+
+        /**
+         * Walks forward to the next tag to produce.
+         *
+         * @return the next tag, or null if there is none
+         */
+        private String findNext() {
+            TrieNodes nodes = SearchTrie.this.nodes;
+            String found = null;
+            while (found == null && this.depth >= 0) {
+                int node = this.stack[this.depth];
+                if (!this.visited) {
+                    this.visited = true;
+                    if (nodes.entryOf(node) != NO_ENTRY
+                            && (this.substring == null
+                                    || this.path.indexOf(this.substring) >= 0)) {
+                        found = this.path.toString();
+                    }
+                } else if (nodes.firstChildOf(node) != NO_NODE) {
+                    int child = nodes.firstChildOf(node);
+                    this.depth++;
+                    this.stack[this.depth] = child;
+                    this.path.append(nodes.charOf(child));
+                    this.visited = false;
+                } else {
+                    this.skipSubtree();
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public String next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            String result = this.next;
+            this.next = this.findNext();
+            return result;
+        }
+
+    }
+
+    /**
+     * Prefix cursor that keeps the path of nodes of the last prefix, so each
+     * search walks down only from where the next prefix leaves that path.
+     */
+    private final class TriePrefixCursor extends PrefixCursor {
+
+        /**
+         * Node at each depth on the path of {@code last}; path[0] is the root.
+         */
+        private final int[] path;
+
+        /**
+         * The last prefix searched for.
+         */
+        private String last;
+
+        /**
+         * Number of characters of {@code last} whose nodes are in
+         * {@code path}.
+         */
+        private int depth;
+
+        /**
+         * Constructor.
+         */
+        private TriePrefixCursor() {
+            this.path = new int[SearchTrie.this.maxDepth + 1];
+            this.path[0] = ROOT;
+            this.last = "";
+            this.depth = 0;
+        }
+
+        @Override
+        int prefixSearch(String prefix, List<String> results) {
+            /*
+             * Go back up to the deepest node the prefix shares with the last
+             * one, then down the rest of the prefix
+             */
+            int shared = 0;
+            int limit = Math.min(this.depth, prefix.length());
+            while (shared < limit
+                    && prefix.charAt(shared) == this.last.charAt(shared)) {
+                shared++;
+            }
+            int node = this.path[shared];
+            int d = shared;
+            while (node != NO_NODE && d < prefix.length()) {
+                node = SearchTrie.this.childNode(node, prefix.charAt(d));
+                d++;
+                if (node != NO_NODE) {
+                    this.path[d] = node;
+                }
+            }
+            this.last = prefix;
+            this.depth = d;
+            int nodesVisited = d - shared;
+            if (node == NO_NODE) {
+                this.depth = d - 1;
+            } else {
+                nodesVisited += SearchTrie.this.collectWordsFromNode(node,
+                        new StringBuilder(prefix), results);
+            }
+            return nodesVisited;
+        }
+
+    }
+
+    /*
+     * Updates ----------------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code tag} to {@code this}, creating only the nodes missing from
+     * its path.
+     *
+     * @param tag
+     *            the tag to add
+     * @return the entry number given to {@code tag}
+     * @updates this
+     * @requires tag is not in this
+     * @ensures tag is in this with an entry number not used by any other tag
+     */
+    int insert(String tag) {
+        this.makeWritable();
+        int node = ROOT;
+        for (int i = 0; i < tag.length(); i++) {
+            char tagChar = tag.charAt(i);
+
+            /*
+             * Find the child for tagChar, or the sibling it goes after
+             */
+            int previous = NO_NODE;
+            int child = this.nodes.firstChildOf(node);
+            while (child != NO_NODE && this.nodes.charOf(child) < tagChar) {
+                previous = child;
+                child = this.nodes.nextSiblingOf(child);
+            }
+            if (child == NO_NODE || this.nodes.charOf(child) != tagChar) {
+                int created = this.newNode(tagChar);
+                this.nodes.setNextSibling(created, child);
+                if (previous == NO_NODE) {
+                    this.nodes.setFirstChild(node, created);
+                } else {
+                    this.nodes.setNextSibling(previous, created);
+                }
+                child = created;
+            }
+            node = child;
+        }
+        assert this.nodes.entryOf(node) == NO_ENTRY : "Violation of: tag is not in this";
+
+        int tagEntry;
+        if (this.freeEntryCount > 0) {
+            this.freeEntryCount--;
+            tagEntry = this.freeEntries[this.freeEntryCount];
+        } else {
+            tagEntry = this.entryLimit;
+            this.entryLimit++;
+        }
+        this.nodes.setEntry(node, tagEntry);
+        this.tagCount++;
+        this.maxDepth = Math.max(this.maxDepth, tag.length());
+        return tagEntry;
+    }
+
+    /**
+     * Removes {@code tag} from {@code this}, removing the nodes on its path
+     * that no longer lead to any tag.
+     *
+     * @param tag
+     *            the tag to remove
+     * @return the entry number {@code tag} had
+     * @updates this
+     * @requires tag is in this
+     * @ensures tag is not in this and its entry number is free for reuse
+     */
+    int remove(String tag) {
+        this.makeWritable();
+        int[] path = new int[tag.length() + 1];
+        path[0] = ROOT;
+        for (int i = 0; i < tag.length(); i++) {
+            path[i + 1] = this.childNode(path[i], tag.charAt(i));
+            assert path[i + 1] != NO_NODE : "Violation of: tag is in this";
+        }
+        int node = path[tag.length()];
+        int tagEntry = this.nodes.entryOf(node);
+        assert tagEntry != NO_ENTRY : "Violation of: tag is in this";
+
+        this.nodes.setEntry(node, NO_ENTRY);
+        this.tagCount--;
+        if (this.freeEntryCount == this.freeEntries.length) {
+            this.freeEntries = Arrays.copyOf(this.freeEntries,
+                    Math.max(2 * this.freeEntryCount, 1));
+        }
+        this.freeEntries[this.freeEntryCount] = tagEntry;
+        this.freeEntryCount++;
+
+        /*
+         * Prune the dead end of the path: nodes with no children that end no
+         * tag
+         */
+        int depth = tag.length();
+        while (depth > 0 && this.nodes.entryOf(path[depth]) == NO_ENTRY
+                && this.nodes.firstChildOf(path[depth]) == NO_NODE) {
+            this.freeChild(path[depth - 1], path[depth]);
+            depth--;
+        }
+        return tagEntry;
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    @Override
+    int nodeCount() {
+        return this.nodeCount - this.freeNodeCount;
+    }
+
+    /**
+     * Reports one more than the largest entry number in use.
+     *
+     * @return the size an array indexed by entry number needs
+     */
+    int entryLimit() {
+        return this.entryLimit;
+    }
+
+    /**
+     * Reports whether {@code this} has no freed nodes or entry numbers, so
+     * its entry numbers run from 0 to {@code size() - 1} and
+     * {@code writeNodes} writes no unused nodes.
+     *
+     * @return true iff nothing has been removed since the last build
+     */
+    boolean isCompact() {
+        return this.freeNodeCount == 0 && this.freeEntryCount == 0;
+    }
+
+    /**
+     * Reports the number of node indexes handed out, which is the number of
+     * nodes {@code writeNodes} writes.
+     *
+     * @return the number of node indexes handed out
+     */
+    int nodeLimit() {
+        return this.nodeCount;
+    }
+
+    @Override
+    int maxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Reports the number of bytes {@code writeNodes} writes for
+     * {@code nodeCount} nodes: the characters, padded to a multiple of four
+     * bytes, followed by the entry numbers, first children and next siblings.
+     *
+     * @param nodeCount
+     *            the number of nodes
+     * @return the number of bytes
+     */
+    static long nodeBytes(int nodeCount) {
+        long charBytes = (Character.BYTES * (long) nodeCount + Integer.BYTES
+                - 1) / Integer.BYTES * Integer.BYTES;
+        return charBytes + 3L * Integer.BYTES * nodeCount;
+    }
+
+    /**
+     * Writes the nodes of {@code this} to {@code out} at its position, as
+     * {@code map} reads them.
+     *
+     * @param out
+     *            the buffer to write to
+     * @updates out
+     * @requires out.remaining() >= nodeBytes(nodeLimit())
+     * @ensures the nodeBytes(nodeLimit()) bytes after the position of #out are
+     *          the nodes of this, and the position of out is just after them
+     */
+    void writeNodes(ByteBuffer out) {
+        int count = this.nodeCount;
+        int start = out.position();
+        for (int node = 0; node < count; node++) {
+            out.putChar(this.nodes.charOf(node));
+        }
+        out.position(start + (int) (nodeBytes(count)
+                - 3L * Integer.BYTES * count));
+        for (int node = 0; node < count; node++) {
+            out.putInt(this.nodes.entryOf(node));
+        }
+        for (int node = 0; node < count; node++) {
+            out.putInt(this.nodes.firstChildOf(node));
+        }
+        for (int node = 0; node < count; node++) {
+            out.putInt(this.nodes.nextSiblingOf(node));
+        }
+    }
+
+    /**
+     * Creates a trie reading its nodes straight from {@code in}, as written by
+     * {@code writeNodes}, without copying them. The trie is copied to the
+     * heap by the first {@code insert} or {@code remove} if {@code in} is
+     * read-only.
+     *
+     * @param in
+     *            the buffer holding the nodes at its position
+     * @param nodeCount
+     *            the number of nodes
+     * @param tagCount
+     *            the number of tags
+     * @param maxDepth
+     *            at least the length of the longest tag
+     * @return the trie over the nodes in {@code in}
+     * @requires the nodes were written by writeNodes from a compact trie with
+     *           the given numbers of nodes and tags and maximum depth
+     */
+    static SearchTrie map(ByteBuffer in, int nodeCount, int tagCount,
+            int maxDepth) {
+        int start = in.position();
+        int intBytes = Integer.BYTES * nodeCount;
+        int entryStart = start
+                + (int) (nodeBytes(nodeCount) - 3L * intBytes);
+        CharBuffer nodeChar = in.slice(start, Character.BYTES * nodeCount)
+                .order(in.order()).asCharBuffer();
+        IntBuffer entry = in.slice(entryStart, intBytes).order(in.order())
+                .asIntBuffer();
+        IntBuffer firstChild = in.slice(entryStart + intBytes, intBytes)
+                .order(in.order()).asIntBuffer();
+        IntBuffer nextSibling = in.slice(entryStart + 2 * intBytes, intBytes)
+                .order(in.order()).asIntBuffer();
+        return new SearchTrie(
+                TrieNodes.inBuffers(nodeChar, entry, firstChild, nextSibling),
+                nodeCount, tagCount, maxDepth);
+    }
+
+    /**
+     * Reports whether every link between the nodes of {@code this} leads to
+     * a node other than the root, no node is linked to twice, every entry
+     * number is used once and is below {@code size()}, and no node is deeper
+     * than {@code maxDepth()}; a trie mapped from a corrupt file can fail
+     * this, and walking it could then run out of bounds, overflow the
+     * {@code maxDepth() + 1} stacks of the iterators, or round a cycle
+     * forever.
+     *
+     * @return true iff the nodes form a tree below the root with one entry
+     *         number per tag, no deeper than maxDepth()
+     */
+    boolean hasValidLinks() {
+        int count = this.nodeCount;
+        BitSet linked = new BitSet(count);
+        BitSet used = new BitSet(this.tagCount);
+        boolean valid = true;
+        for (int node = 0; valid && node < count; node++) {
+            int tagEntry = this.nodes.entryOf(node);
+            if (tagEntry != NO_ENTRY) {
+                valid = tagEntry >= 0 && tagEntry < this.tagCount
+                        && !used.get(tagEntry);
+                if (valid) {
+                    used.set(tagEntry);
+                }
+            }
+            valid = valid && linkTo(this.nodes.firstChildOf(node), linked)
+                    && linkTo(this.nodes.nextSiblingOf(node), linked);
+        }
+        return valid && used.cardinality() == this.tagCount
+                && this.deepestNodeDepth() <= this.maxDepth;
+    }
+
+    /**
+     * Reports the depth of the deepest node, walking the tree without
+     * recursion.
+     *
+     * @return the largest number of links from the root to a node
+     * @requires the nodes form a tree below the root
+     */
+    private int deepestNodeDepth() {
+        TrieNodes nodes = this.nodes;
+        int[] depth = new int[this.nodeCount];
+        int[] stack = new int[this.nodeCount];
+        stack[0] = ROOT;
+        int stackSize = 1;
+        int deepest = 0;
+        while (stackSize > 0) {
+            stackSize--;
+            int node = stack[stackSize];
+            for (int child = nodes.firstChildOf(node); child != NO_NODE;
+                    child = nodes.nextSiblingOf(child)) {
+                depth[child] = depth[node] + 1;
+                deepest = Math.max(deepest, depth[child]);
+                stack[stackSize] = child;
+                stackSize++;
+            }
+        }
+        return deepest;
+    }
+
+    /**
+     * Records a link to {@code node} for {@code hasValidLinks}.
+     *
+     * @param node
+     *            the node linked to, or {@code NO_NODE}
+     * @param linked
+     *            the nodes already linked to
+     * @return true iff {@code node} is {@code NO_NODE}, or a node other than
+     *         the root not yet linked to
+     * @updates linked
+     * @ensures linked = #linked union {node} if node is a node
+     */
+    private boolean linkTo(int node, BitSet linked) {
+        boolean valid = node == NO_NODE
+                || (node > ROOT && node < this.nodeCount && !linked.get(node));
+        if (valid && node != NO_NODE) {
+            linked.set(node);
+        }
+        return valid;
+    }
+
+    /**
+     * Reports whether {@code this} and {@code other} have exactly the same
+     * nodes at the same indexes.
+     *
+     * @param other
+     *            the trie to compare with
+     * @return true iff the two tries are laid out identically
+     */
+    boolean hasSameLayout(SearchTrie other) {
+        TrieNodes nodes = this.nodes;
+        int count = this.nodeCount;
+        boolean same = count == other.nodeCount
+                && this.tagCount == other.tagCount;
+        for (int node = 0; same && node < count; node++) {
+            same = nodes.charOf(node) == other.nodes.charOf(node)
+                    && nodes.entryOf(node) == other.nodes.entryOf(node)
+                    && nodes.firstChildOf(node) == other.nodes
+                            .firstChildOf(node)
+                    && nodes.nextSiblingOf(node) == other.nodes
+                            .nextSiblingOf(node);
+        }
+        return same;
+    }
+
+    @Override
+    int size() {
+        return this.tagCount;
+    }
+
+    /**
+     * Reports the character held by {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the character of {@code node}
+     */
+    char charOf(int node) {
+        return this.nodes.charOf(node);
+    }
+
+    /**
+     * Reports the entry number of the tag ending at {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the entry number, or {@code NO_ENTRY} if no tag ends at
+     *         {@code node}
+     */
+    int entryAt(int node) {
+        return this.nodes.entryOf(node);
+    }
+
+    /**
+     * Reports the first child of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the first child, or {@code NO_NODE} if there is none
+     */
+    int firstChildOf(int node) {
+        return this.nodes.firstChildOf(node);
+    }
+
+    /**
+     * Reports the next sibling of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the next sibling, or {@code NO_NODE} if there is none
+     */
+    int nextSiblingOf(int node) {
+        return this.nodes.nextSiblingOf(node);
+    }
+
+    @Override
+    long nodeHeapBytes() {
+        return nodeBytes(this.nodes.capacity());
+    }
+
+    @Override
+    SearchTrie toSearchTrie() {
+        return this;
+    }
+
+    @Override
+    int entryOf(String tag) {
+        int node = this.findNodeForPrefix(tag);
+        int tagEntry = NO_ENTRY;
+        if (node != NO_NODE) {
+            tagEntry = this.nodes.entryOf(node);
+        }
+        return tagEntry;
+    }
+
+    /**
+     * Finds the node at the end of the path for {@code prefix}.
+     *
+     * @param prefix
+     *            the prefix to search for
+     * @return the index of the node, or {@code NO_NODE} if {@code prefix} is
+     *         not a path in {@code this}
+     */
+    int findNodeForPrefix(String prefix) {
+        int node = ROOT;
+        int i = 0;
+        while (node != NO_NODE && i < prefix.length()) {
+            node = this.childNode(node, prefix.charAt(i));
+            i++;
+        }
+        return node;
+    }
+
+    @Override
+    int prefixSearch(String prefix, List<String> results) {
+        int node = this.findNodeForPrefix(prefix);
+        int nodesVisited = prefix.length();
+        if (node != NO_NODE) {
+            nodesVisited += this.collectWordsFromNode(node,
+                    new StringBuilder(prefix), results);
+        }
+        return nodesVisited;
+    }
+
+    @Override
+    PrefixCursor prefixCursor() {
+        return new TriePrefixCursor();
+    }
+
+    @Override
+    int containsSearch(String substring, List<String> results) {
+        return this.collectWordsContainingSubstring(ROOT, substring,
+                new StringBuilder(), results);
+    }
+
+    @Override
+    Iterator<String> prefixSearchIterator(String prefix, String after) {
+        return new TagIterator(prefix, null, after);
+    }
+
+    @Override
+    Iterator<String> containsSearchIterator(String substring, String after) {
+        return new TagIterator("", substring, after);
+    }
+
+    @Override
+    boolean visitTags(TagVisitor visitor) {
+        return this.visitWordsFromNode(ROOT, new StringBuilder(this.maxDepth),
+                visitor);
+    }
+
+    @Override
+    void findClosestMatches(ClosestMatch search) {
+        /*
+         * The root is the end of the empty tag, if there is one
+         */
+        if (this.nodes.entryOf(ROOT) != NO_ENTRY) {
+            search.offer(this.nodes.entryOf(ROOT));
+        }
+        this.findClosestMatch(ROOT, 0, search);
+    }
+
+}
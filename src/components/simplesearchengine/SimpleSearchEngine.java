@@ -1,5 +1,9 @@
 package components.simplesearchengine;
 
+import java.util.List;
+
+import components.map.Map.Pair;
+
 /**
  * {@code SimpleSearchEngineKernel<T>} enhanced with secondary methods.
  *
@@ -11,4 +15,91 @@ package components.simplesearchengine;
  */
 public interface SimpleSearchEngine<T> extends SimpleSearchEngineKernel<T> {
 
+    /**
+     * Returns one page of the {@code tag}'s in this.entries with the prefix
+     * {@code prefix}: at most {@code limit} of them, starting after
+     * {@code after}
+     *
+     * @param prefix
+     *            the prefix to be searched for
+     * @param after
+     *            the last tag of the previous page, or null for the first
+     *            page
+     * @param limit
+     *            the largest number of tags wanted
+     * @requires <pre> this.insertionMode == false and limit >= 0
+     * @return A lexographically ordered list of the first {@code limit} tags
+     *         with the prefix {@code prefix} that come after {@code after}
+     * @ensures The returned list holds, in lexographical order, the first
+     *          min(limit, n) of the n {@code tag}'s in this.entries that have
+     *          {@code prefix} and come after {@code after}
+     */
+    List<String> prefixSearch(String prefix, String after, int limit);
+
+    /**
+     * Returns one page of the {@code tag}'s in this.entries that contain
+     * {@code subString}: at most {@code limit} of them, starting after
+     * {@code after}
+     *
+     * @param subString
+     *            the subString to be searched for
+     * @param after
+     *            the last tag of the previous page, or null for the first
+     *            page
+     * @param limit
+     *            the largest number of tags wanted
+     * @requires <pre> this.insertionMode == false and limit >= 0
+     * @return A lexographically ordered list of the first {@code limit} tags
+     *         containing {@code subString} that come after {@code after}
+     * @ensures The returned list holds, in lexographical order, the first
+     *          min(limit, n) of the n {@code tag}'s in this.entries that
+     *          contain {@code subString} and come after {@code after}
+     */
+    List<String> containsSearch(String subString, String after, int limit);
+
+    /**
+     * Searches this.entries for the {@code tag}'s with each of
+     * {@code prefixes} at once, sharing the work of prefixes with common
+     * beginnings, and returns one list per prefix
+     *
+     * @param prefixes
+     *            the prefixes to be searched for
+     * @requires <pre> this.insertionMode == false and no prefix is null
+     * @return A list whose element i is the lexographically ordered list of
+     *         all tags in this.entries with the prefix
+     *         {@code prefixes.get(i)}
+     * @ensures Each returned list is the list {@code prefixSearch} returns
+     *          for its prefix
+     */
+    List<List<String>> prefixSearchBatch(List<String> prefixes);
+
+    /**
+     * Adds every entry in {@code newEntries} to this.entries. Any
+     * {@code Iterable} works, including a {@code LineEntries} reading a file
+     * and, through {@code stream::iterator}, a {@code Stream}.
+     *
+     * @param newEntries
+     *            the entries to be added
+     * @updates this.entries
+     * @requires the tags in newEntries are distinct and not in this.entries,
+     *           and no tag or value is null
+     * @ensures this.entries = #this.entries union newEntries
+     */
+    void addAll(Iterable<? extends Pair<String, T>> newEntries);
+
+    /**
+     * Adds every entry in {@code newEntries} to this.entries and changes
+     * {@code this} to search mode, building the search structure directly
+     * from {@code newEntries} where the implementation can.
+     *
+     * @param newEntries
+     *            the entries to be added
+     * @updates this
+     * @requires this.insertion_mode = true, the tags in newEntries are
+     *           distinct and not in this.entries, and no tag or value is null
+     * @ensures this.entries = #this.entries union newEntries and
+     *          this.insertion_mode = false
+     */
+    void changeToSearchMode(Iterable<? extends Pair<String, T>> newEntries);
+
 }
@@ -1,20 +1,25 @@
 package components.simplesearchengine;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import components.map.Map;
 import components.map.Map.Pair;
 import components.map.Map4;
-import components.sequence.Sequence;
-import components.sequence.Sequence3;
-import components.tree.Tree;
-import components.tree.Tree1;
 
 /**
  * {@code SimpleSearchEngine} represented as {@link components.map.Map4} and
- * trie on {@link components.tree.Tree1} with implementations of primary
- * methods.
+ * a trie stored in primitive buffers, on the heap or mapped from an index
+ * file, with implementations of primary methods.
  *
  * @param <T>
  *            type of {@code SimpleSearchEngine} entries
@@ -29,6 +34,16 @@ import components.tree.Tree1;
  * @mathmodel type SimpleSearchEngine1L<T> is modeled by
  *            SIMPLE_SEARCH_ENGINE_1L_MODEL
  *
+ *            <p>
+ *            In search mode the entries are held by a {@code SearchTrie},
+ *            and no query method writes to {@code this}. An instance that has
+ *            been safely published after {@code changeToSearchMode} may
+ *            therefore be queried from any number of threads at once without
+ *            locking. {@code add} and {@code remove} also work in search mode,
+ *            updating the trie in place in O(|tag|); they must not run at the
+ *            same time as any other call on the instance.
+ *            </p>
+ *
  * @author Saurav Poudyel
  *
  */
@@ -39,17 +54,11 @@ public class SimpleSearchEngine1L<T> extends SimpleSearchEngineSecondary<T> {
      */
 
     /**
-     * Individual Nodes of the Search Structure
+     * Size of the hash table of a {@code Map4} built without one; smaller
+     * tables are never asked for, since {@code Map4} needs at least one
+     * bucket.
      */
-    private final static class TrieNode {
-        public char nodeChar;
-        public boolean isEndOfWord;
-
-        public TrieNode(char nodeChar) {
-            this.nodeChar = nodeChar;
-            this.isEndOfWord = false;
-        }
-    }
+    private static final int DEFAULT_HASH_TABLE_SIZE = 101;
 
     /**
      * Insertion mode.
@@ -57,452 +66,523 @@ public class SimpleSearchEngine1L<T> extends SimpleSearchEngineSecondary<T> {
     private boolean insertionMode;
 
     /**
-     * Entries.
+     * Entries, while in insertion mode.
      */
     private Map4<String, T> entries;
 
     /**
-     * Search Structure.
+     * Search Structure, built by {@code changeToSearchMode}: a
+     * {@code RadixTrie} if the radix trie is enabled, a {@code Dawg} if the
+     * DAWG is enabled, otherwise a {@code SearchTrie}.
      */
-    private Tree1<TrieNode> searchStructure;
+    private SearchStructure searchStructure;
 
     /**
-     * Creator of initial representation.
+     * Values of the entries in search mode, indexed by the entry number of
+     * their tag in {@code searchStructure}, or by tag number in
+     * {@code normalizedTags} if tags are normalized.
      */
-    private void createNewRep() {
-        this.insertionMode = true;
-        this.entries = new Map4<String, T>();
-        this.searchStructure = new Tree1<TrieNode>();
-    }
+    private T[] searchValues;
 
-    /*
-     * Search Structure; Insertion/Creation Helper Methods ---------------------
+    /**
+     * How {@code changeToSearchMode} normalizes the tags, and queries their
+     * text, before comparing them.
      */
+    private TagNormalization tagNormalization;
 
     /**
-     * Creates a trie from the entries in {@code entries}.
-     *
-     * @param entries
-     *            the map of tags to values to be added to the trie
-     * @requires entries != null
-     * @return A trie containing all tags from {@code entries}
-     * @ensures The returned tree has all tags from {@code entries} as paths
-     *          from root to nodes in the trie
+     * Tags behind each normalized key held by {@code searchStructure} in
+     * search mode, or null if tags are not normalized.
      */
-    private Tree1<TrieNode> createTrie(Map<String, T> entries) {
-        assert entries != null : "Violation of: entries is not null";
+    private NormalizedTags normalizedTags;
 
-        Tree1<TrieNode> Trie = new Tree1<>();
-        TrieNode rootTreeNode = new TrieNode(' ');
-        Trie.assemble(rootTreeNode, new Sequence3<Tree<TrieNode>>());
+    /**
+     * Index file the search structure was opened from, whose values stand in
+     * for {@code searchValues} until the first update in search mode, or null
+     * if the search structure was not opened from a file.
+     */
+    private SearchIndexFile<T> indexFile;
 
-        /*
-         * Iterate through the map and add the tags in form {String} to the Trie
-         */
-        Map4<String, T> tempEntries = new Map4<>();
-        tempEntries.transferFrom(entries);
-        while (tempEntries.size() > 0) {
-            Pair<String, T> tempPair = tempEntries.removeAny();
-            this.insertTagInTrie(Trie, tempPair.key());
-            entries.add(tempPair.key(), tempPair.value());
-        }
+    /**
+     * Suffix array answering {@code containsSearch} in search mode, or null
+     * if it is not built.
+     */
+    private SubstringIndex substringIndex;
 
-        return Trie;
-    }
+    /**
+     * Whether {@code changeToSearchMode} builds {@code substringIndex}.
+     */
+    private boolean substringIndexEnabled;
 
     /**
-     * Inserts each character of a tag into the trie.
-     *
-     * @param tree
-     *            the trie into which the tag will be inserted
-     * @param tag
-     *            the tag to insert
-     * @requires tree != null and tag != null
-     * @ensures the trie will contain all characters of {@code tag} as a
-     *          sequence of nodes
+     * Trigram index answering {@code containsSearch} and narrowing
+     * {@code relativeSearch} and {@code suggestions} in search mode, or null
+     * if it is not built.
      */
-    private void insertTagInTrie(Tree1<TrieNode> tree, String tag) {
-        /*
-         * Iterate through the tag and insert each char in the Trie
-         */
-        Tree1<TrieNode> currentNode = tree;
-        for (char tagChar : tag.toCharArray()) {
-            currentNode = this.insertCharInTrie(currentNode, tagChar);
-        }
+    private GramIndex gramIndex;
 
-        /*
-         * At the end of the tag, mark the char node as the end of word
-         */
-        TrieNode endNode = currentNode.root();
-        endNode.isEndOfWord = true;
-        currentNode.replaceRoot(endNode); // Update the node in the tree
-    }
+    /**
+     * Whether {@code changeToSearchMode} builds {@code gramIndex}.
+     */
+    private boolean gramIndexEnabled;
 
     /**
-     * Inserts a character into the trie, maintaining lexicographical order.
-     *
-     * @param currentNode
-     *            the current node in the trie
-     * @param insertChar
-     *            the character to insert
-     * @requires currentNode != null
-     * @return The node in the trie that corresponds to the inserted character
-     *         {@code ch}
-     * @ensures The trie will have {@code ch} inserted in the correct
-     *          lexicographical position in {@code currentNode}
+     * Deletion neighborhood index answering {@code relativeSearch} and
+     * {@code suggestions} within its distance in search mode, or null if it is
+     * not built.
      */
-    private Tree1<TrieNode> insertCharInTrie(Tree1<TrieNode> currentNode,
-            char insertChar) {
+    private DeletionIndex deletionIndex;
 
-        Sequence<Tree<TrieNode>> children = currentNode.newSequenceOfTree();
-        TrieNode rootNode = currentNode.disassemble(children);
+    /**
+     * Number of edits {@code changeToSearchMode} builds
+     * {@code deletionIndex} for, or 0 not to build it.
+     */
+    private int deletionIndexDistance;
 
-        /*
-         * Find lexicographical position or existing node
-         */
-        int insertPos = 0;
-        Tree<TrieNode> childNode = null;
-        for (int i = 0; i < children.length(); i++) {
-            Tree<TrieNode> child = children.entry(i);
-            if (child.root().nodeChar == insertChar) {
-                childNode = child;
-                break;
-            } else if (child.root().nodeChar > insertChar) {
-                insertPos = i;
-                break;
-            }
-            insertPos = i + 1;
-        }
+    /**
+     * Burkhard-Keller tree answering {@code relativeSearch} and
+     * {@code suggestions} in search mode, or null if it is not built.
+     */
+    private BkTree bkTree;
 
-        /*
-         * If no matching character node exists, create and insert a new one
-         */
-        if (childNode == null) {
-            childNode = new Tree1<>();
-            Sequence<Tree<TrieNode>> emptyChildren = childNode
-                    .newSequenceOfTree();
-            childNode.assemble(new TrieNode(insertChar), emptyChildren); // Assemble with character node
-            children.add(insertPos, childNode); // Insert in lexicographical order
-        }
+    /**
+     * How {@code relativeSearch} and {@code suggestions} find the closest
+     * tags; {@code changeToSearchMode} builds {@code bkTree} for
+     * {@code BK_TREE}.
+     */
+    private RelativeSearchStrategy relativeSearchStrategy;
+
+    /**
+     * Whether {@code changeToSearchMode} sorts the tags and builds the search
+     * structure on the common fork/join pool.
+     */
+    private boolean parallelBuildEnabled;
+
+    /**
+     * Whether {@code changeToSearchMode} compresses the search structure into
+     * a {@code RadixTrie}.
+     */
+    private boolean radixTrieEnabled;
+
+    /**
+     * Whether {@code changeToSearchMode} builds a {@code Dawg} as the search
+     * structure.
+     */
+    private boolean dawgEnabled;
+
+    /**
+     * Whether {@code changeToSearchMode} moves the nodes of the trie into
+     * direct buffers outside the heap.
+     */
+    private boolean offHeapStorageEnabled;
+
+    /**
+     * Weight of each entry, computed from its value, for
+     * {@code topCompletions}, or null if entries are not weighted.
+     */
+    private ToLongFunction<? super T> completionWeigher;
+
+    /**
+     * Heaviest tag below each trie node, answering {@code topCompletions} in
+     * search mode, or null if it is not built.
+     */
+    private CompletionIndex completionIndex;
+
+    /**
+     * Cache of query results in search mode, or null if caching is disabled.
+     */
+    private QueryCache queryCache;
+
+    /**
+     * Metrics of the queries and builds, or null if they are not recorded.
+     */
+    private SearchEngineMetrics metrics;
 
-        currentNode.assemble(rootNode, children);
-        return (Tree1) childNode;
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.insertionMode = true;
+        this.entries = new Map4<String, T>();
+        this.searchStructure = null;
+        this.searchValues = null;
+        this.normalizedTags = null;
+        this.indexFile = null;
+        this.substringIndex = null;
+        this.gramIndex = null;
+        this.deletionIndex = null;
+        this.bkTree = null;
+        this.completionIndex = null;
+        this.structureChanged();
     }
 
     /*
-     * Search Structure; Search Helper Methods ---------------------------------
+     * Search Structure; Insertion/Creation Helper Methods ---------------------
      */
 
     /**
-     * Finds the node in the trie that corresponds to a given prefix.
+     * Creates the search structure from the entries in {@code entries} and
+     * {@code moreEntries}.
      *
-     * @param prefix
-     *            the prefix to search for
-     * @requires this.searchStructure != null
-     * @return The node in the trie that corresponds to the prefix, or null if
-     *         the prefix is not found
-     * @ensures The returned node represents the endpoint of the path for
-     *          {@code prefix} in the trie, if it exists
-     */
-    private Tree<TrieNode> findNodeForPrefix(String prefix) {
-        /*
-         * Start at the beggining of the tree
-         */
-        Tree<TrieNode> currentNode = this.searchStructure;
+     * @param entries
+     *            the map of tags to values to be added to the trie
+     * @param moreEntries
+     *            more entries to be added to the trie, or null
+     * @requires entries != null and the tags in entries and moreEntries are
+     *           distinct
+     * @ensures this.searchStructure has all tags from {@code entries} and
+     *          {@code moreEntries} as paths from root to nodes in the trie,
+     *          this.searchValues holds the value of each tag at the entry
+     *          number of the tag, this.substringIndex, this.gramIndex,
+     *          this.deletionIndex and this.bkTree index the tags if enabled,
+     *          and this.completionIndex weighs them if
+     *          this.completionWeigher is set; if tags are normalized,
+     *          this.searchStructure holds the normalized keys instead,
+     *          this.normalizedTags the tags behind each key and
+     *          this.searchValues the value of each tag at its tag number
+     */
+    @SuppressWarnings("unchecked")
+    private void createTrie(Map<String, T> entries,
+            Iterable<? extends Pair<String, T>> moreEntries) {
+        assert entries != null : "Violation of: entries is not null";
+
+        long start = 0;
+        if (this.metrics != null) {
+            start = System.nanoTime();
+        }
 
         /*
-         * If the string is " " then return the first node in the tree which
-         * corresponds to the entire tree
+         * Read the entries without removing them from the map, then sort them
+         * by tag so the trie is built from the sorted tags in one pass
          */
-        if (prefix.equals("")) {
-            return currentNode;
+        int expectedCount = entries.size();
+        if (moreEntries instanceof Collection<?>) {
+            expectedCount += ((Collection<?>) moreEntries).size();
+        }
+        List<Pair<String, T>> entryList = new ArrayList<>(expectedCount);
+        for (Pair<String, T> entry : entries) {
+            entryList.add(entry);
+        }
+        if (moreEntries != null) {
+            for (Pair<String, T> entry : moreEntries) {
+                assert entry.key() != null : "Violation of: tag is not null";
+                assert entry.value() != null : "Violation of: value is not null";
+                entryList.add(entry);
+            }
+        }
+        Pair<String, T>[] sortedEntries = (Pair<String, T>[]) entryList
+                .toArray(new Pair<?, ?>[entryList.size()]);
+        Comparator<Pair<String, T>> byTag = (first, second) -> first.key()
+                .compareTo(second.key());
+        ForkJoinPool pool = null;
+        if (this.parallelBuildEnabled) {
+            pool = ForkJoinPool.commonPool();
+            Arrays.parallelSort(sortedEntries, byTag);
+        } else {
+            Arrays.sort(sortedEntries, byTag);
+        }
+
+        String[] tags = new String[sortedEntries.length];
+        T[] values = (T[]) new Object[sortedEntries.length];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = sortedEntries[i].key();
+            values[i] = sortedEntries[i].value();
+        }
+
+        String[] keys = tags;
+        this.normalizedTags = null;
+        if (this.tagNormalization != TagNormalization.NONE) {
+            /*
+             * Order the entries by normalized key, then by tag, which the
+             * stable sort keeps from the sort above; the structure holds each
+             * key once and the tags behind it are numbered in this order
+             */
+            String[] tagKeys = new String[tags.length];
+            Integer[] order = new Integer[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                tagKeys[i] = this.tagNormalization.normalize(tags[i]);
+                order[i] = i;
+            }
+            Comparator<Integer> byKey = (first, second) -> tagKeys[first]
+                    .compareTo(tagKeys[second]);
+            if (this.parallelBuildEnabled) {
+                Arrays.parallelSort(order, byKey);
+            } else {
+                Arrays.sort(order, byKey);
+            }
+            String[] keyedTags = new String[tags.length];
+            String[] sortedKeys = new String[tags.length];
+            T[] keyedValues = (T[]) new Object[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                keyedTags[i] = tags[order[i]];
+                sortedKeys[i] = tagKeys[order[i]];
+                keyedValues[i] = values[order[i]];
+            }
+            tags = keyedTags;
+            values = keyedValues;
+            keys = NormalizedTags.distinctKeys(sortedKeys);
+            this.normalizedTags = NormalizedTags.build(sortedKeys, tags);
+        }
+
+        if (this.dawgEnabled) {
+            /*
+             * Build the automaton straight from the tags, without the trie
+             */
+            this.searchStructure = Dawg.build(keys);
         } else {
+            SearchTrie trie = SearchTrie.build(keys, pool);
+            this.searchStructure = trie;
+            if (this.radixTrieEnabled) {
+                this.searchStructure = RadixTrie.build(trie);
+            } else if (this.offHeapStorageEnabled) {
+                trie.moveOffHeap();
+            }
+        }
+        this.searchValues = values;
+        if (this.substringIndexEnabled) {
+            this.substringIndex = SubstringIndex.build(keys);
+        }
+        if (this.gramIndexEnabled) {
+            this.gramIndex = GramIndex.build(keys);
+        }
+        if (this.deletionIndexDistance > 0) {
+            this.deletionIndex = DeletionIndex.build(keys,
+                    this.deletionIndexDistance);
+        }
+        if (this.relativeSearchStrategy == RelativeSearchStrategy.BK_TREE) {
+            this.bkTree = BkTree.build(keys);
+        }
+        if (this.completionWeigher != null && this.normalizedTags == null) {
             /*
-             * Iterate through the children and get the child node that matches
-             * with the prefix
+             * The tags are numbered in sorted order, so weights line up with
+             * values; a radix trie or DAWG gets a plain trie of its own
              */
-            for (char prefixChar : prefix.toCharArray()) {
-                currentNode = this.getChildNode(currentNode, prefixChar);
-                if (currentNode == null) {
-                    return null;
-                }
+            long[] weights = new long[values.length];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = this.completionWeigher.applyAsLong(values[i]);
             }
-            return currentNode;
+            this.completionIndex = CompletionIndex
+                    .build(this.searchStructure.toSearchTrie(), weights);
         }
+        if (this.metrics != null) {
+            this.metrics.recordBuild(System.nanoTime() - start);
+        }
+        this.structureChanged();
     }
 
     /**
-     * Collects all words from the trie that contain the specified substring.
+     * Drops the search helpers that cannot follow an update of the search
+     * structure made by {@code add} or {@code remove} in search mode.
      *
-     * @param node
-     *            the current node in the trie being traversed
-     * @param substring
-     *            the substring to search for within the words in the trie
-     * @param prefix
-     *            a StringBuilder used to construct the current word from the
-     *            root to the current node
-     * @param results
-     *            a list that accumulates the words that contain the substring
-     * @requires node != null && substring != null && results != null
-     * @ensures The results list contains all words from the trie that include
-     *          the specified substring, if any are found, in lexographical
-     *          order
+     * @updates this.substringIndex, this.gramIndex, this.deletionIndex,
+     *          this.bkTree, this.completionIndex, this.queryCache,
+     *          this.metrics
+     * @ensures this.substringIndex = null, this.gramIndex = null,
+     *          this.deletionIndex = null, this.bkTree = null,
+     *          this.completionIndex = null and this.queryCache is empty
      */
-    private void collectWordsContainingSubstring(Tree<TrieNode> node,
-            String substring, StringBuilder prefix, List<String> results) {
-        TrieNode rootNode = node.root();
+    private void searchStructureUpdated() {
+        this.substringIndex = null;
+        this.gramIndex = null;
+        this.deletionIndex = null;
+        this.bkTree = null;
+        this.completionIndex = null;
+        this.structureChanged();
+    }
 
-        /*
-         * If this node marks the end of a word, check if it contains the
-         * substring
-         */
-        if (rootNode.isEndOfWord && prefix.toString().contains(substring)) {
-            results.add(prefix.toString());
+    /**
+     * Drops every cached query result, if caching is enabled, and records the
+     * size of the new search structure, if metrics are enabled.
+     *
+     * @updates this.queryCache, this.metrics
+     * @ensures this.queryCache is empty
+     */
+    private void structureChanged() {
+        if (this.queryCache != null) {
+            this.queryCache.clear();
         }
-
-        Sequence<Tree<TrieNode>> children = node.newSequenceOfTree();
-        node.disassemble(children);
-
-        /*
-         * Iterate through and recurssively search all the children for words
-         * containing the substring
-         */
-        for (Tree<TrieNode> child : children) {
-            char ch = child.root().nodeChar;
-            this.collectWordsContainingSubstring(child, substring,
-                    new StringBuilder(prefix).append(ch), results);
+        if (this.metrics != null) {
+            this.metrics.structureChanged(this.searchStructure);
         }
-
-        node.assemble(rootNode, children);
     }
 
     /**
-     * Collects all words from a specified node downwards in the trie.
+     * Records one call to a query method, if metrics are enabled.
      *
-     * @param collectNode
-     *            the starting node
-     * @param prefix
-     *            the prefix of words collected so far
+     * @param operation
+     *            the query method called
+     * @param start
+     *            the {@code System.nanoTime} the call started at
      * @param results
-     *            the list to store results in
-     * @requires node != null and results != null
-     * @ensures {@code results} will contain all words from {@code node}
-     *          downward in the trie prefixed by {@code prefix}
+     *            the number of results
+     * @param nodes
+     *            the number of nodes visited, or
+     *            {@code SearchEngineMetrics.NOT_COUNTED}
      */
-    private void collectWordsFromNode(Tree<TrieNode> collectNode,
-            StringBuilder prefix, List<String> results) {
-
-        /*
-         * Starting node and base case
-         */
-        TrieNode rootNode = collectNode.root();
-        if (rootNode.isEndOfWord) {
-            results.add(prefix.toString());
-        }
-
-        Sequence<Tree<TrieNode>> children = collectNode.newSequenceOfTree();
-        collectNode.disassemble(children);
-
-        /*
-         * Iterate through the children and recurssivley collect the words for
-         * each node that matches the prefix
-         */
-        for (Tree<TrieNode> child : children) {
-            char ch = child.root().nodeChar;
-            this.collectWordsFromNode(child,
-                    new StringBuilder(prefix).append(ch), results);
+    private void recordQuery(SearchEngineMetrics.Operation operation,
+            long start, int results, int nodes) {
+        if (this.metrics != null) {
+            this.metrics.recordQuery(operation, System.nanoTime() - start,
+                    results, nodes);
         }
-
-        collectNode.assemble(rootNode, children);
     }
 
     /**
-     * Retrieves a specific character child node from the current node.
+     * Reports the time a query method started at, if metrics are enabled.
      *
-     * @param curNode
-     *            the node to retrieve the child from
-     * @param childChar
-     *            the character of the child node to retrieve
-     * @requires curNode != null
-     * @return The child node corresponding to {@code childChar}, or null if no
-     *         such child exists
-     * @ensures Returns the child node of {@code curNode} that matches
-     *          {@code childChar}, if present
+     * @return {@code System.nanoTime()}, or 0 if metrics are disabled
      */
-    private Tree<TrieNode> getChildNode(Tree<TrieNode> curNode,
-            char childChar) {
-
-        /*
-         * If the node is empty return null
-         */
-        if (curNode.size() == 0) {
-            return null;
+    private long queryStart() {
+        long start = 0;
+        if (this.metrics != null) {
+            start = System.nanoTime();
         }
+        return start;
+    }
 
-        Tree<TrieNode> returnNode = new Tree1<>();
-        Sequence<Tree<TrieNode>> children = curNode.newSequenceOfTree();
-        TrieNode curTrieNode = curNode.disassemble(children);
-
-        /*
-         * Iterate through the children of the node and find the coresponding
-         * child node
-         */
-        for (Tree<TrieNode> child : children) {
-            if (child.root().nodeChar == childChar) {
-                returnNode = child;
-                break;
-            }
+    /**
+     * Looks up the cached result of a query.
+     *
+     * @param kind
+     *            the kind of query
+     * @param text
+     *            the text argument of the query
+     * @param number
+     *            the number argument of the query, or 0 if it has none
+     * @return the cached result, or {@code QueryCache.MISS} if it is not
+     *         cached or caching is disabled
+     */
+    private Object cachedResult(char kind, String text, int number) {
+        Object result = QueryCache.MISS;
+        if (this.queryCache != null) {
+            result = this.queryCache.get(kind, text, number);
         }
+        return result;
+    }
 
-        curNode.assemble(curTrieNode, children);
-        return returnNode;
-    }
-
-    /**
-     * Finds the closest matching word in the trie by calculating the edit
-     * distance between the target word and potential matches. The search
-     * prioritizes matches that meet the closest distance criteria and have
-     * isEndOfWord = true.
-     *
-     * @param currentNode
-     *            the current node being traversed in the trie
-     * @param target
-     *            the target word to match
-     * @param currentIndex
-     *            the current index in the target word that is being compared
-     * @param currentDistance
-     *            the current edit distance accumulated from root to the current
-     *            node
-     * @param currentPath
-     *            the accumulated path string in the trie from the root to
-     *            current node
-     * @param closestMatch
-     *            the best match found so far that meets the closest criteria
-     * @param closestDistance
-     *            the edit distance of the closest match found so far
-     * @requires currentNode != null and target != null
-     * @return The closest matching word in the trie based on edit distance
-     * @ensures The closest match is the word with minimum edit distance to
-     *          {@code target}, or lexicographically first if there are multiple
-     *          matches with the same distance
-     */
-    private String findClosestMatch(Tree<TrieNode> curNode, String target,
-            int currentIndex, int currentDistance, StringBuilder currentPath,
-            String closestMatch, int closestDistance) {
-
-        if (curNode == null || curNode.size() == 0) {
-            return closestMatch; // Safeguard against empty trees
-        }
-
-        TrieNode rootNode = curNode.root();
-        Sequence<Tree<TrieNode>> children = curNode.newSequenceOfTree();
-        curNode.disassemble(children);
-
-        if (rootNode.isEndOfWord) {
-            int distance = this.calculateEditDistance(currentPath.toString(),
-                    target);
-            if (distance < closestDistance) {
-                closestDistance = distance;
-                closestMatch = currentPath.toString();
-            }
+    /**
+     * Caches the result of a query, if caching is enabled.
+     *
+     * @param kind
+     *            the kind of query
+     * @param text
+     *            the text argument of the query
+     * @param number
+     *            the number argument of the query, or 0 if it has none
+     * @param result
+     *            the result, which must not be changed afterwards
+     */
+    private void cacheResult(char kind, String text, int number,
+            Object result) {
+        if (this.queryCache != null) {
+            this.queryCache.put(kind, text, number, result);
         }
+    }
 
-        for (Tree<TrieNode> child : children) {
-            currentPath.append(child.root().nodeChar);
-            String result = this.findClosestMatch(child, target,
-                    currentIndex + 1, currentDistance, currentPath,
-                    closestMatch, closestDistance);
-            int resultDistance = this.calculateEditDistance(result, target);
-            if (resultDistance < closestDistance) {
-                closestMatch = result;
-                closestDistance = resultDistance;
-            }
-            currentPath.deleteCharAt(currentPath.length() - 1); // Backtrack
+    /**
+     * Decodes the values of {@code indexFile} into {@code searchValues}, so
+     * the search structure can be updated, if it was opened from a file.
+     *
+     * @updates this.searchValues, this.indexFile
+     * @ensures this.indexFile = null
+     */
+    private void loadIndexFileValues() {
+        if (this.indexFile != null) {
+            this.searchValues = this.indexFile.values();
+            this.indexFile = null;
         }
-
-        curNode.assemble(rootNode, children); // Reassemble the node
-
-        return closestMatch;
     }
 
     /**
-     * Calculates the edit distance (Levenshtein distance) between two strings,
-     * representing the minimum number of character insertions, deletions, or
-     * substitutions required to transform the source string into the target
-     * string.
+     * Readies the search structure for {@code insert} and {@code remove},
+     * turning it into a {@code SearchTrie} and loading the values of the
+     * index file it was opened from, if needed.
      *
-     * @param source
-     *            the source string to compare
-     * @param target
-     *            the target string to compare against
-     * @requires source != null and target != null
-     * @return The minimum edit distance between {@code source} and
-     *         {@code target}
-     * @ensures Returns the minimum number of edit operations needed to
-     *          transform {@code source} into {@code target}
+     * @return the search structure, as a {@code SearchTrie}
+     * @updates this.searchStructure, this.searchValues, this.indexFile
+     * @requires this.insertion_mode = false
+     * @ensures updatableTrie = this.searchStructure and this.indexFile = null
      */
-    private int calculateEditDistance(String source, String target) {
-        /*
-         * Initialize a 2D array to store the minimum edit distance between
-         * substrings of 'source' and 'target'. editDistance[i][j] will
-         * represent the edit distance between the first i characters of
-         * 'source' and the first j characters of 'target'.
-         */
-        int[][] editDistance = new int[source.length() + 1][target.length()
-                + 1];
+    private SearchTrie updatableTrie() {
+        this.loadIndexFileValues();
+        SearchTrie trie = this.searchStructure.toSearchTrie();
+        this.searchStructure = trie;
+        return trie;
+    }
 
-        /*
-         * Fill the first column: transforming the substring of 'source' up to i
-         * into an empty string requires i deletions.
-         */
-        for (int i = 0; i <= source.length(); i++) {
-            editDistance[i][0] = i;
+    /**
+     * Reports the value with entry number {@code tagEntry} in search mode.
+     *
+     * @param tagEntry
+     *            the entry number
+     * @return the value
+     * @requires this.insertion_mode = false and tagEntry is in use
+     */
+    private T searchValue(int tagEntry) {
+        T value;
+        if (this.indexFile != null) {
+            value = this.indexFile.value(tagEntry);
+        } else {
+            value = this.searchValues[tagEntry];
         }
+        return value;
+    }
 
-        /*
-         * Fill the first row: transforming an empty string into the substring
-         * of 'target' up to j requires j insertions.
-         */
-        for (int j = 0; j <= target.length(); j++) {
-            editDistance[0][j] = j;
+    /**
+     * Reports the text a query in search mode looks up for {@code text}: its
+     * normalized form if tags are normalized, else {@code text} itself.
+     *
+     * @param text
+     *            the text of the query
+     * @return the text to look up in the search structure
+     */
+    private String searchKey(String text) {
+        String key = text;
+        if (this.normalizedTags != null) {
+            key = this.tagNormalization.normalize(text);
         }
+        return key;
+    }
 
-        /*
-         * Compute edit distances for each substring combination of 'source' and
-         * 'target'.
-         */
-        for (int i = 1; i <= source.length(); i++) {
-            for (int j = 1; j <= target.length(); j++) {
-
-                /*
-                 * Determine the cost of replacing the current character. If
-                 * characters match, cost is 0; otherwise, the cost is 1
-                 * (substitution).
-                 */
-                int cost = (source.charAt(i - 1) == target.charAt(j - 1)) ? 0
-                        : 1;
-
-                /*
-                 * Update editDistance[i][j] as the minimum of three possible
-                 * operations: 1. Deletion from 'source': editDistance[i-1][j] +
-                 * 1 2. Insertion to 'source': editDistance[i][j-1] + 1 3.
-                 * Replacement in 'source' (or no change if characters are the
-                 * same): editDistance[i-1][j-1] + cost
-                 */
-                editDistance[i][j] = Math.min(
-                        Math.min(editDistance[i - 1][j] + 1, // deletion
-                                editDistance[i][j - 1] + 1), // insertion
-                        editDistance[i - 1][j - 1] + cost // replacement or match
-                );
-            }
+    /**
+     * Reports the tags found by a search of the search structure that
+     * produced {@code keys}.
+     *
+     * @param keys
+     *            the tags, or normalized keys, found in the search structure
+     * @return the tags behind {@code keys} if tags are normalized, else
+     *         {@code keys} itself
+     */
+    private List<String> tagsOf(List<String> keys) {
+        List<String> tags = keys;
+        if (this.normalizedTags != null) {
+            tags = new ArrayList<>(keys.size());
+            this.normalizedTags.addTags(this.searchStructure, keys, tags);
         }
+        return tags;
+    }
 
-        /*
-         * The edit distance between the full strings 'source' and 'target' is
-         * the value in the last cell, representing the minimum operations
-         * required to transform 'source' into 'target'.
-         */
-        return editDistance[source.length()][target.length()];
+    /**
+     * Reports where the value of {@code tag} is in {@code searchValues} in
+     * search mode: the entry number of the tag, or its tag number if tags are
+     * normalized.
+     *
+     * @param tag
+     *            the tag
+     * @return the index of the value of {@code tag}, or {@code NO_ENTRY} if
+     *         {@code tag} is not in this.entries
+     * @requires this.insertion_mode = false
+     */
+    private int valueIndexOf(String tag) {
+        int valueIndex;
+        if (this.normalizedTags == null) {
+            valueIndex = this.searchStructure.entryOf(tag);
+        } else {
+            int keyEntry = this.searchStructure
+                    .entryOf(this.tagNormalization.normalize(tag));
+            valueIndex = this.normalizedTags.tagNumber(keyEntry, tag);
+        }
+        return valueIndex;
     }
 
     /*
@@ -513,6 +593,8 @@ public class SimpleSearchEngine1L<T> extends SimpleSearchEngineSecondary<T> {
      * No argument Constructor.
      */
     public SimpleSearchEngine1L() {
+        this.tagNormalization = TagNormalization.NONE;
+        this.relativeSearchStrategy = RelativeSearchStrategy.SEARCH_STRUCTURE;
         this.createNewRep();
     }
 
@@ -552,123 +634,1253 @@ public class SimpleSearchEngine1L<T> extends SimpleSearchEngineSecondary<T> {
         this.entries = localSource.entries;
         this.insertionMode = localSource.insertionMode;
         this.searchStructure = localSource.searchStructure;
+        this.searchValues = localSource.searchValues;
+        this.tagNormalization = localSource.tagNormalization;
+        this.normalizedTags = localSource.normalizedTags;
+        this.indexFile = localSource.indexFile;
+        this.substringIndex = localSource.substringIndex;
+        this.substringIndexEnabled = localSource.substringIndexEnabled;
+        this.gramIndex = localSource.gramIndex;
+        this.gramIndexEnabled = localSource.gramIndexEnabled;
+        this.deletionIndex = localSource.deletionIndex;
+        this.deletionIndexDistance = localSource.deletionIndexDistance;
+        this.bkTree = localSource.bkTree;
+        this.relativeSearchStrategy = localSource.relativeSearchStrategy;
+        this.parallelBuildEnabled = localSource.parallelBuildEnabled;
+        this.radixTrieEnabled = localSource.radixTrieEnabled;
+        this.dawgEnabled = localSource.dawgEnabled;
+        this.offHeapStorageEnabled = localSource.offHeapStorageEnabled;
+        this.completionWeigher = localSource.completionWeigher;
+        this.completionIndex = localSource.completionIndex;
+        this.queryCache = null;
+        if (localSource.queryCache != null) {
+            /*
+             * Start from an empty cache of the same size, without sharing the
+             * source's
+             */
+            this.queryCache = new QueryCache(localSource.queryCache.capacity());
+        }
+        /*
+         * Keep this engine's own metrics, which may be registered with JMX,
+         * and only record the size of the structure taken over
+         */
+        this.structureChanged();
+        localSource.createNewRep();
     }
 
     /*
-     * Kernel methods ---------------------------------------------------------
+     * Configuration methods --------------------------------------------------
      */
 
-    @Override
-    public final void add(String tag, T value) {
-        assert this.insertionMode = true : "Violation of: source is in insertion mode";
-        assert tag != null : "Violation of: tag is not null";
-        assert value != null : "Violation of: value is not null";
+    /**
+     * Sets whether {@code changeToSearchMode} builds a suffix array over the
+     * tags, so {@code containsSearch} costs about
+     * O(|subString| log |this.entries| + matches) instead of a walk of the
+     * whole trie, at the cost of roughly ten bytes per tag character. The
+     * suffix array is dropped by the first {@code add} or {@code remove} in
+     * search mode, after which {@code containsSearch} walks the trie again.
+     * The setting is kept by {@code clear}.
+     *
+     * @param enabled
+     *            whether to build the suffix array
+     * @requires this.insertion_mode = true
+     */
+    public final void setSubstringIndexEnabled(boolean enabled) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
 
-        this.entries.add(tag, value);
+        this.substringIndexEnabled = enabled;
     }
 
-    @Override
-    public final Pair<String, T> remove(String tag) {
-        assert this.insertionMode = true : "Violation of: source is in insertion mode";
-        assert tag != null : "Violation of: tag is not null";
-        assert this.entries.size() > 0 : "Violation of: this.entries /= {}";
-
-        return this.entries.remove(tag);
+    /**
+     * Reports whether {@code changeToSearchMode} builds a suffix array over
+     * the tags.
+     *
+     * @return true iff the suffix array is enabled
+     */
+    public final boolean isSubstringIndexEnabled() {
+        return this.substringIndexEnabled;
     }
 
-    @Override
-    public final Pair<String, T> removeAny() {
-        assert this.insertionMode = true : "Violation of: source is in insertion mode";
-        assert this.entries.size() > 0 : "Violation of: this.entries /= {}";
+    /**
+     * Sets whether {@code changeToSearchMode} builds an inverted index from
+     * each trigram of the tags, padded at either end, to the tags holding it,
+     * with each list of tags compressed. {@code containsSearch} then only
+     * checks the tags holding every trigram of a substring of three or more
+     * characters, and {@code relativeSearch} and {@code suggestions} only
+     * compute the edit distance of tags sharing enough trigrams with the
+     * target to be close; trigrams only rule tags out up to about a third of
+     * the target's length in edits, so a search not answered within that
+     * distance walks the search structure as before. A suffix array, if
+     * enabled, answers {@code containsSearch} first. The trigram index is
+     * dropped by the first {@code add} or {@code remove} in search mode, and
+     * is not built by {@code openIndex}. The setting is kept by
+     * {@code clear}.
+     *
+     * @param enabled
+     *            whether to build the trigram index
+     * @requires this.insertion_mode = true
+     */
+    public final void setGramIndexEnabled(boolean enabled) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
 
-        return this.entries.removeAny();
+        this.gramIndexEnabled = enabled;
     }
 
-    @Override
-    public final T valueOf(String tag) {
-        assert tag != null : "Violation of: tag is not null";
-        assert this.entries.size() > 0 : "Violation of: this.entries /= {}";
-
-        return this.entries.value(tag);
+    /**
+     * Reports whether {@code changeToSearchMode} builds a trigram index over
+     * the tags.
+     *
+     * @return true iff the trigram index is enabled
+     */
+    public final boolean isGramIndexEnabled() {
+        return this.gramIndexEnabled;
     }
 
-    @Override
-    public final boolean contains(String tag) {
-        assert tag != null : "Violation of: tag is not null";
+    /**
+     * Sets the number of edits within which {@code changeToSearchMode}
+     * indexes the tags by their deletions, after the symmetric delete method
+     * of SymSpell: every string obtained by deleting up to
+     * {@code maxDistance} characters from a tag is hashed to the tag, so
+     * {@code relativeSearch} and {@code suggestions} look up the deletions of
+     * the target and only compute the edit distance of the tags found, instead
+     * of walking the search structure. A search the index cannot answer,
+     * because fewer than the tags wanted are within {@code maxDistance} edits
+     * and further ones are accepted, tries the trigram index, if enabled, and
+     * then the search structure. A tag of n characters has up to
+     * C(n, 0) + ... + C(n, maxDistance) deletions of eight bytes each, so the
+     * index grows quickly with the distance; {@code deletionIndexBytes} and
+     * {@code deletionIndexBuildMillis} report what it costs. A tag or target
+     * with more than 65536 deletions, which at distance 2 is one longer than
+     * 361 characters and at distance 3 one longer than 73, is left to the
+     * trigram index and the search structure, and no index is built if the
+     * deletions of all the tags would not fit in one array. The index is
+     * dropped by the first {@code add} or {@code remove} in search mode, and
+     * is not built by {@code openIndex}. 0, the default, builds no index. The
+     * setting is kept by {@code clear}.
+     *
+     * @param maxDistance
+     *            the number of edits to index, or 0 for no index
+     * @requires this.insertion_mode = true and maxDistance >= 0
+     */
+    public final void setDeletionIndexDistance(int maxDistance) {
+        assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
 
-        return this.entries.hasKey(tag);
+        this.deletionIndexDistance = maxDistance;
     }
 
-    @Override
-    public final void changeToSearchMode() {
-        assert this.insertionMode = true : "Violation of: source is in insertion mode";
-
-        this.insertionMode = false;
-        this.searchStructure = this.createTrie(this.entries);
+    /**
+     * Reports the number of edits within which {@code changeToSearchMode}
+     * indexes the tags by their deletions.
+     *
+     * @return the number of edits, or 0 if no index is built
+     */
+    public final int deletionIndexDistance() {
+        return this.deletionIndexDistance;
     }
 
-    @Override
-    public final boolean isInInsertionMode() {
-
-        return this.insertionMode;
+    /**
+     * Reports about how many bytes the deletion index takes, not counting the
+     * tags it shares with the search structure.
+     *
+     * @return the size of the index in bytes, or 0 if it is not built
+     */
+    public final long deletionIndexBytes() {
+        long bytes = 0;
+        if (this.deletionIndex != null) {
+            bytes = this.deletionIndex.memoryBytes();
+        }
+        return bytes;
     }
 
-    @Override
-    public final int size() {
+    /**
+     * Reports how long {@code changeToSearchMode} took to build the deletion
+     * index.
+     *
+     * @return the build time in milliseconds, or 0 if it is not built
+     */
+    public final double deletionIndexBuildMillis() {
+        final double nanosPerMilli = 1_000_000.0;
+
+        double millis = 0;
+        if (this.deletionIndex != null) {
+            millis = this.deletionIndex.buildNanos() / nanosPerMilli;
+        }
+        return millis;
+    }
+
+    /**
+     * Sets how {@code relativeSearch} and {@code suggestions} find the tags
+     * closest to a target. {@code SEARCH_STRUCTURE}, the default, walks the
+     * search structure, once the deletion and trigram indexes, if enabled,
+     * could not answer. {@code BK_TREE} makes {@code changeToSearchMode} also
+     * build a Burkhard-Keller tree over the tags, keyed on their edit
+     * distance, and searches it instead, using the triangle inequality to
+     * skip the subtrees that cannot hold a close enough tag; the other
+     * indexes are then left unused by these two searches. Either way, the
+     * same tags are found, closest first and lexicographically among equally
+     * close tags. The tree is dropped by the first {@code add} or
+     * {@code remove} in search mode, and is not built by {@code openIndex},
+     * after which the search structure is walked. The setting is kept by
+     * {@code clear}.
+     *
+     * @param strategy
+     *            how to find the closest tags
+     * @requires this.insertion_mode = true and strategy /= null
+     */
+    public final void setRelativeSearchStrategy(
+            RelativeSearchStrategy strategy) {
+        assert strategy != null : "Violation of: strategy is not null";
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.relativeSearchStrategy = strategy;
+    }
+
+    /**
+     * Reports how {@code relativeSearch} and {@code suggestions} find the
+     * tags closest to a target.
+     *
+     * @return the strategy of the closest tag searches
+     */
+    public final RelativeSearchStrategy relativeSearchStrategy() {
+        return this.relativeSearchStrategy;
+    }
+
+    /**
+     * Sets whether {@code changeToSearchMode} sorts the tags with
+     * {@code Arrays.parallelSort} and builds the subtries for different first
+     * characters in parallel on the common fork/join pool. The search
+     * structure built is the same either way; the parallel build only pays
+     * off for large sets of tags on machines with several cores. The setting
+     * is kept by {@code clear}.
+     *
+     * @param enabled
+     *            whether to build in parallel
+     * @requires this.insertion_mode = true
+     */
+    public final void setParallelBuildEnabled(boolean enabled) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.parallelBuildEnabled = enabled;
+    }
+
+    /**
+     * Reports whether {@code changeToSearchMode} builds the search structure
+     * in parallel.
+     *
+     * @return true iff the parallel build is enabled
+     */
+    public final boolean isParallelBuildEnabled() {
+        return this.parallelBuildEnabled;
+    }
+
+    /**
+     * Sets whether {@code changeToSearchMode} compresses the search structure
+     * into a radix trie, where every run of single-child nodes becomes one
+     * node labelled with the run's characters. Searches give the same results
+     * either way; the radix trie has far fewer nodes, so it takes less memory
+     * and fewer hops per query. The first {@code add} or {@code remove} in
+     * search mode turns it back into an ordinary trie. The setting is kept by
+     * {@code clear}. Enabling the radix trie disables the DAWG and off-heap
+     * storage.
+     *
+     * @param enabled
+     *            whether to build the radix trie
+     * @requires this.insertion_mode = true
+     */
+    public final void setRadixTrieEnabled(boolean enabled) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.radixTrieEnabled = enabled;
+        if (enabled) {
+            this.dawgEnabled = false;
+            this.offHeapStorageEnabled = false;
+        }
+    }
+
+    /**
+     * Reports whether {@code changeToSearchMode} compresses the search
+     * structure into a radix trie.
+     *
+     * @return true iff the radix trie is enabled
+     */
+    public final boolean isRadixTrieEnabled() {
+        return this.radixTrieEnabled;
+    }
+
+    /**
+     * Sets whether {@code changeToSearchMode} builds the search structure as
+     * a minimal acyclic automaton (DAWG), in which tags share their common
+     * suffixes as well as their common prefixes, for dictionaries too large
+     * for a trie. Values are found through each tag's position in
+     * lexicographical order, which the automaton computes from per-state tag
+     * counts. Searches give the same results either way. The first
+     * {@code add} or {@code remove} in search mode turns it back into an
+     * ordinary trie. The setting is kept by {@code clear}. Enabling the DAWG
+     * disables the radix trie and off-heap storage.
+     *
+     * @param enabled
+     *            whether to build the DAWG
+     * @requires this.insertion_mode = true
+     */
+    public final void setDawgEnabled(boolean enabled) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.dawgEnabled = enabled;
+        if (enabled) {
+            this.radixTrieEnabled = false;
+            this.offHeapStorageEnabled = false;
+        }
+    }
+
+    /**
+     * Reports whether {@code changeToSearchMode} builds the search structure
+     * as a DAWG.
+     *
+     * @return true iff the DAWG is enabled
+     */
+    public final boolean isDawgEnabled() {
+        return this.dawgEnabled;
+    }
+
+    /**
+     * Sets whether {@code changeToSearchMode} moves the nodes of the trie,
+     * which hold every character of every tag, into direct buffers outside
+     * the heap, so that with many millions of tags the garbage collector
+     * neither scans nor copies them and the heap stays about as large as the
+     * values alone. Queries read the buffers directly, and {@code add} and
+     * {@code remove} in search mode update them in place, growing them off
+     * the heap. The buffers are released once the engine lets go of them, by
+     * {@code clear}, {@code transferFrom} or {@code changeToSearchMode}, and
+     * the garbage collector finds them unreachable; their size counts
+     * against {@code -XX:MaxDirectMemorySize}. Values, and the tags held by
+     * the optional indexes and by tag normalization, stay on the heap. The
+     * setting is kept by {@code clear}. Enabling off-heap storage disables
+     * the radix trie and the DAWG, whose nodes are on the heap.
+     *
+     * @param enabled
+     *            whether to keep the trie off the heap
+     * @requires this.insertion_mode = true
+     */
+    public final void setOffHeapStorageEnabled(boolean enabled) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.offHeapStorageEnabled = enabled;
+        if (enabled) {
+            this.radixTrieEnabled = false;
+            this.dawgEnabled = false;
+        }
+    }
+
+    /**
+     * Reports whether {@code changeToSearchMode} moves the nodes of the trie
+     * outside the heap.
+     *
+     * @return true iff off-heap storage is enabled
+     */
+    public final boolean isOffHeapStorageEnabled() {
+        return this.offHeapStorageEnabled;
+    }
+
+    /**
+     * Sets how {@code changeToSearchMode} normalizes the tags before building
+     * the search structure, and every query in search mode its text, so that
+     * for example {@code "cafe"} finds {@code "Café"} and {@code "CAFÉ"}. The
+     * structure holds each normalized key once and maps it back to the tags
+     * that normalize to it, so the tags are normalized once at build time and
+     * queries return the original tags, ordered by normalized key and then
+     * lexicographically; the edit distances of {@code relativeSearch} and
+     * {@code suggestions} are between normalized forms. {@code contains},
+     * {@code valueOf}, {@code add} and {@code remove} still take the exact
+     * tag. {@code saveIndex} writes the original tags, and {@code openIndex}
+     * builds the keys from them. No completion index is built, so
+     * {@code topCompletions} weighs every tag with the prefix. {@code NONE},
+     * the default, compares tags as they are. The setting is kept by
+     * {@code clear}.
+     *
+     * @param normalization
+     *            how to normalize tags and queries
+     * @requires this.insertion_mode = true and normalization /= null
+     */
+    public final void setTagNormalization(TagNormalization normalization) {
+        assert normalization != null : "Violation of: normalization is not null";
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.tagNormalization = normalization;
+    }
+
+    /**
+     * Reports how {@code changeToSearchMode} normalizes the tags and queries.
+     *
+     * @return the normalization of tags and queries
+     */
+    public final TagNormalization tagNormalization() {
+        return this.tagNormalization;
+    }
+
+    /**
+     * Sets the number of query results cached in search mode, so repeated
+     * {@code prefixSearch}, {@code containsSearch}, {@code relativeSearch},
+     * {@code suggestions} and {@code topCompletions} calls are answered without
+     * walking the search structure. Once the cache is full the least recently
+     * used result is dropped. Cached results are dropped whenever the entries
+     * change in search mode, by {@code clear}, {@code transferFrom},
+     * {@code changeToSearchMode} and {@code openIndex}. Query threads share the
+     * cache under a lock. Setting the size drops every cached result and resets
+     * the hit and miss counts; 0 turns caching off, which is the default. The
+     * setting is kept by {@code clear}.
+     *
+     * @param capacity
+     *            the largest number of results to cache
+     * @requires capacity >= 0
+     */
+    public final void setQueryCacheCapacity(int capacity) {
+        assert capacity >= 0 : "Violation of: capacity >= 0";
+
+        this.queryCache = null;
+        if (capacity > 0) {
+            this.queryCache = new QueryCache(capacity);
+        }
+    }
+
+    /**
+     * Reports the number of query results cached in search mode.
+     *
+     * @return the capacity of the query cache, or 0 if caching is off
+     */
+    public final int queryCacheCapacity() {
+        int capacity = 0;
+        if (this.queryCache != null) {
+            capacity = this.queryCache.capacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * Reports the number of queries answered from the query cache since it
+     * was last sized.
+     *
+     * @return the number of cache hits
+     */
+    public final long queryCacheHits() {
+        long hits = 0;
+        if (this.queryCache != null) {
+            hits = this.queryCache.hits();
+        }
+        return hits;
+    }
+
+    /**
+     * Reports the number of queries the query cache could not answer since it
+     * was last sized.
+     *
+     * @return the number of cache misses
+     */
+    public final long queryCacheMisses() {
+        long misses = 0;
+        if (this.queryCache != null) {
+            misses = this.queryCache.misses();
+        }
+        return misses;
+    }
+
+    /**
+     * Sets whether call counts, latencies, result sizes and nodes visited of
+     * {@code prefixSearch}, {@code containsSearch}, {@code relativeSearch},
+     * {@code suggestions} and {@code topCompletions}, the build time of
+     * {@code changeToSearchMode} and the size of the search structure are
+     * recorded into {@code metrics()}. Enabling starts from empty metrics;
+     * disabling drops them, after which the queries read no clock at all, which
+     * is the default. Query threads record without a lock. The setting is kept
+     * by {@code clear}; {@code transferFrom} keeps the metrics of {@code this}.
+     *
+     * @param enabled
+     *            whether to record metrics
+     */
+    public final void setMetricsEnabled(boolean enabled) {
+        this.metrics = null;
+        if (enabled) {
+            this.metrics = new SearchEngineMetrics();
+            this.metrics.structureChanged(this.searchStructure);
+        }
+    }
+
+    /**
+     * Reports the metrics recorded since they were enabled or last reset.
+     *
+     * @return the metrics, or null if they are not recorded
+     */
+    public final SearchEngineMetrics metrics() {
+        return this.metrics;
+    }
+
+    /*
+     * Index file methods -----------------------------------------------------
+     */
+
+    /**
+     * Writes the entries of {@code this} to {@code file}, replacing it if it
+     * exists, so {@code openIndex} can later put them back in search mode
+     * without reading and sorting them again.
+     *
+     * @param file
+     *            the file to write
+     * @param encoder
+     *            turns a value into text that the decoder given to
+     *            {@code openIndex} turns back into an equal value
+     * @throws IOException
+     *             if the file cannot be written
+     * @requires this.insertion_mode = false
+     * @ensures file holds this.entries
+     */
+    @SuppressWarnings("unchecked")
+    public final void saveIndex(Path file, Function<? super T, String> encoder)
+            throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert encoder != null : "Violation of: encoder is not null";
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+
+        SearchTrie trie = this.searchStructure.toSearchTrie();
+        T[] values = this.searchValues;
+        if (this.indexFile != null) {
+            values = this.indexFile.values();
+        }
+        if (this.normalizedTags != null) {
+            /*
+             * The structure holds normalized keys, so write a trie of the
+             * tags themselves, numbered in lexicographical order
+             */
+            List<Pair<String, T>> entryList = new ArrayList<>(this.size());
+            this.visitEntries((tag, value) -> {
+                entryList.add(new SimplePair<T>(tag, value));
+                return true;
+            });
+            entryList.sort((first, second) -> first.key()
+                    .compareTo(second.key()));
+            String[] tags = new String[entryList.size()];
+            values = (T[]) new Object[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = entryList.get(i).key();
+                values[i] = entryList.get(i).value();
+            }
+            trie = SearchTrie.build(tags);
+        } else if (!trie.isCompact()) {
+            /*
+             * Removes left unused nodes and entry numbers behind, so write a
+             * freshly built copy instead
+             */
+            List<String> tagList = new ArrayList<>(trie.size());
+            trie.prefixSearch("", tagList);
+            String[] tags = tagList.toArray(new String[tagList.size()]);
+            T[] compactValues = (T[]) new Object[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                compactValues[i] = values[trie.entryOf(tags[i])];
+            }
+            trie = SearchTrie.build(tags);
+            values = compactValues;
+        }
+        SearchIndexFile.write(file, trie, values, encoder);
+    }
+
+    /**
+     * Puts {@code this} in search mode with the entries in {@code file},
+     * written by {@code saveIndex}. The file is memory-mapped rather than
+     * read, so this takes the same time for any number of entries: queries
+     * read the search structure straight from the mapped pages and decode a
+     * value each time it is asked for, and processes opening the same file
+     * share its pages. The first {@code add} or {@code remove} copies the
+     * entries to the heap. No suffix array is built for an opened file. If
+     * tags are normalized, the entries are instead decoded from the file and
+     * the search structure is built from them as by
+     * {@code changeToSearchMode}.
+     *
+     * @param file
+     *            the file to open
+     * @param decoder
+     *            turns the text of a value back into a value
+     * @throws IOException
+     *             if the file cannot be read or was not written by
+     *             {@code saveIndex}
+     * @updates this
+     * @requires this.insertion_mode = true and this.entries = {}
+     * @ensures this.insertion_mode = false and this.entries = [the entries
+     *          in file]
+     */
+    public final void openIndex(Path file,
+            Function<String, ? extends T> decoder) throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert decoder != null : "Violation of: decoder is not null";
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+        assert this.entries.size() == 0 : "Violation of: this.entries = {}";
+
+        SearchIndexFile<T> opened = SearchIndexFile.open(file, decoder);
+        this.insertionMode = false;
+        if (this.tagNormalization == TagNormalization.NONE) {
+            this.indexFile = opened;
+            this.searchStructure = opened.trie();
+            this.searchValues = null;
+            this.substringIndex = null;
+            this.gramIndex = null;
+            this.deletionIndex = null;
+            this.bkTree = null;
+            this.completionIndex = null;
+            this.structureChanged();
+        } else {
+            /*
+             * The file holds the tags themselves, so the normalized keys are
+             * built from its entries
+             */
+            T[] values = opened.values();
+            List<Pair<String, T>> fileEntries = new ArrayList<>(values.length);
+            opened.trie().visitTags((tag, tagEntry) -> {
+                fileEntries.add(new SimplePair<T>(tag, values[tagEntry]));
+                return true;
+            });
+            this.createTrie(this.entries, fileEntries);
+        }
+    }
+
+    /*
+     * Weighted completion methods --------------------------------------------
+     */
+
+    /**
+     * Sets the weight of each entry used by {@code topCompletions}, computed
+     * from its value by {@code weigher}, for example a popularity count held
+     * in the value. With a weigher set, {@code changeToSearchMode} records at
+     * every trie node the heaviest tag below it, at the cost of about
+     * sixteen bytes per node and tag, so {@code topCompletions} finds the
+     * heaviest completions of a prefix without collecting every tag with the
+     * prefix. A radix trie or DAWG search structure gets a plain trie of its
+     * own for this. The first {@code add} or {@code remove} in search mode
+     * drops the record, as does {@code openIndex}, after which
+     * {@code topCompletions} weighs every tag with the prefix. Null, the
+     * default, leaves the entries unweighted. The setting is kept by
+     * {@code clear}.
+     *
+     * @param weigher
+     *            computes the weight of an entry from its value, or null
+     * @requires this.insertion_mode = true
+     */
+    public final void setCompletionWeigher(
+            ToLongFunction<? super T> weigher) {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        this.completionWeigher = weigher;
+    }
+
+    /**
+     * Reports the weigher of the entries used by {@code topCompletions}.
+     *
+     * @return the weigher, or null if the entries are not weighted
+     */
+    public final ToLongFunction<? super T> completionWeigher() {
+        return this.completionWeigher;
+    }
+
+    /**
+     * Returns the {@code count} {@code tag}'s in this.entries with the prefix
+     * {@code prefix} that weigh the most, as weighed by
+     * {@code completionWeigher()}
+     *
+     * @param prefix
+     *            the prefix to be completed
+     * @param count
+     *            the number of completions wanted
+     * @requires <pre> this.insertionMode == false, count > 0 and
+     *           completionWeigher() /= null
+     * @return A list of the min(count, n) heaviest of the n tags in
+     *         this.entries with the prefix {@code prefix}
+     * @ensures The returned list is ordered by decreasing weight, and
+     *          lexicographically among tags of equal weight, and no tag with
+     *          {@code prefix} left out of it weighs more than the last tag
+     *          in it
+     */
+    @SuppressWarnings("unchecked")
+    public final List<String> topCompletions(String prefix, int count) {
+        assert prefix != null : "Violation of: prefix is not null";
+        assert count > 0 : "Violation of: count > 0";
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert this.completionWeigher != null : "Violation of: completionWeigher() /= null";
+
+        long start = this.queryStart();
+        String key = this.searchKey(prefix);
+        Object cached = this.cachedResult(QueryCache.TOP_COMPLETIONS, key,
+                count);
+        List<String> results;
+        int nodes = 0;
+        if (cached != QueryCache.MISS) {
+            results = new ArrayList<>((List<String>) cached);
+        } else {
+            results = new ArrayList<>(count);
+            if (this.completionIndex != null) {
+                nodes = this.completionIndex.topCompletions(prefix, count,
+                        results);
+            } else {
+                this.weighCompletions(key, count, results);
+                nodes = SearchEngineMetrics.NOT_COUNTED;
+            }
+            this.cacheResult(QueryCache.TOP_COMPLETIONS, key, count,
+                    List.copyOf(results));
+        }
+        this.recordQuery(SearchEngineMetrics.Operation.TOP_COMPLETIONS, start,
+                results.size(), nodes);
+        return results;
+    }
+
+    /**
+     * Finds the {@code count} heaviest tags with {@code prefix} by weighing
+     * every tag with {@code prefix}, for when there is no completion index.
+     *
+     * @param prefix
+     *            the prefix to be completed, normalized if tags are
+     * @param count
+     *            the number of completions wanted
+     * @param results
+     *            the list to store results in
+     * @requires this.insertion_mode = false and count > 0
+     * @ensures {@code results} is extended as {@code topCompletions} orders
+     *          its result
+     */
+    private void weighCompletions(String prefix, int count,
+            List<String> results) {
+        List<String> keys = new ArrayList<>();
+        this.searchStructure.prefixSearch(prefix, keys);
+        List<String> tags = this.tagsOf(keys);
+        long[] weights = new long[tags.size()];
+        Integer[] order = new Integer[tags.size()];
+        for (int i = 0; i < order.length; i++) {
+            int valueIndex = this.valueIndexOf(tags.get(i));
+            weights[i] = this.completionWeigher
+                    .applyAsLong(this.searchValue(valueIndex));
+            order[i] = i;
+        }
+
+        /*
+         * The tags come sorted and the sort is stable, so equal weights stay
+         * in the order of the search
+         */
+        Arrays.sort(order, (first, second) -> Long.compare(weights[second],
+                weights[first]));
+        for (int i = 0; i < Math.min(count, order.length); i++) {
+            results.add(tags.get(order[i]));
+        }
+    }
 
-        return this.entries.size();
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String tag, T value) {
+        assert tag != null : "Violation of: tag is not null";
+        assert value != null : "Violation of: value is not null";
+
+        if (this.insertionMode) {
+            this.entries.add(tag, value);
+        } else {
+            assert !this.contains(tag) : "Violation of: tag is not in this.entries";
+
+            /*
+             * Only the missing end of the tag's path is added to the trie
+             */
+            SearchTrie trie = this.updatableTrie();
+            int valueIndex;
+            if (this.normalizedTags == null) {
+                valueIndex = trie.insert(tag);
+            } else {
+                /*
+                 * A tag with a new key also adds the key to the trie
+                 */
+                String key = this.tagNormalization.normalize(tag);
+                int keyEntry = trie.entryOf(key);
+                if (keyEntry == SearchStructure.NO_ENTRY) {
+                    keyEntry = trie.insert(key);
+                }
+                valueIndex = this.normalizedTags.insert(keyEntry, tag);
+            }
+            if (valueIndex >= this.searchValues.length) {
+                this.searchValues = Arrays.copyOf(this.searchValues,
+                        Math.max(2 * this.searchValues.length,
+                                valueIndex + 1));
+            }
+            this.searchValues[valueIndex] = value;
+            this.searchStructureUpdated();
+        }
+    }
+
+    @Override
+    public final Pair<String, T> remove(String tag) {
+        assert tag != null : "Violation of: tag is not null";
+        assert this.size() > 0 : "Violation of: this.entries /= {}";
+
+        Pair<String, T> removed;
+        if (this.insertionMode) {
+            removed = this.entries.remove(tag);
+        } else {
+            assert this.contains(tag) : "Violation of: tag is in this.entries";
+
+            /*
+             * The trie drops the tag's end of word mark and prunes the part
+             * of its path that no longer leads to a tag
+             */
+            SearchTrie trie = this.updatableTrie();
+            int valueIndex;
+            if (this.normalizedTags == null) {
+                valueIndex = trie.remove(tag);
+            } else {
+                /*
+                 * The key leaves the trie with the last tag behind it
+                 */
+                String key = this.tagNormalization.normalize(tag);
+                int keyEntry = trie.entryOf(key);
+                valueIndex = this.normalizedTags.remove(keyEntry, tag);
+                if (this.normalizedTags.tagCount(keyEntry) == 0) {
+                    trie.remove(key);
+                }
+            }
+            removed = new SimplePair<T>(tag, this.searchValues[valueIndex]);
+            this.searchValues[valueIndex] = null;
+            this.searchStructureUpdated();
+        }
+        return removed;
+    }
+
+    @Override
+    public final Pair<String, T> removeAny() {
+        assert this.size() > 0 : "Violation of: this.entries /= {}";
+
+        Pair<String, T> removed;
+        if (this.insertionMode) {
+            removed = this.entries.removeAny();
+        } else {
+            removed = this.remove(this.prefixSearchIterator("", null).next());
+        }
+        return removed;
+    }
+
+    @Override
+    public final T valueOf(String tag) {
+        assert tag != null : "Violation of: tag is not null";
+        assert this.size() > 0 : "Violation of: this.entries /= {}";
+
+        T value;
+        if (this.insertionMode) {
+            value = this.entries.value(tag);
+        } else {
+            int valueIndex = this.valueIndexOf(tag);
+            assert valueIndex != SearchStructure.NO_ENTRY : "Violation of: tag is in this.entries";
+            value = this.searchValue(valueIndex);
+        }
+        return value;
+    }
+
+    @Override
+    public final boolean contains(String tag) {
+        assert tag != null : "Violation of: tag is not null";
+
+        boolean result;
+        if (this.insertionMode) {
+            result = this.entries.hasKey(tag);
+        } else {
+            result = this.valueIndexOf(tag) != SearchStructure.NO_ENTRY;
+        }
+        return result;
     }
 
+    @Override
+    public final void changeToSearchMode() {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        /*
+         * The entries move into the search structure, which queries only
+         * read, so queries from any number of threads need no locking
+         */
+        this.insertionMode = false;
+        this.createTrie(this.entries, null);
+        this.entries = new Map4<String, T>();
+    }
+
+    @Override
+    public final void changeToSearchMode(
+            Iterable<? extends Pair<String, T>> newEntries) {
+        assert newEntries != null : "Violation of: newEntries is not null";
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        /*
+         * The new entries go straight into the array the trie is built from,
+         * without passing through the map
+         */
+        this.insertionMode = false;
+        this.createTrie(this.entries, newEntries);
+        this.entries = new Map4<String, T>();
+    }
+
+    @Override
+    public final void addAll(Iterable<? extends Pair<String, T>> newEntries) {
+        assert newEntries != null : "Violation of: newEntries is not null";
+
+        if (this.insertionMode && this.entries.size() == 0
+                && newEntries instanceof Collection<?>) {
+            /*
+             * Size the hash table for all the new entries up front rather
+             * than letting it grow; a few entries fit the default table
+             */
+            int newCount = ((Collection<?>) newEntries).size();
+            if (newCount > DEFAULT_HASH_TABLE_SIZE) {
+                this.entries = new Map4<String, T>(newCount);
+            }
+        }
+        for (Pair<String, T> entry : newEntries) {
+            this.add(entry.key(), entry.value());
+        }
+    }
+
+    @Override
+    public final boolean isInInsertionMode() {
+
+        return this.insertionMode;
+    }
+
+    @Override
+    public final int size() {
+
+        int size;
+        if (this.insertionMode) {
+            size = this.entries.size();
+        } else if (this.normalizedTags != null) {
+            size = this.normalizedTags.size();
+        } else {
+            size = this.searchStructure.size();
+        }
+        return size;
+    }
+
+    @Override
+    public final boolean visitEntries(EntryVisitor<? super T> visitor) {
+        assert visitor != null : "Violation of: visitor is not null";
+
+        boolean complete = true;
+        if (this.insertionMode) {
+            /*
+             * The map's iterator hands out its own pairs, so nothing is
+             * removed or copied
+             */
+            Iterator<Pair<String, T>> it = this.entries.iterator();
+            while (complete && it.hasNext()) {
+                Pair<String, T> entry = it.next();
+                complete = visitor.visit(entry.key(), entry.value());
+            }
+        } else if (this.normalizedTags == null) {
+            complete = this.searchStructure.visitTags(
+                    (tag, tagEntry) -> visitor.visit(tag,
+                            this.searchValue(tagEntry)));
+        } else {
+            NormalizedTags tags = this.normalizedTags;
+            complete = this.searchStructure.visitTags((key, keyEntry) -> {
+                boolean more = true;
+                for (int i = 0; more && i < tags.tagCount(keyEntry); i++) {
+                    more = visitor.visit(tags.tagAt(keyEntry, i),
+                            this.searchValue(tags.tagNumberAt(keyEntry, i)));
+                }
+                return more;
+            });
+        }
+        return complete;
+    }
+
+    @SuppressWarnings("unchecked")
     @Override
     public final List<String> prefixSearch(String prefix) {
         assert this.insertionMode != true : "Violation of: source is not in insertion mode";
 
-        List<String> results = new ArrayList<>();
-        Tree<TrieNode> node = this.findNodeForPrefix(prefix);
+        /*
+         * The cache keeps its own copy, since callers may change the list
+         */
+        long start = this.queryStart();
+        String key = this.searchKey(prefix);
+        Object cached = this.cachedResult(QueryCache.PREFIX_SEARCH, key, 0);
+        List<String> results;
+        int nodes = 0;
+        if (cached != QueryCache.MISS) {
+            results = new ArrayList<>((List<String>) cached);
+        } else {
+            results = new ArrayList<>();
+            nodes = this.searchStructure.prefixSearch(key, results);
+            results = this.tagsOf(results);
+            this.cacheResult(QueryCache.PREFIX_SEARCH, key, 0,
+                    List.copyOf(results));
+        }
+        this.recordQuery(SearchEngineMetrics.Operation.PREFIX_SEARCH, start,
+                results.size(), nodes);
 
-        if (node != null) {
-            this.collectWordsFromNode(node, new StringBuilder(prefix), results);
+        return results;
+    }
+
+    @Override
+    public final List<List<String>> prefixSearchBatch(List<String> prefixes) {
+        assert prefixes != null : "Violation of: prefixes is not null";
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+
+        /*
+         * One pass over the sorted prefixes: each search starts from the path
+         * it shares with the previous prefix, and a prefix inside an earlier
+         * one takes its tags from that prefix's results
+         */
+        long start = this.queryStart();
+        int[] nodes = new int[prefixes.size()];
+        List<List<String>> results;
+        if (this.normalizedTags == null) {
+            results = this.searchStructure.prefixSearchBatch(prefixes, nodes);
+        } else {
+            List<String> keys = new ArrayList<>(prefixes.size());
+            for (String prefix : prefixes) {
+                keys.add(this.tagNormalization.normalize(prefix));
+            }
+            results = this.searchStructure.prefixSearchBatch(keys, nodes);
+            for (int i = 0; i < results.size(); i++) {
+                results.set(i, this.tagsOf(results.get(i)));
+            }
+        }
+
+        /*
+         * Each prefix counts as one prefixSearch call, taking an equal share
+         * of the time the batch took
+         */
+        if (this.metrics != null && !prefixes.isEmpty()) {
+            long nanos = (System.nanoTime() - start) / prefixes.size();
+            for (int i = 0; i < results.size(); i++) {
+                this.metrics.recordQuery(
+                        SearchEngineMetrics.Operation.PREFIX_SEARCH, nanos,
+                        results.get(i).size(), nodes[i]);
+            }
         }
         return results;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public List<String> containsSearch(String substring) {
         assert this.insertionMode != true : "Violation of: source is not in insertion mode";
 
-        List<String> results = new ArrayList<>();
+        long start = this.queryStart();
+        String key = this.searchKey(substring);
+        Object cached = this.cachedResult(QueryCache.CONTAINS_SEARCH, key, 0);
+        List<String> results;
+        int nodes = 0;
+        if (cached != QueryCache.MISS) {
+            results = new ArrayList<>((List<String>) cached);
+        } else {
+            /*
+             * The suffix and trigram indexes have no nodes; they report the
+             * candidates they examined instead
+             */
+            results = new ArrayList<>();
+            if (this.substringIndex != null) {
+                nodes = this.substringIndex.containsSearch(key, results);
+            } else if (this.gramIndex != null
+                    && key.length() >= GramIndex.GRAM_LENGTH) {
+                nodes = this.gramIndex.containsSearch(key, results);
+            } else {
+                nodes = this.searchStructure.containsSearch(key, results);
+            }
+            results = this.tagsOf(results);
+            this.cacheResult(QueryCache.CONTAINS_SEARCH, key, 0,
+                    List.copyOf(results));
+        }
+        this.recordQuery(SearchEngineMetrics.Operation.CONTAINS_SEARCH, start,
+                results.size(), nodes);
 
-        this.collectWordsContainingSubstring(this.searchStructure, substring,
-                new StringBuilder(), results);
+        return results;
+    }
 
+    @Override
+    public final Iterator<String> prefixSearchIterator(String prefix,
+            String after) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert prefix != null : "Violation of: prefix is not null";
+
+        Iterator<String> results;
+        if (this.normalizedTags == null) {
+            results = this.searchStructure.prefixSearchIterator(prefix, after);
+        } else {
+            /*
+             * Tags behind the key of after that come after it are still to
+             * come, ahead of the keys after it
+             */
+            String key = this.tagNormalization.normalize(prefix);
+            String afterKey = null;
+            if (after != null) {
+                afterKey = this.tagNormalization.normalize(after);
+            }
+            Iterator<String> keys = this.searchStructure
+                    .prefixSearchIterator(key, afterKey);
+            String firstKey = null;
+            if (afterKey != null && afterKey.startsWith(key)) {
+                firstKey = afterKey;
+            }
+            results = this.normalizedTags.tagIterator(this.searchStructure,
+                    keys, firstKey, after);
+        }
         return results;
     }
 
     @Override
-    public String relativeSearch(String relativeTag) {
+    public final Iterator<String> containsSearchIterator(String substring,
+            String after) {
         assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert substring != null : "Violation of: substring is not null";
 
-        return this.findClosestMatch(this.searchStructure, relativeTag, 0, 0,
-                new StringBuilder(), null, Integer.MAX_VALUE);
+        String key = this.searchKey(substring);
+        String afterKey = after;
+        if (after != null) {
+            afterKey = this.searchKey(after);
+        }
+        Iterator<String> results;
+        if (this.substringIndex != null) {
+            results = this.substringIndex.containsSearchIterator(key,
+                    afterKey);
+        } else if (this.gramIndex != null
+                && key.length() >= GramIndex.GRAM_LENGTH) {
+            results = this.gramIndex.containsSearchIterator(key, afterKey);
+        } else {
+            results = this.searchStructure.containsSearchIterator(key,
+                    afterKey);
+        }
+        if (this.normalizedTags != null) {
+            String firstKey = null;
+            if (afterKey != null && afterKey.contains(key)) {
+                firstKey = afterKey;
+            }
+            results = this.normalizedTags.tagIterator(this.searchStructure,
+                    results, firstKey, after);
+        }
+        return results;
     }
 
-    private void printTrie(Tree<TrieNode> node, StringBuilder currentWord,
-            int depth) {
-        // Create an indentation based on the current depth
-        String indent = " ".repeat(depth * 2); // 2 spaces per depth level
+    @Override
+    public String relativeSearch(String relativeTag) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
 
-        System.out.println(indent + "Character: " + node.root().nodeChar
-                + ", Is End of Word: " + node.root().isEndOfWord);
+        return this.relativeSearch(relativeTag, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String relativeSearch(String relativeTag, int maxDistance) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+
+        long start = this.queryStart();
+        String key = this.searchKey(relativeTag);
+        Object cached = this.cachedResult(QueryCache.RELATIVE_SEARCH, key,
+                maxDistance);
+        String result;
+        int nodes = 0;
+        if (cached != QueryCache.MISS) {
+            result = (String) cached;
+        } else {
+            /*
+             * A Burkhard-Keller tree always answers; the deletion and trigram
+             * indexes answer only when they can rule out every tag they leave
+             * out
+             */
+            List<SearchStructure.Match> closest = null;
+            nodes = SearchEngineMetrics.NOT_COUNTED;
+            if (this.bkTree != null) {
+                closest = this.bkTree.closestMatches(key, 1, maxDistance);
+            } else if (this.deletionIndex != null) {
+                closest = this.deletionIndex.closestMatches(key, 1,
+                        maxDistance);
+            }
+            if (closest == null && this.gramIndex != null) {
+                closest = this.gramIndex.closestMatches(key, 1, maxDistance);
+            }
+            if (closest == null) {
+                SearchStructure.ClosestMatch search = this.searchStructure
+                        .closestMatches(key, 1, maxDistance);
+                closest = search.closest();
+                nodes = search.nodesVisited();
+            }
+            result = null;
+            if (!closest.isEmpty()) {
+                result = closest.get(0).tag();
+                if (this.normalizedTags != null) {
+                    result = this.normalizedTags
+                            .tagAt(closest.get(0).entry(), 0);
+                }
+            }
+            this.cacheResult(QueryCache.RELATIVE_SEARCH, key, maxDistance,
+                    result);
+        }
+        int found = 0;
+        if (result != null) {
+            found = 1;
+        }
+        this.recordQuery(SearchEngineMetrics.Operation.RELATIVE_SEARCH, start,
+                found, nodes);
+        return result;
+    }
 
-        Sequence<Tree<TrieNode>> children = new Sequence3<>();
-        node.disassemble(children);
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Suggestion<T>> suggestions(String relativeTag, int count) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert count > 0 : "Violation of: count > 0";
+
+        long start = this.queryStart();
+        String key = this.searchKey(relativeTag);
+        Object cached = this.cachedResult(QueryCache.SUGGESTIONS, key, count);
+        List<Suggestion<T>> results;
+        int nodes = 0;
+        if (cached != QueryCache.MISS) {
+            results = new ArrayList<>((List<Suggestion<T>>) cached);
+        } else {
+            List<SearchStructure.Match> matches = null;
+            nodes = SearchEngineMetrics.NOT_COUNTED;
+            if (this.bkTree != null) {
+                matches = this.bkTree.closestMatches(key, count,
+                        Integer.MAX_VALUE);
+            } else if (this.deletionIndex != null) {
+                matches = this.deletionIndex.closestMatches(key, count,
+                        Integer.MAX_VALUE);
+            }
+            if (matches == null && this.gramIndex != null) {
+                matches = this.gramIndex.closestMatches(key, count,
+                        Integer.MAX_VALUE);
+            }
+            if (matches == null) {
+                SearchStructure.ClosestMatch search = this.searchStructure
+                        .closestMatches(key, count, Integer.MAX_VALUE);
+                matches = search.closest();
+                nodes = search.nodesVisited();
+            }
 
-        for (int i = 0; i < children.length(); i++) {
-            Tree<TrieNode> child = children.entry(i);
-            currentWord.append(child.root().nodeChar);
-            // Increase depth by 1 for child nodes
-            this.printTrie(child, currentWord, depth + 1);
-            currentWord.setLength(currentWord.length() - 1); // Backtrack
+            results = new ArrayList<>(matches.size());
+            for (SearchStructure.Match match : matches) {
+                if (this.normalizedTags == null) {
+                    results.add(new SimpleSuggestion<T>(match.tag(),
+                            this.searchValue(match.entry()),
+                            match.distance()));
+                } else {
+                    /*
+                     * Every tag behind a key is as close as the key
+                     */
+                    NormalizedTags tags = this.normalizedTags;
+                    for (int i = 0; i < tags.tagCount(match.entry())
+                            && results.size() < count; i++) {
+                        results.add(new SimpleSuggestion<T>(
+                                tags.tagAt(match.entry(), i),
+                                this.searchValue(
+                                        tags.tagNumberAt(match.entry(), i)),
+                                match.distance()));
+                    }
+                }
+            }
+            this.cacheResult(QueryCache.SUGGESTIONS, key, count,
+                    List.copyOf(results));
         }
+        this.recordQuery(SearchEngineMetrics.Operation.SUGGESTIONS, start,
+                results.size(), nodes);
+        return results;
     }
 }
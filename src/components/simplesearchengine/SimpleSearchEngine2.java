@@ -0,0 +1,644 @@
+package components.simplesearchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import components.map.Map.Pair;
+
+/**
+ * {@code SimpleSearchEngine} partitioned into a fixed number of
+ * {@code SimpleSearchEngine1L} shards, with implementations of primary
+ * methods. Each tag belongs to exactly one shard, chosen either by the hash of
+ * the tag or by the range of tags it falls in.
+ *
+ * @param <T>
+ *            type of {@code SimpleSearchEngine} entries
+ *
+ * @mathsubtypes <pre>
+ * SIMPLE_SEARCH_ENGINE_2_MODEL is (
+ *   insertion_mode: boolean,
+ *   entries: finite map of type (String, T),
+ *   searchStructure: one SimpleSearchEngine1L per shard, holding the entries
+ *      whose tags belong to the shard
+ *  )
+ * </pre>
+ * @mathmodel type SimpleSearchEngine2<T> is modeled by
+ *            SIMPLE_SEARCH_ENGINE_2_MODEL
+ *
+ *            <p>
+ *            {@code add}, {@code remove}, {@code contains} and
+ *            {@code valueOf} go to the shard owning the tag.
+ *            {@code changeToSearchMode} and {@code addAll} fill the shards at
+ *            once, and {@code prefixSearch}, {@code containsSearch},
+ *            {@code relativeSearch} and {@code suggestions} query every shard
+ *            at once, on the common fork/join pool: the sorted results of the
+ *            shards are merged, and the closest matches of the shards are
+ *            reduced to the closest overall. Like {@code SimpleSearchEngine1L},
+ *            an instance in search mode may be queried from any number of
+ *            threads at once without locking.
+ *            </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public class SimpleSearchEngine2<T> extends SimpleSearchEngineSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Insertion mode.
+     */
+    private boolean insertionMode;
+
+    /**
+     * Number of shards.
+     */
+    private int shardCount;
+
+    /**
+     * Lowest tag of each shard but the first, in increasing order, or null if
+     * tags are given to shards by hash.
+     */
+    private String[] splitTags;
+
+    /**
+     * The shards; shard i holds the entries whose tags {@code shardOf} maps
+     * to i.
+     */
+    private SimpleSearchEngine1L<T>[] shards;
+
+    /**
+     * Merges iterators producing elements in increasing order into one
+     * iterator producing all their elements in increasing order.
+     *
+     * @param <E>
+     *            type of the elements
+     */
+    private static final class MergingIterator<E> implements Iterator<E> {
+
+        /**
+         * The next element of one of the iterators merged, with the rest of
+         * that iterator.
+         *
+         * @param <E>
+         *            type of the elements
+         */
+        private static final class Head<E> {
+
+            /**
+             * The next element.
+             */
+            private E element;
+
+            /**
+             * The elements after it.
+             */
+            private final Iterator<? extends E> rest;
+
+            /**
+             * Constructor.
+             *
+             * @param element
+             *            the next element
+             * @param rest
+             *            the elements after it
+             */
+            private Head(E element, Iterator<? extends E> rest) {
+                this.element = element;
+                this.rest = rest;
+            }
+
+        }
+
+        /**
+         * The head of every iterator that is not used up, smallest first.
+         */
+        private final PriorityQueue<Head<E>> heads;
+
+        /**
+         * Constructor.
+         *
+         * @param iterators
+         *            the iterators to merge
+         * @param order
+         *            the order the iterators produce their elements in
+         */
+        private MergingIterator(List<? extends Iterator<? extends E>> iterators,
+                Comparator<? super E> order) {
+            this.heads = new PriorityQueue<>(Math.max(1, iterators.size()),
+                    (first, second) -> order.compare(first.element,
+                            second.element));
+            for (Iterator<? extends E> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    this.heads.add(new Head<E>(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.heads.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (this.heads.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Head<E> head = this.heads.remove();
+            E result = head.element;
+            if (head.rest.hasNext()) {
+                head.element = head.rest.next();
+                this.heads.add(head);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Order of suggestions: by edit distance, then lexicographically by tag.
+     */
+    private static final Comparator<Suggestion<?>> CLOSEST_FIRST = Comparator
+            .<Suggestion<?>> comparingInt(Suggestion::distance)
+            .thenComparing(Suggestion::tag);
+
+    /**
+     * Creator of initial representation.
+     */
+    @SuppressWarnings("unchecked")
+    private void createNewRep() {
+        this.insertionMode = true;
+        Object[] newShards = new SimpleSearchEngine1L<?>[this.shardCount];
+        this.shards = (SimpleSearchEngine1L<T>[]) newShards;
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new SimpleSearchEngine1L<T>();
+        }
+    }
+
+    /*
+     * Shard Helper Methods ---------------------------------------------------
+     */
+
+    /**
+     * Reports the shard owning {@code tag}.
+     *
+     * @param tag
+     *            the tag
+     * @return the index of the shard that holds {@code tag} if it is in
+     *         this.entries
+     */
+    private int shardOf(String tag) {
+        int shard;
+        if (this.splitTags == null) {
+            /*
+             * Mix the high bits of the hash into the low bits the modulus
+             * keeps
+             */
+            int hash = tag.hashCode();
+            shard = Math.floorMod(hash ^ (hash >>> 16), this.shardCount);
+        } else {
+            /*
+             * Shard i holds the tags from splitTags[i - 1] up to, but not
+             * including, splitTags[i]
+             */
+            int position = Arrays.binarySearch(this.splitTags, tag);
+            if (position >= 0) {
+                shard = position + 1;
+            } else {
+                shard = -position - 1;
+            }
+        }
+        return shard;
+    }
+
+    /**
+     * Runs {@code action} on the index of every shard at once.
+     *
+     * @param action
+     *            the action, which may change only the shard it is given
+     */
+    private void forEachShard(IntConsumer action) {
+        IntStream.range(0, this.shards.length).parallel().forEach(action);
+    }
+
+    /**
+     * Runs {@code query} on every shard at once.
+     *
+     * @param <R>
+     *            type of the result of the query
+     * @param query
+     *            the query, which must not change the shard it is given
+     * @return the result of the query on each shard, in shard order
+     */
+    private <R> List<R> queryShards(
+            Function<SimpleSearchEngine1L<T>, R> query) {
+        return Arrays.stream(this.shards).parallel().map(query)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Splits {@code newEntries} by the shard owning their tags.
+     *
+     * @param newEntries
+     *            the entries to split
+     * @return the entries owned by each shard, in shard order
+     */
+    private List<List<Pair<String, T>>> partition(
+            Iterable<? extends Pair<String, T>> newEntries) {
+        List<List<Pair<String, T>>> parts = new ArrayList<>(this.shardCount);
+        for (int i = 0; i < this.shardCount; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (Pair<String, T> entry : newEntries) {
+            assert entry.key() != null : "Violation of: tag is not null";
+            assert entry.value() != null : "Violation of: value is not null";
+            parts.get(this.shardOf(entry.key())).add(entry);
+        }
+        return parts;
+    }
+
+    /**
+     * Merges the lexicographically sorted tags found by each shard into one
+     * sorted list.
+     *
+     * @param found
+     *            the tags found by each shard, in shard order
+     * @return all the tags in lexicographical order
+     */
+    private List<String> mergeTags(List<List<String>> found) {
+        int total = 0;
+        List<Iterator<String>> iterators = new ArrayList<>(found.size());
+        for (List<String> tags : found) {
+            total += tags.size();
+            iterators.add(tags.iterator());
+        }
+
+        List<String> merged = new ArrayList<>(total);
+        if (this.splitTags != null) {
+            /*
+             * Range shards are already in order, so their results only need
+             * to be put one after the other
+             */
+            for (List<String> tags : found) {
+                merged.addAll(tags);
+            }
+        } else {
+            Iterator<String> tags = new MergingIterator<String>(iterators,
+                    Comparator.naturalOrder());
+            while (tags.hasNext()) {
+                merged.add(tags.next());
+            }
+        }
+        return merged;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor: tags are given by hash to one shard per
+     * available processor.
+     */
+    public SimpleSearchEngine2() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for {@code shardCount} shards, to which tags are given by
+     * hash.
+     *
+     * @param shardCount
+     *            the number of shards
+     * @requires shardCount > 0
+     */
+    public SimpleSearchEngine2(int shardCount) {
+        assert shardCount > 0 : "Violation of: shardCount > 0";
+
+        this.shardCount = shardCount;
+        this.splitTags = null;
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor for one shard per range of tags: the first shard holds the
+     * tags before {@code splitTags[0]}, shard i the tags from
+     * {@code splitTags[i - 1]} up to, but not including, {@code splitTags[i]},
+     * and the last shard the tags from the last split tag on. The ranges
+     * should hold about as many tags each for the shards to share the work.
+     *
+     * @param splitTags
+     *            the lowest tag of each shard but the first
+     * @requires splitTags is in strictly increasing lexicographical order
+     */
+    public SimpleSearchEngine2(String... splitTags) {
+        assert splitTags != null : "Violation of: splitTags is not null";
+        for (int i = 1; i < splitTags.length; i++) {
+            assert splitTags[i - 1].compareTo(splitTags[i]) < 0 : ""
+                    + "Violation of: splitTags is in strictly increasing order";
+        }
+
+        this.shardCount = splitTags.length + 1;
+        this.splitTags = splitTags.clone();
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final SimpleSearchEngine2<T> newInstance() {
+        /*
+         * The new instance is sharded the same way as this one
+         */
+        SimpleSearchEngine2<T> instance;
+        if (this.splitTags == null) {
+            instance = new SimpleSearchEngine2<T>(this.shardCount);
+        } else {
+            instance = new SimpleSearchEngine2<T>(this.splitTags);
+        }
+        return instance;
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final void transferFrom(Object source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof SimpleSearchEngine2<?> : ""
+                + "Violation of: source is of dynamic type SimpleSearchEngine2<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * SimpleSearchEngine2<?>, and the ? must be T or the call would not
+         * have compiled.
+         */
+        SimpleSearchEngine2<T> localSource = (SimpleSearchEngine2<T>) source;
+        this.insertionMode = localSource.insertionMode;
+        this.shardCount = localSource.shardCount;
+        this.splitTags = localSource.splitTags;
+        this.shards = localSource.shards;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String tag, T value) {
+        assert tag != null : "Violation of: tag is not null";
+        assert value != null : "Violation of: value is not null";
+
+        this.shards[this.shardOf(tag)].add(tag, value);
+    }
+
+    @Override
+    public final Pair<String, T> remove(String tag) {
+        assert tag != null : "Violation of: tag is not null";
+        assert this.size() > 0 : "Violation of: this.entries /= {}";
+
+        return this.shards[this.shardOf(tag)].remove(tag);
+    }
+
+    @Override
+    public final Pair<String, T> removeAny() {
+        assert this.size() > 0 : "Violation of: this.entries /= {}";
+
+        int shard = 0;
+        while (this.shards[shard].size() == 0) {
+            shard++;
+        }
+        return this.shards[shard].removeAny();
+    }
+
+    @Override
+    public final T valueOf(String tag) {
+        assert tag != null : "Violation of: tag is not null";
+        assert this.size() > 0 : "Violation of: this.entries /= {}";
+
+        return this.shards[this.shardOf(tag)].valueOf(tag);
+    }
+
+    @Override
+    public final boolean contains(String tag) {
+        assert tag != null : "Violation of: tag is not null";
+
+        return this.shards[this.shardOf(tag)].contains(tag);
+    }
+
+    @Override
+    public final void changeToSearchMode() {
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        /*
+         * Each shard builds its own search structure, all at once
+         */
+        this.insertionMode = false;
+        this.forEachShard(i -> this.shards[i].changeToSearchMode());
+    }
+
+    @Override
+    public final void changeToSearchMode(
+            Iterable<? extends Pair<String, T>> newEntries) {
+        assert newEntries != null : "Violation of: newEntries is not null";
+        assert this.insertionMode == true : "Violation of: source is in insertion mode";
+
+        List<List<Pair<String, T>>> parts = this.partition(newEntries);
+        this.insertionMode = false;
+        this.forEachShard(i -> this.shards[i].changeToSearchMode(parts.get(i)));
+    }
+
+    @Override
+    public final void addAll(Iterable<? extends Pair<String, T>> newEntries) {
+        assert newEntries != null : "Violation of: newEntries is not null";
+
+        List<List<Pair<String, T>>> parts = this.partition(newEntries);
+        this.forEachShard(i -> this.shards[i].addAll(parts.get(i)));
+    }
+
+    @Override
+    public final boolean isInInsertionMode() {
+        return this.insertionMode;
+    }
+
+    @Override
+    public final int size() {
+        int size = 0;
+        for (SimpleSearchEngine1L<T> shard : this.shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public final boolean visitEntries(EntryVisitor<? super T> visitor) {
+        assert visitor != null : "Violation of: visitor is not null";
+
+        boolean complete = true;
+        if (this.insertionMode || this.splitTags != null) {
+            /*
+             * Range shards are in order, so visiting them one after the other
+             * visits the tags in lexicographical order in search mode
+             */
+            int shard = 0;
+            while (complete && shard < this.shards.length) {
+                complete = this.shards[shard].visitEntries(visitor);
+                shard++;
+            }
+        } else {
+            Iterator<String> tags = this.prefixSearchIterator("", null);
+            while (complete && tags.hasNext()) {
+                String tag = tags.next();
+                complete = visitor.visit(tag,
+                        this.shards[this.shardOf(tag)].valueOf(tag));
+            }
+        }
+        return complete;
+    }
+
+    @Override
+    public final List<String> prefixSearch(String prefix) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+
+        return this.mergeTags(
+                this.queryShards(shard -> shard.prefixSearch(prefix)));
+    }
+
+    @Override
+    public final List<List<String>> prefixSearchBatch(List<String> prefixes) {
+        assert prefixes != null : "Violation of: prefixes is not null";
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+
+        List<List<List<String>>> found = this
+                .queryShards(shard -> shard.prefixSearchBatch(prefixes));
+
+        List<List<String>> results = new ArrayList<>(prefixes.size());
+        List<List<String>> shardTags = new ArrayList<>(this.shardCount);
+        for (int i = 0; i < prefixes.size(); i++) {
+            shardTags.clear();
+            for (List<List<String>> shardResults : found) {
+                shardTags.add(shardResults.get(i));
+            }
+            results.add(this.mergeTags(shardTags));
+        }
+        return results;
+    }
+
+    @Override
+    public final List<String> containsSearch(String substring) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+
+        return this.mergeTags(
+                this.queryShards(shard -> shard.containsSearch(substring)));
+    }
+
+    @Override
+    public final Iterator<String> prefixSearchIterator(String prefix,
+            String after) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert prefix != null : "Violation of: prefix is not null";
+
+        List<Iterator<String>> iterators = new ArrayList<>(this.shardCount);
+        for (SimpleSearchEngine1L<T> shard : this.shards) {
+            iterators.add(shard.prefixSearchIterator(prefix, after));
+        }
+        return new MergingIterator<String>(iterators,
+                Comparator.naturalOrder());
+    }
+
+    @Override
+    public final Iterator<String> containsSearchIterator(String substring,
+            String after) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert substring != null : "Violation of: substring is not null";
+
+        List<Iterator<String>> iterators = new ArrayList<>(this.shardCount);
+        for (SimpleSearchEngine1L<T> shard : this.shards) {
+            iterators.add(shard.containsSearchIterator(substring, after));
+        }
+        return new MergingIterator<String>(iterators,
+                Comparator.naturalOrder());
+    }
+
+    @Override
+    public final String relativeSearch(String relativeTag) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+
+        return this.relativeSearch(relativeTag, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public final String relativeSearch(String relativeTag, int maxDistance) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert maxDistance >= 0 : "Violation of: maxDistance >= 0";
+
+        List<String> closest = this.queryShards(
+                shard -> shard.relativeSearch(relativeTag, maxDistance));
+
+        /*
+         * Keep the closest of the shards' closest tags, lexicographically
+         * first among ties, as one search over all the tags would
+         */
+        String best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (String tag : closest) {
+            if (tag != null) {
+                int distance = SearchTrie.calculateEditDistance(relativeTag,
+                        tag);
+                if (distance < bestDistance || (distance == bestDistance
+                        && tag.compareTo(best) < 0)) {
+                    best = tag;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public final List<Suggestion<T>> suggestions(String relativeTag,
+            int count) {
+        assert this.insertionMode != true : "Violation of: source is not in insertion mode";
+        assert count > 0 : "Violation of: count > 0";
+
+        List<List<Suggestion<T>>> found = this
+                .queryShards(shard -> shard.suggestions(relativeTag, count));
+
+        /*
+         * Each shard's suggestions are closest first, so the count closest
+         * overall are the first count of their merge
+         */
+        List<Iterator<Suggestion<T>>> iterators = new ArrayList<>(
+                found.size());
+        for (List<Suggestion<T>> suggestions : found) {
+            iterators.add(suggestions.iterator());
+        }
+        Iterator<Suggestion<T>> merged = new MergingIterator<Suggestion<T>>(
+                iterators, CLOSEST_FIRST);
+        List<Suggestion<T>> results = new ArrayList<>(count);
+        while (results.size() < count && merged.hasNext()) {
+            results.add(merged.next());
+        }
+        return results;
+    }
+
+}
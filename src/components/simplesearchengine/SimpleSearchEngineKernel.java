@@ -1,5 +1,6 @@
 package components.simplesearchengine;
 
+import java.util.Iterator;
 import java.util.List;
 
 import components.map.Map.Pair;
@@ -28,7 +29,63 @@ import components.standard.Standard;
 public interface SimpleSearchEngineKernel<T> extends Standard {
 
     /**
-     * Adds {@code (tag, value)} to the entries of {@code this}.
+     * A tag suggested by a fuzzy search, with its value and its edit distance
+     * from the searched tag.
+     *
+     * @param <T>
+     *            type of the value
+     */
+    interface Suggestion<T> {
+
+        /**
+         * Returns the suggested tag.
+         *
+         * @return the suggested tag
+         */
+        String tag();
+
+        /**
+         * Returns the value associated with the suggested tag.
+         *
+         * @return the value of the suggested tag
+         */
+        T value();
+
+        /**
+         * Returns the edit distance between the suggested tag and the searched
+         * tag.
+         *
+         * @return the edit distance
+         */
+        int distance();
+
+    }
+
+    /**
+     * Visitor of the entries of a {@code SimpleSearchEngineKernel}, called
+     * once per {@code (tag, value)} pair.
+     *
+     * @param <T>
+     *            type of the value
+     */
+    interface EntryVisitor<T> {
+
+        /**
+         * Visits one entry.
+         *
+         * @param tag
+         *            the tag of the entry
+         * @param value
+         *            the value of the entry
+         * @return whether to go on to the next entry
+         */
+        boolean visit(String tag, T value);
+
+    }
+
+    /**
+     * Adds {@code (tag, value)} to the entries of {@code this}, in either
+     * mode.
      *
      * @param tag
      *            the tag of the element to be added
@@ -40,7 +97,8 @@ public interface SimpleSearchEngineKernel<T> extends Standard {
     void add(String tag, T value);
 
     /**
-     * Removes {@code (tag, value)} from the entries of {@code this}.
+     * Removes {@code (tag, value)} from the entries of {@code this}, in either
+     * mode.
      *
      * @param tag
      *            the tag of the element to be removed
@@ -52,7 +110,8 @@ public interface SimpleSearchEngineKernel<T> extends Standard {
     Pair<String, T> remove(String tag);
 
     /**
-     * Removes any {@code (tag, value)} from the entries of {@code this}.
+     * Removes any {@code (tag, value)} from the entries of {@code this}, in
+     * either mode.
      *
      * @requires <pre> this.entries /= {}
      * @updates this.entries
@@ -108,6 +167,22 @@ public interface SimpleSearchEngineKernel<T> extends Standard {
      */
     int size();
 
+    /**
+     * Calls {@code visitor} on the entries of {@code this}, one at a time,
+     * until it returns false or every entry has been visited, without
+     * changing {@code this}. Entries are visited in lexicographical order of
+     * their tags in search mode, and in no particular order in insertion
+     * mode.
+     *
+     * @param visitor
+     *            the visitor to call on each entry
+     * @return true iff {@code visitor} returned true for every entry
+     * @requires {@code visitor} does not change {@code this}
+     * @ensures visitEntries = [visitor returned true for every (tag, value)
+     *          in this.entries]
+     */
+    boolean visitEntries(EntryVisitor<? super T> visitor);
+
     /**
      * Searches this.entries for {@code relTag} and returns the {@code tag}
      * value in {@code searchStructure} with the closest match
@@ -122,6 +197,41 @@ public interface SimpleSearchEngineKernel<T> extends Standard {
      */
     String relativeSearch(String relTag);
 
+    /**
+     * Searches this.entries for {@code relTag} and returns the {@code tag}
+     * value in {@code searchStructure} with the closest match, among the tags
+     * that are at most {@code maxDistance} edits away from {@code relTag}
+     *
+     * @param relTag
+     *            the relTag of the element to be searched for
+     * @param maxDistance
+     *            the largest edit distance accepted
+     * @requires <pre> this.insertionMode == false and maxDistance >= 0
+     * @return The closest tag within {@code maxDistance} edits of
+     *         {@code relTag}, or null if there is none
+     * @ensures returned String is the closest match to {@code relTag} in
+     *          this.entries, lexicographically first among equally close
+     *          matches, if it is within {@code maxDistance} edits
+     */
+    String relativeSearch(String relTag, int maxDistance);
+
+    /**
+     * Searches this.entries for {@code relTag} and returns the {@code count}
+     * closest matching {@code tag}'s with their values and edit distances
+     *
+     * @param relTag
+     *            the relTag of the element to be searched for
+     * @param count
+     *            the number of suggestions wanted
+     * @requires <pre> this.insertionMode == false and count > 0
+     * @return A list of the min(count, |this.entries|) closest tags to
+     *         {@code relTag}, each with its value and edit distance
+     * @ensures The returned list is ordered by edit distance to
+     *          {@code relTag}, and lexicographically among equally close tags,
+     *          and no tag left out of it is closer than the last tag in it
+     */
+    List<Suggestion<T>> suggestions(String relTag, int count);
+
     /**
      * Searches this.entries for {@code tag} that have {@code prefix} and
      * returns a list of all the {@code tag}'s in this.entries with the entered
@@ -154,4 +264,45 @@ public interface SimpleSearchEngineKernel<T> extends Standard {
      */
     List<String> containsSearch(String subString);
 
+    /**
+     * Returns an iterator producing, lazily and in lexicographical order, the
+     * {@code tag}'s in this.entries with the prefix {@code prefix} that come
+     * lexicographically after {@code after}
+     *
+     * @param prefix
+     *            the prefix to be searched for
+     * @param after
+     *            the last tag already seen, or null to start from the first
+     *            tag
+     * @requires <pre> this.insertionMode == false and {@code this} is not
+     *           changed while the iterator is in use
+     * @return An iterator over the tags with the prefix {@code prefix} after
+     *         {@code after}
+     * @ensures The iterator produces, in lexographical order, every
+     *          {@code tag} in this.entries that has {@code prefix} and is
+     *          after {@code after}, doing only enough work per call to find
+     *          the next one
+     */
+    Iterator<String> prefixSearchIterator(String prefix, String after);
+
+    /**
+     * Returns an iterator producing, in lexicographical order, the
+     * {@code tag}'s in this.entries that contain {@code subString} and come
+     * lexicographically after {@code after}
+     *
+     * @param subString
+     *            the subString to be searched for
+     * @param after
+     *            the last tag already seen, or null to start from the first
+     *            tag
+     * @requires <pre> this.insertionMode == false and {@code this} is not
+     *           changed while the iterator is in use
+     * @return An iterator over the tags containing {@code subString} after
+     *         {@code after}
+     * @ensures The iterator produces, in lexographical order, every
+     *          {@code tag} in this.entries that contains {@code subString}
+     *          and is after {@code after}
+     */
+    Iterator<String> containsSearchIterator(String subString, String after);
+
 }
@@ -1,7 +1,8 @@
 package components.simplesearchengine;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import components.map.Map.Pair;
@@ -21,9 +22,251 @@ public abstract class SimpleSearchEngineSecondary<T>
      * Public members ---------------------------------------------------------
      */
 
+    /**
+     * Simple class representing a (tag, value) pair.
+     *
+     * @param <T>
+     *            type of the value
+     */
+    protected static final class SimplePair<T> implements Pair<String, T> {
+
+        /**
+         * The tag.
+         */
+        private final String tag;
+
+        /**
+         * The value.
+         */
+        private final T value;
+
+        /**
+         * Constructor.
+         *
+         * @param tag
+         *            the tag
+         * @param value
+         *            the value
+         */
+        public SimplePair(String tag, T value) {
+            this.tag = tag;
+            this.value = value;
+        }
+
+        @Override
+        public String key() {
+            return this.tag;
+        }
+
+        @Override
+        public T value() {
+            return this.value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Pair<?, ?>)) {
+                return false;
+            }
+            Pair<?, ?> pair = (Pair<?, ?>) obj;
+            return this.tag.equals(pair.key())
+                    && this.value.equals(pair.value());
+        }
+
+        @Override
+        public int hashCode() {
+            final int a = 37;
+            final int b = 17;
+            return a * this.tag.hashCode() + b * this.value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.tag + ", " + this.value + ")";
+        }
+
+    }
+
+    /**
+     * Simple class representing a fuzzy search suggestion.
+     *
+     * @param <T>
+     *            type of the value
+     */
+    protected static final class SimpleSuggestion<T> implements Suggestion<T> {
+
+        /**
+         * The suggested tag.
+         */
+        private final String tag;
+
+        /**
+         * The value of the suggested tag.
+         */
+        private final T value;
+
+        /**
+         * The edit distance from the searched tag.
+         */
+        private final int distance;
+
+        /**
+         * Constructor.
+         *
+         * @param tag
+         *            the suggested tag
+         * @param value
+         *            the value of the suggested tag
+         * @param distance
+         *            the edit distance from the searched tag
+         */
+        public SimpleSuggestion(String tag, T value, int distance) {
+            this.tag = tag;
+            this.value = value;
+            this.distance = distance;
+        }
+
+        @Override
+        public String tag() {
+            return this.tag;
+        }
+
+        @Override
+        public T value() {
+            return this.value;
+        }
+
+        @Override
+        public int distance() {
+            return this.distance;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Suggestion<?>)) {
+                return false;
+            }
+            Suggestion<?> suggestion = (Suggestion<?>) obj;
+            return this.tag.equals(suggestion.tag())
+                    && this.value.equals(suggestion.value())
+                    && this.distance == suggestion.distance();
+        }
+
+        @Override
+        public int hashCode() {
+            final int a = 37;
+            final int b = 17;
+            return a * (a * this.tag.hashCode() + b * this.value.hashCode())
+                    + this.distance;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.tag + ", " + this.value + ", " + this.distance
+                    + ")";
+        }
+
+    }
+
+    /*
+     * Secondary methods -------------------------------------------------------
+     */
+
+    /**
+     * Takes at most {@code limit} tags from {@code tags}.
+     *
+     * @param tags
+     *            the tags to take from
+     * @param limit
+     *            the largest number of tags wanted
+     * @return the first min(limit, |tags|) tags
+     * @updates tags
+     */
+    private static List<String> page(Iterator<String> tags, int limit) {
+        List<String> page = new ArrayList<>(Math.min(limit, 16));
+        while (page.size() < limit && tags.hasNext()) {
+            page.add(tags.next());
+        }
+        return page;
+    }
+
+    @Override
+    public List<String> prefixSearch(String prefix, String after, int limit) {
+        assert prefix != null : "Violation of: prefix is not null";
+        assert !this.isInInsertionMode() : "Violation of: source is not in insertion mode";
+        assert limit >= 0 : "Violation of: limit >= 0";
+
+        return page(this.prefixSearchIterator(prefix, after), limit);
+    }
+
+    @Override
+    public List<String> containsSearch(String subString, String after,
+            int limit) {
+        assert subString != null : "Violation of: subString is not null";
+        assert !this.isInInsertionMode() : "Violation of: source is not in insertion mode";
+        assert limit >= 0 : "Violation of: limit >= 0";
+
+        return page(this.containsSearchIterator(subString, after), limit);
+    }
+
+    @Override
+    public List<List<String>> prefixSearchBatch(List<String> prefixes) {
+        assert prefixes != null : "Violation of: prefixes is not null";
+        assert !this.isInInsertionMode() : "Violation of: source is not in insertion mode";
+
+        List<List<String>> results = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            results.add(this.prefixSearch(prefix));
+        }
+        return results;
+    }
+
+    @Override
+    public void addAll(Iterable<? extends Pair<String, T>> newEntries) {
+        assert newEntries != null : "Violation of: newEntries is not null";
+
+        for (Pair<String, T> entry : newEntries) {
+            this.add(entry.key(), entry.value());
+        }
+    }
+
+    @Override
+    public void changeToSearchMode(
+            Iterable<? extends Pair<String, T>> newEntries) {
+        assert newEntries != null : "Violation of: newEntries is not null";
+        assert this.isInInsertionMode() : "Violation of: source is in insertion mode";
+
+        this.addAll(newEntries);
+        this.changeToSearchMode();
+    }
+
     /*
      * Common methods (from Object) -------------------------------------------
      */
+
+    /**
+     * Appends {@code (tag, value)} to {@code result}.
+     *
+     * @param result
+     *            the string being built
+     * @param tag
+     *            the tag
+     * @param value
+     *            the value
+     * @updates result
+     */
+    private static void appendEntry(StringBuilder result, String tag,
+            Object value) {
+        result.append('(').append(tag).append(", ").append(value)
+                .append(')');
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder("(");
@@ -35,61 +278,38 @@ public abstract class SimpleSearchEngineSecondary<T>
         } else {
             if (this.isInInsertionMode()) {
                 /*
-                 * Loop through and get all tags in the sse
+                 * Gather the tags without touching the entries, then sort them
+                 * by lexicographical order
                  */
-                List<String> allTags = new ArrayList<>();
-                List<Pair<String, T>> allPairs = new ArrayList<>();
-                while (this.size() > 0) {
-                    Pair<String, T> tempPair = this.removeAny();
-                    allTags.add(tempPair.key());
-                    allPairs.add(tempPair);
-                }
+                String[] allTags = new String[this.size()];
+                int[] count = { 0 };
+                this.visitEntries((tag, value) -> {
+                    allTags[count[0]] = tag;
+                    count[0]++;
+                    return true;
+                });
+                Arrays.sort(allTags);
 
-                /*
-                 * Add the pairs back to sse
-                 */
-                for (int i = 0; i < allPairs.size(); i++) {
-                    this.add(allPairs.get(i).key(), allPairs.get(i).value());
-                }
-
-                /*
-                 * Sort the tags by lexographical order (can't sort pairs)
-                 */
-                Collections.sort(allTags);
-
-                /*
-                 * Add the tags and tag values to the string
-                 */
-                for (int i = 0; i < allTags.size() - 1; i++) {
-                    String tag = allTags.get(i);
-                    result.append("(" + tag + ", " + this.valueOf(tag) + "), ");
+                for (int i = 0; i < allTags.length; i++) {
+                    if (i > 0) {
+                        result.append(", ");
+                    }
+                    appendEntry(result, allTags[i], this.valueOf(allTags[i]));
                 }
-                /*
-                 * Add last tag, value pair
-                 */
-                result.append("(" + allTags.get(allTags.size() - 1) + ", "
-                        + this.valueOf(allTags.get(allTags.size() - 1)) + "))");
-
-                allPairs.clear();
-                allTags.clear();
-
             } else {
                 /*
-                 * Get all the tags in a list and loop through it
+                 * Search mode visits the entries in lexicographical order
                  */
-                List<String> allTags = this.prefixSearch("");
-                for (int i = 0; i < allTags.size() - 1; i++) {
-                    String tag = allTags.get(i);
-                    result.append("(" + tag + ", " + this.valueOf(tag) + "), ");
-                }
-                /*
-                 * Add last tag, value pair
-                 */
-                result.append("(" + allTags.get(allTags.size() - 1) + ", "
-                        + this.valueOf(allTags.get(allTags.size() - 1)) + "))");
-
-                allTags.clear();
+                int start = result.length();
+                this.visitEntries((tag, value) -> {
+                    if (result.length() > start) {
+                        result.append(", ");
+                    }
+                    appendEntry(result, tag, value);
+                    return true;
+                });
             }
+            result.append(')');
         }
 
         return result.toString();
@@ -104,7 +324,7 @@ public abstract class SimpleSearchEngineSecondary<T>
         if (refObject == null) {
             return false;
         }
-        if (!(refObject instanceof SimpleSearchEngine1L<?>)) {
+        if (!(refObject instanceof SimpleSearchEngine<?>)) {
             return false;
         }
 
@@ -120,58 +340,25 @@ public abstract class SimpleSearchEngineSecondary<T>
         }
 
         /*
-         * Check tag equalities, we can do this because we know their both in
-         * insertion mode or they're both not
+         * Same size, so equal iff every entry of this is in sse; the visit
+         * stops at the first entry that is not
          */
-        if (this.isInInsertionMode()) {
-            /*
-             * Loop through and get all tags in the sse
-             */
-            List<Pair<String, T>> allPairs = new ArrayList<>();
-            while (this.size() > 0) {
-                allPairs.add(this.removeAny());
-            }
-
-            /*
-             * Check if the refObject contains what it needs to
-             */
-            for (int i = 0; i < allPairs.size(); i++) {
-                if (!(sse.contains(allPairs.get(i).key())) || !(allPairs.get(i)
-                        .value().equals(sse.valueOf(allPairs.get(i).key())))) {
-                    return false;
-                }
-            }
-
-            /*
-             * Add the pairs back to this
-             */
-            for (int i = 0; i < allPairs.size(); i++) {
-                this.add(allPairs.get(i).key(), allPairs.get(i).value());
-            }
-
-            allPairs.clear();
-
-        } else {
-            /*
-             * Get all the tags in a list and loop through it
-             */
-            List<String> allTags = this.prefixSearch("");
-            for (int i = 0; i < allTags.size(); i++) {
-                /*
-                 * Compare each tag and it's value for equivalence, return false
-                 * if they don't match
-                 */
-                if (!(sse.contains(allTags.get(i)))
-                        || !(this.valueOf(allTags.get(i))
-                                .equals(sse.valueOf(allTags.get(i))))) {
-                    return false;
-                }
-
-            }
-            allTags.clear();
-        }
-
-        return true;
+        return this.visitEntries((tag, value) -> sse.contains(tag)
+                && value.equals(sse.valueOf(tag)));
+    }
 
+    @Override
+    public int hashCode() {
+        /*
+         * Sum over the entries, like java.util.Map, so the order they are
+         * visited in does not matter
+         */
+        int[] hash = { Boolean.hashCode(this.isInInsertionMode()) };
+        this.visitEntries((tag, value) -> {
+            hash[0] += tag.hashCode() ^ value.hashCode();
+            return true;
+        });
+        return hash[0];
     }
+
 }
@@ -0,0 +1,476 @@
+package components.simplesearchengine;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Generalized suffix array over the tags of a {@code SimpleSearchEngine}. Every
+ * suffix of every tag is kept in lexicographical order, so the suffixes that
+ * start with a substring form one contiguous range found by binary search,
+ * and the tags owning those suffixes are exactly the tags containing the
+ * substring.
+ *
+ * <p>
+ * A {@code SubstringIndex} is immutable once built, so any number of threads
+ * may query one instance without locking.
+ * </p>
+ *
+ * @author Saurav Poudyel
+ *
+ */
+final class SubstringIndex {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Below this many suffixes a range is sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    /**
+     * The tags, in lexicographical order.
+     */
+    private final String[] tags;
+
+    /**
+     * The characters of all tags, one after another.
+     */
+    private final char[] text;
+
+    /**
+     * {@code tagStart[i]} is the position of tag {@code i} in {@code text};
+     * {@code tagStart[tags.length]} is the length of {@code text}.
+     */
+    private final int[] tagStart;
+
+    /**
+     * Position in {@code text} of each suffix, in lexicographical order of the
+     * suffixes.
+     */
+    private final int[] suffixStart;
+
+    /**
+     * Number of the tag owning each suffix, in the same order as
+     * {@code suffixStart}.
+     */
+    private final int[] suffixTag;
+
+    /**
+     * Constructor from already filled arrays.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     * @param text
+     *            the characters of all tags
+     * @param tagStart
+     *            the position of each tag in {@code text}
+     * @param suffixStart
+     *            the sorted suffix positions
+     * @param suffixTag
+     *            the tag owning each suffix
+     */
+    private SubstringIndex(String[] tags, char[] text, int[] tagStart,
+            int[] suffixStart, int[] suffixTag) {
+        this.tags = tags;
+        this.text = text;
+        this.tagStart = tagStart;
+        this.suffixStart = suffixStart;
+        this.suffixTag = suffixTag;
+    }
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Builds the index over {@code sortedTags}.
+     *
+     * @param sortedTags
+     *            the tags to index
+     * @return the index over {@code sortedTags}
+     * @requires sortedTags != null and the tags are distinct and in
+     *           lexicographical order
+     * @ensures the returned index finds every tag in {@code sortedTags}
+     *          containing a given substring
+     */
+    static SubstringIndex build(String[] sortedTags) {
+        assert sortedTags != null : "Violation of: sortedTags is not null";
+
+        int[] tagStart = new int[sortedTags.length + 1];
+        for (int i = 0; i < sortedTags.length; i++) {
+            tagStart[i + 1] = tagStart[i] + sortedTags[i].length();
+        }
+
+        /*
+         * Lay the tags out one after another; suffixEnd[p] is where the tag
+         * holding position p ends, so suffixes never run into the next tag
+         */
+        char[] text = new char[tagStart[sortedTags.length]];
+        int[] suffixEnd = new int[text.length];
+        int[] ownerTag = new int[text.length];
+        for (int i = 0; i < sortedTags.length; i++) {
+            sortedTags[i].getChars(0, sortedTags[i].length(), text,
+                    tagStart[i]);
+            Arrays.fill(suffixEnd, tagStart[i], tagStart[i + 1],
+                    tagStart[i + 1]);
+            Arrays.fill(ownerTag, tagStart[i], tagStart[i + 1], i);
+        }
+
+        int[] suffixStart = new int[text.length];
+        for (int p = 0; p < suffixStart.length; p++) {
+            suffixStart[p] = p;
+        }
+        sortSuffixes(text, suffixEnd, suffixStart, 0, suffixStart.length - 1,
+                0);
+
+        int[] suffixTag = new int[suffixStart.length];
+        for (int k = 0; k < suffixStart.length; k++) {
+            suffixTag[k] = ownerTag[suffixStart[k]];
+        }
+
+        return new SubstringIndex(sortedTags, text, tagStart, suffixStart,
+                suffixTag);
+    }
+
+    /**
+     * Reports the character {@code depth} places into the suffix at
+     * {@code start}, or -1 past the end of its tag.
+     *
+     * @param text
+     *            the characters of all tags
+     * @param end
+     *            the end of the tag holding the suffix
+     * @param start
+     *            the position of the suffix
+     * @param depth
+     *            the place in the suffix
+     * @return the character, or -1 past the end of the tag
+     */
+    private static int charAt(char[] text, int end, int start, int depth) {
+        int p = start + depth;
+        int c = -1;
+        if (p < end) {
+            c = text[p];
+        }
+        return c;
+    }
+
+    /**
+     * Sorts the suffixes {@code suffixes[lo..hi]}, which agree on their first
+     * {@code depth} characters, by multikey quicksort.
+     *
+     * @param text
+     *            the characters of all tags
+     * @param suffixEnd
+     *            the end of the tag holding each position
+     * @param suffixes
+     *            the suffix positions to sort
+     * @param lo
+     *            the first index of the range
+     * @param hi
+     *            the last index of the range
+     * @param depth
+     *            the number of leading characters the range agrees on
+     * @updates suffixes
+     * @ensures suffixes[lo..hi] is a permutation of #suffixes[lo..hi] in
+     *          lexicographical order of the suffixes
+     */
+    private static void sortSuffixes(char[] text, int[] suffixEnd,
+            int[] suffixes, int lo, int hi, int depth) {
+        int first = lo;
+        while (hi - first >= INSERTION_SORT_SIZE) {
+            /*
+             * Partition on the middle suffix's character at depth into less,
+             * equal and greater ranges
+             */
+            swap(suffixes, first, (first + hi) >>> 1);
+            int pivot = charAt(text, suffixEnd[suffixes[first]],
+                    suffixes[first], depth);
+            int lt = first;
+            int gt = hi;
+            int i = first + 1;
+            while (i <= gt) {
+                int c = charAt(text, suffixEnd[suffixes[i]], suffixes[i],
+                        depth);
+                if (c < pivot) {
+                    swap(suffixes, lt, i);
+                    lt++;
+                    i++;
+                } else if (c > pivot) {
+                    swap(suffixes, i, gt);
+                    gt--;
+                } else {
+                    i++;
+                }
+            }
+
+            sortSuffixes(text, suffixEnd, suffixes, first, lt - 1, depth);
+            if (pivot >= 0) {
+                sortSuffixes(text, suffixEnd, suffixes, lt, gt, depth + 1);
+            }
+            first = gt + 1;
+        }
+
+        /*
+         * Small ranges: insertion sort comparing from depth onwards
+         */
+        for (int i = first + 1; i <= hi; i++) {
+            int j = i;
+            while (j > first && compareSuffixes(text, suffixEnd,
+                    suffixes[j - 1], suffixes[j], depth) > 0) {
+                swap(suffixes, j - 1, j);
+                j--;
+            }
+        }
+    }
+
+    /**
+     * Compares two suffixes from {@code depth} onwards.
+     *
+     * @param text
+     *            the characters of all tags
+     * @param suffixEnd
+     *            the end of the tag holding each position
+     * @param first
+     *            the position of the first suffix
+     * @param second
+     *            the position of the second suffix
+     * @param depth
+     *            the number of leading characters the suffixes agree on
+     * @return negative, zero or positive as the first suffix is less than,
+     *         equal to or greater than the second
+     */
+    private static int compareSuffixes(char[] text, int[] suffixEnd,
+            int first, int second, int depth) {
+        int firstEnd = suffixEnd[first];
+        int secondEnd = suffixEnd[second];
+        int d = depth;
+        int c1 = charAt(text, firstEnd, first, d);
+        int c2 = charAt(text, secondEnd, second, d);
+        while (c1 == c2 && c1 >= 0) {
+            d++;
+            c1 = charAt(text, firstEnd, first, d);
+            c2 = charAt(text, secondEnd, second, d);
+        }
+        return c1 - c2;
+    }
+
+    /**
+     * Swaps two entries of {@code array}.
+     *
+     * @param array
+     *            the array
+     * @param i
+     *            the first index
+     * @param j
+     *            the second index
+     * @updates array
+     */
+    private static void swap(int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /*
+     * Search helper methods --------------------------------------------------
+     */
+
+    /**
+     * Compares the suffix at rank {@code k} with {@code substring}, looking
+     * only at the first {@code |substring|} characters of the suffix.
+     *
+     * @param k
+     *            the rank of the suffix
+     * @param substring
+     *            the substring
+     * @return negative if the suffix is less than {@code substring}, zero if
+     *         it starts with {@code substring}, positive if it is greater
+     */
+    private int compareToSubstring(int k, String substring) {
+        int start = this.suffixStart[k];
+        int end = this.tagStart[this.suffixTag[k] + 1];
+        int order = 0;
+        int i = 0;
+        while (order == 0 && i < substring.length()) {
+            if (start + i >= end) {
+                order = -1;
+            } else {
+                order = this.text[start + i] - substring.charAt(i);
+            }
+            i++;
+        }
+        return order;
+    }
+
+    /**
+     * Finds the first suffix rank whose comparison with {@code substring} is
+     * at least {@code bound}.
+     *
+     * @param substring
+     *            the substring
+     * @param bound
+     *            0 to find the first suffix starting with or above
+     *            {@code substring}, 1 to find the first suffix above it
+     * @return the first rank at or past the bound
+     */
+    private int lowerBound(String substring, int bound) {
+        int lo = 0;
+        int hi = this.suffixStart.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int order = Integer
+                    .signum(this.compareToSubstring(mid, substring));
+            if (order < bound) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Finds the numbers of the tags containing {@code substring}.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param examined
+     *            holds at index 0 the number of suffixes starting with
+     *            {@code substring}, each of which was examined
+     * @return the distinct numbers, in increasing order, of the tags
+     *         containing {@code substring}
+     * @updates examined
+     * @requires substring is not empty and |examined| > 0
+     */
+    private int[] matchingTags(String substring, int[] examined) {
+        /*
+         * Tag numbers follow lexicographical order, so sorting the owners of
+         * the matching suffixes sorts the tags
+         */
+        int from = this.lowerBound(substring, 0);
+        int to = this.lowerBound(substring, 1);
+        examined[0] = to - from;
+        int[] owners = Arrays.copyOfRange(this.suffixTag, from, to);
+        Arrays.sort(owners);
+
+        int distinct = 0;
+        for (int k = 0; k < owners.length; k++) {
+            if (k == 0 || owners[k] != owners[k - 1]) {
+                owners[distinct] = owners[k];
+                distinct++;
+            }
+        }
+        return Arrays.copyOf(owners, distinct);
+    }
+
+    /*
+     * Queries ----------------------------------------------------------------
+     */
+
+    /**
+     * Adds every tag containing {@code substring} to {@code results}.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param results
+     *            the list to store results in
+     * @return the number of suffixes examined, or the number of tags if
+     *         {@code substring} is empty
+     * @ensures {@code results} is extended by all tags containing
+     *          {@code substring}, in lexicographical order
+     */
+    int containsSearch(String substring, List<String> results) {
+        int[] examined = { this.tags.length };
+        if (substring.isEmpty()) {
+            results.addAll(Arrays.asList(this.tags));
+        } else {
+            for (int tag : this.matchingTags(substring, examined)) {
+                results.add(this.tags[tag]);
+            }
+        }
+        return examined[0];
+    }
+
+    /**
+     * Returns an iterator producing the tags containing {@code substring} that
+     * come after {@code after}, in lexicographical order. The matching tags
+     * are found when the iterator is created; only the tags produced are
+     * read afterwards.
+     *
+     * @param substring
+     *            the substring to search for
+     * @param after
+     *            the last tag already seen, or null to start from the first
+     *            tag
+     * @return the iterator
+     */
+    Iterator<String> containsSearchIterator(String substring, String after) {
+        int[] matches;
+        if (substring.isEmpty()) {
+            matches = null;
+        } else {
+            matches = this.matchingTags(substring, new int[1]);
+        }
+        final int[] matching = matches;
+        final int count;
+        if (matching == null) {
+            count = this.tags.length;
+        } else {
+            count = matching.length;
+        }
+
+        /*
+         * Binary search for the first match after the cursor
+         */
+        int lo = 0;
+        if (after != null) {
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int tag = mid;
+                if (matching != null) {
+                    tag = matching[mid];
+                }
+                if (this.tags[tag].compareTo(after) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+        }
+        final int start = lo;
+
+        return new Iterator<String>() {
+
+            /**
+             * Position of the next match to produce.
+             */
+            private int position = start;
+
+            @Override
+            public boolean hasNext() {
+                return this.position < count;
+            }
+
+            @Override
+            public String next() {
+                if (this.position >= count) {
+                    throw new NoSuchElementException();
+                }
+                int tag = this.position;
+                if (matching != null) {
+                    tag = matching[this.position];
+                }
+                this.position++;
+                return SubstringIndex.this.tags[tag];
+            }
+
+        };
+    }
+
+}
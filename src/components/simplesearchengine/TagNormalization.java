@@ -0,0 +1,111 @@
+package components.simplesearchengine;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * How a {@code SimpleSearchEngine1L} normalizes tags and queries before
+ * comparing them, so that tags differing only in case, in Unicode
+ * compatibility forms or, optionally, in accents match the same queries.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public enum TagNormalization {
+
+    /**
+     * Tags and queries are compared as they are.
+     */
+    NONE,
+
+    /**
+     * Tags and queries are put in Unicode compatibility composed form (NFKC)
+     * and case folded, so {@code "Straße"}, {@code "STRASSE"} and
+     * {@code "straße"} all become {@code "strasse"}, and {@code "ﬁle"} becomes
+     * {@code "file"}.
+     */
+    FOLD_CASE,
+
+    /**
+     * As {@code FOLD_CASE}, and diacritical marks are also removed, so
+     * {@code "Café"} and {@code "cafe"} both become {@code "cafe"}.
+     */
+    FOLD_CASE_AND_ACCENTS;
+
+    /**
+     * Reports the normalized form of {@code text}. Text already in normalized
+     * form is returned as is, and text holding only ASCII characters is
+     * folded in one pass over its characters; anything else goes through the
+     * Unicode normalizer.
+     *
+     * @param text
+     *            the text to normalize
+     * @return the normalized form of {@code text}
+     * @requires text != null
+     * @ensures normalize(normalize(text)) = normalize(text)
+     */
+    public String normalize(String text) {
+        assert text != null : "Violation of: text is not null";
+
+        String normalized = text;
+        if (this != NONE) {
+            /*
+             * ASCII is its own compatibility form and carries no combining
+             * marks, so folding its case is all there is to do
+             */
+            boolean ascii = true;
+            boolean upper = false;
+            int i = 0;
+            while (ascii && i < text.length()) {
+                char c = text.charAt(i);
+                ascii = c < 0x80;
+                upper = upper || (c >= 'A' && c <= 'Z');
+                i++;
+            }
+            if (!ascii) {
+                normalized = this.normalizeUnicode(text);
+            } else if (upper) {
+                char[] folded = new char[text.length()];
+                for (int j = 0; j < folded.length; j++) {
+                    char c = text.charAt(j);
+                    if (c >= 'A' && c <= 'Z') {
+                        c = (char) (c + ('a' - 'A'));
+                    }
+                    folded[j] = c;
+                }
+                normalized = new String(folded);
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Normalizes {@code text}, which holds characters outside ASCII.
+     *
+     * @param text
+     *            the text to normalize
+     * @return the normalized form of {@code text}
+     */
+    private String normalizeUnicode(String text) {
+        /*
+         * Decompose, so accents are marks of their own, then fold case; upper
+         * casing first folds characters such as the sharp s, which lower
+         * casing leaves alone
+         */
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        if (this == FOLD_CASE_AND_ACCENTS) {
+            StringBuilder stripped = new StringBuilder(decomposed.length());
+            for (int i = 0; i < decomposed.length(); i++) {
+                char c = decomposed.charAt(i);
+                if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                    stripped.append(c);
+                }
+            }
+            decomposed = stripped.toString();
+        }
+        String folded = decomposed.toUpperCase(Locale.ROOT)
+                .toLowerCase(Locale.ROOT);
+        return Normalizer.normalize(folded, Normalizer.Form.NFKC);
+    }
+
+}
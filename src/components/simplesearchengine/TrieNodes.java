@@ -0,0 +1,454 @@
+package components.simplesearchengine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Storage of the nodes of a {@code SearchTrie}: the character, entry number,
+ * first child and next sibling of each node, indexed by node. A trie built on
+ * the heap keeps its nodes in primitive arrays; a trie mapped from an index
+ * file, or moved off the heap, keeps them in buffers. Queries only read the
+ * nodes, through the same accessors either way.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+abstract class TrieNodes {
+
+    /*
+     * Construction -----------------------------------------------------------
+     */
+
+    /**
+     * Creates storage on the heap for {@code capacity} nodes.
+     *
+     * @param capacity
+     *            the number of nodes
+     * @return the new storage, every field of every node 0
+     */
+    static TrieNodes onHeap(int capacity) {
+        return new HeapNodes(new char[capacity], new int[capacity],
+                new int[capacity], new int[capacity]);
+    }
+
+    /**
+     * Creates storage for {@code capacity} nodes in direct buffers outside
+     * the heap, released once the storage is no longer reachable.
+     *
+     * @param capacity
+     *            the number of nodes
+     * @return the new storage, every field of every node 0
+     */
+    static TrieNodes offHeap(int capacity) {
+        return new BufferNodes(
+                ByteBuffer.allocateDirect(Character.BYTES * capacity)
+                        .order(ByteOrder.nativeOrder()).asCharBuffer(),
+                directInts(capacity), directInts(capacity),
+                directInts(capacity), true);
+    }
+
+    /**
+     * Creates storage reading the nodes from buffers filled elsewhere, for
+     * example mapped from an index file. The buffers are indexed absolutely,
+     * so their positions do not matter.
+     *
+     * @param nodeChar
+     *            node characters
+     * @param entry
+     *            entry numbers
+     * @param firstChild
+     *            first child links
+     * @param nextSibling
+     *            next sibling links
+     * @return the storage over the buffers
+     */
+    static TrieNodes inBuffers(CharBuffer nodeChar, IntBuffer entry,
+            IntBuffer firstChild, IntBuffer nextSibling) {
+        return new BufferNodes(nodeChar, entry, firstChild, nextSibling,
+                false);
+    }
+
+    /**
+     * Allocates a direct buffer of {@code capacity} ints in native byte
+     * order.
+     *
+     * @param capacity
+     *            the number of ints
+     * @return the new buffer, filled with zeros
+     */
+    private static IntBuffer directInts(int capacity) {
+        return ByteBuffer.allocateDirect(Integer.BYTES * capacity)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Copies the first {@code nodeCount} nodes of {@code this} into new
+     * storage with room for {@code capacity} nodes, on the heap or outside
+     * it.
+     *
+     * @param nodeCount
+     *            the number of nodes to copy
+     * @param capacity
+     *            the number of nodes the new storage holds
+     * @param toOffHeap
+     *            whether the new storage is outside the heap
+     * @return the new storage
+     * @requires nodeCount <= capacity and nodeCount <= capacity()
+     */
+    TrieNodes copy(int nodeCount, int capacity, boolean toOffHeap) {
+        TrieNodes copy;
+        if (toOffHeap) {
+            copy = offHeap(capacity);
+        } else {
+            copy = onHeap(capacity);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            copy.setChar(node, this.charOf(node));
+            copy.setEntry(node, this.entryOf(node));
+            copy.setFirstChild(node, this.firstChildOf(node));
+            copy.setNextSibling(node, this.nextSiblingOf(node));
+        }
+        return copy;
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    /**
+     * Reports the character held by {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the character
+     */
+    abstract char charOf(int node);
+
+    /**
+     * Reports the entry number of the tag ending at {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the entry number, or {@code NO_ENTRY}
+     */
+    abstract int entryOf(int node);
+
+    /**
+     * Reports the first child of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the first child, or {@code NO_NODE}
+     */
+    abstract int firstChildOf(int node);
+
+    /**
+     * Reports the next sibling of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the next sibling, or {@code NO_NODE}
+     */
+    abstract int nextSiblingOf(int node);
+
+    /**
+     * Sets the character held by {@code node}.
+     *
+     * @param node
+     *            the node
+     * @param nodeChar
+     *            the character
+     * @requires !isReadOnly()
+     */
+    abstract void setChar(int node, char nodeChar);
+
+    /**
+     * Sets the entry number of the tag ending at {@code node}.
+     *
+     * @param node
+     *            the node
+     * @param entry
+     *            the entry number, or {@code NO_ENTRY}
+     * @requires !isReadOnly()
+     */
+    abstract void setEntry(int node, int entry);
+
+    /**
+     * Sets the first child of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @param child
+     *            the first child, or {@code NO_NODE}
+     * @requires !isReadOnly()
+     */
+    abstract void setFirstChild(int node, int child);
+
+    /**
+     * Sets the next sibling of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @param sibling
+     *            the next sibling, or {@code NO_NODE}
+     * @requires !isReadOnly()
+     */
+    abstract void setNextSibling(int node, int sibling);
+
+    /**
+     * Reports the number of nodes {@code this} has room for.
+     *
+     * @return the capacity
+     */
+    abstract int capacity();
+
+    /**
+     * Reports whether the nodes can only be read, as when they are mapped
+     * read-only from an index file.
+     *
+     * @return true iff the setters may not be called
+     */
+    abstract boolean isReadOnly();
+
+    /**
+     * Reports whether the nodes are in direct buffers allocated by
+     * {@code offHeap}.
+     *
+     * @return true iff the nodes are kept off the heap
+     */
+    abstract boolean isOffHeap();
+
+    /*
+     * Implementations --------------------------------------------------------
+     */
+
+    /**
+     * Nodes in parallel primitive arrays on the heap.
+     */
+    private static final class HeapNodes extends TrieNodes {
+
+        /**
+         * Character of each node.
+         */
+        private final char[] nodeChar;
+
+        /**
+         * Entry number of each node.
+         */
+        private final int[] entry;
+
+        /**
+         * First child of each node.
+         */
+        private final int[] firstChild;
+
+        /**
+         * Next sibling of each node.
+         */
+        private final int[] nextSibling;
+
+        /**
+         * Constructor.
+         *
+         * @param nodeChar
+         *            node characters
+         * @param entry
+         *            entry numbers
+         * @param firstChild
+         *            first child links
+         * @param nextSibling
+         *            next sibling links
+         */
+        private HeapNodes(char[] nodeChar, int[] entry, int[] firstChild,
+                int[] nextSibling) {
+            this.nodeChar = nodeChar;
+            this.entry = entry;
+            this.firstChild = firstChild;
+            this.nextSibling = nextSibling;
+        }
+
+        @Override
+        TrieNodes copy(int nodeCount, int capacity, boolean toOffHeap) {
+            TrieNodes copy;
+            if (toOffHeap) {
+                copy = super.copy(nodeCount, capacity, true);
+            } else {
+                copy = new HeapNodes(Arrays.copyOf(this.nodeChar, capacity),
+                        Arrays.copyOf(this.entry, capacity),
+                        Arrays.copyOf(this.firstChild, capacity),
+                        Arrays.copyOf(this.nextSibling, capacity));
+            }
+            return copy;
+        }
+
+        @Override
+        char charOf(int node) {
+            return this.nodeChar[node];
+        }
+
+        @Override
+        int entryOf(int node) {
+            return this.entry[node];
+        }
+
+        @Override
+        int firstChildOf(int node) {
+            return this.firstChild[node];
+        }
+
+        @Override
+        int nextSiblingOf(int node) {
+            return this.nextSibling[node];
+        }
+
+        @Override
+        void setChar(int node, char nodeChar) {
+            this.nodeChar[node] = nodeChar;
+        }
+
+        @Override
+        void setEntry(int node, int entry) {
+            this.entry[node] = entry;
+        }
+
+        @Override
+        void setFirstChild(int node, int child) {
+            this.firstChild[node] = child;
+        }
+
+        @Override
+        void setNextSibling(int node, int sibling) {
+            this.nextSibling[node] = sibling;
+        }
+
+        @Override
+        int capacity() {
+            return this.nodeChar.length;
+        }
+
+        @Override
+        boolean isReadOnly() {
+            return false;
+        }
+
+        @Override
+        boolean isOffHeap() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Nodes in parallel buffers, direct or mapped from a file.
+     */
+    private static final class BufferNodes extends TrieNodes {
+
+        /**
+         * Character of each node.
+         */
+        private final CharBuffer nodeChar;
+
+        /**
+         * Entry number of each node.
+         */
+        private final IntBuffer entry;
+
+        /**
+         * First child of each node.
+         */
+        private final IntBuffer firstChild;
+
+        /**
+         * Next sibling of each node.
+         */
+        private final IntBuffer nextSibling;
+
+        /**
+         * Whether the buffers were allocated by {@code offHeap}.
+         */
+        private final boolean offHeap;
+
+        /**
+         * Constructor.
+         *
+         * @param nodeChar
+         *            node characters
+         * @param entry
+         *            entry numbers
+         * @param firstChild
+         *            first child links
+         * @param nextSibling
+         *            next sibling links
+         * @param offHeap
+         *            whether the buffers were allocated by {@code offHeap}
+         */
+        private BufferNodes(CharBuffer nodeChar, IntBuffer entry,
+                IntBuffer firstChild, IntBuffer nextSibling, boolean offHeap) {
+            this.nodeChar = nodeChar;
+            this.entry = entry;
+            this.firstChild = firstChild;
+            this.nextSibling = nextSibling;
+            this.offHeap = offHeap;
+        }
+
+        @Override
+        char charOf(int node) {
+            return this.nodeChar.get(node);
+        }
+
+        @Override
+        int entryOf(int node) {
+            return this.entry.get(node);
+        }
+
+        @Override
+        int firstChildOf(int node) {
+            return this.firstChild.get(node);
+        }
+
+        @Override
+        int nextSiblingOf(int node) {
+            return this.nextSibling.get(node);
+        }
+
+        @Override
+        void setChar(int node, char nodeChar) {
+            this.nodeChar.put(node, nodeChar);
+        }
+
+        @Override
+        void setEntry(int node, int entry) {
+            this.entry.put(node, entry);
+        }
+
+        @Override
+        void setFirstChild(int node, int child) {
+            this.firstChild.put(node, child);
+        }
+
+        @Override
+        void setNextSibling(int node, int sibling) {
+            this.nextSibling.put(node, sibling);
+        }
+
+        @Override
+        int capacity() {
+            return this.nodeChar.capacity();
+        }
+
+        @Override
+        boolean isReadOnly() {
+            return this.nodeChar.isReadOnly();
+        }
+
+        @Override
+        boolean isOffHeap() {
+            return this.offHeap;
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader1L;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with closest
+ * tags found by a Burkhard-Keller tree.
+ */
+public final class SimpleSearchEngine1LBkTreeTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setRelativeSearchStrategy(RelativeSearchStrategy.BK_TREE);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setRelativeSearchStrategy(RelativeSearchStrategy.BK_TREE);
+        return sse;
+    }
+
+    /**
+     * Fills {@code sse} with the "Some" words and puts it in search mode.
+     *
+     * @param sse
+     *            the engine to fill, in insertion mode
+     * @return {@code sse}
+     */
+    private static SimpleSearchEngine1L<String> createSomeWords(
+            SimpleSearchEngine1L<String> sse) {
+        SimpleReader1L input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\SomeWords.txt");
+        int entryNum = 0;
+        while (!input.atEOS()) {
+            sse.add(input.nextLine(), Integer.toString(entryNum));
+            entryNum++;
+        }
+        input.close();
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    /**
+     * Reports the tag, value and distance of each suggestion.
+     *
+     * @param suggestions
+     *            the suggestions
+     * @return one string per suggestion
+     */
+    private static List<String> describe(
+            List<Suggestion<String>> suggestions) {
+        List<String> described = new ArrayList<>();
+        for (Suggestion<String> suggestion : suggestions) {
+            described.add(suggestion.tag() + "=" + suggestion.value() + "@"
+                    + suggestion.distance());
+        }
+        return described;
+    }
+
+    @Test
+    public final void testBkTreeBreaksTiesLexicographically() {
+        BkTree tree = BkTree.build(
+                new String[] { "bat", "cat", "hat", "mat", "rat", "tab" });
+
+        List<SearchStructure.Match> closest = tree.closestMatches("fat", 3,
+                Integer.MAX_VALUE);
+
+        assertEquals(3, closest.size());
+        assertEquals("bat", closest.get(0).tag());
+        assertEquals("cat", closest.get(1).tag());
+        assertEquals("hat", closest.get(2).tag());
+        assertEquals(1, closest.get(2).distance());
+        assertEquals(2, closest.get(2).entry());
+    }
+
+    @Test
+    public final void testBkTreeWithinDistance() {
+        BkTree tree = BkTree.build(
+                new String[] { "", "book", "books", "boon", "cake", "cape" });
+
+        List<SearchStructure.Match> closest = tree.closestMatches("boo", 10,
+                1);
+
+        assertEquals(2, closest.size());
+        assertEquals("book", closest.get(0).tag());
+        assertEquals("boon", closest.get(1).tag());
+        assertEquals(0, tree.closestMatches("xyz", 1, 2).size());
+        assertEquals("", tree.closestMatches("xyz", 1, 3).get(0).tag());
+    }
+
+    @Test
+    public final void testBkTreeEmpty() {
+        BkTree tree = BkTree.build(new String[0]);
+
+        assertEquals(0, tree.closestMatches("any", 1, Integer.MAX_VALUE)
+                .size());
+    }
+
+    @Test
+    public final void testRelativeSearchMatchesTrie() {
+        SimpleSearchEngine1L<String> trie = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+        SimpleSearchEngine1L<String> bk = createSomeWords(
+                this.constructorTest());
+
+        for (String target : Arrays.asList("", "a", "bt", "cta", "bsaket",
+                "achitecture", "baskeball", "zzzzzzz", "qwertyuiop",
+                "tradtionally")) {
+            for (int maxDistance : new int[] { 0, 1, 2, 3,
+                    Integer.MAX_VALUE }) {
+                assertEquals(trie.relativeSearch(target, maxDistance),
+                        bk.relativeSearch(target, maxDistance));
+            }
+            for (int count : new int[] { 1, 3, 10 }) {
+                assertEquals(describe(trie.suggestions(target, count)),
+                        describe(bk.suggestions(target, count)));
+            }
+        }
+    }
+
+    @Test
+    public final void testBkTreeDroppedByUpdate() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.add("casket", "2");
+        sse.changeToSearchMode();
+
+        sse.add("gasket", "3");
+        sse.remove("casket");
+
+        assertEquals("gasket", sse.relativeSearch("gaskit", 1));
+        assertEquals(RelativeSearchStrategy.BK_TREE,
+                sse.relativeSearchStrategy());
+    }
+
+    @Test
+    public final void testStrategyKeptByClearAndTransferFrom() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.changeToSearchMode();
+        SimpleSearchEngine1L<String> other = new SimpleSearchEngine1L<>();
+
+        other.transferFrom(sse);
+        assertEquals(RelativeSearchStrategy.BK_TREE,
+                other.relativeSearchStrategy());
+        assertEquals("basket", other.relativeSearch("baskets", 1));
+
+        other.clear();
+        assertEquals(RelativeSearchStrategy.BK_TREE,
+                other.relativeSearchStrategy());
+    }
+
+}
@@ -0,0 +1,232 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader1L;
+import components.simplesearchengine.SearchEngineMetrics.Operation;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with weighted
+ * completions enabled.
+ */
+public final class SimpleSearchEngine1LCompletionTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setCompletionWeigher(String::length);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setCompletionWeigher(String::length);
+        return sse;
+    }
+
+    /**
+     * Creates an engine weighing each entry by its value, read as a number.
+     *
+     * @param insertionMode
+     *            flag indicating the engine mode
+     * @param args
+     *            the tags and weights of the entries, alternating
+     * @return the engine
+     */
+    private static SimpleSearchEngine1L<String> createWeighted(
+            boolean insertionMode, String... args) {
+        assert args.length % 2 == 0 : "Violation of: num arguments should be even";
+
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setCompletionWeigher(Long::parseLong);
+        for (int i = 0; i < args.length; i += 2) {
+            sse.add(args[i], args[i + 1]);
+        }
+        if (!insertionMode) {
+            sse.changeToSearchMode();
+        }
+        return sse;
+    }
+
+    /**
+     * Creates an engine in search mode over the "Some" words, weighing each
+     * word by its line number modulo 7, so many words weigh the same.
+     *
+     * @param sse
+     *            the engine to fill, in insertion mode
+     * @return {@code sse}
+     */
+    private static SimpleSearchEngine1L<String> createSomeWords(
+            SimpleSearchEngine1L<String> sse) {
+        final int weights = 7;
+        sse.setCompletionWeigher(value -> Long.parseLong(value) % weights);
+        SimpleReader1L input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\SomeWords.txt");
+        int entryNum = 0;
+        while (!input.atEOS()) {
+            sse.add(input.nextLine(), Integer.toString(entryNum));
+            entryNum++;
+        }
+        input.close();
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    /**
+     * Finds the expected top completions of {@code prefix} by sorting every
+     * tag with {@code prefix}.
+     *
+     * @param sse
+     *            the engine
+     * @param prefix
+     *            the prefix
+     * @param count
+     *            the number of completions wanted
+     * @return the {@code count} heaviest tags with {@code prefix}
+     */
+    private static List<String> sortedCompletions(
+            SimpleSearchEngine1L<String> sse, String prefix, int count) {
+        List<String> tags = sse.prefixSearch(prefix);
+        ToLongFunction<? super String> weigher = sse.completionWeigher();
+        tags.sort(Comparator
+                .comparingLong(tag -> -weigher.applyAsLong(sse.valueOf(tag))));
+        return new ArrayList<>(tags.subList(0, Math.min(count, tags.size())));
+    }
+
+    @Test
+    public final void testTopCompletions() {
+        SimpleSearchEngine1L<String> sse = createWeighted(false, "tree", "5",
+                "trek", "9", "trie", "5", "try", "1", "bat", "100");
+
+        assertEquals(Arrays.asList("trek", "tree", "trie"),
+                sse.topCompletions("tr", 3));
+        assertEquals(Arrays.asList("bat"), sse.topCompletions("", 1));
+    }
+
+    @Test
+    public final void testTopCompletionsTieIsLexicographic() {
+        SimpleSearchEngine1L<String> sse = createWeighted(false, "tree", "5",
+                "tre", "5", "trie", "5", "ta", "5", "t", "2");
+
+        assertEquals(Arrays.asList("ta", "tre", "tree", "trie", "t"),
+                sse.topCompletions("t", 10));
+    }
+
+    @Test
+    public final void testTopCompletionsMissingPrefix() {
+        SimpleSearchEngine1L<String> sse = createWeighted(false, "tree", "5",
+                "bat", "1");
+
+        assertEquals(0, sse.topCompletions("x", 3).size());
+        assertEquals(0, sse.topCompletions("treed", 3).size());
+        assertEquals(Arrays.asList("tree"), sse.topCompletions("tree", 3));
+    }
+
+    @Test
+    public final void testTopCompletionsEmptyTag() {
+        SimpleSearchEngine1L<String> sse = createWeighted(false, "", "3",
+                "a", "2", "ab", "4");
+
+        assertEquals(Arrays.asList("ab", "", "a"),
+                sse.topCompletions("", 3));
+    }
+
+    @Test
+    public final void testTopCompletionsAfterAddInSearchMode() {
+        SimpleSearchEngine1L<String> sse = createWeighted(false, "tree", "5",
+                "trek", "9", "bat", "100");
+
+        sse.add("trie", "7");
+        sse.remove("trek");
+
+        assertEquals(Arrays.asList("trie", "tree"),
+                sse.topCompletions("tr", 3));
+    }
+
+    @Test
+    public final void testTopCompletionsSomeWords() {
+        SimpleSearchEngine1L<String> sse = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+
+        for (String prefix : Arrays.asList("", "a", "ba", "ste", "zzz")) {
+            for (int count : new int[] { 1, 5, 40 }) {
+                assertEquals(sortedCompletions(sse, prefix, count),
+                        sse.topCompletions(prefix, count));
+            }
+        }
+    }
+
+    @Test
+    public final void testTopCompletionsRadixTrieAndDawg() {
+        SimpleSearchEngine1L<String> trie = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+        SimpleSearchEngine1L<String> radixTrie = new SimpleSearchEngine1L<>();
+        radixTrie.setRadixTrieEnabled(true);
+        createSomeWords(radixTrie);
+        SimpleSearchEngine1L<String> dawg = new SimpleSearchEngine1L<>();
+        dawg.setDawgEnabled(true);
+        createSomeWords(dawg);
+
+        for (String prefix : Arrays.asList("", "c", "ing", "re")) {
+            assertEquals(trie.topCompletions(prefix, 10),
+                    radixTrie.topCompletions(prefix, 10));
+            assertEquals(trie.topCompletions(prefix, 10),
+                    dawg.topCompletions(prefix, 10));
+        }
+    }
+
+    @Test
+    public final void testTopCompletionsVisitsFewNodes() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setMetricsEnabled(true);
+        createSomeWords(sse);
+
+        List<String> top = sse.topCompletions("", 3);
+
+        /*
+         * Every word weighs at most 6, so three words of weight 6 come out
+         * after walking down little more than three paths
+         */
+        assertEquals(sortedCompletions(sse, "", 3), top);
+        long nodes = sse.metrics().operationStats(Operation.TOP_COMPLETIONS)
+                .getNodesVisitedMax();
+        assertTrue(nodes < sse.metrics().getNodeCount() / 10);
+    }
+
+    @Test
+    public final void testTopCompletionsKeptByClear() {
+        SimpleSearchEngine1L<String> sse = createWeighted(false, "tree", "5");
+
+        sse.clear();
+        sse.add("tree", "1");
+        sse.add("trek", "2");
+        sse.changeToSearchMode();
+
+        assertEquals(Arrays.asList("trek", "tree"),
+                sse.topCompletions("t", 2));
+    }
+
+    @Test
+    public final void testTopCompletionsTransferFrom() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        SimpleSearchEngine1L<String> source = createWeighted(false, "tree",
+                "1", "trek", "2");
+
+        sse.transferFrom(source);
+
+        assertEquals(Arrays.asList("trek", "tree"),
+                sse.topCompletions("t", 2));
+    }
+
+}
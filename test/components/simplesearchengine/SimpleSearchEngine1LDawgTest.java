@@ -0,0 +1,104 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * DAWG enabled.
+ */
+public final class SimpleSearchEngine1LDawgTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setDawgEnabled(true);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setDawgEnabled(true);
+        return sse;
+    }
+
+    /**
+     * Builds the DAWG of {@code tags} and checks that it has no more nodes
+     * than the trie, numbers the tags by their position, finds the same tags,
+     * and turns back into the same trie.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     */
+    private static void assertSameTags(String[] tags) {
+        SearchTrie trie = SearchTrie.build(tags);
+        Dawg dawg = Dawg.build(tags);
+        assertEquals(true, dawg.nodeCount() <= trie.nodeCount());
+        assertEquals(tags.length, dawg.size());
+
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        trie.prefixSearch("", expected);
+        dawg.prefixSearch("", actual);
+        assertEquals(expected, actual);
+        List<String> iterated = new ArrayList<>();
+        Iterator<String> it = dawg.prefixSearchIterator("", null);
+        while (it.hasNext()) {
+            iterated.add(it.next());
+        }
+        assertEquals(expected, iterated);
+        for (int i = 0; i < tags.length; i++) {
+            assertEquals(i, dawg.entryOf(tags[i]));
+        }
+        assertEquals(true, trie.hasSameLayout(dawg.toSearchTrie()));
+    }
+
+    @Test
+    public final void testDawgEmpty() {
+        assertSameTags(new String[0]);
+    }
+
+    @Test
+    public final void testDawgEmptyTag() {
+        assertSameTags(new String[] { "", "a", "abc", "abcd", "abd", "b",
+                "bcd", "bcdef" });
+    }
+
+    @Test
+    public final void testDawgSharedSuffixes() {
+        String[] tags = { "baking", "caking", "making", "taking" };
+        assertSameTags(tags);
+
+        /*
+         * One state per character of "baking", with the first letters
+         * sharing the rest of the word
+         */
+        assertEquals("baking".length() + 1, Dawg.build(tags).nodeCount());
+    }
+
+    @Test
+    public final void testDawgAll() {
+        List<String> lines = new ArrayList<>();
+        SimpleReader input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\AllWords.txt");
+        while (!input.atEOS()) {
+            lines.add(input.nextLine());
+        }
+        input.close();
+        String[] tags = lines.stream().distinct().sorted()
+                .toArray(String[]::new);
+
+        assertSameTags(tags);
+    }
+
+}
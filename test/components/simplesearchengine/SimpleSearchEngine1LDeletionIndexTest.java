@@ -0,0 +1,241 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader1L;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * deletion index built for two edits.
+ */
+public final class SimpleSearchEngine1LDeletionIndexTest
+        extends SimpleSearchEngineTest {
+
+    /**
+     * Number of edits the fixture indexes.
+     */
+    private static final int DISTANCE = 2;
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setDeletionIndexDistance(DISTANCE);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setDeletionIndexDistance(DISTANCE);
+        return sse;
+    }
+
+    /**
+     * Fills {@code sse} with the "Some" words and puts it in search mode.
+     *
+     * @param sse
+     *            the engine to fill, in insertion mode
+     * @return {@code sse}
+     */
+    private static SimpleSearchEngine1L<String> createSomeWords(
+            SimpleSearchEngine1L<String> sse) {
+        SimpleReader1L input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\SomeWords.txt");
+        int entryNum = 0;
+        while (!input.atEOS()) {
+            sse.add(input.nextLine(), Integer.toString(entryNum));
+            entryNum++;
+        }
+        input.close();
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    /**
+     * Reports the tag, value and distance of each suggestion.
+     *
+     * @param suggestions
+     *            the suggestions
+     * @return one string per suggestion
+     */
+    private static List<String> describe(
+            List<Suggestion<String>> suggestions) {
+        List<String> described = new ArrayList<>();
+        for (Suggestion<String> suggestion : suggestions) {
+            described.add(suggestion.tag() + "=" + suggestion.value() + "@"
+                    + suggestion.distance());
+        }
+        return described;
+    }
+
+    @Test
+    public final void testDeletionIndexFindsEveryEdit() {
+        DeletionIndex index = DeletionIndex.build(
+                new String[] { "abc", "abcd", "acb", "axc", "bc", "xyz" }, 1);
+
+        List<SearchStructure.Match> closest = index.closestMatches("abc", 10,
+                1);
+
+        assertEquals(4, closest.size());
+        assertEquals("abc", closest.get(0).tag());
+        assertEquals(0, closest.get(0).distance());
+        assertEquals("abcd", closest.get(1).tag());
+        assertEquals(1, closest.get(1).distance());
+        assertEquals("axc", closest.get(2).tag());
+        assertEquals("bc", closest.get(3).tag());
+        assertEquals(4, closest.get(3).entry());
+    }
+
+    @Test
+    public final void testDeletionIndexUnansweredBeyondDistance() {
+        DeletionIndex index = DeletionIndex
+                .build(new String[] { "cat", "dog" }, 1);
+
+        /*
+         * Only "cat" is within one edit of "cot", and "dog" might be the
+         * second closest
+         */
+        assertEquals(null, index.closestMatches("cot", 2, Integer.MAX_VALUE));
+        assertEquals(1, index.closestMatches("cot", 1, Integer.MAX_VALUE)
+                .size());
+        assertEquals(1, index.closestMatches("cot", 2, 1).size());
+        assertEquals(0, index.closestMatches("xyz", 1, 0).size());
+    }
+
+    @Test
+    public final void testDeletionIndexShortTags() {
+        DeletionIndex index = DeletionIndex
+                .build(new String[] { "", "a", "ab", "b" }, 2);
+
+        List<SearchStructure.Match> closest = index.closestMatches("", 4, 2);
+
+        assertEquals(4, closest.size());
+        assertEquals("", closest.get(0).tag());
+        assertEquals("a", closest.get(1).tag());
+        assertEquals("b", closest.get(2).tag());
+        assertEquals("ab", closest.get(3).tag());
+        assertEquals(2, closest.get(3).distance());
+    }
+
+    @Test
+    public final void testDeletionIndexLeavesOutLongTags() {
+        final int longLength = 2500;
+        String longTag = "a".repeat(longLength);
+        DeletionIndex index = DeletionIndex
+                .build(new String[] { "ab", longTag, "b" }, 3);
+
+        /*
+         * The long tag has about 2.6 billion deletions, so it is left out,
+         * and so are searches that might find it or have as many deletions
+         */
+        assertEquals(2, index.closestMatches("a", 2, 3).size());
+        assertEquals(null, index.closestMatches("a".repeat(longLength - 3),
+                1, 3));
+        assertEquals(null, index.closestMatches("b".repeat(longLength / 2),
+                1, 3));
+    }
+
+    @Test
+    public final void testRelativeSearchLongTags() {
+        final int longLength = 2500;
+        String longTag = "a".repeat(longLength);
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setDeletionIndexDistance(3);
+        sse.add("ab", "1");
+        sse.add(longTag, "2");
+        sse.changeToSearchMode();
+
+        assertEquals("ab", sse.relativeSearch("abc", 1));
+        assertEquals(longTag, sse.relativeSearch(longTag + "b", 1));
+        assertEquals(Arrays.asList(longTag + "=2@1"),
+                describe(sse.suggestions("b" + longTag, 1)));
+    }
+
+    @Test
+    public final void testRelativeSearchMatchesTrie() {
+        SimpleSearchEngine1L<String> trie = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+        SimpleSearchEngine1L<String> deletions = createSomeWords(
+                this.constructorTest());
+
+        for (String target : Arrays.asList("", "a", "bt", "cta", "bsaket",
+                "achitecture", "baskeball", "zzzzzzz", "qwertyuiop",
+                "tradtionally")) {
+            for (int maxDistance : new int[] { 0, 1, 2, 3,
+                    Integer.MAX_VALUE }) {
+                assertEquals(trie.relativeSearch(target, maxDistance),
+                        deletions.relativeSearch(target, maxDistance));
+            }
+            for (int count : new int[] { 1, 3, 10 }) {
+                assertEquals(describe(trie.suggestions(target, count)),
+                        describe(deletions.suggestions(target, count)));
+            }
+        }
+    }
+
+    @Test
+    public final void testRelativeSearchWithGramIndex() {
+        SimpleSearchEngine1L<String> trie = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setDeletionIndexDistance(1);
+        sse.setGramIndexEnabled(true);
+        createSomeWords(sse);
+
+        for (String target : Arrays.asList("bsaket", "achitecture",
+                "zzzzzzz", "tradtionally")) {
+            assertEquals(trie.relativeSearch(target),
+                    sse.relativeSearch(target));
+            assertEquals(describe(trie.suggestions(target, 5)),
+                    describe(sse.suggestions(target, 5)));
+        }
+    }
+
+    @Test
+    public final void testDeletionIndexCostReported() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        assertEquals(0, sse.deletionIndexBytes());
+
+        createSomeWords(sse);
+
+        assertEquals(true, sse.deletionIndexBytes() > 0);
+        assertEquals(true, sse.deletionIndexBuildMillis() > 0);
+    }
+
+    @Test
+    public final void testDeletionIndexDroppedByUpdate() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.add("casket", "2");
+        sse.changeToSearchMode();
+
+        sse.add("gasket", "3");
+        sse.remove("casket");
+
+        assertEquals(0, sse.deletionIndexBytes());
+        assertEquals("gasket", sse.relativeSearch("gaskit", 1));
+    }
+
+    @Test
+    public final void testDeletionIndexDistanceKeptByClearAndTransferFrom() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.changeToSearchMode();
+        SimpleSearchEngine1L<String> other = new SimpleSearchEngine1L<>();
+
+        other.transferFrom(sse);
+        assertEquals(DISTANCE, other.deletionIndexDistance());
+        assertEquals("basket", other.relativeSearch("baskets", 1));
+
+        other.clear();
+        assertEquals(DISTANCE, other.deletionIndexDistance());
+    }
+
+}
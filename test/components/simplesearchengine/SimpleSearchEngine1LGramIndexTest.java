@@ -0,0 +1,202 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader1L;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * trigram index enabled.
+ */
+public final class SimpleSearchEngine1LGramIndexTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setGramIndexEnabled(true);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setGramIndexEnabled(true);
+        return sse;
+    }
+
+    /**
+     * Fills {@code sse} with the "Some" words and puts it in search mode.
+     *
+     * @param sse
+     *            the engine to fill, in insertion mode
+     * @return {@code sse}
+     */
+    private static SimpleSearchEngine1L<String> createSomeWords(
+            SimpleSearchEngine1L<String> sse) {
+        SimpleReader1L input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\SomeWords.txt");
+        int entryNum = 0;
+        while (!input.atEOS()) {
+            sse.add(input.nextLine(), Integer.toString(entryNum));
+            entryNum++;
+        }
+        input.close();
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    /**
+     * Reports the tag, value and distance of each suggestion.
+     *
+     * @param suggestions
+     *            the suggestions
+     * @return one string per suggestion
+     */
+    private static List<String> describe(
+            List<Suggestion<String>> suggestions) {
+        List<String> described = new ArrayList<>();
+        for (Suggestion<String> suggestion : suggestions) {
+            described.add(suggestion.tag() + "=" + suggestion.value() + "@"
+                    + suggestion.distance());
+        }
+        return described;
+    }
+
+    @Test
+    public final void testGramIndexContainsSearch() {
+        GramIndex index = GramIndex.build(new String[] { "abcabc", "bca",
+                "cab", "xabcx", "zzz" });
+        List<String> results = new ArrayList<>();
+
+        index.containsSearch("abc", results);
+
+        assertEquals(Arrays.asList("abcabc", "xabcx"), results);
+    }
+
+    @Test
+    public final void testGramIndexGramsOutOfOrder() {
+        /*
+         * "abxxbxa" holds both grams of "abxa", but apart
+         */
+        GramIndex index = GramIndex
+                .build(new String[] { "abxxbxa", "bxab", "zabxa" });
+        List<String> results = new ArrayList<>();
+
+        index.containsSearch("abxa", results);
+
+        assertEquals(Arrays.asList("zabxa"), results);
+    }
+
+    @Test
+    public final void testGramIndexContainsSearchIterator() {
+        GramIndex index = GramIndex.build(
+                new String[] { "aaab", "baaa", "caaa", "daa", "eaaae" });
+        List<String> results = new ArrayList<>();
+
+        Iterator<String> it = index.containsSearchIterator("aaa", "baaa");
+        while (it.hasNext()) {
+            results.add(it.next());
+        }
+
+        assertEquals(Arrays.asList("caaa", "eaaae"), results);
+    }
+
+    @Test
+    public final void testGramIndexRepeatedGrams() {
+        GramIndex index = GramIndex
+                .build(new String[] { "aaaa", "aaaaaa", "aaaaaaaa", "ab" });
+
+        List<SearchStructure.Match> closest = index.closestMatches("aaaaa", 3,
+                1);
+
+        assertEquals(2, closest.size());
+        assertEquals("aaaa", closest.get(0).tag());
+        assertEquals(1, closest.get(0).distance());
+        assertEquals("aaaaaa", closest.get(1).tag());
+        assertEquals(1, closest.get(1).distance());
+    }
+
+    @Test
+    public final void testGramIndexUnansweredBeyondReach() {
+        GramIndex index = GramIndex.build(new String[] { "cat", "dog" });
+
+        /*
+         * Within one edit of "cot" there is only "cat", and the grams cannot
+         * rule out "dog" two edits away
+         */
+        assertEquals(null, index.closestMatches("cot", 2, Integer.MAX_VALUE));
+        assertEquals(1, index.closestMatches("cot", 1, Integer.MAX_VALUE)
+                .size());
+        assertEquals(0, index.closestMatches("xyz", 1, 1).size());
+    }
+
+    @Test
+    public final void testRelativeSearchMatchesTrie() {
+        SimpleSearchEngine1L<String> trie = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+        SimpleSearchEngine1L<String> grams = createSomeWords(
+                this.constructorTest());
+
+        for (String target : Arrays.asList("", "a", "bt", "cta", "bsaket",
+                "achitecture", "baskeball", "zzzzzzz", "qwertyuiop",
+                "tradtionally")) {
+            for (int maxDistance : new int[] { 0, 1, 2, 3,
+                    Integer.MAX_VALUE }) {
+                assertEquals(trie.relativeSearch(target, maxDistance),
+                        grams.relativeSearch(target, maxDistance));
+            }
+            for (int count : new int[] { 1, 3, 10 }) {
+                assertEquals(describe(trie.suggestions(target, count)),
+                        describe(grams.suggestions(target, count)));
+            }
+        }
+    }
+
+    @Test
+    public final void testContainsSearchMatchesTrie() {
+        SimpleSearchEngine1L<String> trie = createSomeWords(
+                new SimpleSearchEngine1L<String>());
+        SimpleSearchEngine1L<String> grams = createSomeWords(
+                this.constructorTest());
+
+        for (String substring : Arrays.asList("", "a", "er", "ing", "ball",
+                "tion", "ketb", "xyz", "sss")) {
+            assertEquals(trie.containsSearch(substring),
+                    grams.containsSearch(substring));
+        }
+    }
+
+    @Test
+    public final void testGramIndexDroppedByUpdate() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.add("casket", "2");
+        sse.changeToSearchMode();
+
+        sse.add("gasket", "3");
+        sse.remove("casket");
+
+        assertEquals(Arrays.asList("basket", "gasket"),
+                sse.containsSearch("sket"));
+        assertEquals("gasket", sse.relativeSearch("gaskit", 1));
+    }
+
+    @Test
+    public final void testGramIndexKeptByClear() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+
+        sse.clear();
+
+        assertEquals(true, sse.isGramIndexEnabled());
+    }
+
+}
@@ -0,0 +1,215 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+
+import components.simplesearchengine.SearchEngineMetrics.Operation;
+import components.simplesearchengine.SearchEngineMetrics.OperationStats;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with
+ * metrics enabled.
+ */
+public final class SimpleSearchEngine1LMetricsTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setMetricsEnabled(true);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setMetricsEnabled(true);
+        return sse;
+    }
+
+    /**
+     * Creates an engine in search mode with a few tags and metrics enabled.
+     *
+     * @return the engine
+     */
+    private SimpleSearchEngine1L<String> createSearchEngine() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("bat", "1");
+        sse.add("base", "2");
+        sse.add("tree", "3");
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    @Test
+    public final void testMetricsCallCounts() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        sse.prefixSearch("ba");
+        sse.prefixSearch("t");
+        sse.containsSearch("at");
+        sse.relativeSearch("tre");
+        sse.suggestions("bas", 2);
+
+        Map<Operation, OperationStats> stats = sse.metrics().snapshot();
+        assertEquals(2, stats.get(Operation.PREFIX_SEARCH).getCalls());
+        assertEquals(1, stats.get(Operation.CONTAINS_SEARCH).getCalls());
+        assertEquals(1, stats.get(Operation.RELATIVE_SEARCH).getCalls());
+        assertEquals(1, stats.get(Operation.SUGGESTIONS).getCalls());
+    }
+
+    @Test
+    public final void testMetricsResultSizes() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        sse.prefixSearch("ba");
+        sse.prefixSearch("x");
+
+        OperationStats stats = sse.metrics()
+                .operationStats(Operation.PREFIX_SEARCH);
+        assertEquals(2, stats.getResultSizeMax());
+        assertEquals(1.0, stats.getResultSizeMean(), 0.0);
+        assertEquals("ba".length() + "se".length() + "t".length(),
+                stats.getNodesVisitedMax());
+    }
+
+    @Test
+    public final void testMetricsNodesVisited() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        sse.relativeSearch("tre");
+
+        OperationStats stats = sse.metrics()
+                .operationStats(Operation.RELATIVE_SEARCH);
+        assertTrue(stats.getNodesVisitedMax() > 0);
+        assertTrue(stats.getNodesVisitedMax() <= sse.metrics().getNodeCount());
+    }
+
+    @Test
+    public final void testMetricsContainsSearchNodesVisited() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        sse.containsSearch("at");
+
+        OperationStats stats = sse.metrics()
+                .operationStats(Operation.CONTAINS_SEARCH);
+        assertEquals(sse.metrics().getNodeCount() - 1,
+                stats.getNodesVisitedMax());
+    }
+
+    @Test
+    public final void testMetricsPrefixSearchBatch() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        sse.prefixSearchBatch(Arrays.asList("ba", "tr", "bas"));
+
+        OperationStats stats = sse.metrics()
+                .operationStats(Operation.PREFIX_SEARCH);
+        assertEquals(3, stats.getCalls());
+        assertEquals(2, stats.getResultSizeMax());
+        assertEquals("ba".length() + "se".length() + "t".length(),
+                stats.getNodesVisitedMax());
+    }
+
+    @Test
+    public final void testMetricsLatencyPercentiles() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        final int calls = 100;
+        for (int i = 0; i < calls; i++) {
+            sse.containsSearch("e");
+        }
+
+        OperationStats stats = sse.metrics()
+                .operationStats(Operation.CONTAINS_SEARCH);
+        assertEquals(calls, stats.getCalls());
+        assertTrue(stats.getLatencyP50Nanos() <= stats.getLatencyP99Nanos());
+        assertTrue(stats.getLatencyP99Nanos() <= stats.getLatencyP999Nanos());
+        assertTrue(stats.getLatencyP999Nanos() <= stats.getLatencyMaxNanos());
+        assertTrue(stats.getLatencyMaxNanos() > 0);
+    }
+
+    @Test
+    public final void testMetricsBuildAndStructureSize() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        assertEquals(1, sse.metrics().getBuildCount());
+        assertTrue(sse.metrics().getLastBuildMillis() >= 0);
+        assertEquals("base".length() + "t".length() + "tree".length(),
+                sse.metrics().getNodeCount() - 1);
+        assertTrue(sse.metrics().getNodeHeapBytes() > 0);
+
+        sse.clear();
+
+        assertEquals(0, sse.metrics().getNodeCount());
+        assertEquals(0, sse.metrics().getNodeHeapBytes());
+        assertEquals(1, sse.metrics().getBuildCount());
+    }
+
+    @Test
+    public final void testMetricsReset() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+        sse.prefixSearch("ba");
+
+        sse.metrics().reset();
+
+        assertEquals(0, sse.metrics().getPrefixSearch().getCalls());
+        assertEquals(0, sse.metrics().getBuildCount());
+        assertTrue(sse.metrics().getNodeCount() > 0);
+    }
+
+    @Test
+    public final void testMetricsTransferFrom() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+        SearchEngineMetrics metrics = sse.metrics();
+        SimpleSearchEngine1L<String> source = this.constructorTest();
+        source.add("tree", "6");
+        source.changeToSearchMode();
+
+        sse.transferFrom(source);
+
+        assertTrue(metrics == sse.metrics());
+        assertEquals("tree".length() + 1, metrics.getNodeCount());
+    }
+
+    @Test
+    public final void testMetricsDisabled() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+        sse.setMetricsEnabled(false);
+
+        sse.prefixSearch("ba");
+
+        assertNull(sse.metrics());
+    }
+
+    @Test
+    public final void testMetricsMBean() throws JMException {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+        sse.prefixSearch("ba");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = sse.metrics().registerMBean("testMetricsMBean");
+        try {
+            CompositeData prefixSearch = (CompositeData) server
+                    .getAttribute(name, "PrefixSearch");
+            assertEquals(1L, prefixSearch.get("calls"));
+            assertEquals(sse.metrics().getNodeCount(),
+                    server.getAttribute(name, "NodeCount"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+}
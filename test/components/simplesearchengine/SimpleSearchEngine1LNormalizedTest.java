@@ -0,0 +1,291 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.map.Map.Pair;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with tags
+ * and queries case folded.
+ */
+public final class SimpleSearchEngine1LNormalizedTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setTagNormalization(TagNormalization.FOLD_CASE);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setTagNormalization(TagNormalization.FOLD_CASE);
+        return sse;
+    }
+
+    /**
+     * Creates an engine in search mode with the given normalization.
+     *
+     * @param normalization
+     *            how to normalize tags and queries
+     * @param args
+     *            the tags and values of the entries, alternating
+     * @return the engine
+     */
+    private static SimpleSearchEngine1L<String> createNormalized(
+            TagNormalization normalization, String... args) {
+        assert args.length % 2 == 0 : "Violation of: num arguments should be even";
+
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setTagNormalization(normalization);
+        for (int i = 0; i < args.length; i += 2) {
+            sse.add(args[i], args[i + 1]);
+        }
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    /**
+     * Collects the tags produced by {@code it}.
+     *
+     * @param it
+     *            the iterator
+     * @return the tags, in order
+     */
+    private static List<String> collect(Iterator<String> it) {
+        List<String> tags = new ArrayList<>();
+        while (it.hasNext()) {
+            tags.add(it.next());
+        }
+        return tags;
+    }
+
+    @Test
+    public final void testNormalize() {
+        assertEquals("Straße", TagNormalization.NONE.normalize("Straße"));
+        assertEquals("strasse", TagNormalization.FOLD_CASE.normalize("Straße"));
+        assertEquals("file", TagNormalization.FOLD_CASE.normalize("ﬁle"));
+        assertEquals("café", TagNormalization.FOLD_CASE.normalize("CAFÉ"));
+        assertEquals("cafe",
+                TagNormalization.FOLD_CASE_AND_ACCENTS.normalize("CAFÉ"));
+        assertEquals("cafe", TagNormalization.FOLD_CASE_AND_ACCENTS
+                .normalize("café"));
+        assertEquals("mixed case",
+                TagNormalization.FOLD_CASE.normalize("MiXeD Case"));
+    }
+
+    @Test
+    public final void testNormalizeReturnsNormalizedText() {
+        String text = "already folded";
+
+        assertEquals(true, TagNormalization.FOLD_CASE.normalize(text) == text);
+    }
+
+    @Test
+    public final void testPrefixSearchFoldsCase() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1", "apricot", "2",
+                "BANANA", "3", "apple", "4");
+
+        assertEquals(Arrays.asList("Apple", "apple", "apricot"),
+                sse.prefixSearch("AP"));
+        assertEquals(Arrays.asList("BANANA"), sse.prefixSearch("ban"));
+        assertEquals(4, sse.size());
+    }
+
+    @Test
+    public final void testContainsSearchFoldsAccents() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE_AND_ACCENTS, "Café", "1",
+                "décaféiné", "2", "cafeteria", "3", "tea", "4");
+
+        assertEquals(Arrays.asList("Café", "cafeteria", "décaféiné"),
+                sse.containsSearch("CAFE"));
+        assertEquals(Arrays.asList("décaféiné"), sse.containsSearch("decaf"));
+    }
+
+    @Test
+    public final void testSubstringIndexFoldsCase() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setTagNormalization(TagNormalization.FOLD_CASE);
+        sse.setSubstringIndexEnabled(true);
+        sse.add("Basket", "1");
+        sse.add("ASK", "2");
+        sse.add("tusk", "3");
+        sse.changeToSearchMode();
+
+        assertEquals(Arrays.asList("ASK", "Basket"), sse.containsSearch("Ask"));
+        assertEquals(Arrays.asList("Basket"),
+                collect(sse.containsSearchIterator("ask", "ASK")));
+    }
+
+    @Test
+    public final void testContainsAndValueOfAreExact() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1", "apple", "2");
+
+        assertEquals(true, sse.contains("Apple"));
+        assertEquals(true, sse.contains("apple"));
+        assertEquals(false, sse.contains("APPLE"));
+        assertEquals("1", sse.valueOf("Apple"));
+        assertEquals("2", sse.valueOf("apple"));
+    }
+
+    @Test
+    public final void testPrefixSearchIteratorAfterCollidingTag() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1", "apple", "2",
+                "APPLE", "3", "applet", "4", "bat", "5");
+
+        assertEquals(Arrays.asList("APPLE", "Apple", "apple", "applet"),
+                collect(sse.prefixSearchIterator("app", null)));
+        assertEquals(Arrays.asList("apple", "applet"),
+                collect(sse.prefixSearchIterator("app", "Apple")));
+        assertEquals(Arrays.asList("applet"),
+                collect(sse.prefixSearchIterator("APP", "apple")));
+        assertEquals(Arrays.asList("APPLE", "Apple", "apple", "applet"),
+                collect(sse.prefixSearchIterator("apple", "Ap")));
+    }
+
+    @Test
+    public final void testPrefixSearchBatchFoldsCase() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1", "apple", "2",
+                "Bat", "3");
+
+        assertEquals(
+                Arrays.asList(Arrays.asList("Apple", "apple"),
+                        Arrays.asList("Bat"), Arrays.asList()),
+                sse.prefixSearchBatch(Arrays.asList("APP", "b", "c")));
+    }
+
+    @Test
+    public final void testRelativeSearchAndSuggestions() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE_AND_ACCENTS, "Zoë", "1", "ZOE",
+                "2", "zone", "3");
+
+        assertEquals("ZOE", sse.relativeSearch("zoe", 0));
+        assertEquals(null, sse.relativeSearch("zoey", 0));
+
+        List<Suggestion<String>> suggestions = sse.suggestions("Zoe", 3);
+        assertEquals(3, suggestions.size());
+        assertEquals("ZOE", suggestions.get(0).tag());
+        assertEquals("2", suggestions.get(0).value());
+        assertEquals(0, suggestions.get(0).distance());
+        assertEquals("Zoë", suggestions.get(1).tag());
+        assertEquals("1", suggestions.get(1).value());
+        assertEquals("zone", suggestions.get(2).tag());
+        assertEquals(1, suggestions.get(2).distance());
+        assertEquals(1, sse.suggestions("zoe", 1).size());
+    }
+
+    @Test
+    public final void testAddAndRemoveInSearchMode() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1", "bat", "2");
+
+        sse.add("APPLE", "3");
+        sse.add("Cat", "4");
+
+        assertEquals(4, sse.size());
+        assertEquals(Arrays.asList("APPLE", "Apple"), sse.prefixSearch("a"));
+        assertEquals("3", sse.valueOf("APPLE"));
+        assertEquals(Arrays.asList("Cat"), sse.prefixSearch("CA"));
+
+        Pair<String, String> removed = sse.remove("Apple");
+        assertEquals("Apple", removed.key());
+        assertEquals("1", removed.value());
+        assertEquals(Arrays.asList("APPLE"), sse.prefixSearch("a"));
+
+        sse.remove("APPLE");
+        assertEquals(Arrays.asList(), sse.prefixSearch("a"));
+        assertEquals(null, sse.relativeSearch("apple", 0));
+        assertEquals(2, sse.size());
+    }
+
+    @Test
+    public final void testVisitEntriesAndRemoveAny() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "b", "1", "A", "2", "a", "3");
+        List<String> visited = new ArrayList<>();
+
+        sse.visitEntries((tag, value) -> visited.add(tag + value));
+
+        assertEquals(Arrays.asList("A2", "a3", "b1"), visited);
+        assertEquals("A", sse.removeAny().key());
+        assertEquals("a", sse.removeAny().key());
+    }
+
+    @Test
+    public final void testTopCompletionsFoldCase() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setTagNormalization(TagNormalization.FOLD_CASE);
+        sse.setCompletionWeigher(Long::parseLong);
+        sse.add("Tree", "5");
+        sse.add("trek", "9");
+        sse.add("TREE", "7");
+        sse.changeToSearchMode();
+
+        assertEquals(Arrays.asList("trek", "TREE", "Tree"),
+                sse.topCompletions("TR", 3));
+    }
+
+    @Test
+    public final void testSaveIndexKeepsTags() throws IOException {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1", "apple", "2",
+                "Bat", "3");
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        sse.saveIndex(file, value -> value);
+
+        SimpleSearchEngine1L<String> exact = new SimpleSearchEngine1L<>();
+        exact.openIndex(file, value -> value);
+
+        assertEquals(Arrays.asList("Apple", "Bat", "apple"),
+                exact.prefixSearch(""));
+        assertEquals("2", exact.valueOf("apple"));
+    }
+
+    @Test
+    public final void testNormalizationKeptByClearAndTransferFrom() {
+        SimpleSearchEngine1L<String> sse = createNormalized(
+                TagNormalization.FOLD_CASE, "Apple", "1");
+        SimpleSearchEngine1L<String> other = new SimpleSearchEngine1L<>();
+
+        other.transferFrom(sse);
+        assertEquals(TagNormalization.FOLD_CASE, other.tagNormalization());
+        assertEquals(Arrays.asList("Apple"), other.prefixSearch("APP"));
+
+        other.clear();
+        assertEquals(TagNormalization.FOLD_CASE, other.tagNormalization());
+    }
+
+    @Test
+    public final void testQueryCacheKeyedByNormalizedText() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setTagNormalization(TagNormalization.FOLD_CASE);
+        sse.setQueryCacheCapacity(8);
+        sse.add("Apple", "1");
+        sse.changeToSearchMode();
+
+        assertEquals(Arrays.asList("Apple"), sse.prefixSearch("ap"));
+        assertEquals(Arrays.asList("Apple"), sse.prefixSearch("AP"));
+        assertEquals(1, sse.queryCacheHits());
+    }
+
+}
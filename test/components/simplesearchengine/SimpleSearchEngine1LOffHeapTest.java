@@ -0,0 +1,109 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * trie kept off the heap.
+ */
+public final class SimpleSearchEngine1LOffHeapTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setOffHeapStorageEnabled(true);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setOffHeapStorageEnabled(true);
+        return sse;
+    }
+
+    @Test
+    public final void testMoveOffHeapKeepsTrie() {
+        String[] tags = { "", "bat", "batch", "bath", "cat" };
+        SearchTrie trie = SearchTrie.build(tags);
+
+        trie.moveOffHeap();
+
+        assertEquals(true, trie.isOffHeap());
+        assertEquals(true, trie.hasSameLayout(SearchTrie.build(tags)));
+        List<String> results = new ArrayList<>();
+        trie.prefixSearch("ba", results);
+        assertEquals(Arrays.asList("bat", "batch", "bath"), results);
+    }
+
+    @Test
+    public final void testUpdatesStayOffHeap() {
+        SearchTrie trie = SearchTrie.build(new String[] { "a" });
+        trie.moveOffHeap();
+
+        /*
+         * Grow the trie past the capacity of its buffers
+         */
+        for (int i = 0; i < 100; i++) {
+            trie.insert("tag" + i);
+        }
+        trie.remove("a");
+
+        assertEquals(true, trie.isOffHeap());
+        assertEquals(100, trie.size());
+        List<String> results = new ArrayList<>();
+        trie.prefixSearch("tag99", results);
+        assertEquals(Arrays.asList("tag99"), results);
+    }
+
+    @Test
+    public final void testStructureOffHeapInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.add("casket", "2");
+        sse.changeToSearchMode();
+
+        sse.add("gasket", "3");
+        sse.remove("casket");
+
+        assertEquals(Arrays.asList("basket", "gasket"),
+                sse.containsSearch("sket"));
+        assertEquals("3", sse.valueOf("gasket"));
+    }
+
+    @Test
+    public final void testRadixTrieAndDawgDisableOffHeap() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+
+        sse.setRadixTrieEnabled(true);
+        assertEquals(false, sse.isOffHeapStorageEnabled());
+
+        sse.setOffHeapStorageEnabled(true);
+        assertEquals(false, sse.isRadixTrieEnabled());
+        sse.setDawgEnabled(true);
+        assertEquals(false, sse.isOffHeapStorageEnabled());
+    }
+
+    @Test
+    public final void testOffHeapKeptByClearAndTransferFrom() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("basket", "1");
+        sse.changeToSearchMode();
+        SimpleSearchEngine1L<String> other = new SimpleSearchEngine1L<>();
+
+        other.transferFrom(sse);
+        assertEquals(true, other.isOffHeapStorageEnabled());
+        assertEquals("1", other.valueOf("basket"));
+
+        other.clear();
+        assertEquals(true, other.isOffHeapStorageEnabled());
+    }
+
+}
@@ -0,0 +1,79 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * parallel build enabled.
+ */
+public final class SimpleSearchEngine1LParallelBuildTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setParallelBuildEnabled(true);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setParallelBuildEnabled(true);
+        return sse;
+    }
+
+    /**
+     * Builds {@code tags} serially and in parallel and checks the two tries
+     * are laid out identically.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     */
+    private static void assertSameLayout(String[] tags) {
+        SearchTrie serial = SearchTrie.build(tags);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SearchTrie parallel = SearchTrie.build(tags, pool);
+            assertEquals(true, serial.hasSameLayout(parallel));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public final void testParallelLayoutEmpty() {
+        assertSameLayout(new String[0]);
+    }
+
+    @Test
+    public final void testParallelLayoutEmptyTag() {
+        assertSameLayout(new String[] { "", "a", "ab", "b", "ba", "bb", "c" });
+    }
+
+    @Test
+    public final void testParallelLayoutAll() {
+        List<String> lines = new ArrayList<>();
+        SimpleReader input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\AllWords.txt");
+        while (!input.atEOS()) {
+            lines.add(input.nextLine());
+        }
+        input.close();
+        String[] tags = lines.stream().distinct().sorted()
+                .toArray(String[]::new);
+
+        assertSameLayout(tags);
+    }
+
+}
@@ -0,0 +1,152 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * query cache enabled.
+ */
+public final class SimpleSearchEngine1LQueryCacheTest
+        extends SimpleSearchEngineTest {
+
+    /**
+     * Capacity of the query cache; small, so the tests also evict.
+     */
+    private static final int CAPACITY = 4;
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setQueryCacheCapacity(CAPACITY);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setQueryCacheCapacity(CAPACITY);
+        return sse;
+    }
+
+    /**
+     * Creates an engine in search mode with a few tags and the query cache
+     * enabled.
+     *
+     * @return the engine
+     */
+    private SimpleSearchEngine1L<String> createSearchEngine() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        sse.add("bat", "1");
+        sse.add("base", "2");
+        sse.add("tree", "3");
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    @Test
+    public final void testQueryCacheHit() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        List<String> first = sse.prefixSearch("ba");
+        first.clear();
+        List<String> second = sse.prefixSearch("ba");
+
+        assertEquals(Arrays.asList("base", "bat"), second);
+        assertEquals(1, sse.queryCacheHits());
+        assertEquals(1, sse.queryCacheMisses());
+    }
+
+    @Test
+    public final void testQueryCacheNullResult() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        assertEquals(null, sse.relativeSearch("zzzzz", 1));
+        assertEquals(null, sse.relativeSearch("zzzzz", 1));
+        assertEquals("base", sse.relativeSearch("zzzzz", 5));
+
+        assertEquals(1, sse.queryCacheHits());
+        assertEquals(2, sse.queryCacheMisses());
+    }
+
+    @Test
+    public final void testQueryCacheAddInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        assertEquals(Arrays.asList("base", "bat"), sse.prefixSearch("ba"));
+        sse.add("ball", "4");
+
+        assertEquals(Arrays.asList("ball", "base", "bat"),
+                sse.prefixSearch("ba"));
+        assertEquals(0, sse.queryCacheHits());
+    }
+
+    @Test
+    public final void testQueryCacheClear() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        assertEquals(Arrays.asList("bat"), sse.containsSearch("at"));
+        sse.clear();
+        sse.add("cat", "5");
+        sse.changeToSearchMode();
+
+        assertEquals(Arrays.asList("cat"), sse.containsSearch("at"));
+        assertEquals(CAPACITY, sse.queryCacheCapacity());
+        assertEquals(0, sse.queryCacheHits());
+    }
+
+    @Test
+    public final void testQueryCacheTransferFrom() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+        SimpleSearchEngine1L<String> source = this.constructorTest();
+        source.add("tree", "6");
+        source.changeToSearchMode();
+
+        assertEquals("tree", sse.relativeSearch("tre"));
+        sse.transferFrom(source);
+
+        assertEquals("tree", sse.relativeSearch("tre"));
+        assertEquals("6", sse.suggestions("tre", 1).get(0).value());
+        assertEquals(0, sse.queryCacheHits());
+        assertEquals(CAPACITY, sse.queryCacheCapacity());
+    }
+
+    @Test
+    public final void testQueryCacheEvictsLeastRecentlyUsed() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+
+        sse.prefixSearch("a");
+        sse.prefixSearch("b");
+        sse.prefixSearch("c");
+        sse.prefixSearch("d");
+        sse.prefixSearch("a");
+        sse.prefixSearch("e");
+        assertEquals(1, sse.queryCacheHits());
+
+        /*
+         * "b" was the least recently used when "e" came in
+         */
+        sse.prefixSearch("a");
+        sse.prefixSearch("b");
+        assertEquals(2, sse.queryCacheHits());
+        assertEquals(6, sse.queryCacheMisses());
+    }
+
+    @Test
+    public final void testQueryCacheDisabled() {
+        SimpleSearchEngine1L<String> sse = this.createSearchEngine();
+        sse.setQueryCacheCapacity(0);
+
+        sse.prefixSearch("ba");
+        sse.prefixSearch("ba");
+
+        assertEquals(0, sse.queryCacheCapacity());
+        assertEquals(0, sse.queryCacheHits());
+        assertEquals(0, sse.queryCacheMisses());
+    }
+
+}
@@ -0,0 +1,85 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * Customized JUnit test fixture for {@code SimpleSearchEngine1L} with the
+ * radix trie enabled.
+ */
+public final class SimpleSearchEngine1LRadixTrieTest
+        extends SimpleSearchEngineTest {
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorTest() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setRadixTrieEnabled(true);
+        return sse;
+    }
+
+    @Override
+    protected SimpleSearchEngine1L<String> constructorRef() {
+        SimpleSearchEngine1L<String> sse = new SimpleSearchEngine1L<String>();
+        sse.setRadixTrieEnabled(true);
+        return sse;
+    }
+
+    /**
+     * Compresses the trie of {@code tags} into a radix trie and checks that
+     * the radix trie has no more nodes, finds the same tags, and turns back
+     * into the same trie.
+     *
+     * @param tags
+     *            the tags, in lexicographical order
+     */
+    private static void assertSameTags(String[] tags) {
+        SearchTrie trie = SearchTrie.build(tags);
+        RadixTrie radix = RadixTrie.build(trie);
+        assertEquals(true, radix.nodeCount() <= trie.nodeCount());
+        assertEquals(trie.size(), radix.size());
+
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        trie.prefixSearch("", expected);
+        radix.prefixSearch("", actual);
+        assertEquals(expected, actual);
+        for (String tag : tags) {
+            assertEquals(trie.entryOf(tag), radix.entryOf(tag));
+        }
+        assertEquals(true, trie.hasSameLayout(radix.toSearchTrie()));
+    }
+
+    @Test
+    public final void testRadixTrieEmpty() {
+        assertSameTags(new String[0]);
+    }
+
+    @Test
+    public final void testRadixTrieEmptyTag() {
+        assertSameTags(
+                new String[] { "", "a", "abc", "abcd", "abd", "b", "bcdef" });
+    }
+
+    @Test
+    public final void testRadixTrieAll() {
+        List<String> lines = new ArrayList<>();
+        SimpleReader input = new SimpleReader1L(
+                "test\\components\\simplesearchengine\\testData\\AllWords.txt");
+        while (!input.atEOS()) {
+            lines.add(input.nextLine());
+        }
+        input.close();
+        String[] tags = lines.stream().distinct().sorted()
+                .toArray(String[]::new);
+
+        assertSameTags(tags);
+    }
+
+}
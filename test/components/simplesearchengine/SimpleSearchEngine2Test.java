@@ -0,0 +1,300 @@
+package components.simplesearchengine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.map.Map.Pair;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code SimpleSearchEngine2}, checked against
+ * {@code SimpleSearchEngine1L} holding the same entries.
+ *
+ * @author Saurav Poudyel
+ *
+ */
+public final class SimpleSearchEngine2Test {
+
+    /**
+     * Number of shards of the hash sharded engines.
+     */
+    private static final int SHARDS = 4;
+
+    /**
+     * Reads the lines of {@code inputFile} as entries (line, line number)
+     * into {@code sse}.
+     *
+     * @param sse
+     *            the engine to add the entries to
+     * @param inputFile
+     *            the file to read
+     * @updates sse
+     */
+    private static void addLines(SimpleSearchEngine<String> sse,
+            String inputFile) {
+        SimpleReader1L input = new SimpleReader1L(inputFile);
+        int entryNum = 0;
+        while (!input.atEOS()) {
+            sse.add(input.nextLine(), Integer.toString(entryNum));
+            entryNum++;
+        }
+        input.close();
+    }
+
+    /*
+     * Engines over "Some" words: hash sharded, range sharded and reference
+     */
+    private static final String SOME_WORDS = ""
+            + "test\\components\\simplesearchengine\\testData\\SomeWords.txt";
+
+    private SimpleSearchEngine2<String> hashSSE = this
+            .createFromDoc(new SimpleSearchEngine2<String>(SHARDS));
+    private SimpleSearchEngine2<String> rangeSSE = this
+            .createFromDoc(new SimpleSearchEngine2<String>("c", "m", "t"));
+    private SimpleSearchEngine1L<String> refSSE = this
+            .createFromDoc(new SimpleSearchEngine1L<String>());
+
+    /**
+     * Fills {@code sse} from the "Some" words and changes it to search mode.
+     *
+     * @param <E>
+     *            type of the engine
+     * @param sse
+     *            the engine
+     * @return {@code sse}
+     */
+    private <E extends SimpleSearchEngine<String>> E createFromDoc(E sse) {
+        addLines(sse, SOME_WORDS);
+        sse.changeToSearchMode();
+        return sse;
+    }
+
+    /**
+     * Creates a hash sharded engine with the given entries and mode.
+     *
+     * @param insertionMode
+     *            flag indicating the engine mode
+     * @param args
+     *            the tags and values of the entries, alternating
+     * @return the engine
+     */
+    private static SimpleSearchEngine2<String> createFromArgs(
+            boolean insertionMode, String... args) {
+        assert args.length % 2 == 0 : "Violation of: num arguments should be even";
+
+        SimpleSearchEngine2<String> sse = new SimpleSearchEngine2<String>(
+                SHARDS);
+        for (int i = 0; i < args.length; i += 2) {
+            sse.add(args[i], args[i + 1]);
+        }
+        if (!insertionMode) {
+            sse.changeToSearchMode();
+        }
+        return sse;
+    }
+
+    /*
+     * Kernel tests
+     */
+
+    @Test
+    public final void testAddContainsValueOf() {
+        SimpleSearchEngine2<String> sse = createFromArgs(true, "bat", "1",
+                "base", "2", "tree", "3");
+
+        assertEquals(3, sse.size());
+        assertEquals(true, sse.contains("base"));
+        assertEquals(false, sse.contains("ba"));
+        assertEquals("3", sse.valueOf("tree"));
+
+        sse.changeToSearchMode();
+
+        assertEquals(false, sse.isInInsertionMode());
+        assertEquals(3, sse.size());
+        assertEquals("1", sse.valueOf("bat"));
+        assertEquals(false, sse.contains("trees"));
+    }
+
+    @Test
+    public final void testRemoveInSearchMode() {
+        SimpleSearchEngine2<String> sse = createFromArgs(false, "bat", "1",
+                "base", "2", "tree", "3");
+
+        Pair<String, String> removed = sse.remove("base");
+        sse.add("bass", "4");
+
+        assertEquals("base", removed.key());
+        assertEquals("2", removed.value());
+        assertEquals(Arrays.asList("bass", "bat"), sse.prefixSearch("ba"));
+    }
+
+    @Test
+    public final void testRemoveAny() {
+        SimpleSearchEngine2<String> sse = createFromArgs(true, "bat", "1",
+                "base", "2", "tree", "3", "", "4");
+
+        List<String> removed = new ArrayList<>();
+        while (sse.size() > 0) {
+            removed.add(sse.removeAny().key());
+        }
+        removed.sort(null);
+
+        assertEquals(Arrays.asList("", "base", "bat", "tree"), removed);
+    }
+
+    @Test
+    public final void testChangeToSearchModeWithEntries() {
+        SimpleSearchEngine2<String> sse = new SimpleSearchEngine2<String>(
+                SHARDS);
+        sse.add("bat", "1");
+        List<Pair<String, String>> entries = new ArrayList<>();
+        for (String tag : Arrays.asList("base", "ball", "tree")) {
+            entries.add(new SimpleSearchEngineSecondary.SimplePair<String>(tag,
+                    tag + "!"));
+        }
+
+        sse.changeToSearchMode(entries);
+
+        assertEquals(Arrays.asList("ball", "base", "bat", "tree"),
+                sse.prefixSearch(""));
+        assertEquals("ball!", sse.valueOf("ball"));
+    }
+
+    @Test
+    public final void testTransferFromAndNewInstance() {
+        SimpleSearchEngine2<String> sse = new SimpleSearchEngine2<String>("m");
+        SimpleSearchEngine2<String> source = createFromArgs(false, "bat", "1",
+                "tree", "2");
+
+        sse.transferFrom(source);
+        SimpleSearchEngine2<String> fresh = sse.newInstance();
+        fresh.add("tree", "3");
+
+        assertEquals(Arrays.asList("bat", "tree"), sse.prefixSearch(""));
+        assertEquals(true, source.isInInsertionMode());
+        assertEquals(0, source.size());
+        assertEquals(1, fresh.size());
+        assertEquals(true, fresh.isInInsertionMode());
+    }
+
+    /*
+     * Query tests against the reference engine
+     */
+
+    @Test
+    public final void testPrefixSearchMerge() {
+        for (String prefix : Arrays.asList("", "a", "ba", "ste", "zzz")) {
+            assertEquals(this.refSSE.prefixSearch(prefix),
+                    this.hashSSE.prefixSearch(prefix));
+            assertEquals(this.refSSE.prefixSearch(prefix),
+                    this.rangeSSE.prefixSearch(prefix));
+        }
+    }
+
+    @Test
+    public final void testContainsSearchMerge() {
+        for (String substring : Arrays.asList("", "e", "ing", "archi")) {
+            assertEquals(this.refSSE.containsSearch(substring),
+                    this.hashSSE.containsSearch(substring));
+            assertEquals(this.refSSE.containsSearch(substring),
+                    this.rangeSSE.containsSearch(substring));
+        }
+    }
+
+    @Test
+    public final void testPrefixSearchBatchMerge() {
+        List<String> prefixes = Arrays.asList("st", "", "b", "ba", "zzz",
+                "s");
+
+        List<List<String>> hashVal = this.hashSSE.prefixSearchBatch(prefixes);
+        List<List<String>> rangeVal = this.rangeSSE
+                .prefixSearchBatch(prefixes);
+
+        for (int i = 0; i < prefixes.size(); i++) {
+            List<String> expected = this.refSSE.prefixSearch(prefixes.get(i));
+            assertEquals(expected, hashVal.get(i));
+            assertEquals(expected, rangeVal.get(i));
+        }
+    }
+
+    @Test
+    public final void testSearchIterators() {
+        List<String> expected = this.refSSE.prefixSearch("c");
+        String after = expected.get(expected.size() / 2);
+
+        assertEquals(this.refSSE.prefixSearch("c", after, 5),
+                this.hashSSE.prefixSearch("c", after, 5));
+        assertEquals(this.refSSE.containsSearch("an", after, 5),
+                this.rangeSSE.containsSearch("an", after, 5));
+    }
+
+    @Test
+    public final void testRelativeSearch() {
+        for (String tag : Arrays.asList("teh", "bsaket", "x", "")) {
+            assertEquals(this.refSSE.relativeSearch(tag),
+                    this.hashSSE.relativeSearch(tag));
+            assertEquals(this.refSSE.relativeSearch(tag, 1),
+                    this.rangeSSE.relativeSearch(tag, 1));
+        }
+    }
+
+    @Test
+    public final void testRelativeSearchTie() {
+        SimpleSearchEngine2<String> sse = createFromArgs(false, "tree", "1",
+                "bat", "2", "base", "3");
+
+        assertEquals("base", sse.relativeSearch("zzzzz", 5));
+        assertEquals(null, sse.relativeSearch("zzzzz", 4));
+    }
+
+    @Test
+    public final void testSuggestions() {
+        for (String tag : Arrays.asList("teh", "bsaket", "x")) {
+            assertEquals(this.refSSE.suggestions(tag, 7),
+                    this.hashSSE.suggestions(tag, 7));
+            assertEquals(this.refSSE.suggestions(tag, 7),
+                    this.rangeSSE.suggestions(tag, 7));
+        }
+    }
+
+    /*
+     * Common method tests
+     */
+
+    @Test
+    public final void testVisitEntriesInOrder() {
+        List<String> visited = new ArrayList<>();
+        this.hashSSE.visitEntries((tag, value) -> {
+            visited.add(tag);
+            return true;
+        });
+
+        assertEquals(this.refSSE.prefixSearch(""), visited);
+    }
+
+    @Test
+    public final void testEqualsAndToString() {
+        assertEquals(this.refSSE, this.hashSSE);
+        assertEquals(this.hashSSE, this.rangeSSE);
+        assertEquals(this.refSSE.hashCode(), this.rangeSSE.hashCode());
+        assertEquals(this.refSSE.toString(), this.hashSSE.toString());
+    }
+
+    @Test
+    public final void testSearchIteratorEmpty() {
+        SimpleSearchEngine2<String> sse = createFromArgs(false);
+
+        Iterator<String> tags = sse.prefixSearchIterator("", null);
+
+        assertEquals(false, tags.hasNext());
+        assertEquals(0, sse.suggestions("a", 3).size());
+        assertEquals(null, sse.relativeSearch("a"));
+    }
+
+}
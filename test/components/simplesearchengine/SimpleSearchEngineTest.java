@@ -2,12 +2,25 @@ package components.simplesearchengine;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
 import components.map.Map.Pair;
+import components.simplesearchengine.SimpleSearchEngineKernel.Suggestion;
 import components.simplereader.SimpleReader1L;
 
 /**
@@ -239,6 +252,7 @@ public abstract class SimpleSearchEngineTest {
         assertEquals(sseStringExpected, sseString);
     }
 
+    @Test
     public final void testToStringEmptySearchMode() {
         SimpleSearchEngine1L<String> sse = this.constructorTest();
         sse.changeToSearchMode();
@@ -294,6 +308,95 @@ public abstract class SimpleSearchEngineTest {
         assertEquals(sse, sse2);
     }
 
+    @Test
+    public final void testEqualsDifferentValue() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(true, "a",
+                "b", "c", "d", "e", "f", "g", "h");
+        SimpleSearchEngine1L<String> sse2 = this.createFromArgsTest(true, "a",
+                "b", "c", "x", "e", "f", "g", "h");
+
+        assertEquals(false, sse.equals(sse2));
+        assertEquals(false, sse2.equals(sse));
+        assertEquals(4, sse.size());
+        assertEquals("d", sse.valueOf("c"));
+        assertEquals(4, sse2.size());
+        assertEquals("x", sse2.valueOf("c"));
+    }
+
+    @Test
+    public final void testHashCodeInsertionMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(true, "a",
+                "b", "c", "d", "e", "f", "g", "h");
+        SimpleSearchEngine1L<String> sse2 = this.createFromArgsTest(true, "g",
+                "h", "e", "f", "c", "d", "a", "b");
+
+        assertEquals(sse.hashCode(), sse2.hashCode());
+    }
+
+    @Test
+    public final void testHashCodeSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "a",
+                "b", "c", "d", "e", "f", "g", "h");
+        SimpleSearchEngine1L<String> sse2 = this.createFromArgsTest(false, "g",
+                "h", "e", "f", "c", "d", "a", "b");
+
+        assertEquals(sse.hashCode(), sse2.hashCode());
+    }
+
+    /*
+     * visitEntries tests
+     */
+    @Test
+    public final void testVisitEntriesInsertionMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(true, "bat",
+                "1", "base", "2", "tree", "3");
+        SimpleSearchEngine1L<String> sseExpected = this.createFromArgsRef(true,
+                "bat", "1", "base", "2", "tree", "3");
+
+        List<String> visited = new ArrayList<>();
+        boolean complete = sse.visitEntries((tag, value) -> {
+            visited.add(tag + "=" + value);
+            return true;
+        });
+
+        Collections.sort(visited);
+        assertEquals(true, complete);
+        assertEquals(Arrays.asList("base=2", "bat=1", "tree=3"), visited);
+        assertEquals(sseExpected, sse);
+    }
+
+    @Test
+    public final void testVisitEntriesSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false,
+                "bat", "1", "base", "2", "tree", "3", "ball", "4");
+
+        List<String> visited = new ArrayList<>();
+        boolean complete = sse.visitEntries((tag, value) -> {
+            visited.add(tag + "=" + value);
+            return true;
+        });
+
+        assertEquals(true, complete);
+        assertEquals(Arrays.asList("ball=4", "base=2", "bat=1", "tree=3"),
+                visited);
+    }
+
+    @Test
+    public final void testVisitEntriesStops() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false,
+                "bat", "1", "base", "2", "tree", "3", "ball", "4");
+
+        List<String> visited = new ArrayList<>();
+        boolean complete = sse.visitEntries((tag, value) -> {
+            visited.add(tag);
+            return visited.size() < 2;
+        });
+
+        assertEquals(false, complete);
+        assertEquals(Arrays.asList("ball", "base"), visited);
+        assertEquals(4, sse.size());
+    }
+
     /*
      * Add and remove tests
      */
@@ -306,6 +409,61 @@ public abstract class SimpleSearchEngineTest {
         assertEquals(1, sse.size());
     }
 
+    @Test
+    public final void testAddInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "tree", "3");
+
+        sse.add("ball", "4");
+
+        List<String> expectedVal = Arrays.asList("ball", "base", "bat");
+        assertEquals(expectedVal, sse.prefixSearch("ba"));
+        assertEquals("4", sse.valueOf("ball"));
+        assertEquals(4, sse.size());
+        assertEquals(false, sse.isInInsertionMode());
+    }
+
+    @Test
+    public final void testRemoveInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "basement", "3", "tree", "4");
+
+        Pair<String, String> removed = sse.remove("basement");
+
+        assertEquals("basement", removed.key());
+        assertEquals("3", removed.value());
+        assertEquals(Arrays.asList("base"), sse.prefixSearch("base"));
+        assertEquals(Arrays.asList(), sse.prefixSearch("basem"));
+        assertEquals(false, sse.contains("basement"));
+        assertEquals(3, sse.size());
+    }
+
+    @Test
+    public final void testRemoveAndAddBackInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "tree", "3");
+        SimpleSearchEngine1L<String> sseExpected = this.createFromArgsRef(false,
+                "bat", "1", "base", "2", "tree", "3");
+
+        sse.remove("base");
+        sse.add("base", "2");
+
+        assertEquals(sseExpected, sse);
+        assertEquals("base", sse.relativeSearch("bases"));
+    }
+
+    @Test
+    public final void testRemoveAnyInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "cat",
+                "1", "dog", "2");
+
+        Pair<String, String> removed = sse.removeAny();
+
+        assertEquals(1, sse.size());
+        assertEquals(false, sse.contains(removed.key()));
+        assertEquals(1, sse.prefixSearch("").size());
+    }
+
     /*
      * Prefix Search Tests
      */
@@ -376,6 +534,136 @@ public abstract class SimpleSearchEngineTest {
         assertEquals(expectedVal, val);
     }
 
+    /*
+     * Paged Prefix Search Tests
+     */
+    @Test
+    public final void testPrefixSearchFirstPage() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "baa",
+                "1", "bac", "2", "bab", "3", "tree", "4", "bae", "5", "baz",
+                "6");
+
+        List<String> expectedVal = Arrays.asList("baa", "bab");
+        List<String> val = sse.prefixSearch("ba", null, 2);
+
+        assertEquals(expectedVal, val);
+    }
+
+    @Test
+    public final void testPrefixSearchNextPage() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "baa",
+                "1", "bac", "2", "bab", "3", "tree", "4", "bae", "5", "baz",
+                "6");
+
+        List<String> expectedVal = Arrays.asList("bac", "bae");
+        List<String> val = sse.prefixSearch("ba", "bab", 2);
+
+        assertEquals(expectedVal, val);
+    }
+
+    @Test
+    public final void testPrefixSearchPageAfterMissingTag() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "baa",
+                "1", "bac", "2", "bab", "3", "tree", "4", "bae", "5", "baz",
+                "6");
+
+        List<String> expectedVal = Arrays.asList("bae", "baz");
+        List<String> val = sse.prefixSearch("ba", "bad", 5);
+
+        assertEquals(expectedVal, val);
+    }
+
+    @Test
+    public final void testPrefixSearchPageAll() {
+        List<String> expectedVal = Arrays.asList("basketball", "basketry",
+                "basketweaver");
+
+        long startTime = System.nanoTime(); // Start timing
+        List<String> val = this.allSSE.prefixSearch("bask", "basket", 3); // Call
+        long endTime = System.nanoTime(); // End timing
+
+        long duration = (endTime - startTime) / 1_000;
+        System.out.println("Paged Prefix Search on All for 'bask': ");
+        System.out.println("Entries: " + this.allEntries);
+        System.out.println("Execution time: " + duration + " us \n");
+
+        assertEquals(expectedVal, val);
+    }
+
+    @Test
+    public final void testPrefixSearchBatch() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "tree", "4", "trek", "5");
+
+        List<List<String>> val = sse.prefixSearchBatch(
+                Arrays.asList("tre", "ba", "x", "bas", "", "ba", "trees"));
+
+        assertEquals(Arrays.asList(Arrays.asList("tree", "trek"),
+                Arrays.asList("ball", "base", "bat"), Arrays.asList(),
+                Arrays.asList("base"),
+                Arrays.asList("ball", "base", "bat", "tree", "trek"),
+                Arrays.asList("ball", "base", "bat"), Arrays.asList()), val);
+    }
+
+    @Test
+    public final void testPrefixSearchBatchEmpty() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1");
+
+        List<List<String>> val = sse
+                .prefixSearchBatch(Collections.<String> emptyList());
+
+        assertEquals(0, val.size());
+    }
+
+    @Test
+    public final void testPrefixSearchBatchListsAreSeparate() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2");
+
+        List<List<String>> val = sse
+                .prefixSearchBatch(Arrays.asList("b", "ba", "ba"));
+        val.get(0).clear();
+        val.get(1).add("tree");
+
+        assertEquals(Arrays.asList("base", "bat"), val.get(2));
+        assertEquals(Arrays.asList("base", "bat"), sse.prefixSearch("b"));
+    }
+
+    @Test
+    public final void testPrefixSearchBatchOnAll() {
+        List<String> prefixes = Arrays.asList("bask", "b", "basket", "tra",
+                "trad", "zz", "a", "ab", "qu", "basketb");
+
+        long startTime = System.nanoTime(); // Start timing
+        List<List<String>> val = this.allSSE.prefixSearchBatch(prefixes);
+        long endTime = System.nanoTime(); // End timing
+
+        long duration = (endTime - startTime) / 1_000;
+        System.out.println("Batch Prefix Search on All for 10 prefixes: ");
+        System.out.println("Entries: " + this.allEntries);
+        System.out.println("Execution time: " + duration + " us \n");
+
+        for (int i = 0; i < prefixes.size(); i++) {
+            assertEquals(this.allSSE.prefixSearch(prefixes.get(i)),
+                    val.get(i));
+        }
+    }
+
+    @Test
+    public final void testPrefixSearchIteratorEmptyPrefix() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "tree", "4");
+
+        Iterator<String> val = sse.prefixSearchIterator("", null);
+
+        assertEquals("ball", val.next());
+        assertEquals("base", val.next());
+        assertEquals("bat", val.next());
+        assertEquals("tree", val.next());
+        assertEquals(false, val.hasNext());
+    }
+
     /*
      * Contains Search Tests
      */
@@ -446,6 +734,18 @@ public abstract class SimpleSearchEngineTest {
         assertEquals(expectedVal, val);
     }
 
+    @Test
+    public final void testContainsSearchPage() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "baa",
+                "1", "bac", "2", "bab", "3", "tree", "4", "aab", "5", "baz",
+                "6");
+
+        List<String> expectedVal = Arrays.asList("bab", "bac");
+        List<String> val = sse.containsSearch("b", "baa", 2);
+
+        assertEquals(expectedVal, val);
+    }
+
     /*
      * Relative Search Tests
      */
@@ -501,4 +801,475 @@ public abstract class SimpleSearchEngineTest {
         assertEquals(expectedVal, val);
     }
 
+    @Test
+    public final void testRelativeSearchWithinDistance() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4");
+
+        String expectedVal = "bat";
+        String val = sse.relativeSearch("batt", 1);
+
+        assertEquals(expectedVal, val);
+    }
+
+    @Test
+    public final void testRelativeSearchBeyondDistance() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4");
+
+        String val = sse.relativeSearch("bottle", 2);
+
+        assertEquals(null, val);
+    }
+
+    @Test
+    public final void testRelativeSearchAllWithinDistance() {
+        String expectedVal = "traditional";
+
+        long startTime = System.nanoTime(); // Start timing
+        String val = this.allSSE.relativeSearch("tradtionaly", 2); // Call
+        long endTime = System.nanoTime(); // End timing
+
+        long duration = (endTime - startTime) / 1_000;
+        System.out.println(
+                "Relative Search on All with 'tradtionaly' within 2 for 'traditional': ");
+        System.out.println("Entries: " + this.allEntries);
+        System.out.println("Execution time: " + duration + " us \n");
+
+        assertEquals(expectedVal, val);
+    }
+
+    /*
+     * Suggestions Tests
+     */
+    @Test
+    public final void testSuggestionsBasic() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4");
+
+        List<Suggestion<String>> val = sse.suggestions("batt", 2);
+
+        assertEquals(2, val.size());
+        assertEquals("bat", val.get(0).tag());
+        assertEquals("1", val.get(0).value());
+        assertEquals(1, val.get(0).distance());
+        assertEquals("ball", val.get(1).tag());
+        assertEquals("3", val.get(1).value());
+        assertEquals(2, val.get(1).distance());
+    }
+
+    @Test
+    public final void testSuggestionsForLexigraphicalOrder() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "baa",
+                "1", "bac", "2", "bab", "3", "tree", "4", "bae", "5", "baz",
+                "6");
+
+        List<Suggestion<String>> val = sse.suggestions("ba", 3);
+
+        assertEquals(3, val.size());
+        assertEquals("baa", val.get(0).tag());
+        assertEquals("bab", val.get(1).tag());
+        assertEquals("bac", val.get(2).tag());
+    }
+
+    @Test
+    public final void testSuggestionsMoreThanSize() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "tree", "2");
+
+        List<Suggestion<String>> val = sse.suggestions("bat", 5);
+
+        assertEquals(2, val.size());
+        assertEquals("bat", val.get(0).tag());
+        assertEquals(0, val.get(0).distance());
+        assertEquals("tree", val.get(1).tag());
+    }
+
+    @Test
+    public final void testSuggestionsAll() {
+        List<String> expectedVal = Arrays.asList("traditionally",
+                "rationally", "irrationally", "nationally", "traditional");
+
+        long startTime = System.nanoTime(); // Start timing
+        List<Suggestion<String>> val = this.allSSE.suggestions("tradtionally",
+                5); // Call
+        long endTime = System.nanoTime(); // End timing
+
+        long duration = (endTime - startTime) / 1_000_000;
+        System.out.println("Suggestions on All for 'tradtionally': ");
+        System.out.println("Entries: " + this.allEntries);
+        System.out.println("Execution time: " + duration + " ms \n");
+
+        List<String> valTags = new ArrayList<>();
+        for (Suggestion<String> suggestion : val) {
+            valTags.add(suggestion.tag());
+        }
+        assertEquals(expectedVal, valTags);
+    }
+
+    /*
+     * Bulk loading tests
+     */
+
+    /**
+     * Makes a list of entries from tags and values given in turn.
+     *
+     * @param args
+     *            the tags and values
+     * @return the entries
+     */
+    private static List<Pair<String, String>> pairs(String... args) {
+        List<Pair<String, String>> pairs = new ArrayList<>();
+        for (int i = 0; i < args.length; i += 2) {
+            pairs.add(new SimpleSearchEngineSecondary.SimplePair<String>(
+                    args[i], args[i + 1]));
+        }
+        return pairs;
+    }
+
+    @Test
+    public final void testAddAll() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        SimpleSearchEngine1L<String> sseExpected = this.createFromArgsTest(true,
+                "bat", "1", "base", "2", "ball", "3");
+
+        sse.addAll(pairs("bat", "1", "base", "2", "ball", "3"));
+
+        assertEquals(true, sse.isInInsertionMode());
+        assertEquals(sseExpected, sse);
+    }
+
+    @Test
+    public final void testAddAllEmptyThenAdd() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        SimpleSearchEngine1L<String> sseExpected = this.createFromArgsTest(true,
+                "bat", "1");
+
+        sse.addAll(Collections.<Pair<String, String>> emptyList());
+        sse.add("bat", "1");
+
+        assertEquals(true, sse.contains("bat"));
+        assertEquals(sseExpected, sse);
+    }
+
+    @Test
+    public final void testAddAllInSearchMode() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1");
+
+        sse.addAll(pairs("base", "2", "ball", "3"));
+
+        assertEquals(false, sse.isInInsertionMode());
+        assertEquals(Arrays.asList("ball", "base", "bat"),
+                sse.prefixSearch("ba"));
+        assertEquals("2", sse.valueOf("base"));
+    }
+
+    @Test
+    public final void testChangeToSearchModeWithEntries() {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(true, "bat",
+                "1", "taste", "4");
+
+        sse.changeToSearchMode(pairs("base", "2", "ball", "3"));
+
+        assertEquals(false, sse.isInInsertionMode());
+        assertEquals(4, sse.size());
+        assertEquals(Arrays.asList("ball", "base", "bat"),
+                sse.prefixSearch("ba"));
+        assertEquals("1", sse.valueOf("bat"));
+        assertEquals("3", sse.valueOf("ball"));
+    }
+
+    @Test
+    public final void testChangeToSearchModeWithStream() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        List<Pair<String, String>> entries = pairs("bat", "1", "base", "2",
+                "ball", "3");
+
+        sse.changeToSearchMode(entries.stream()::iterator);
+
+        assertEquals(3, sse.size());
+        assertEquals("bat", sse.relativeSearch("batt"));
+    }
+
+    @Test
+    public final void testChangeToSearchModeWithLinesAll() {
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+        LineEntries<String> lines = new LineEntries<>(
+                Paths.get("test", "components", "simplesearchengine",
+                        "testData", "AllWords.txt"),
+                (line, lineNumber) -> Integer.toString(lineNumber));
+
+        sse.changeToSearchMode(lines);
+
+        assertEquals(this.allEntries, sse.size());
+        assertEquals(this.allSSE.prefixSearch("bask"), sse.prefixSearch("bask"));
+        assertEquals(this.allSSE.valueOf("basketball"),
+                sse.valueOf("basketball"));
+    }
+
+    /*
+     * Index file tests
+     */
+
+    /**
+     * Saves {@code sse} to a temporary index file and opens it in a new
+     * engine.
+     *
+     * @param sse
+     *            the engine to save, in search mode
+     * @return the engine opened from the index file
+     * @throws IOException
+     *             if the index file cannot be written or read
+     */
+    private SimpleSearchEngine1L<String> saveAndOpen(
+            SimpleSearchEngine1L<String> sse) throws IOException {
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        sse.saveIndex(file, value -> value);
+
+        SimpleSearchEngine1L<String> opened = this.constructorTest();
+        opened.openIndex(file, value -> value);
+        return opened;
+    }
+
+    @Test
+    public final void testOpenIndex() throws IOException {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "", "4", "bäll", "5");
+
+        SimpleSearchEngine1L<String> opened = this.saveAndOpen(sse);
+
+        assertEquals(false, opened.isInInsertionMode());
+        assertEquals(5, opened.size());
+        assertEquals(true, opened.contains(""));
+        assertEquals(false, opened.contains("ba"));
+        assertEquals("3", opened.valueOf("ball"));
+        assertEquals("5", opened.valueOf("bäll"));
+        assertEquals(Arrays.asList("ball", "base", "bat", "bäll"),
+                opened.prefixSearch("b"));
+        assertEquals("bat", opened.relativeSearch("batt"));
+    }
+
+    @Test
+    public final void testOpenIndexEmpty() throws IOException {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false);
+
+        SimpleSearchEngine1L<String> opened = this.saveAndOpen(sse);
+
+        assertEquals(0, opened.size());
+        assertEquals(false, opened.contains("bat"));
+    }
+
+    @Test
+    public final void testOpenIndexAfterRemove() throws IOException {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4");
+        sse.remove("base");
+        sse.remove("bat");
+        sse.add("bats", "5");
+
+        SimpleSearchEngine1L<String> opened = this.saveAndOpen(sse);
+
+        assertEquals(Arrays.asList("ball", "bats", "taste"),
+                opened.prefixSearch(""));
+        assertEquals("5", opened.valueOf("bats"));
+        assertEquals("4", opened.valueOf("taste"));
+    }
+
+    @Test
+    public final void testUpdateOpenedIndex() throws IOException {
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4");
+
+        SimpleSearchEngine1L<String> opened = this.saveAndOpen(sse);
+        opened.add("bass", "5");
+        Pair<String, String> removed = opened.remove("bat");
+
+        assertEquals("bat", removed.key());
+        assertEquals("1", removed.value());
+        assertEquals(Arrays.asList("ball", "base", "bass"),
+                opened.prefixSearch("ba"));
+        assertEquals("5", opened.valueOf("bass"));
+        assertEquals("2", opened.valueOf("base"));
+    }
+
+    @Test
+    public final void testOpenIndexAll() throws IOException {
+        SimpleSearchEngine1L<String> opened = this.saveAndOpen(this.allSSE);
+
+        List<String> expectedVal = Arrays.asList("bask", "basket",
+                "basketball", "basketry", "basketweaver", "basking");
+
+        assertEquals(this.allEntries, opened.size());
+        assertEquals(expectedVal, opened.prefixSearch("bask"));
+        assertEquals(this.allSSE.valueOf("basketball"),
+                opened.valueOf("basketball"));
+        assertEquals(this.allSSE.containsSearch("architectu"),
+                opened.containsSearch("architectu"));
+    }
+
+    @Test
+    public final void testSaveOpenedIndexToItsOwnFile() throws IOException {
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4");
+        sse.saveIndex(file, value -> value);
+        SimpleSearchEngine1L<String> opened = this.constructorTest();
+        opened.openIndex(file, value -> value);
+
+        opened.saveIndex(file, value -> value);
+        SimpleSearchEngine1L<String> reopened = this.constructorTest();
+        reopened.openIndex(file, value -> value);
+
+        assertEquals(Arrays.asList("ball", "base", "bat", "taste"),
+                reopened.prefixSearch(""));
+        assertEquals("4", reopened.valueOf("taste"));
+        assertEquals(Arrays.asList("ball", "base", "bat"),
+                opened.prefixSearch("ba"));
+    }
+
+    @Test
+    public final void testSaveIndexOverOpenedFile() throws IOException {
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2");
+        sse.saveIndex(file, value -> value);
+        SimpleSearchEngine1L<String> opened = this.constructorTest();
+        opened.openIndex(file, value -> value);
+
+        this.createFromArgsTest(false, "taste", "3").saveIndex(file,
+                value -> value);
+
+        assertEquals(Arrays.asList("base", "bat"), opened.prefixSearch(""));
+        assertEquals("2", opened.valueOf("base"));
+    }
+
+    @Test(expected = IOException.class)
+    public final void testOpenIndexCorruptNodes() throws IOException {
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3");
+        sse.saveIndex(file, value -> value);
+
+        /*
+         * Keep the header, and so the size, but zero everything after it
+         */
+        final int headerBytes = 24;
+        byte[] bytes = Files.readAllBytes(file);
+        Arrays.fill(bytes, headerBytes, bytes.length, (byte) 0);
+        Files.write(file, bytes);
+        SimpleSearchEngine1L<String> opened = this.constructorTest();
+
+        opened.openIndex(file, value -> value);
+    }
+
+    /**
+     * Saves an engine over "bat", "base" and "ball" to a temporary index
+     * file and overwrites the maximum tag length in its header.
+     *
+     * @param maxDepth
+     *            the maximum tag length to write
+     * @return the index file
+     * @throws IOException
+     *             if the index file cannot be written
+     */
+    private Path indexWithMaxDepth(int maxDepth) throws IOException {
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3");
+        sse.saveIndex(file, value -> value);
+
+        /*
+         * The maximum tag length is the fifth int of the little-endian header
+         */
+        final int maxDepthOffset = 16;
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(maxDepthOffset, maxDepth);
+        Files.write(file, bytes);
+        return file;
+    }
+
+    @Test(expected = IOException.class)
+    public final void testOpenIndexMaxDepthTooSmall() throws IOException {
+        Path file = this.indexWithMaxDepth(0);
+        SimpleSearchEngine1L<String> opened = this.constructorTest();
+
+        opened.openIndex(file, value -> value);
+    }
+
+    @Test(expected = IOException.class)
+    public final void testOpenIndexMaxDepthNegative() throws IOException {
+        Path file = this.indexWithMaxDepth(-5);
+        SimpleSearchEngine1L<String> opened = this.constructorTest();
+
+        opened.openIndex(file, value -> value);
+    }
+
+    @Test(expected = IOException.class)
+    public final void testOpenIndexNotIndex() throws IOException {
+        Path file = Files.createTempFile("sse", ".idx");
+        file.toFile().deleteOnExit();
+        Files.write(file, "not an index file".getBytes());
+        SimpleSearchEngine1L<String> sse = this.constructorTest();
+
+        sse.openIndex(file, value -> value);
+    }
+
+    /*
+     * Concurrent query tests
+     */
+    @Test
+    public final void testConcurrentQueries() throws Exception {
+        final int threads = 8;
+        final int rounds = 200;
+        SimpleSearchEngine1L<String> sse = this.createFromArgsTest(false, "bat",
+                "1", "base", "2", "ball", "3", "taste", "4", "bomba", "5");
+
+        List<String> expectedPrefix = Arrays.asList("ball", "base", "bat");
+        List<String> expectedAllPrefix = Arrays.asList("bask", "basket",
+                "basketball", "basketry", "basketweaver", "basking");
+        List<String> expectedContains = Arrays.asList("ball", "base", "bat",
+                "bomba", "taste");
+        String expectedRelative = "bat";
+
+        /*
+         * Every thread queries the same two engines; any thread seeing a
+         * wrong answer counts as a failure
+         */
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            failures.add(pool.submit(() -> {
+                int failed = 0;
+                for (int i = 0; i < rounds; i++) {
+                    if (!expectedPrefix.equals(sse.prefixSearch("ba"))
+                            || !expectedContains.equals(sse.containsSearch("a"))
+                            || !expectedRelative.equals(sse.relativeSearch("batt"))
+                            || !"3".equals(sse.valueOf("ball"))
+                            || !expectedAllPrefix
+                                    .equals(this.allSSE.prefixSearch("bask"))
+                            || !this.allSSE.contains("basketball")) {
+                        failed++;
+                    }
+                }
+                return failed;
+            }));
+        }
+
+        int failed = 0;
+        for (Future<Integer> failure : failures) {
+            failed += failure.get();
+        }
+        pool.shutdown();
+
+        assertEquals(0, failed);
+        assertEquals(5, sse.size());
+    }
+
 }